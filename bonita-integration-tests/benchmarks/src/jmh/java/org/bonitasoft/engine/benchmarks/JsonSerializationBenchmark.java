@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bonitasoft.web.rest.model.ModelFactory;
+import org.bonitasoft.web.rest.model.identity.UserItem;
+import org.bonitasoft.web.rest.model.portal.page.PageItem;
+import org.bonitasoft.web.toolkit.client.ItemDefinitionFactory;
+import org.bonitasoft.web.toolkit.client.common.json.JSonSerializer;
+import org.bonitasoft.web.toolkit.client.data.APIID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Write a page of items with a deployed user to a response writer, serialized to a string by the previous
+ * implementation, built with a StringBuilder per value, as the REST API did, or written to the writer as they are
+ * serialized.
+ */
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int numberOfItems;
+
+    private List<PageItem> items;
+    private PrintWriter writer;
+
+    @Setup
+    public void setup() {
+        ItemDefinitionFactory.setDefaultFactory(new ModelFactory());
+        items = new ArrayList<>();
+        for (int i = 0; i < numberOfItems; i++) {
+            UserItem user = new UserItem();
+            user.setId((long) i);
+            user.setUserName("walter.bates" + i);
+            user.setFirstName("Walter");
+            user.setLastName("Bates");
+            PageItem page = new PageItem();
+            page.setId((long) i);
+            page.setUrlToken("custompage_page" + i);
+            page.setDisplayName("My <custom> page " + i);
+            page.setDescription("A page with a \"description\"\nthat needs to be escaped");
+            page.setCreatedByUserId(APIID.makeAPIID((long) i));
+            page.setDeploy(PageItem.ATTRIBUTE_CREATED_BY_USER_ID, user);
+            items.add(page);
+        }
+        writer = new PrintWriter(Writer.nullWriter());
+    }
+
+    @Benchmark
+    public void serializeToString() {
+        writer.print(StringBuilderJSonSerializer.serialize(items));
+        writer.flush();
+    }
+
+    @Benchmark
+    public void serializeToWriter() throws IOException {
+        JSonSerializer.serialize(items, writer);
+        writer.flush();
+    }
+}
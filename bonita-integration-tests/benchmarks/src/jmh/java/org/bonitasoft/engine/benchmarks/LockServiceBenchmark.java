@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.bonitasoft.engine.lock.BonitaLock;
+import org.bonitasoft.engine.lock.LockService;
+import org.bonitasoft.engine.lock.MemoryLockService;
+import org.bonitasoft.engine.lock.StripedMemoryLockService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Lock and unlock objects picked among a small number of process instances, with 8 to 64 threads contending on them.
+ */
+@State(Scope.Benchmark)
+public class LockServiceBenchmark {
+
+    private static final long TENANT_ID = 1L;
+    private static final String OBJECT_TYPE = "SProcessInstance";
+
+    @Param({ "memory", "striped" })
+    public String implementation;
+
+    @Param({ "64", "4096" })
+    public int numberOfObjects;
+
+    private LockService lockService;
+
+    @Setup
+    public void setup() {
+        lockService = "striped".equals(implementation) ? new StripedMemoryLockService(60, 64)
+                : new MemoryLockService(60);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public BonitaLock lockUnlock8Threads() throws Exception {
+        return lockUnlock();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public BonitaLock lockUnlock16Threads() throws Exception {
+        return lockUnlock();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public BonitaLock lockUnlock32Threads() throws Exception {
+        return lockUnlock();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public BonitaLock lockUnlock64Threads() throws Exception {
+        return lockUnlock();
+    }
+
+    private BonitaLock lockUnlock() throws Exception {
+        long id = ThreadLocalRandom.current().nextInt(numberOfObjects);
+        BonitaLock lock = lockService.lock(id, OBJECT_TYPE, TENANT_ID);
+        lockService.unlock(lock, TENANT_ID);
+        return lock;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bonitasoft.engine.commons.ClassReflector;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageInstance;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.TenantIdAccessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Bookkeeping done by the persistence service on each insert and select by id, without the database: check that the
+ * class of the entity is mapped, then read and set its tenant id. Compares the former list lookups and reflective calls
+ * with hash lookups and method handles.
+ */
+@State(Scope.Benchmark)
+public class PersistenceOverheadBenchmark {
+
+    private static final String[] MAPPED_CLASSES = {
+            "org.bonitasoft.engine.page.SPage",
+            "org.bonitasoft.engine.page.SPageWithContent",
+            "org.bonitasoft.engine.page.SPageMapping",
+            "org.bonitasoft.engine.profile.model.SProfile",
+            "org.bonitasoft.engine.profile.model.SProfileMember",
+            "org.bonitasoft.engine.parameter.SParameter",
+            "org.bonitasoft.engine.resources.SBARResourceLight",
+            "org.bonitasoft.engine.resources.SBARResource",
+            "org.bonitasoft.engine.resources.STenantResource",
+            "org.bonitasoft.engine.resources.STenantResourceLight",
+            "org.bonitasoft.engine.temporary.content.STemporaryContent",
+            "org.bonitasoft.engine.archive.model.SArchiveOutboxEntry",
+            "org.bonitasoft.engine.supervisor.mapping.model.SProcessSupervisor",
+            "org.bonitasoft.engine.core.form.SFormMapping",
+            "org.bonitasoft.engine.core.process.instance.model.SProcessInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SFlowNodeInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SActivityInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SHumanTaskInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SUserTaskInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SManualTaskInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SAutomaticTaskInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SReceiveTaskInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SSendTaskInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SCallActivityInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SSubProcessActivityInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SLoopActivityInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SMultiInstanceActivityInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SGatewayInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SConnectorInstance",
+            "org.bonitasoft.engine.core.process.instance.model.SConnectorInstanceWithFailureInfo",
+            "org.bonitasoft.engine.core.process.instance.model.event.SEventInstance",
+            "org.bonitasoft.engine.core.process.instance.model.event.SCatchEventInstance",
+            "org.bonitasoft.engine.core.process.instance.model.event.SStartEventInstance",
+            "org.bonitasoft.engine.core.process.instance.model.event.SIntermediateCatchEventInstance",
+            "org.bonitasoft.engine.core.process.instance.model.event.SBoundaryEventInstance",
+            "org.bonitasoft.engine.core.process.instance.model.event.SThrowEventInstance",
+            "org.bonitasoft.engine.core.process.instance.model.event.SIntermediateThrowEventInstance",
+            "org.bonitasoft.engine.core.process.instance.model.event.SEndEventInstance",
+            "org.bonitasoft.engine.core.process.instance.model.event.trigger.STimerEventTriggerInstance",
+            "org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageInstance",
+            "org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingEvent",
+            "org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingMessageEvent" };
+
+    private final List<Class<? extends PersistentObject>> mappedClassList = new ArrayList<>();
+    private Set<Class<? extends PersistentObject>> mappedClassSet;
+    private PersistentObject entity;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        for (String className : MAPPED_CLASSES) {
+            mappedClassList.add((Class<? extends PersistentObject>) Class.forName(className));
+        }
+        mappedClassSet = new HashSet<>(mappedClassList);
+        entity = new SMessageInstance();
+    }
+
+    @Benchmark
+    public boolean checkClassMappingWithList() {
+        return mappedClassList.contains(entity.getClass());
+    }
+
+    @Benchmark
+    public boolean checkClassMappingWithSet() {
+        return mappedClassSet.contains(entity.getClass());
+    }
+
+    @Benchmark
+    public Long setTenantWithReflection() throws Exception {
+        Long tenantId = ClassReflector.invokeGetter(entity, "getTenantId");
+        ClassReflector.invokeSetter(entity, "setTenantId", long.class, 1L);
+        return tenantId;
+    }
+
+    @Benchmark
+    public Long setTenantWithMethodHandle() {
+        Long tenantId = TenantIdAccessor.getTenantId(entity);
+        entity.setTenantId(1L);
+        return tenantId;
+    }
+}
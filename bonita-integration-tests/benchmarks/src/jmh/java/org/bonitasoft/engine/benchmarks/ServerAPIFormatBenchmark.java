@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.engine.api.impl.XmlConverter;
+import org.bonitasoft.engine.api.internal.ServerAPIBinaryFormat;
+import org.bonitasoft.engine.bpm.process.ProcessInstance;
+import org.bonitasoft.engine.bpm.process.ProcessInstanceSearchDescriptor;
+import org.bonitasoft.engine.bpm.process.impl.internal.ProcessInstanceImpl;
+import org.bonitasoft.engine.search.Order;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.impl.SearchOptionsImpl;
+import org.bonitasoft.engine.search.impl.SearchResultImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encode and decode the request and the response of typical process API calls, as the HTTP client and the serverAPI
+ * servlet do, in XML or in the binary format.
+ */
+@State(Scope.Benchmark)
+public class ServerAPIFormatBenchmark {
+
+    @Param({ "xml", "binary" })
+    public String format;
+
+    private final XmlConverter xmlConverter = new XmlConverter();
+
+    private Map<String, Serializable> options;
+    private List<String> searchParameterClasses;
+    private Object[] searchParameters;
+    private SearchResultImpl<ProcessInstance> searchResult;
+    private List<String> getParameterClasses;
+    private Object[] getParameters;
+    private ProcessInstance processInstance;
+
+    @Setup
+    public void setup() {
+        options = new HashMap<>();
+        options.put("session", 123456789L);
+        SearchOptionsImpl searchOptions = new SearchOptionsImpl(0, 20);
+        searchOptions.addFilter(ProcessInstanceSearchDescriptor.STARTED_BY, 4L);
+        searchOptions.addSort(ProcessInstanceSearchDescriptor.NAME, Order.ASC);
+        searchParameterClasses = Collections.singletonList(SearchOptions.class.getName());
+        searchParameters = new Object[] { searchOptions };
+        List<ProcessInstance> processInstances = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            processInstances.add(processInstance(i));
+        }
+        searchResult = new SearchResultImpl<>(1000, processInstances);
+        getParameterClasses = Collections.singletonList(long.class.getName());
+        getParameters = new Object[] { 3L };
+        processInstance = processInstance(3L);
+    }
+
+    private static ProcessInstance processInstance(long id) {
+        ProcessInstanceImpl processInstance = new ProcessInstanceImpl("Leave request");
+        processInstance.setState("started");
+        processInstance.setStartDate(new Date());
+        processInstance.setLastUpdate(new Date());
+        processInstance.setStartedBy(4L);
+        processInstance.setProcessDefinitionId(5489865465L);
+        processInstance.setRootProcessInstanceId(id);
+        processInstance.setDescription("Request of leave for the summer");
+        processInstance.setStringIndex1("Walter Bates");
+        processInstance.setStringIndexLabel1("Requester");
+        return processInstance;
+    }
+
+    @Benchmark
+    public Object searchProcessInstances() throws Exception {
+        return call(searchParameterClasses, searchParameters, searchResult);
+    }
+
+    @Benchmark
+    public Object getProcessInstance() throws Exception {
+        return call(getParameterClasses, getParameters, processInstance);
+    }
+
+    private Object call(List<String> parameterClasses, Object[] parameters, Object result) throws Exception {
+        if ("binary".equals(format)) {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            ServerAPIBinaryFormat.writeRequest(request, options, parameterClasses, parameters);
+            ServerAPIBinaryFormat.readRequest(new ByteArrayInputStream(request.toByteArray()));
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            ServerAPIBinaryFormat.writeResponse(response, result);
+            return ServerAPIBinaryFormat.readResponse(new ByteArrayInputStream(response.toByteArray()));
+        }
+        xmlConverter.fromXML(xmlConverter.toXML(options));
+        xmlConverter.fromXML(xmlConverter.toXML(parameterClasses));
+        xmlConverter.fromXML(xmlConverter.toXML(parameters));
+        return xmlConverter.fromXML(xmlConverter.toXML(result));
+    }
+}
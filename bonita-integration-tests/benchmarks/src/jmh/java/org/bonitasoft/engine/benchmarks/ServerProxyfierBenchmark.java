@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import javassist.util.proxy.ProxyFactory;
+
+import org.bonitasoft.engine.bdm.Entity;
+import org.bonitasoft.engine.business.data.proxy.ServerLazyLoader;
+import org.bonitasoft.engine.business.data.proxy.ServerProxyfier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Proxify the list of business objects returned by a query, with a new proxy factory per object as the
+ * {@link ServerProxyfier} did, or with the proxy class cached per entity class.
+ */
+@State(Scope.Benchmark)
+public class ServerProxyfierBenchmark {
+
+    @Param({ "1", "100", "1000" })
+    public int numberOfEntities;
+
+    private List<Invoice> entities;
+    private ServerProxyfier proxyfier;
+    private ServerLazyLoader lazyLoader;
+
+    @Setup
+    public void setup() {
+        entities = new ArrayList<>();
+        for (long i = 0; i < numberOfEntities; i++) {
+            entities.add(new Invoice(i));
+        }
+        lazyLoader = new ServerLazyLoader(null);
+        proxyfier = new ServerProxyfier(lazyLoader);
+    }
+
+    @Benchmark
+    public List<Entity> proxifyWithNewProxyFactory() throws Exception {
+        List<Entity> proxies = new ArrayList<>();
+        for (Invoice entity : entities) {
+            ProxyFactory factory = new ProxyFactory();
+            factory.setSuperclass(entity.getClass());
+            factory.setFilter((Method m) -> true);
+            proxies.add((Entity) factory.create(new Class<?>[0], new Object[0],
+                    proxyfier.new LazyMethodHandler(entity, lazyLoader)));
+        }
+        return proxies;
+    }
+
+    @Benchmark
+    public List<Invoice> proxifyWithCachedProxyClass() {
+        return proxyfier.proxify(entities);
+    }
+
+    public static class Invoice implements Entity {
+
+        private Long persistenceId;
+        private String reference;
+
+        public Invoice() {
+        }
+
+        public Invoice(long persistenceId) {
+            this.persistenceId = persistenceId;
+            this.reference = "INV-" + persistenceId;
+        }
+
+        @Override
+        public Long getPersistenceId() {
+            return persistenceId;
+        }
+
+        @Override
+        public Long getPersistenceVersion() {
+            return 0L;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+    }
+}
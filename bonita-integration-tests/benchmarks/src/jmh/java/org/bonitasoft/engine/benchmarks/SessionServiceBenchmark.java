@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.bonitasoft.engine.session.SessionService;
+import org.bonitasoft.engine.session.impl.SessionProviderImpl;
+import org.bonitasoft.engine.session.impl.SessionServiceImpl;
+import org.bonitasoft.engine.session.model.SSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Validate and renew sessions picked among the open sessions, the way each API call does, with 1 to 32 threads.
+ */
+@State(Scope.Benchmark)
+public class SessionServiceBenchmark {
+
+    @Param({ "100", "10000" })
+    public int numberOfSessions;
+
+    private SessionService sessionService;
+    private long[] sessionIds;
+
+    @Setup
+    public void setup() throws Exception {
+        sessionService = new SessionServiceImpl(new SessionProviderImpl(), "benchmark");
+        sessionIds = new long[numberOfSessions];
+        for (int i = 0; i < numberOfSessions; i++) {
+            sessionIds[i] = sessionService.createSession(1L, i, "user" + i, false).getId();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public SSession validateAndRenew1Thread() throws Exception {
+        return validateAndRenew();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public SSession validateAndRenew8Threads() throws Exception {
+        return validateAndRenew();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public SSession validateAndRenew32Threads() throws Exception {
+        return validateAndRenew();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean validate8Threads() throws Exception {
+        return sessionService.isValid(randomSessionId());
+    }
+
+    private SSession validateAndRenew() throws Exception {
+        long sessionId = randomSessionId();
+        sessionService.renewSession(sessionId);
+        return sessionService.getSession(sessionId);
+    }
+
+    private long randomSessionId() {
+        return sessionIds[ThreadLocalRandom.current().nextInt(numberOfSessions)];
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.benchmarks;
+
+import static java.lang.Integer.toHexString;
+
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+import org.bonitasoft.web.toolkit.client.common.json.JsonSerializable;
+import org.bonitasoft.web.toolkit.client.data.item.IItem;
+
+/**
+ * Copy of the previous implementation of JSonSerializer and Item.toJson(), which built a new StringBuilder for each
+ * item, collection, map, key and value: the baseline of {@link JsonSerializationBenchmark}.
+ */
+final class StringBuilderJSonSerializer {
+
+    private static final ThreadLocal<SimpleDateFormat> dateTimeFormat = ThreadLocal
+            .withInitial(() -> new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS"));
+
+    private StringBuilderJSonSerializer() {
+    }
+
+    static String serialize(final Object object) {
+        return serializeInternal(object).toString();
+    }
+
+    private static StringBuilder serializeInternal(Object object) {
+        if (object == null) {
+            return new StringBuilder("null");
+        } else if (object instanceof IItem) {
+            return serializeItemInternal((IItem) object);
+        } else if (object instanceof JsonSerializable) {
+            return new StringBuilder(((JsonSerializable) object).toJson());
+        } else if (object instanceof Collection<?>) {
+            return serializeCollectionInternal((Collection<?>) object);
+        } else if (object instanceof Map<?, ?>) {
+            return serializeMapInternal((Map<?, ?>) object);
+        } else if (object instanceof Number) {
+            return new StringBuilder(object.toString());
+        } else if (object instanceof Boolean) {
+            return new StringBuilder((Boolean) object ? "true" : "false");
+        } else if (object instanceof Date) {
+            return quoteInternal(dateTimeFormat.get().format((Date) object));
+        }
+        return quoteInternal(object.toString());
+    }
+
+    private static StringBuilder serializeItemInternal(IItem item) {
+        final StringBuilder json = new StringBuilder().append("{");
+        boolean first = true;
+        for (final String attribute : item.getAttributeNames()) {
+            if (item.getDeploys().containsKey(attribute)) {
+                json.append(!first ? "," : "").append(quoteInternal(attribute)).append(":")
+                        .append(serializeInternal(item.getDeploys().get(attribute)));
+            } else {
+                json.append(!first ? "," : "").append(quoteInternal(attribute)).append(":")
+                        .append(quoteInternal(item.getAttributeValue(attribute)));
+            }
+            first = false;
+        }
+        json.append("}");
+        return json;
+    }
+
+    private static StringBuilder serializeCollectionInternal(Collection<?> list) {
+        final StringBuilder json = new StringBuilder("[");
+        boolean first = true;
+        for (final Object item : list) {
+            json.append(!first ? "," : "").append(serializeInternal(item));
+            first = false;
+        }
+        json.append("]");
+        return json;
+    }
+
+    private static StringBuilder serializeMapInternal(Map<?, ?> map) {
+        final StringBuilder json = new StringBuilder().append("{");
+        boolean first = true;
+        for (final Object key : map.keySet()) {
+            json.append(!first ? "," : "").append(quoteInternal(key.toString())).append(":")
+                    .append(serializeInternal(map.get(key)));
+            first = false;
+        }
+        json.append("}");
+        return json;
+    }
+
+    private static StringBuilder quoteInternal(final String value) {
+        return new StringBuilder("\"").append(escapeInternal(value).toString()).append("\"");
+    }
+
+    private static StringBuilder escapeInternal(String string) {
+        if (string == null || string.length() == 0) {
+            return new StringBuilder();
+        }
+        char b;
+        char c = 0;
+        final int len = string.length();
+        final StringBuilder sb = new StringBuilder(len + 4);
+        for (int i = 0; i < len; i += 1) {
+            b = c;
+            c = string.charAt(i);
+            switch (c) {
+                case '<':
+                case '>':
+                case '\'':
+                case '\\':
+                case '"':
+                    sb.append(convertToUnicodeInternal(c));
+                    break;
+                case '/':
+                    if (b == '<') {
+                        sb.append('\\');
+                    }
+                    sb.append(c);
+                    break;
+                case '\b':
+                    sb.append("\\b");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    if (c < ' ' || c >= '\u0080' && c < '\u00a0' || c >= '\u2000' && c < '\u2100') {
+                        sb.append(convertToUnicodeInternal(c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return new StringBuilder(sb);
+    }
+
+    private static StringBuffer convertToUnicodeInternal(char character) {
+        StringBuilder hexString = new StringBuilder("000").append(toHexString(character));
+        return new StringBuffer("\\u").append(hexString.substring(hexString.length() - 4));
+    }
+}
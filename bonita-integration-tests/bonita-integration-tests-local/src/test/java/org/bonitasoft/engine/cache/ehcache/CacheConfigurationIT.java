@@ -37,7 +37,6 @@ public class CacheConfigurationIT extends CommonBPMServicesTest {
                 "CONFIGURATION_FILES_CACHE",
                 "USER_FILTER",
                 "transient_data",
-                "GROOVY_SCRIPT_CACHE_NAME",
                 "_PROCESSDEF",
                 "SYNCHRO_SERVICE_CACHE",
                 "parameters",
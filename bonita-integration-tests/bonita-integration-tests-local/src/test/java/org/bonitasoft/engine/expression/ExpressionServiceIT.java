@@ -27,6 +27,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.bonitasoft.engine.bpm.CommonBPMServicesTest;
 import org.bonitasoft.engine.builder.BuilderFactory;
 import org.bonitasoft.engine.cache.ehcache.EhCacheCacheService;
@@ -42,7 +44,7 @@ import org.bonitasoft.engine.expression.exception.SExpressionDependencyMissingEx
 import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
 import org.bonitasoft.engine.expression.exception.SExpressionTypeUnknownException;
 import org.bonitasoft.engine.expression.exception.SInvalidExpressionException;
-import org.bonitasoft.engine.expression.impl.GroovyScriptExpressionExecutorCacheStrategy;
+import org.bonitasoft.engine.expression.impl.CompiledGroovyScriptCache;
 import org.bonitasoft.engine.expression.model.SExpression;
 import org.bonitasoft.engine.expression.model.builder.SExpressionBuilder;
 import org.bonitasoft.engine.expression.model.builder.SExpressionBuilderFactory;
@@ -165,16 +167,23 @@ public class ExpressionServiceIT extends CommonBPMServicesTest {
         final String strContent = "return \"junit test checkGroovyScriptStrategyUsesCache\"";
         final SExpression strExpr = buildExpression(strContent, SExpression.TYPE_READ_ONLY_SCRIPT,
                 String.class.getName(), SExpression.GROOVY, null);
-        final String cacheKey = GroovyScriptExpressionExecutorCacheStrategy.SCRIPT_KEY + strContent.hashCode();
-        assertThat(cacheService.get(GroovyScriptExpressionExecutorCacheStrategy.GROOVY_SCRIPT_CACHE_NAME, cacheKey))
-                .as("should not contains key").isNull();
+        final MeterRegistry meterRegistry = getServiceAccessor().lookup(MeterRegistry.class);
+        final double compilations = count(meterRegistry, CompiledGroovyScriptCache.NUMBER_OF_COMPILATIONS);
+        final double hits = count(meterRegistry, CompiledGroovyScriptCache.NUMBER_OF_HITS);
 
         //when
         evaluate(strExpr, EMPTY_RESOLVED_EXPRESSIONS);
+        evaluate(strExpr, EMPTY_RESOLVED_EXPRESSIONS);
 
         //then
-        assertThat(cacheService.get(GroovyScriptExpressionExecutorCacheStrategy.GROOVY_SCRIPT_CACHE_NAME, cacheKey))
-                .as("should contains key").isNotNull();
+        assertThat(count(meterRegistry, CompiledGroovyScriptCache.NUMBER_OF_COMPILATIONS) - compilations)
+                .as("should compile the script once").isEqualTo(1);
+        assertThat(count(meterRegistry, CompiledGroovyScriptCache.NUMBER_OF_HITS) - hits)
+                .as("should reuse the compiled script").isEqualTo(1);
+    }
+
+    private static double count(MeterRegistry meterRegistry, String counterName) {
+        return meterRegistry.find(counterName).counters().stream().mapToDouble(Counter::count).sum();
     }
 
     @Test
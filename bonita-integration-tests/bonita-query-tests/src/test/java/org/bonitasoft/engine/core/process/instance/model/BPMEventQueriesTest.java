@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.core.process.instance.model;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType.INTERMEDIATE_CATCH_EVENT;
 import static org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType.INTERMEDIATE_THROW_EVENT;
 import static org.bonitasoft.engine.test.persistence.builder.MessageInstanceBuilder.aMessageInstance;
 import static org.bonitasoft.engine.test.persistence.builder.WaitingMessageEventBuilder.aWaitingEvent;
@@ -26,6 +27,7 @@ import javax.inject.Inject;
 
 import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageInstance;
 import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingEvent;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingSignalEvent;
 import org.bonitasoft.engine.test.persistence.repository.BPMEventRepository;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -181,4 +183,28 @@ public class BPMEventQueriesTest {
         assertThat(sWaitingEvent.getEventType()).isEqualTo(INTERMEDIATE_THROW_EVENT);
     }
 
+    @Test
+    public void should_get_listening_signals_by_batches_up_to_the_max_id() {
+        SWaitingSignalEvent listener1 = bPMEventRepository.add(aListeningSignal("go"));
+        bPMEventRepository.add(aListeningSignal("stop"));
+        SWaitingSignalEvent listener2 = bPMEventRepository.add(aListeningSignal("go"));
+        SWaitingSignalEvent listener3 = bPMEventRepository.add(aListeningSignal("go"));
+        long maxId = bPMEventRepository.getMaxListeningSignalId("go");
+        // registered after the signal was thrown
+        bPMEventRepository.add(aListeningSignal("go"));
+
+        List<SWaitingSignalEvent> firstBatch = bPMEventRepository.getListeningSignalsAfter("go", 0, maxId, 2);
+        List<SWaitingSignalEvent> secondBatch = bPMEventRepository.getListeningSignalsAfter("go",
+                firstBatch.get(1).getId(), maxId, 2);
+
+        assertThat(maxId).isEqualTo(listener3.getId());
+        assertThat(firstBatch).containsExactly(listener1, listener2);
+        assertThat(secondBatch).containsExactly(listener3);
+        assertThat(bPMEventRepository.getMaxListeningSignalId("unknown")).isNull();
+    }
+
+    private static SWaitingSignalEvent aListeningSignal(String signalName) {
+        return new SWaitingSignalEvent(INTERMEDIATE_CATCH_EVENT, 1L, "process", 2L, "catch", signalName);
+    }
+
 }
@@ -997,4 +997,17 @@ public class ProcessInstanceQueriesTest {
 
         assertThat(processInstanceIdsToRestart).containsOnly(1L, 2L, 3L, 4L, 5L);
     }
+
+    @Test
+    public void should_return_process_instance_ids_to_restart_after_the_last_id_ordered_by_id() {
+        for (long id = 1; id <= 6; id++) {
+            repository.add(SProcessInstance.builder().id(id).name("process" + id).stateId(INITIALIZING.getId())
+                    .build());
+        }
+
+        assertThat(repository.getProcessInstanceIdsToRecover(System.currentTimeMillis(), 0, 4))
+                .containsExactly(1L, 2L, 3L, 4L);
+        assertThat(repository.getProcessInstanceIdsToRecover(System.currentTimeMillis(), 4, 4))
+                .containsExactly(5L, 6L);
+    }
 }
@@ -17,6 +17,7 @@ import static org.bonitasoft.engine.core.process.instance.event.impl.EventInstan
 
 import java.util.List;
 
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingSignalEvent;
 import org.hibernate.SessionFactory;
 import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
@@ -67,4 +68,21 @@ public class BPMEventRepository extends TestRepository {
         namedQuery.setParameter("creationDate", creationDate);
         return namedQuery.list();
     }
+
+    @SuppressWarnings("unchecked")
+    public List<SWaitingSignalEvent> getListeningSignalsAfter(String signalName, long lastId, long maxId,
+            int maxResults) {
+        Query namedQuery = getNamedQuery("getListeningSignalsAfter");
+        namedQuery.setParameter("signalName", signalName);
+        namedQuery.setParameter("lastId", lastId);
+        namedQuery.setParameter("maxId", maxId);
+        namedQuery.setMaxResults(maxResults);
+        return namedQuery.list();
+    }
+
+    public Long getMaxListeningSignalId(String signalName) {
+        Query namedQuery = getNamedQuery("getMaxListeningSignalId");
+        namedQuery.setParameter("signalName", signalName);
+        return (Long) namedQuery.uniqueResult();
+    }
 }
@@ -48,6 +48,7 @@ public class FlowNodeInstanceRepository extends TestRepository {
         namedQuery.setMaxResults(queryOptions.getNumberOfResults());
         namedQuery.setFirstResult(queryOptions.getFromIndex());
         namedQuery.setParameter("maxLastUpdate", System.currentTimeMillis() - considerElementsOlderThan.toMillis());
+        namedQuery.setParameter("lastId", 0L);
         return (List<Long>) namedQuery.list();
     }
 
@@ -58,6 +59,7 @@ public class FlowNodeInstanceRepository extends TestRepository {
         namedQuery.setMaxResults(queryOptions.getNumberOfResults());
         namedQuery.setFirstResult(queryOptions.getFromIndex());
         namedQuery.setParameter("maxLastUpdate", System.currentTimeMillis() - considerElementsOlderThan.toMillis());
+        namedQuery.setParameter("lastId", 0L);
         return (List<Long>) namedQuery.list();
     }
 
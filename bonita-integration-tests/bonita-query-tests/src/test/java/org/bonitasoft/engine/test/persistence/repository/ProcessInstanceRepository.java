@@ -159,8 +159,15 @@ public class ProcessInstanceRepository extends TestRepository {
     }
 
     public List<Long> getProcessInstanceIdsToRecover(final long maxLastUpdate) {
+        return getProcessInstanceIdsToRecover(maxLastUpdate, 0, Integer.MAX_VALUE);
+    }
+
+    public List<Long> getProcessInstanceIdsToRecover(final long maxLastUpdate, final long lastId,
+            final int maxResults) {
         final Query<Long> namedQuery = getNamedQuery("getProcessInstanceIdsToRecover");
         namedQuery.setParameter("maxLastUpdate", maxLastUpdate);
+        namedQuery.setParameter("lastId", lastId);
+        namedQuery.setMaxResults(maxResults);
         return namedQuery.list();
     }
 
@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.api.internal.servlet;
 
 import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
+import static javax.servlet.http.HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE;
 
 import java.io.IOException;
 
@@ -23,6 +24,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.fileupload.FileUploadException;
+import org.bonitasoft.engine.api.internal.ServerAPIBinaryFormat;
 import org.bonitasoft.engine.properties.BooleanProperty;
 
 /**
@@ -34,12 +36,21 @@ public class HttpAPIServlet extends HttpServlet {
 
     public static final String PROPERTY_TO_ENABLE_HTTP_API = "http.api";
 
+    /**
+     * Accept calls in the binary format of {@link ServerAPIBinaryFormat}. As it relies on the Java serialization, only
+     * enable it when the HTTP API is only reachable by trusted clients.
+     */
+    public static final String PROPERTY_TO_ENABLE_HTTP_API_BINARY_FORMAT = "http.api.binary";
+
     private static final long serialVersionUID = 4936475894513095747L;
     private BooleanProperty httpApi;
+    private BooleanProperty httpApiBinaryFormat;
 
     @Override
     public void init() throws ServletException {
         httpApi = new BooleanProperty("Http API", PROPERTY_TO_ENABLE_HTTP_API, true);
+        httpApiBinaryFormat = new BooleanProperty("Http API binary format", PROPERTY_TO_ENABLE_HTTP_API_BINARY_FORMAT,
+                false);
     }
 
     @Override
@@ -49,6 +60,11 @@ public class HttpAPIServlet extends HttpServlet {
             resp.sendError(SC_FORBIDDEN);
             return;
         }
+        if (!httpApiBinaryFormat.isEnabled() && ServerAPIBinaryFormat.isBinaryContentType(req.getContentType())) {
+            // clients fall back on the XML format
+            resp.sendError(SC_UNSUPPORTED_MEDIA_TYPE);
+            return;
+        }
         callHttpApi(req, resp);
     }
 
@@ -15,8 +15,11 @@ package org.bonitasoft.engine.api.internal.servlet;
 
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.NotSerializableException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -29,8 +32,10 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.fileupload.FileUploadException;
 import org.bonitasoft.engine.api.impl.ServerAPIFactory;
 import org.bonitasoft.engine.api.internal.ServerAPI;
+import org.bonitasoft.engine.api.internal.ServerAPIBinaryFormat;
 import org.bonitasoft.engine.api.internal.ServerWrappedException;
 import org.bonitasoft.engine.api.internal.servlet.impl.XmlConverter;
+import org.bonitasoft.engine.exception.BonitaRuntimeException;
 import org.bonitasoft.engine.exception.StackTraceTransformer;
 
 /**
@@ -73,6 +78,10 @@ public class HttpAPIServletCall extends ServletCall {
 
     @Override
     public void doPost() {
+        if (ServerAPIBinaryFormat.isBinaryContentType(getContentType())) {
+            doBinaryPost();
+            return;
+        }
         try {
             String apiInterfaceName = null;
             String methodName = null;
@@ -128,6 +137,45 @@ public class HttpAPIServletCall extends ServletCall {
         }
     }
 
+    /**
+     * Call made in the binary format of {@link ServerAPIBinaryFormat}: the response is the result of the call, or the
+     * exception it threw with a status 500.
+     */
+    private void doBinaryPost() {
+        Object result;
+        int status = HttpServletResponse.SC_OK;
+        try {
+            final String[] pathParams = getRequestURL().split(SLASH);
+            final ServerAPIBinaryFormat.Request request = ServerAPIBinaryFormat.readRequest(getRequestInputStream());
+            try {
+                result = getServerAPI().invokeMethod(request.getOptions(), pathParams[pathParams.length - 2],
+                        pathParams[pathParams.length - 1], request.getClassNameParameters(),
+                        request.getParametersValues());
+            } catch (ServerWrappedException e) {
+                // merge stack trace of the server exception
+                throw StackTraceTransformer.mergeStackTraces(e);
+            }
+        } catch (final Exception e) {
+            result = e instanceof ServerWrappedException ? e.getCause() : e;
+            status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+        // serialized before being written, so that a result that can not be serialized is answered as an error
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try {
+            try {
+                ServerAPIBinaryFormat.writeResponse(body, result);
+            } catch (final NotSerializableException e) {
+                body.reset();
+                status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+                ServerAPIBinaryFormat.writeResponse(body,
+                        new BonitaRuntimeException("Unable to serialize the response of " + getRequestURL(), e));
+            }
+            body.writeTo(getResponseOutputStream(ServerAPIBinaryFormat.CONTENT_TYPE, status));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to write the response of " + getRequestURL(), e);
+        }
+    }
+
     // Visible for testing
     ServerAPI getServerAPI() {
         return ServerAPIFactory.getServerAPI();
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -167,6 +168,20 @@ public abstract class ServletCall {
         return request.getRequestURL().toString();
     }
 
+    /**
+     * @see javax.servlet.ServletRequest#getContentType()
+     */
+    public final String getContentType() {
+        return request.getContentType();
+    }
+
+    /**
+     * The body of the request, to read when it is not made of parameters
+     */
+    protected final InputStream getRequestInputStream() throws IOException {
+        return request.getInputStream();
+    }
+
     /**
      * Read the input stream and set it in a String
      */
@@ -318,6 +333,16 @@ public abstract class ServletCall {
         }
     }
 
+    /**
+     * Write bytes into the output, with the given content type and status
+     */
+    protected final OutputStream getResponseOutputStream(final String contentType, final int status)
+            throws IOException {
+        response.setStatus(status);
+        response.setContentType(contentType);
+        return response.getOutputStream();
+    }
+
     protected void error(final String message, final int errorCode) {
         output(message);
         response.setStatus(errorCode);
@@ -14,14 +14,22 @@
 package org.bonitasoft.engine.api.internal.servlet;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 
 import org.bonitasoft.engine.api.internal.ServerAPI;
+import org.bonitasoft.engine.api.internal.ServerAPIBinaryFormat;
+import org.bonitasoft.engine.api.internal.ServerWrappedException;
+import org.bonitasoft.engine.exception.BonitaException;
 import org.bonitasoft.engine.session.impl.APISessionImpl;
 import org.junit.Rule;
 import org.junit.Test;
@@ -34,6 +42,8 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 public class HttpAPIServletCallTest {
 
+    private static final String LOGIN_URL = "http://localhost/serverAPI/com.bonitasoft.engine.api.LoginAPI/login";
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -94,10 +104,67 @@ public class HttpAPIServletCallTest {
                 "</object-stream>");
     }
 
+    @Test
+    public void should_manage_request_in_binary_format() throws Exception {
+        //given:
+        MockHttpServletRequest request = binaryRequest(LOGIN_URL,
+                asList(String.class.getName(), String.class.getName()), new Object[] { "install", "install" });
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpAPIServletCall httpAPIServletCall = spy(new HttpAPIServletCall(request, response));
+        ServerAPI serverAPI = mock(ServerAPI.class);
+        doReturn(serverAPI).when(httpAPIServletCall).getServerAPI();
+        APISessionImpl apiSession = new APISessionImpl(12L, date("2018-06-07T15:10:09.132Z"), 3600000, "install", -1,
+                "default", 1L);
+        when(serverAPI.invokeMethod(new HashMap<>(), "com.bonitasoft.engine.api.LoginAPI", "login",
+                asList(String.class.getName(), String.class.getName()), new Object[] { "install", "install" }))
+                        .thenReturn(apiSession);
+
+        //when:
+        httpAPIServletCall.doPost();
+
+        //then:
+        assertThat(response.getStatus()).as("Response status").isEqualTo(200);
+        assertThat(response.getContentType()).as("Response content type")
+                .isEqualTo(ServerAPIBinaryFormat.CONTENT_TYPE);
+        Object result = ServerAPIBinaryFormat.readResponse(new ByteArrayInputStream(response.getContentAsByteArray()));
+        assertThat(result).isInstanceOf(APISessionImpl.class);
+        assertThat(((APISessionImpl) result).getId()).isEqualTo(12L);
+    }
+
+    @Test
+    public void should_answer_exception_in_binary_format_when_call_fails() throws Exception {
+        //given:
+        MockHttpServletRequest request = binaryRequest(LOGIN_URL, emptyList(), new Object[0]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpAPIServletCall httpAPIServletCall = spy(new HttpAPIServletCall(request, response));
+        ServerAPI serverAPI = mock(ServerAPI.class);
+        doReturn(serverAPI).when(httpAPIServletCall).getServerAPI();
+        when(serverAPI.invokeMethod(any(), any(), any(), any(), any()))
+                .thenThrow(new ServerWrappedException(new BonitaException("login failed")));
+
+        //when:
+        httpAPIServletCall.doPost();
+
+        //then:
+        assertThat(response.getStatus()).as("Response status").isEqualTo(500);
+        Object result = ServerAPIBinaryFormat.readResponse(new ByteArrayInputStream(response.getContentAsByteArray()));
+        assertThat(result).isInstanceOf(BonitaException.class).hasMessage("login failed");
+    }
+
     // =================================================================================================================
     // UTILS
     // =================================================================================================================
 
+    private static MockHttpServletRequest binaryRequest(String url, List<String> classNameParameters,
+            Object[] parametersValues) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ServerAPIBinaryFormat.writeRequest(body, new HashMap<>(), classNameParameters, parametersValues);
+        return MockMvcRequestBuilders.post(url)
+                .contentType(ServerAPIBinaryFormat.CONTENT_TYPE)
+                .content(body.toByteArray())
+                .buildRequest(new MockServletContext());
+    }
+
     private static Date date(String date) {
         return Date.from(Instant.parse(date));
     }
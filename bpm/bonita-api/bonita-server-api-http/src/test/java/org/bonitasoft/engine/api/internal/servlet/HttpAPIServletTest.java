@@ -19,6 +19,7 @@ import static org.mockito.Mockito.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.bonitasoft.engine.api.internal.ServerAPIBinaryFormat;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.EnvironmentVariables;
@@ -87,4 +88,30 @@ public class HttpAPIServletTest {
         verify(response, never()).sendError(anyInt());
     }
 
+    @Test
+    public void should_send_415_on_binary_format_call_when_binary_format_is_disabled() throws Exception {
+        HttpAPIServlet httpAPIServlet = spy(new HttpAPIServlet());
+        doReturn(ServerAPIBinaryFormat.CONTENT_TYPE).when(request).getContentType();
+
+        httpAPIServlet.init();
+        httpAPIServlet.doPost(request, response);
+
+        verify(response).sendError(415);
+        verify(httpAPIServlet, never()).callHttpApi(any(), any());
+    }
+
+    @Test
+    public void should_accept_binary_format_call_when_enabled_using_props() throws Exception {
+        System.setProperty("http.api.binary", "true");
+        HttpAPIServlet httpAPIServlet = spy(new HttpAPIServlet());
+        doNothing().when(httpAPIServlet).callHttpApi(any(), any());
+        doReturn(ServerAPIBinaryFormat.CONTENT_TYPE).when(request).getContentType();
+
+        httpAPIServlet.init();
+        httpAPIServlet.doPost(request, response);
+
+        verify(response, never()).sendError(anyInt());
+        verify(httpAPIServlet).callHttpApi(request, response);
+    }
+
 }
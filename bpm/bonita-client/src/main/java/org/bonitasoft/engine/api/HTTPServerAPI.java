@@ -18,14 +18,18 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
@@ -33,6 +37,7 @@ import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.ByteArrayBody;
@@ -40,8 +45,10 @@ import org.apache.http.entity.mime.content.StringBody;
 import org.apache.http.impl.client.BasicResponseHandler;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 import org.bonitasoft.engine.api.impl.XmlConverter;
 import org.bonitasoft.engine.api.internal.ServerAPI;
+import org.bonitasoft.engine.api.internal.ServerAPIBinaryFormat;
 import org.bonitasoft.engine.api.internal.ServerWrappedException;
 import org.bonitasoft.engine.bpm.bar.BusinessArchive;
 import org.bonitasoft.engine.digest.DigestUtils;
@@ -51,6 +58,9 @@ import org.bonitasoft.engine.exception.StackTraceTransformer;
  * Call the remote engine using HTTP post
  * That class serialize api call parameters in a XML body and post it to the serverAPI servlet like this
  * /serverAPI/[api interface name]/[method name]
+ * <p>
+ * When {@value #BINARY_FORMAT_ACTIVE} is set to true, parameters and results are exchanged in the binary format of
+ * {@link ServerAPIBinaryFormat} instead. If the server does not accept it, calls are made in XML again.
  */
 public class HTTPServerAPI implements ServerAPI {
 
@@ -84,6 +94,11 @@ public class HTTPServerAPI implements ServerAPI {
     // package-private for testing purpose
     static final String APPLICATION_NAME = "application.name";
     static final String CONNECTIONS_MAX = "connections.max";
+    static final String CONNECTIONS_IDLE_TIMEOUT = "connections.idleTimeoutSeconds";
+    static final String BINARY_FORMAT_ACTIVE = "binaryFormat.active";
+
+    // package-private for testing purpose
+    static final Object BINARY_FORMAT_NOT_ACCEPTED = new Object();
 
     private final String serverUrl;
 
@@ -95,6 +110,8 @@ public class HTTPServerAPI implements ServerAPI {
 
     private final String basicAuthenticationPassword;
 
+    private volatile boolean binaryFormatActive;
+
     private static HttpClient httpclient;
 
     private static final ResponseHandler<String> RESPONSE_HANDLER = new BasicResponseHandler();
@@ -113,6 +130,7 @@ public class HTTPServerAPI implements ServerAPI {
         basicAuthenticationActive = "true".equalsIgnoreCase(parameters.get(BASIC_AUTHENTICATION_ACTIVE));
         basicAuthenticationUserName = parameters.get(BASIC_AUTHENTICATION_USERNAME);
         basicAuthenticationPassword = parameters.get(BASIC_AUTHENTICATION_PASSWORD);
+        binaryFormatActive = "true".equalsIgnoreCase(parameters.get(BINARY_FORMAT_ACTIVE));
     }
 
     private HttpClient createHttpClient(final Map<String, String> parameters) {
@@ -126,6 +144,15 @@ public class HTTPServerAPI implements ServerAPI {
             throw new IllegalArgumentException(
                     "Client connection pool size '" + CONNECTIONS_MAX + "' must be set to a number");
         }
+        try {
+            // keep connections alive between calls, but close them before the server closes them on its side
+            int idleTimeoutSeconds = Integer.parseInt(parameters.getOrDefault(CONNECTIONS_IDLE_TIMEOUT, "30"));
+            builder.evictExpiredConnections();
+            builder.evictIdleConnections(idleTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Client connection idle timeout '" + CONNECTIONS_IDLE_TIMEOUT + "' must be set to a number");
+        }
         return builder.build();
     }
 
@@ -135,6 +162,14 @@ public class HTTPServerAPI implements ServerAPI {
             final List<String> classNameParameters, final Object[] parametersValues) throws ServerWrappedException {
         String response = null;
         try {
+            if (binaryFormatActive) {
+                final Object result = executeBinaryHttpPost(options, apiInterfaceName, methodName,
+                        classNameParameters, parametersValues);
+                if (result != BINARY_FORMAT_NOT_ACCEPTED) {
+                    return checkInvokeMethodReturn(result);
+                }
+                binaryFormatActive = false;
+            }
             response = executeHttpPost(options, apiInterfaceName, methodName, classNameParameters, parametersValues);
             return checkInvokeMethodReturn(response);
         } catch (final UndeclaredThrowableException e) {
@@ -158,6 +193,14 @@ public class HTTPServerAPI implements ServerAPI {
         return invokeMethodReturn;
     }
 
+    // package-private for testing purpose
+    Object checkInvokeMethodReturn(final Object result) throws Throwable {
+        if (result instanceof Throwable) {
+            throw (Throwable) result;
+        }
+        return result;
+    }
+
     // package-private for testing purpose
     String executeHttpPost(final Map<String, Serializable> options, final String apiInterfaceName,
             final String methodName,
@@ -177,10 +220,52 @@ public class HTTPServerAPI implements ServerAPI {
         }
     }
 
-    private final HttpPost createHttpPost(final Map<String, Serializable> options, final String apiInterfaceName,
+    /**
+     * @return the result of the call, the exception it threw, or {@link #BINARY_FORMAT_NOT_ACCEPTED} when the server
+     *         does not accept the binary format
+     */
+    // package-private for testing purpose
+    Object executeBinaryHttpPost(final Map<String, Serializable> options, final String apiInterfaceName,
+            final String methodName, final List<String> classNameParameters, final Object[] parametersValues)
+            throws IOException {
+        final HttpPost httpPost = createHttpPost(apiInterfaceName, methodName,
+                buildBinaryEntity(options, classNameParameters, parametersValues));
+        httpPost.setHeader(HttpHeaders.ACCEPT, ServerAPIBinaryFormat.CONTENT_TYPE);
+        return httpclient.execute(httpPost, response -> {
+            final int statusCode = response.getStatusLine().getStatusCode();
+            final HttpEntity entity = response.getEntity();
+            final String contentType = entity != null && entity.getContentType() != null
+                    ? entity.getContentType().getValue()
+                    : null;
+            // servers that do not know the binary format answer in XML
+            if (statusCode == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE
+                    || contentType != null && contentType.startsWith(XML_UTF_8.getMimeType())) {
+                EntityUtils.consume(entity);
+                return BINARY_FORMAT_NOT_ACCEPTED;
+            }
+            if (!ServerAPIBinaryFormat.isBinaryContentType(contentType)) {
+                EntityUtils.consume(entity);
+                throw new IOException(format("Error while executing POST request (http code: %s) <%s>", statusCode,
+                        httpPost));
+            }
+            // the server answers with the exception thrown by the call when it fails
+            try (InputStream content = entity.getContent()) {
+                return ServerAPIBinaryFormat.readResponse(content);
+            } catch (final ClassNotFoundException e) {
+                throw new IOException("Unable to read the response of <" + httpPost + ">", e);
+            }
+        });
+    }
+
+    private HttpPost createHttpPost(final Map<String, Serializable> options, final String apiInterfaceName,
             final String methodName,
             final List<String> classNameParameters, final Object[] parametersValues) throws IOException {
-        final HttpEntity httpEntity = buildEntity(options, classNameParameters, parametersValues);
+        return createHttpPost(apiInterfaceName, methodName,
+                buildEntity(options, classNameParameters, parametersValues));
+    }
+
+    private HttpPost createHttpPost(final String apiInterfaceName, final String methodName,
+            final HttpEntity httpEntity) {
         final StringBuilder sBuilder = new StringBuilder(serverUrl);
         sBuilder.append(SLASH).append(applicationName).append(SERVER_API).append(apiInterfaceName).append(SLASH)
                 .append(methodName);
@@ -236,6 +321,14 @@ public class HTTPServerAPI implements ServerAPI {
         return httpEntity;
     }
 
+    // package-private for testing purpose
+    HttpEntity buildBinaryEntity(final Map<String, Serializable> options, final List<String> classNameParameters,
+            final Object[] parametersValues) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ServerAPIBinaryFormat.writeRequest(body, options, classNameParameters, parametersValues);
+        return new ByteArrayEntity(body.toByteArray(), ContentType.create(ServerAPIBinaryFormat.CONTENT_TYPE));
+    }
+
     private static byte[] serialize(final Object obj) throws IOException {
         final ByteArrayOutputStream b = new ByteArrayOutputStream();
         final ObjectOutputStream o = new ObjectOutputStream(b);
@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.api;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -35,6 +36,8 @@ import java.util.Map;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.bonitasoft.engine.api.impl.XmlConverter;
+import org.bonitasoft.engine.api.internal.ServerAPIBinaryFormat;
 import org.bonitasoft.engine.api.internal.ServerWrappedException;
 import org.bonitasoft.engine.exception.BonitaException;
 import org.junit.Before;
@@ -131,4 +134,58 @@ public class HTTPServerAPITest {
         assertThat(contentAsString).as("Content").contains("välue", "Välue36");
     }
 
+    @Test
+    public void should_build_binary_entity_readable_by_the_server() throws Exception {
+        Map<String, Serializable> options = new HashMap<>();
+        options.put("session", 12L);
+        Object[] parametersValues = { "Välue1", singletonMap("key", "välue"), new byte[] { 1, 2 } };
+
+        HttpEntity entity = httpServerAPI.buildBinaryEntity(options,
+                asList(String.class.getName(), Map.class.getName(), byte[].class.getName()), parametersValues);
+
+        assertThat(entity.getContentType().getValue()).isEqualTo(ServerAPIBinaryFormat.CONTENT_TYPE);
+        ServerAPIBinaryFormat.Request request = ServerAPIBinaryFormat.readRequest(entity.getContent());
+        assertThat(request.getOptions()).containsEntry("session", 12L);
+        assertThat(request.getClassNameParameters()).containsExactly(String.class.getName(), Map.class.getName(),
+                byte[].class.getName());
+        assertThat(request.getParametersValues()).isEqualTo(parametersValues);
+    }
+
+    @Test
+    public void should_throw_exception_returned_in_binary_format() {
+        BonitaException exception = new BonitaException("Bonita exception");
+
+        Throwable thrown = catchThrowable(() -> httpServerAPI.checkInvokeMethodReturn((Object) exception));
+
+        assertThat(thrown).isSameAs(exception);
+    }
+
+    @Test
+    public void should_call_in_xml_when_server_does_not_accept_binary_format() throws Throwable {
+        HashMap<String, String> parameters = new HashMap<>();
+        parameters.put(HTTPServerAPI.SERVER_URL, "localhost:8080");
+        parameters.put(HTTPServerAPI.APPLICATION_NAME, "bonita");
+        parameters.put(HTTPServerAPI.BINARY_FORMAT_ACTIVE, "true");
+        HTTPServerAPI binaryServerAPI = spy(new HTTPServerAPI(parameters));
+        Map<String, Serializable> options = emptyMap();
+        List<String> classNameParameters = emptyList();
+        Object[] parametersValues = new Object[0];
+        doReturn(HTTPServerAPI.BINARY_FORMAT_NOT_ACCEPTED).when(binaryServerAPI).executeBinaryHttpPost(options,
+                "api", "method", classNameParameters, parametersValues);
+        doReturn(new XmlConverter().toXML("result")).when(binaryServerAPI).executeHttpPost(options, "api", "method",
+                classNameParameters, parametersValues);
+
+        Object firstResult = binaryServerAPI.invokeMethod(options, "api", "method", classNameParameters,
+                parametersValues);
+        Object secondResult = binaryServerAPI.invokeMethod(options, "api", "method", classNameParameters,
+                parametersValues);
+
+        assertThat(firstResult).isEqualTo("result");
+        assertThat(secondResult).isEqualTo("result");
+        verify(binaryServerAPI).executeBinaryHttpPost(options, "api", "method", classNameParameters,
+                parametersValues);
+        verify(binaryServerAPI, times(2)).executeHttpPost(options, "api", "method", classNameParameters,
+                parametersValues);
+    }
+
 }
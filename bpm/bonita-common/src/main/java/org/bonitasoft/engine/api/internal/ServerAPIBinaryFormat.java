@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary format of the calls made to the server API over HTTP, an alternative to the XML format.
+ * <p>
+ * The options, the class names of the parameters and the values of the parameters of a call, then its result, are
+ * written with the Java serialization, in the body of the request and of the response. Byte arrays and business
+ * archives are written in the same stream, without multipart encoding.
+ *
+ * @since 10.3.0
+ */
+public final class ServerAPIBinaryFormat {
+
+    /**
+     * Content type of requests and responses written in the binary format.
+     */
+    public static final String CONTENT_TYPE = "application/x-java-serialized-object";
+
+    private ServerAPIBinaryFormat() {
+    }
+
+    public static boolean isBinaryContentType(final String contentType) {
+        return contentType != null && contentType.startsWith(CONTENT_TYPE);
+    }
+
+    public static void writeRequest(final OutputStream outputStream, final Map<String, Serializable> options,
+            final List<String> classNameParameters, final Object[] parametersValues) throws IOException {
+        final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(outputStream));
+        out.writeObject(options);
+        out.writeObject(classNameParameters);
+        out.writeObject(parametersValues);
+        out.flush();
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Request readRequest(final InputStream inputStream) throws IOException, ClassNotFoundException {
+        final ObjectInputStream in = new ContextClassLoaderObjectInputStream(inputStream);
+        return new Request((Map<String, Serializable>) in.readObject(), (List<String>) in.readObject(),
+                (Object[]) in.readObject());
+    }
+
+    /**
+     * Write the result of a call, or the exception it threw.
+     */
+    public static void writeResponse(final OutputStream outputStream, final Object result) throws IOException {
+        final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(outputStream));
+        out.writeObject(result);
+        out.flush();
+    }
+
+    public static Object readResponse(final InputStream inputStream) throws IOException, ClassNotFoundException {
+        return new ContextClassLoaderObjectInputStream(inputStream).readObject();
+    }
+
+    /**
+     * A call read from a request written in the binary format.
+     */
+    public static final class Request {
+
+        private final Map<String, Serializable> options;
+        private final List<String> classNameParameters;
+        private final Object[] parametersValues;
+
+        Request(final Map<String, Serializable> options, final List<String> classNameParameters,
+                final Object[] parametersValues) {
+            this.options = options;
+            this.classNameParameters = classNameParameters;
+            this.parametersValues = parametersValues;
+        }
+
+        public Map<String, Serializable> getOptions() {
+            return options;
+        }
+
+        public List<String> getClassNameParameters() {
+            return classNameParameters;
+        }
+
+        public Object[] getParametersValues() {
+            return parametersValues;
+        }
+    }
+
+    /**
+     * Resolve classes with the context class loader first, as the class loader of this class does not always see the
+     * classes of the objects exchanged, e.g. when it is loaded by a parent class loader of the application.
+     */
+    private static final class ContextClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private ContextClassLoaderObjectInputStream(final InputStream inputStream) throws IOException {
+            super(new BufferedInputStream(inputStream));
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+            if (contextClassLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, contextClassLoader);
+                } catch (final ClassNotFoundException e) {
+                    // fall back on the default resolution
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
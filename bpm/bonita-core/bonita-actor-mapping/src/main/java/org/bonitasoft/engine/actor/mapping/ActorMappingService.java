@@ -92,6 +92,16 @@ public interface ActorMappingService {
      */
     List<SActor> getActors(Set<Long> scopeIds, Long userId) throws SBonitaReadException;
 
+    /**
+     * Get the ids of the actors, of all scopes, the user is a member of, directly or through one of its memberships
+     *
+     * @param userId
+     *        Id of the user
+     * @return the ids of the actors of the user
+     * @throws SBonitaReadException
+     */
+    Set<Long> getActorIdsOfUser(long userId) throws SBonitaReadException;
+
     /**
      * Update actor by its id
      * If the actor by a given actorId is not found, it will throw processDefinitionNotFountExcetion
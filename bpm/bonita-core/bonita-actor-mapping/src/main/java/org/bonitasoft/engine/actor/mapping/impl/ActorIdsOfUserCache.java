@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.actor.mapping.impl;
+
+import static org.bonitasoft.engine.actor.mapping.ActorMappingService.ACTOR;
+import static org.bonitasoft.engine.actor.mapping.ActorMappingService.ACTOR_MEMBER;
+import static org.bonitasoft.engine.identity.IdentityService.GROUP;
+import static org.bonitasoft.engine.identity.IdentityService.ROLE;
+import static org.bonitasoft.engine.identity.IdentityService.USER;
+import static org.bonitasoft.engine.identity.IdentityService.USERMEMBERSHIP;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bonitasoft.engine.actor.mapping.ActorMappingService;
+import org.bonitasoft.engine.events.EventService;
+import org.bonitasoft.engine.events.model.HandlerRegistrationException;
+import org.bonitasoft.engine.events.model.SEvent;
+import org.bonitasoft.engine.events.model.SHandler;
+import org.bonitasoft.engine.identity.model.SUserMembership;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+
+/**
+ * Cache the ids of the actors each user is a member of, so that the visibility of pending tasks is resolved against
+ * a list of actor ids instead of joining actor members and memberships each time tasks of a user are searched.
+ * <p>
+ * The actors of a user are evicted when one of its memberships changes, and the actors of all users are evicted when
+ * an actor member is added or removed, or when an actor, a group, a role or a user is deleted. Bulk deletions do not
+ * fire events: the actors of a user are also reloaded once they are older than the configured time to live.
+ * <p>
+ * Events are fired before the change is committed, so actors are evicted again once the transaction completes: actors
+ * loaded by other transactions in the meantime, without the change, are not kept in the cache.
+ * <p>
+ * The cache is local to the node, and events are only fired on the node that made the change: on the other nodes of
+ * a cluster, the actors of a user stay stale until the time to live expires.
+ */
+@Slf4j
+public class ActorIdsOfUserCache implements SHandler<SEvent> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient ActorMappingService actorMappingService;
+    private final transient UserTransactionService userTransactionService;
+    private final boolean enabled;
+    private final long timeToLiveMillis;
+    private final String identifier = UUID.randomUUID().toString();
+    private final transient Map<Long, ActorIds> actorIdsByUser = new ConcurrentHashMap<>();
+    // incremented on each eviction, actors loaded while an eviction happens are not cached
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ActorIdsOfUserCache(ActorMappingService actorMappingService, EventService eventService,
+            UserTransactionService userTransactionService, boolean enabled, String timeToLive) {
+        this.actorMappingService = actorMappingService;
+        this.userTransactionService = userTransactionService;
+        this.enabled = enabled;
+        this.timeToLiveMillis = Duration.parse(timeToLive).toMillis();
+        if (enabled) {
+            for (String eventType : new String[] { USERMEMBERSHIP + SEvent.CREATED, USERMEMBERSHIP + SEvent.UPDATED,
+                    USERMEMBERSHIP + SEvent.DELETED, ACTOR_MEMBER + SEvent.CREATED, ACTOR_MEMBER + SEvent.DELETED,
+                    ACTOR + SEvent.DELETED, GROUP + SEvent.DELETED, ROLE + SEvent.DELETED, USER + SEvent.DELETED }) {
+                try {
+                    eventService.addHandler(eventType, this);
+                } catch (HandlerRegistrationException e) {
+                    log.warn(e.getMessage());
+                    log.debug("", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the visibility of pending tasks must be resolved using this cache
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the ids of the actors, of all scopes, the user is a member of
+     */
+    public Set<Long> getActorIds(long userId) throws SBonitaReadException {
+        long now = System.currentTimeMillis();
+        ActorIds actorIds = actorIdsByUser.get(userId);
+        if (actorIds != null && actorIds.loadedAt + timeToLiveMillis > now) {
+            return actorIds.ids;
+        }
+        long evictionsBeforeLoad = evictions.get();
+        actorIds = new ActorIds(Collections.unmodifiableSet(actorMappingService.getActorIdsOfUser(userId)), now);
+        if (evictions.get() == evictionsBeforeLoad) {
+            actorIdsByUser.put(userId, actorIds);
+            if (evictions.get() != evictionsBeforeLoad) {
+                actorIdsByUser.remove(userId, actorIds);
+            }
+        }
+        return actorIds.ids;
+    }
+
+    @Override
+    public void execute(SEvent event) {
+        evict(event);
+        try {
+            userTransactionService.registerBonitaSynchronization(
+                    (BonitaTransactionSynchronization) status -> evict(event));
+        } catch (STransactionNotFoundException e) {
+            log.debug("No transaction to evict the actors of users again once it completes", e);
+        }
+    }
+
+    private void evict(SEvent event) {
+        evictions.incrementAndGet();
+        if (event.getObject() instanceof SUserMembership) {
+            actorIdsByUser.remove(((SUserMembership) event.getObject()).getUserId());
+        } else {
+            actorIdsByUser.clear();
+        }
+    }
+
+    @Override
+    public boolean isInterested(SEvent event) {
+        return true;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    private static final class ActorIds {
+
+        private final Set<Long> ids;
+        private final long loadedAt;
+
+        private ActorIds(Set<Long> ids, long loadedAt) {
+            this.ids = ids;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -264,6 +264,11 @@ public class ActorMappingServiceImpl implements ActorMappingService {
         return persistenceService.selectList(descriptor);
     }
 
+    @Override
+    public Set<Long> getActorIdsOfUser(final long userId) throws SBonitaReadException {
+        return new HashSet<>(persistenceService.selectList(SelectDescriptorBuilder.getActorIdsOfUser(userId)));
+    }
+
     @Override
     public SActorMember addUserToActor(final long actorId, final long userId) throws SActorMemberCreationException {
         final SActorMember actorMember = new SActorMember();
@@ -143,6 +143,12 @@ public class SelectDescriptorBuilder {
         return new SelectListDescriptor<SActor>("getActorsOfUser", parameters, SActor.class, queryOptions);
     }
 
+    public static SelectListDescriptor<Long> getActorIdsOfUser(final long userId) {
+        final Map<String, Object> parameters = Collections.singletonMap("userId", (Object) userId);
+        return new SelectListDescriptor<Long>("getActorIdsOfUser", parameters, SActorMember.class,
+                QueryOptions.ALL_RESULTS);
+    }
+
     public static SelectOneDescriptor<Long> getNumberOfActorMembers(final long actorId) {
         final Map<String, Object> parameters = Collections.singletonMap("actorId", (Object) actorId);
         return new SelectOneDescriptor<Long>("getNumberOfActorMembersOfActor", parameters, SActorMember.class);
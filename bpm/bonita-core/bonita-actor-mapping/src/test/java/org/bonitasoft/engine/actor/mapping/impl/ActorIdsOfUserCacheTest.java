@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.actor.mapping.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import javax.transaction.Status;
+
+import org.bonitasoft.engine.actor.mapping.ActorMappingService;
+import org.bonitasoft.engine.events.EventService;
+import org.bonitasoft.engine.events.model.SEvent;
+import org.bonitasoft.engine.identity.IdentityService;
+import org.bonitasoft.engine.identity.model.SUserMembership;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ActorIdsOfUserCacheTest {
+
+    @Mock
+    private ActorMappingService actorMappingService;
+    @Mock
+    private EventService eventService;
+    @Mock
+    private UserTransactionService userTransactionService;
+
+    private ActorIdsOfUserCache cache;
+
+    @Before
+    public void before() throws Exception {
+        cache = new ActorIdsOfUserCache(actorMappingService, eventService, userTransactionService, true, "PT1H");
+    }
+
+    @Test
+    public void should_register_on_events_changing_the_actors_of_users() throws Exception {
+        verify(eventService).addHandler(IdentityService.USERMEMBERSHIP + SEvent.CREATED, cache);
+        verify(eventService).addHandler(IdentityService.USERMEMBERSHIP + SEvent.DELETED, cache);
+        verify(eventService).addHandler(ActorMappingService.ACTOR_MEMBER + SEvent.CREATED, cache);
+        verify(eventService).addHandler(ActorMappingService.ACTOR_MEMBER + SEvent.DELETED, cache);
+        verify(eventService).addHandler(IdentityService.USER + SEvent.DELETED, cache);
+    }
+
+    @Test
+    public void should_not_register_handlers_when_disabled() throws Exception {
+        EventService otherEventService = mock(EventService.class);
+
+        ActorIdsOfUserCache disabledCache = new ActorIdsOfUserCache(actorMappingService, otherEventService,
+                userTransactionService, false, "PT1H");
+
+        assertThat(disabledCache.isEnabled()).isFalse();
+        verify(otherEventService, never()).addHandler(anyString(), any());
+    }
+
+    @Test
+    public void should_load_the_actors_of_a_user_once() throws Exception {
+        doReturn(new HashSet<>(Arrays.asList(1L, 2L))).when(actorMappingService).getActorIdsOfUser(5L);
+
+        assertThat(cache.getActorIds(5L)).containsOnly(1L, 2L);
+        assertThat(cache.getActorIds(5L)).containsOnly(1L, 2L);
+
+        verify(actorMappingService, times(1)).getActorIdsOfUser(5L);
+    }
+
+    @Test
+    public void should_evict_only_the_user_of_a_changed_membership() throws Exception {
+        doReturn(new HashSet<>(Arrays.asList(1L, 2L))).when(actorMappingService).getActorIdsOfUser(5L);
+        doReturn(new HashSet<>(Collections.singletonList(3L))).when(actorMappingService).getActorIdsOfUser(6L);
+
+        cache.getActorIds(5L);
+        cache.getActorIds(6L);
+
+        cache.execute(membershipEvent(5L));
+        cache.getActorIds(5L);
+        cache.getActorIds(6L);
+
+        verify(actorMappingService, times(2)).getActorIdsOfUser(5L);
+        verify(actorMappingService, times(1)).getActorIdsOfUser(6L);
+    }
+
+    @Test
+    public void should_evict_all_users_when_an_actor_member_changes() throws Exception {
+        doReturn(new HashSet<>(Arrays.asList(1L, 2L))).when(actorMappingService).getActorIdsOfUser(5L);
+        doReturn(new HashSet<>(Collections.singletonList(3L))).when(actorMappingService).getActorIdsOfUser(6L);
+
+        cache.getActorIds(5L);
+        cache.getActorIds(6L);
+
+        cache.execute(new SEvent(ActorMappingService.ACTOR_MEMBER + SEvent.CREATED));
+        cache.getActorIds(5L);
+        cache.getActorIds(6L);
+
+        verify(actorMappingService, times(2)).getActorIdsOfUser(5L);
+        verify(actorMappingService, times(2)).getActorIdsOfUser(6L);
+    }
+
+    @Test
+    public void should_reload_the_actors_of_a_user_after_the_time_to_live() throws Exception {
+        ActorIdsOfUserCache cacheWithoutTimeToLive = new ActorIdsOfUserCache(actorMappingService, eventService,
+                userTransactionService, true, "PT0S");
+        doReturn(new HashSet<>(Arrays.asList(1L, 2L))).when(actorMappingService).getActorIdsOfUser(5L);
+
+        cacheWithoutTimeToLive.getActorIds(5L);
+        cacheWithoutTimeToLive.getActorIds(5L);
+
+        verify(actorMappingService, times(2)).getActorIdsOfUser(5L);
+    }
+
+    @Test
+    public void should_not_cache_actors_loaded_while_an_eviction_happens() throws Exception {
+        doAnswer(invocation -> {
+            cache.execute(membershipEvent(5L));
+            return new HashSet<>(Collections.singletonList(1L));
+        }).doReturn(new HashSet<>(Arrays.asList(1L, 2L))).when(actorMappingService).getActorIdsOfUser(5L);
+
+        assertThat(cache.getActorIds(5L)).containsOnly(1L);
+        assertThat(cache.getActorIds(5L)).containsOnly(1L, 2L);
+        assertThat(cache.getActorIds(5L)).containsOnly(1L, 2L);
+
+        verify(actorMappingService, times(2)).getActorIdsOfUser(5L);
+    }
+
+    @Test
+    public void should_evict_actors_loaded_before_the_change_is_committed() throws Exception {
+        doReturn(new HashSet<>(Collections.singletonList(1L))).doReturn(new HashSet<>(Arrays.asList(1L, 2L)))
+                .when(actorMappingService).getActorIdsOfUser(5L);
+        cache.execute(membershipEvent(5L));
+        ArgumentCaptor<BonitaTransactionSynchronization> synchronization = ArgumentCaptor
+                .forClass(BonitaTransactionSynchronization.class);
+        verify(userTransactionService).registerBonitaSynchronization(synchronization.capture());
+
+        // loaded by another transaction, the membership is not committed yet
+        assertThat(cache.getActorIds(5L)).containsOnly(1L);
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+
+        assertThat(cache.getActorIds(5L)).containsOnly(1L, 2L);
+        verify(actorMappingService, times(2)).getActorIdsOfUser(5L);
+    }
+
+    @Test
+    public void should_not_cache_actors_being_loaded_when_the_change_is_committed() throws Exception {
+        cache.execute(membershipEvent(5L));
+        ArgumentCaptor<BonitaTransactionSynchronization> synchronization = ArgumentCaptor
+                .forClass(BonitaTransactionSynchronization.class);
+        verify(userTransactionService).registerBonitaSynchronization(synchronization.capture());
+        doAnswer(invocation -> {
+            synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+            return new HashSet<>(Collections.singletonList(1L));
+        }).doReturn(new HashSet<>(Arrays.asList(1L, 2L))).when(actorMappingService).getActorIdsOfUser(5L);
+
+        assertThat(cache.getActorIds(5L)).containsOnly(1L);
+        assertThat(cache.getActorIds(5L)).containsOnly(1L, 2L);
+
+        verify(actorMappingService, times(2)).getActorIdsOfUser(5L);
+    }
+
+    private static SEvent membershipEvent(long userId) {
+        SEvent event = new SEvent(IdentityService.USERMEMBERSHIP + SEvent.DELETED);
+        event.setObject(SUserMembership.builder().userId(userId).build());
+        return event;
+    }
+}
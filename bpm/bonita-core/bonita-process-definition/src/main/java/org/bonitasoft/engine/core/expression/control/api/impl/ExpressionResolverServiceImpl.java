@@ -90,13 +90,14 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
         } finally {
             if (timeTracker.isTrackable(TimeTrackerRecords.EVALUATE_EXPRESSION_INCLUDING_CONTEXT)) {
                 final long endTime = System.currentTimeMillis();
-                final StringBuilder desc = new StringBuilder();
-                desc.append("Expression: ");
-                desc.append(expression);
-                desc.append(" - ");
-                desc.append("evaluationContext: ");
-                desc.append(evaluationContext);
-                timeTracker.track(TimeTrackerRecords.EVALUATE_EXPRESSION_INCLUDING_CONTEXT, desc.toString(),
+                // records must not retain the expression and the context, which holds input values
+                final String evaluatedExpression = expression.getName() + " (" + expression.getExpressionKind() + ")";
+                final String context = evaluationContext == null ? null
+                        : "containerId=" + evaluationContext.getContainerId() + ", containerType="
+                                + evaluationContext.getContainerType() + ", processDefinitionId="
+                                + evaluationContext.getProcessDefinitionId();
+                timeTracker.track(TimeTrackerRecords.EVALUATE_EXPRESSION_INCLUDING_CONTEXT,
+                        () -> "Expression: " + evaluatedExpression + " - " + "evaluationContext: " + context,
                         endTime - startTime);
             }
         }
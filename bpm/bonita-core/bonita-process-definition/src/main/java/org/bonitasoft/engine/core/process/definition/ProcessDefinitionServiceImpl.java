@@ -21,7 +21,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.transaction.Status;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
 import org.bonitasoft.engine.bpm.bar.ProcessDefinitionBARContribution;
 import org.bonitasoft.engine.bpm.process.ActivationState;
 import org.bonitasoft.engine.bpm.process.ConfigurationState;
@@ -79,6 +88,9 @@ import org.bonitasoft.engine.recorder.model.UpdateRecord;
 import org.bonitasoft.engine.services.QueriableLoggerService;
 import org.bonitasoft.engine.session.SessionService;
 import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 
 /**
  * @author Baptiste Mesta
@@ -89,27 +101,49 @@ import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
  * @author Celine Souchet
  * @author Arthur Freycon
  */
+@Slf4j
 public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
 
+    public static final String PROCESS_DEFINITION_CACHE_HIT = "bonita.bpmengine.process.definition.cache.hit";
+    public static final String PROCESS_DEFINITION_CACHE_MISS = "bonita.bpmengine.process.definition.cache.miss";
+
     private final Recorder recorder;
     private final ReadPersistenceService persistenceService;
     private final SessionService sessionService;
     private final ReadSessionAccessor sessionAccessor;
     private final QueriableLoggerService queriableLoggerService;
     private final CacheService cacheService;
+    private final UserTransactionService transactionService;
+    private final Counter cacheHitCounter;
+    private final Counter cacheMissCounter;
+    // version of the cache entry of each process, incremented when the entry is invalidated, used as the lock of the
+    // entry so that a definition read before an invalidation is never stored after it
+    private final ConcurrentMap<Long, AtomicLong> cacheVersions = new ConcurrentHashMap<>();
     protected ProcessDefinitionBARContribution processDefinitionBARContribution;
 
     public ProcessDefinitionServiceImpl(final Recorder recorder, final ReadPersistenceService persistenceService,
             final SessionService sessionService,
             final ReadSessionAccessor sessionAccessor, final QueriableLoggerService queriableLoggerService,
-            CacheService cacheService) {
+            CacheService cacheService, UserTransactionService transactionService, MeterRegistry meterRegistry,
+            Long tenantId) {
         this.recorder = recorder;
         this.persistenceService = persistenceService;
         this.sessionService = sessionService;
         this.sessionAccessor = sessionAccessor;
         this.queriableLoggerService = queriableLoggerService;
         this.cacheService = cacheService;
+        this.transactionService = transactionService;
         processDefinitionBARContribution = new ProcessDefinitionBARContribution();
+        cacheHitCounter = Counter.builder(PROCESS_DEFINITION_CACHE_HIT)
+                .tags(Tags.of("tenant", String.valueOf(tenantId)))
+                .baseUnit("process definitions")
+                .description("Process definitions read from cache")
+                .register(meterRegistry);
+        cacheMissCounter = Counter.builder(PROCESS_DEFINITION_CACHE_MISS)
+                .tags(Tags.of("tenant", String.valueOf(tenantId)))
+                .baseUnit("process definitions")
+                .description("Process definitions read and parsed from database")
+                .register(meterRegistry);
     }
 
     @Override
@@ -130,8 +164,9 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
 
         try {
             recorder.recordDelete(new DeleteRecord(processDefinitionDeployInfo), PROCESSDEFINITION);
+            afterCommit(() -> removeSProcessDefinitionFromCache(processId));
             log(processId, SQueriableLog.STATUS_OK, logBuilder, "delete");
-        } catch (final SRecorderException e) {
+        } catch (final SRecorderException | SCacheException e) {
             log(processId, SQueriableLog.STATUS_FAIL, logBuilder, "delete");
             throw new SProcessDeletionException(e, processDefinitionDeployInfo);
         }
@@ -174,12 +209,41 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
 
     void updateSProcessDefinitionTimestampInCache(long processId,
             SProcessDefinitionDeployInfo processDefinitionDeployInfo) throws SCacheException {
-        final Pair<Long, SProcessDefinition> fromCache = getSProcessDefinitionFromCache(processId);
-        if (fromCache != null) {
-            storeProcessDefinitionInCache(fromCache.getValue(), processDefinitionDeployInfo.getLastUpdateDate());
+        synchronized (getCacheVersion(processId)) {
+            final Pair<Long, SProcessDefinition> fromCache = getSProcessDefinitionFromCache(processId);
+            if (fromCache != null && fromCache.getValue() != null) {
+                storeProcessDefinitionInCache(fromCache.getValue(), processDefinitionDeployInfo.getLastUpdateDate());
+            }
+        }
+    }
+
+    /**
+     * Replace the cached definition by an entry having no definition: the next read parses the definition again.
+     * The entry keeps the last update date so that a definition parsed from the previous design content, by a
+     * transaction started before this update, is not stored over it.
+     */
+    void invalidateSProcessDefinitionInCache(long processId,
+            SProcessDefinitionDeployInfo processDefinitionDeployInfo) throws SCacheException {
+        final AtomicLong cacheVersion = getCacheVersion(processId);
+        synchronized (cacheVersion) {
+            cacheVersion.incrementAndGet();
+            cacheService.store(PROCESS_CACHE_NAME, processId,
+                    Pair.<Long, SProcessDefinition> of(processDefinitionDeployInfo.getLastUpdateDate(), null));
+        }
+    }
+
+    void removeSProcessDefinitionFromCache(long processId) throws SCacheException {
+        final AtomicLong cacheVersion = getCacheVersion(processId);
+        synchronized (cacheVersion) {
+            cacheVersion.incrementAndGet();
+            cacheService.remove(PROCESS_CACHE_NAME, processId);
         }
     }
 
+    AtomicLong getCacheVersion(long processId) {
+        return cacheVersions.computeIfAbsent(processId, id -> new AtomicLong());
+    }
+
     @Override
     public void enableProcessDeploymentInfo(final long processId)
             throws SProcessDefinitionNotFoundException, SProcessEnablementException {
@@ -246,40 +310,54 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
         return persistenceService.selectOne(selectDescriptor);
     }
 
+    /**
+     * Get the process definition from the cache without reading the database. The cached definition is only parsed
+     * again from the database when its design content was updated or when it was evicted from the cache: other
+     * updates of the deployment info (enablement, resolution, ...) do not change the process definition.
+     */
     @Override
     public SProcessDefinition getProcessDefinition(final long processId)
             throws SProcessDefinitionNotFoundException, SBonitaReadException {
         try {
-            //get from database
-            final SProcessDefinitionDeployInfo processDeploymentInfo = getProcessDeploymentInfo(processId);
-            //get from cache
             final Pair<Long, SProcessDefinition> processWithTimestamp = getSProcessDefinitionFromCache(processId);
-            //read SProcessDefinition if needed
-            if (isSProcessDefinitionUpToDate(processDeploymentInfo, processWithTimestamp)) {
-                return readSProcessDefinitionFromDatabase(processId, processDeploymentInfo);
-            } else {
+            if (processWithTimestamp != null && processWithTimestamp.getValue() != null) {
+                cacheHitCounter.increment();
                 return processWithTimestamp.getValue();
             }
+            cacheMissCounter.increment();
+            // captured before reading the database: an invalidation committed after it prevents storing what is read
+            final long cacheVersion = getCacheVersion(processId).get();
+            return readSProcessDefinitionFromDatabase(processId, getProcessDeploymentInfo(processId), cacheVersion);
         } catch (IOException | SReflectException | SCacheException e) {
             throw new SBonitaReadException(e);
         }
     }
 
     SProcessDefinition readSProcessDefinitionFromDatabase(long processId,
-            SProcessDefinitionDeployInfo processDeploymentInfo) throws IOException, SReflectException, SCacheException {
+            SProcessDefinitionDeployInfo processDeploymentInfo, long cacheVersion)
+            throws IOException, SReflectException, SCacheException {
         final DesignProcessDefinition objectFromXML = processDefinitionBARContribution
                 .convertXmlToProcess(processDeploymentInfo.getDesignContent()
                         .getContent());
         SProcessDefinition sProcessDefinition = convertDesignProcessDefinition(objectFromXML);
         setIdOnProcessDefinition(sProcessDefinition, processId);
-        storeProcessDefinitionInCache(sProcessDefinition, processDeploymentInfo.getLastUpdateDate());
+        final AtomicLong currentCacheVersion = getCacheVersion(processId);
+        synchronized (currentCacheVersion) {
+            if (currentCacheVersion.get() == cacheVersion
+                    && !isOutdated(processDeploymentInfo, getSProcessDefinitionFromCache(processId))) {
+                storeProcessDefinitionInCache(sProcessDefinition, processDeploymentInfo.getLastUpdateDate());
+            }
+        }
         return sProcessDefinition;
     }
 
-    boolean isSProcessDefinitionUpToDate(SProcessDefinitionDeployInfo processDeploymentInfo,
+    /**
+     * @return true if the cache was updated by a more recent version of the deployment info than the given one
+     */
+    boolean isOutdated(SProcessDefinitionDeployInfo processDeploymentInfo,
             Pair<Long, SProcessDefinition> processWithTimestamp) {
-        return processWithTimestamp == null
-                || processWithTimestamp.getKey() != processDeploymentInfo.getLastUpdateDate();
+        return processWithTimestamp != null && processWithTimestamp.getKey() != null
+                && processWithTimestamp.getKey() > processDeploymentInfo.getLastUpdateDate();
     }
 
     @SuppressWarnings("unchecked")
@@ -584,11 +662,39 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
             String eventType)
             throws SRecorderException, SCacheException {
         recorder.recordUpdate(updateRecord, eventType);
-        if (!updateRecord.getFields().containsKey(SProcessDefinitionDeployInfo.DESIGN_CONTENT)) {
-            updateSProcessDefinitionTimestampInCache(processId, processDefinitionDeployInfo);
+        if (updateRecord.getFields().containsKey(SProcessDefinitionDeployInfo.DESIGN_CONTENT)) {
+            afterCommit(() -> invalidateSProcessDefinitionInCache(processId, processDefinitionDeployInfo));
+        } else {
+            afterCommit(() -> updateSProcessDefinitionTimestampInCache(processId, processDefinitionDeployInfo));
         }
     }
 
+    /**
+     * Update the cache once the current transaction is committed: the update of a rolled back transaction must not
+     * be visible, and a definition read by another transaction before the commit must not stay in the cache.
+     */
+    void afterCommit(CacheUpdate cacheUpdate) throws SCacheException {
+        try {
+            transactionService.registerBonitaSynchronization((BonitaTransactionSynchronization) status -> {
+                if (status == Status.STATUS_COMMITTED) {
+                    try {
+                        cacheUpdate.run();
+                    } catch (SCacheException e) {
+                        log.error("Unable to update the process definition cache", e);
+                    }
+                }
+            });
+        } catch (STransactionNotFoundException e) {
+            throw new SCacheException("Unable to update the process definition cache", e);
+        }
+    }
+
+    @FunctionalInterface
+    interface CacheUpdate {
+
+        void run() throws SCacheException;
+    }
+
     private UpdateRecord getUpdateRecord(final EntityUpdateDescriptor descriptor,
             final SProcessDefinitionDeployInfo processDefinitionDeployInfo) {
         final long now = System.currentTimeMillis();
@@ -27,6 +27,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.transaction.Status;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.bpm.bar.ProcessDefinitionBARContribution;
 import org.bonitasoft.engine.bpm.process.ActivationState;
 import org.bonitasoft.engine.bpm.process.DesignProcessDefinition;
@@ -63,14 +67,14 @@ import org.bonitasoft.engine.recorder.model.UpdateRecord;
 import org.bonitasoft.engine.services.QueriableLoggerService;
 import org.bonitasoft.engine.session.SessionService;
 import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
 /**
@@ -86,6 +90,8 @@ public class ProcessDefinitionServiceImplTest {
     @Mock
     private CacheService cacheService;
     @Mock
+    private UserTransactionService transactionService;
+    @Mock
     private ReadPersistenceService persistenceService;
     @Mock
     private QueriableLoggerService queriableLoggerService;
@@ -97,14 +103,16 @@ public class ProcessDefinitionServiceImplTest {
     private SessionService sessionService;
     @Mock
     private ProcessDefinitionBARContribution processDefinitionBARContribution;
-    @InjectMocks
-    @Spy
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
     private ProcessDefinitionServiceImpl processDefinitionServiceImpl;
     private SProcessDefinitionDeployInfo sProcessDefinitionDeployInfo;
     private DesignProcessDefinition designProcessDefinition;
 
     @Before
     public void before() throws SProcessDefinitionNotFoundException, SBonitaReadException, IOException {
+        processDefinitionServiceImpl = spy(new ProcessDefinitionServiceImpl(recorder, persistenceService,
+                sessionService, sessionAccessor, queriableLoggerService, cacheService, transactionService,
+                meterRegistry, 1L));
         sProcessDefinitionDeployInfo = new SProcessDefinitionDeployInfo();
         sProcessDefinitionDeployInfo.setId(PROCESS_DEFINITION_DEPLOY_ID);
         final SProcessDefinitionDesignContent designContent = new SProcessDefinitionDesignContent();
@@ -390,6 +398,9 @@ public class ProcessDefinitionServiceImplTest {
 
         assertThat(processDefinition).as("returned process definition from cache").isEqualTo(sProcessDefinition);
         verify(cacheService, times(0)).store(anyString(), any(Serializable.class), any());
+        verify(processDefinitionServiceImpl, never()).getProcessDeploymentInfo(PROCESS_ID);
+        assertThat(meterRegistry.find(ProcessDefinitionServiceImpl.PROCESS_DEFINITION_CACHE_HIT)
+                .tag("tenant", "1").counter().count()).isEqualTo(1);
     }
 
     @Test
@@ -403,21 +414,109 @@ public class ProcessDefinitionServiceImplTest {
 
         assertThat(processDefinition).as("returned process definition from database").isEqualTo(sProcessDefinition);
         verify(cacheService, times(1)).store(anyString(), any(Serializable.class), any());
+        assertThat(meterRegistry.find(ProcessDefinitionServiceImpl.PROCESS_DEFINITION_CACHE_MISS)
+                .tag("tenant", "1").counter().count()).isEqualTo(1);
     }
 
     @Test
-    public void getProcessDefinition_from_database_when_cache_is_outdated() throws Exception {
+    public void getProcessDefinition_from_database_when_cache_is_invalidated() throws Exception {
         sProcessDefinitionDeployInfo.setLastUpdateDate(5478L);
-        final SProcessDefinitionImpl processDefinitionB = new SProcessDefinitionImpl("a", "b");
         final SProcessDefinitionImpl processDefinitionC = new SProcessDefinitionImpl("a", "c");
-        doReturn(new Pair<Long, SProcessDefinition>(5477L, processDefinitionB)).when(processDefinitionServiceImpl)
+        doReturn(new Pair<Long, SProcessDefinition>(5478L, null)).when(processDefinitionServiceImpl)
                 .getSProcessDefinitionFromCache(PROCESS_ID);
         doReturn(processDefinitionC).when(processDefinitionServiceImpl)
                 .convertDesignProcessDefinition(designProcessDefinition);
         final SProcessDefinition processDefinition = processDefinitionServiceImpl.getProcessDefinition(PROCESS_ID);
 
-        assertThat(processDefinition).as("returned process definition from cache").isEqualTo(processDefinitionC);
-        verify(cacheService, times(1)).store(anyString(), any(Serializable.class), any());
+        assertThat(processDefinition).as("returned process definition from database").isEqualTo(processDefinitionC);
+        verify(cacheService, times(1)).store(ProcessDefinitionService.PROCESS_CACHE_NAME, PROCESS_ID,
+                new Pair<Long, SProcessDefinition>(5478L, processDefinitionC));
+    }
+
+    @Test
+    public void getProcessDefinition_should_not_cache_definition_older_than_the_invalidation() throws Exception {
+        sProcessDefinitionDeployInfo.setLastUpdateDate(5477L);
+        final SProcessDefinitionImpl processDefinitionB = new SProcessDefinitionImpl("a", "b");
+        doReturn(new Pair<Long, SProcessDefinition>(5478L, null)).when(processDefinitionServiceImpl)
+                .getSProcessDefinitionFromCache(PROCESS_ID);
+        doReturn(processDefinitionB).when(processDefinitionServiceImpl)
+                .convertDesignProcessDefinition(designProcessDefinition);
+
+        final SProcessDefinition processDefinition = processDefinitionServiceImpl.getProcessDefinition(PROCESS_ID);
+
+        assertThat(processDefinition).isEqualTo(processDefinitionB);
+        verify(cacheService, never()).store(anyString(), any(Serializable.class), any());
+    }
+
+    @Test
+    public void getProcessDefinition_should_not_cache_definition_read_before_a_concurrent_invalidation()
+            throws Exception {
+        sProcessDefinitionDeployInfo.setLastUpdateDate(5477L);
+        final SProcessDefinitionDeployInfo updatedDeployInfo = new SProcessDefinitionDeployInfo();
+        updatedDeployInfo.setLastUpdateDate(5478L);
+        // the design update commits once the deployment info was read, and the cache is then empty
+        doAnswer(invocation -> {
+            processDefinitionServiceImpl.invalidateSProcessDefinitionInCache(PROCESS_ID, updatedDeployInfo);
+            return sProcessDefinitionDeployInfo;
+        }).when(processDefinitionServiceImpl).getProcessDeploymentInfo(PROCESS_ID);
+        final SProcessDefinitionImpl processDefinitionB = new SProcessDefinitionImpl("a", "b");
+        doReturn(processDefinitionB).when(processDefinitionServiceImpl)
+                .convertDesignProcessDefinition(designProcessDefinition);
+
+        final SProcessDefinition processDefinition = processDefinitionServiceImpl.getProcessDefinition(PROCESS_ID);
+
+        assertThat(processDefinition).isEqualTo(processDefinitionB);
+        verify(cacheService, never()).store(ProcessDefinitionService.PROCESS_CACHE_NAME, PROCESS_ID,
+                new Pair<Long, SProcessDefinition>(5477L, processDefinitionB));
+    }
+
+    @Test
+    public void update_of_design_content_should_invalidate_process_definition_in_cache() throws Exception {
+        completeTransactionsWith(Status.STATUS_COMMITTED);
+        sProcessDefinitionDeployInfo.setLastUpdateDate(5478L);
+        final EntityUpdateDescriptor descriptor = new EntityUpdateDescriptor();
+        descriptor.addField(SProcessDefinitionDeployInfo.DESIGN_CONTENT, "new content");
+
+        processDefinitionServiceImpl.update(PROCESS_ID, sProcessDefinitionDeployInfo,
+                UpdateRecord.buildSetFields(sProcessDefinitionDeployInfo, descriptor), "UPDATE");
+
+        verify(cacheService).store(ProcessDefinitionService.PROCESS_CACHE_NAME, PROCESS_ID,
+                new Pair<Long, SProcessDefinition>(5478L, null));
+    }
+
+    @Test
+    public void rolled_back_update_of_design_content_should_not_invalidate_process_definition_in_cache()
+            throws Exception {
+        completeTransactionsWith(Status.STATUS_ROLLEDBACK);
+        sProcessDefinitionDeployInfo.setLastUpdateDate(5478L);
+        final EntityUpdateDescriptor descriptor = new EntityUpdateDescriptor();
+        descriptor.addField(SProcessDefinitionDeployInfo.DESIGN_CONTENT, "new content");
+
+        processDefinitionServiceImpl.update(PROCESS_ID, sProcessDefinitionDeployInfo,
+                UpdateRecord.buildSetFields(sProcessDefinitionDeployInfo, descriptor), "UPDATE");
+
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    public void delete_should_remove_process_definition_from_cache_once_committed() throws Exception {
+        sProcessDefinitionDeployInfo.setActivationState(ActivationState.DISABLED.name());
+        ArgumentCaptor<BonitaTransactionSynchronization> synchronization = ArgumentCaptor
+                .forClass(BonitaTransactionSynchronization.class);
+
+        processDefinitionServiceImpl.delete(PROCESS_ID);
+
+        verify(transactionService).registerBonitaSynchronization(synchronization.capture());
+        verify(cacheService, never()).remove(anyString(), any());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        verify(cacheService).remove(ProcessDefinitionService.PROCESS_CACHE_NAME, PROCESS_ID);
+    }
+
+    private void completeTransactionsWith(int transactionStatus) throws Exception {
+        doAnswer(a -> {
+            a.<BonitaTransactionSynchronization> getArgument(0).afterCompletion(transactionStatus);
+            return null;
+        }).when(transactionService).registerBonitaSynchronization(any());
     }
 
     /**
@@ -58,9 +58,11 @@ public class EngineConfiguration {
     HibernatePersistenceService persistenceService(final ReadSessionAccessor sessionAccessor,
             final HibernateConfigurationProvider hbmConfigurationProvider, final Properties extraHibernateProperties,
             final SequenceManager sequenceManager, HibernateMetricsBinder hibernateMetricsBinder,
-            QueryBuilderFactory queryBuilderFactory) {
+            QueryBuilderFactory queryBuilderFactory, MeterRegistry meterRegistry,
+            @Value("${bonita.platform.persistence.insert.batch_size:50}") int insertBatchSize) {
         return new HibernatePersistenceService(sessionAccessor, hbmConfigurationProvider,
-                extraHibernateProperties, sequenceManager, queryBuilderFactory, hibernateMetricsBinder);
+                extraHibernateProperties, sequenceManager, queryBuilderFactory, hibernateMetricsBinder,
+                meterRegistry, insertBatchSize);
     }
 
     @Bean
@@ -114,7 +114,7 @@ public class EventsHandler {
             final ProcessInstanceService processInstanceService, final FlowNodeInstanceService flowNodeInstanceService,
             OperationService operationService,
             MessagesHandlingService messagesHandlingService, WorkService workService, BPMWorkFactory workFactory,
-            ProcessInstanceInterruptor processInstanceInterruptor) {
+            ProcessInstanceInterruptor processInstanceInterruptor, int signalBroadcastBatchSize) {
         this.eventInstanceService = eventInstanceService;
         this.processDefinitionService = processDefinitionService;
         this.containerRegistry = containerRegistry;
@@ -130,7 +130,8 @@ public class EventsHandler {
                 new MessageEventHandlerStrategy(expressionResolverService, eventInstanceService,
                         bpmInstancesCreator, processDefinitionService, messagesHandlingService));
         handlers.put(SEventTriggerType.SIGNAL,
-                new SignalEventHandlerStrategy(eventInstanceService, workService, workFactory));
+                new SignalEventHandlerStrategy(eventInstanceService, workService, workFactory,
+                        signalBroadcastBatchSize));
         handlers.put(SEventTriggerType.TERMINATE, new TerminateEventHandlerStrategy(processInstanceInterruptor));
         handlers.put(SEventTriggerType.ERROR,
                 new ErrorEventHandlerStrategy(eventInstanceService, processInstanceService, flowNodeInstanceService,
@@ -13,7 +13,7 @@
  **/
 package org.bonitasoft.engine.execution.event;
 
-import java.util.List;
+import java.util.Optional;
 
 import org.bonitasoft.engine.builder.BuilderFactory;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
@@ -22,7 +22,6 @@ import org.bonitasoft.engine.core.process.definition.model.event.SEventDefinitio
 import org.bonitasoft.engine.core.process.definition.model.event.trigger.SEventTriggerDefinition;
 import org.bonitasoft.engine.core.process.definition.model.event.trigger.SSignalEventTriggerDefinition;
 import org.bonitasoft.engine.core.process.instance.api.event.EventInstanceService;
-import org.bonitasoft.engine.core.process.instance.api.exceptions.event.trigger.SEventTriggerInstanceReadException;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.event.trigger.SWaitingEventCreationException;
 import org.bonitasoft.engine.core.process.instance.model.SProcessInstance;
 import org.bonitasoft.engine.core.process.instance.model.builder.event.handling.SWaitingSignalEventBuilder;
@@ -45,12 +44,14 @@ public class SignalEventHandlerStrategy extends CoupleEventHandlerStrategy {
 
     private final WorkService workService;
     private final BPMWorkFactory workFactory;
+    private final int broadcastBatchSize;
 
     public SignalEventHandlerStrategy(final EventInstanceService eventInstanceService, WorkService workService,
-            BPMWorkFactory workFactory) {
+            BPMWorkFactory workFactory, int broadcastBatchSize) {
         super(eventInstanceService);
         this.workService = workService;
         this.workFactory = workFactory;
+        this.broadcastBatchSize = broadcastBatchSize;
     }
 
     @Override
@@ -96,25 +97,20 @@ public class SignalEventHandlerStrategy extends CoupleEventHandlerStrategy {
         handleThrowSignal(sEventTriggerDefinition);
     }
 
+    /**
+     * Only record the greatest id of the current listeners of the signal: they are triggered asynchronously, batch by
+     * batch, by a {@link org.bonitasoft.engine.execution.work.BroadcastSignalWork} registered in this transaction. As
+     * ids are not assigned in commit order, listeners created after the throw with a lower id are triggered as well.
+     */
     private void handleThrowSignal(final SEventTriggerDefinition sEventTriggerDefinition) throws SBonitaException {
-        final SSignalEventTriggerDefinition signalTrigger = (SSignalEventTriggerDefinition) sEventTriggerDefinition;
-        int index = 0;
-        List<SWaitingSignalEvent> listeningSignals = get100WaitingSignalEvents(signalTrigger, index);
-        while (!listeningSignals.isEmpty()) {
-            for (final SWaitingSignalEvent listeningSignal : listeningSignals) {
-                workService.registerWork(workFactory.createTriggerSignalWorkDescriptor(listeningSignal));
-            }
-            index++;
-            listeningSignals = get100WaitingSignalEvents(signalTrigger, index);
+        final String signalName = ((SSignalEventTriggerDefinition) sEventTriggerDefinition).getSignalName();
+        Optional<Long> maxListeningSignalId = getEventInstanceService().getMaxWaitingSignalEventId(signalName);
+        if (maxListeningSignalId.isPresent()) {
+            workService.registerWork(workFactory.createBroadcastSignalWorkDescriptor(signalName, 0,
+                    maxListeningSignalId.get(), broadcastBatchSize, System.currentTimeMillis(), 0));
         }
     }
 
-    private List<SWaitingSignalEvent> get100WaitingSignalEvents(final SSignalEventTriggerDefinition signalTrigger,
-            int index)
-            throws SEventTriggerInstanceReadException {
-        return getEventInstanceService().getWaitingSignalEvents(signalTrigger.getSignalName(), 100 * index, 100);
-    }
-
     @Override
     public OperationsWithContext getOperations(final SWaitingEvent waitingEvent, final Long triggeringElementID) {
         return EMPTY;
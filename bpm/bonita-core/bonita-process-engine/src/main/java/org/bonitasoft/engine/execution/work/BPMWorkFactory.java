@@ -54,6 +54,7 @@ public class BPMWorkFactory implements WorkFactory {
     private static final String FINISH_FLOWNODE = "FINISH_FLOWNODE";
     private static final String EXECUTE_MESSAGE = "EXECUTE_MESSAGE";
     private static final String TRIGGER_SIGNAL = "TRIGGER_SIGNAL";
+    private static final String BROADCAST_SIGNAL = "BROADCAST_SIGNAL";
     private static final String PROCESS_DEFINITION_ID = "processDefinitionId";
     private static final String PROCESS_INSTANCE_ID = "processInstanceId";
     private static final String FLOW_NODE_DEFINITION_ID = "flowNodeDefinitionId";
@@ -78,6 +79,12 @@ public class BPMWorkFactory implements WorkFactory {
     private static final String PARENT_ID = "parentId";
     private static final String LISTENING_SIGNAL_ID = "listeningSignalId";
     private static final String LISTENING_SIGNAL_NAME = "listeningSignalName";
+    private static final String SIGNAL_NAME = "signalName";
+    private static final String LAST_LISTENING_SIGNAL_ID = "lastListeningSignalId";
+    private static final String MAX_LISTENING_SIGNAL_ID = "maxListeningSignalId";
+    private static final String BATCH_SIZE = "batchSize";
+    private static final String THROWN_AT = "thrownAt";
+    private static final String TRIGGERED_LISTENERS = "triggeredListeners";
 
     private Map<String, Function<WorkDescriptor, BonitaWork>> extensions = new HashMap<>();
 
@@ -317,6 +324,25 @@ public class BPMWorkFactory implements WorkFactory {
         return withSession(triggerSignalWork);
     }
 
+    public WorkDescriptor createBroadcastSignalWorkDescriptor(String signalName, long lastListeningSignalId,
+            long maxListeningSignalId, int batchSize, long thrownAt, long triggeredListeners) {
+        return WorkDescriptor.create(BROADCAST_SIGNAL)
+                .withParameter(SIGNAL_NAME, signalName)
+                .withParameter(LAST_LISTENING_SIGNAL_ID, lastListeningSignalId)
+                .withParameter(MAX_LISTENING_SIGNAL_ID, maxListeningSignalId)
+                .withParameter(BATCH_SIZE, batchSize)
+                .withParameter(THROWN_AT, thrownAt)
+                .withParameter(TRIGGERED_LISTENERS, triggeredListeners);
+    }
+
+    private BonitaWork createBroadcastSignalWork(WorkDescriptor workDescriptor) {
+        BonitaWork broadcastSignalWork = new BroadcastSignalWork(workDescriptor.getString(SIGNAL_NAME),
+                workDescriptor.getLong(LAST_LISTENING_SIGNAL_ID), workDescriptor.getLong(MAX_LISTENING_SIGNAL_ID),
+                workDescriptor.getInteger(BATCH_SIZE), workDescriptor.getLong(THROWN_AT),
+                workDescriptor.getLong(TRIGGERED_LISTENERS));
+        return withSession(withTx(broadcastSignalWork));
+    }
+
     @Override
     public BonitaWork create(WorkDescriptor workDescriptor) {
         BonitaWork work;
@@ -336,6 +362,9 @@ public class BPMWorkFactory implements WorkFactory {
             case TRIGGER_SIGNAL:
                 work = createTriggerSignalWork(workDescriptor);
                 break;
+            case BROADCAST_SIGNAL:
+                work = createBroadcastSignalWork(workDescriptor);
+                break;
             case EXECUTE_MESSAGE:
                 work = createExecuteMessageCoupleWork(workDescriptor);
                 break;
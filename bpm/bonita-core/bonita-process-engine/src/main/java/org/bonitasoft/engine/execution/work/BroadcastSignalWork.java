@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.work;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingSignalEvent;
+import org.bonitasoft.engine.service.ServiceAccessor;
+import org.bonitasoft.engine.work.WorkService;
+
+/**
+ * Trigger one batch of the listeners of a thrown signal, then register itself again for the next batch.
+ * <p>
+ * Listeners are read by keyset on their id, up to the greatest listener id recorded when the signal was thrown, so that
+ * each batch is read and dispatched in its own transaction whatever the number of listeners.
+ * <p>
+ * This cutoff is approximate: ids are not assigned in commit order, as each node reserves its own ranges of ids, of
+ * adaptive sizes. All the listeners waiting when the signal was thrown have an id up to the cutoff and are triggered,
+ * but a listener that starts waiting after the throw is also triggered if it got a lower id than the cutoff, e.g. from
+ * a range reserved earlier by another node.
+ */
+@Slf4j
+public class BroadcastSignalWork extends TenantAwareBonitaWork {
+
+    public static final String LISTENERS_SUMMARY = "bonita.bpmengine.signal.broadcast.listeners";
+    public static final String LATENCY_TIMER = "bonita.bpmengine.signal.broadcast.latency";
+    public static final String BATCHES_COUNTER = "bonita.bpmengine.signal.broadcast.batches";
+
+    private final String signalName;
+    private final long lastId;
+    private final long maxId;
+    private final int batchSize;
+    private final long thrownAt;
+    private final long triggered;
+
+    BroadcastSignalWork(String signalName, long lastId, long maxId, int batchSize, long thrownAt, long triggered) {
+        this.signalName = signalName;
+        this.lastId = lastId;
+        this.maxId = maxId;
+        this.batchSize = batchSize;
+        this.thrownAt = thrownAt;
+        this.triggered = triggered;
+    }
+
+    @Override
+    public String getDescription() {
+        return getClass().getSimpleName() + " signal: " + signalName + ", listeners after: " + lastId + ", up to: "
+                + maxId;
+    }
+
+    @Override
+    public CompletableFuture<Void> work(Map<String, Object> context) throws Exception {
+        ServiceAccessor serviceAccessor = getServiceAccessor(context);
+        WorkService workService = serviceAccessor.getWorkService();
+        BPMWorkFactory workFactory = serviceAccessor.getBPMWorkFactory();
+        List<SWaitingSignalEvent> listeningSignals = serviceAccessor.getEventInstanceService()
+                .getWaitingSignalEvents(signalName, lastId, maxId, batchSize);
+        for (SWaitingSignalEvent listeningSignal : listeningSignals) {
+            workService.registerWork(workFactory.createTriggerSignalWorkDescriptor(listeningSignal));
+        }
+        MeterRegistry meterRegistry = serviceAccessor.lookup(MeterRegistry.class);
+        String tenantId = String.valueOf(getTenantId());
+        meterRegistry.counter(BATCHES_COUNTER, "tenant", tenantId).increment();
+        long triggeredNow = triggered + listeningSignals.size();
+        if (listeningSignals.size() == batchSize) {
+            long nextLastId = listeningSignals.get(listeningSignals.size() - 1).getId();
+            workService.registerWork(workFactory.createBroadcastSignalWorkDescriptor(signalName, nextLastId, maxId,
+                    batchSize, thrownAt, triggeredNow));
+        } else {
+            DistributionSummary.builder(LISTENERS_SUMMARY).tag("tenant", tenantId)
+                    .description("Number of listeners triggered by a thrown signal")
+                    .register(meterRegistry).record(triggeredNow);
+            Timer.builder(LATENCY_TIMER).tag("tenant", tenantId)
+                    .description("Time between the throw of a signal and the dispatch of its last listener")
+                    .register(meterRegistry).record(System.currentTimeMillis() - thrownAt, TimeUnit.MILLISECONDS);
+            log.debug("Signal {} dispatched to {} listeners", signalName, triggeredNow);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void handleFailure(Throwable e, Map<String, Object> context) throws Exception {
+        throw new UnsupportedOperationException("No automatic failure handling for signals. See recovery procedure.");
+    }
+
+    @Override
+    public String getRecoveryProcedure() {
+        return "send the signal " + signalName + " again";
+    }
+}
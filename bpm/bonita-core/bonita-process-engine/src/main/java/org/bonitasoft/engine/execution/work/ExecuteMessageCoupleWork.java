@@ -26,8 +26,10 @@ import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessage
 import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingMessageEvent;
 import org.bonitasoft.engine.data.instance.api.DataInstanceContainer;
 import org.bonitasoft.engine.data.instance.api.DataInstanceService;
+import org.bonitasoft.engine.message.MessagesHandlingService;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
 import org.bonitasoft.engine.service.ServiceAccessor;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
 
 /**
  * @author Emmanuel Duchastenier
@@ -51,15 +53,17 @@ public class ExecuteMessageCoupleWork extends TenantAwareBonitaWork {
                 + waitingMessageId;
     }
 
-    private void resetWaitingMessage(final long waitingMessageId, final EventInstanceService eventInstanceService)
+    private void resetWaitingMessage(final long waitingMessageId, final EventInstanceService eventInstanceService,
+            final MessagesHandlingService messagesHandlingService)
             throws SWaitingEventModificationException,
-            SWaitingEventReadException {
+            SWaitingEventReadException, STransactionNotFoundException {
         final SWaitingMessageEvent waitingMsg = eventInstanceService.getWaitingMessage(waitingMessageId);
         final EntityUpdateDescriptor descriptor = new EntityUpdateDescriptor();
         descriptor
                 .addField(BuilderFactory.get(SWaitingMessageEventBuilderFactory.class).getProgressKey(),
                         SWaitingMessageEventBuilderFactory.PROGRESS_FREE_KEY);
         eventInstanceService.updateWaitingMessage(waitingMsg, descriptor);
+        messagesHandlingService.waitingMessageReset(waitingMsg);
     }
 
     @Override
@@ -88,7 +92,8 @@ public class ExecuteMessageCoupleWork extends TenantAwareBonitaWork {
     public void handleFailure(final Throwable e, final Map<String, Object> context) throws Exception {
         final ServiceAccessor serviceAccessor = getServiceAccessor(context);
         serviceAccessor.getUserTransactionService().executeInTransaction(() -> {
-            resetWaitingMessage(waitingMessageId, serviceAccessor.getEventInstanceService());
+            resetWaitingMessage(waitingMessageId, serviceAccessor.getEventInstanceService(),
+                    serviceAccessor.getMessagesHandlingService());
             return null;
         });
         log.warn(
@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.message;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+import lombok.Value;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageEventCouple;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageInstance;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingMessageEvent;
+
+/**
+ * In-memory index of the message instances and waiting message events that are free to be matched, grouped by
+ * {@link CorrelationKey}: a message can only match a waiting message event having the same key.
+ * <p>
+ * The index is only a hint: couples it returns must still be checked against the database before being executed.
+ * Elements deleted without being matched, e.g. when their process instance is aborted or deleted, are only removed
+ * when the index is {@link #prune pruned}.
+ */
+class MessageCorrelationIndex {
+
+    private final Map<CorrelationKey, Candidates> candidatesByKey = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    // incremented each time an element is added or added again, to know which ones were added after a given time
+    private final AtomicLong stamps = new AtomicLong();
+
+    static CorrelationKey keyOf(SMessageInstance messageInstance) {
+        return new CorrelationKey(messageInstance.getMessageName(), messageInstance.getTargetProcess(),
+                messageInstance.getCorrelation1(), messageInstance.getCorrelation2(),
+                messageInstance.getCorrelation3(), messageInstance.getCorrelation4(),
+                messageInstance.getCorrelation5());
+    }
+
+    static CorrelationKey keyOf(SWaitingMessageEvent waitingMessage) {
+        return new CorrelationKey(waitingMessage.getMessageName(), waitingMessage.getProcessName(),
+                waitingMessage.getCorrelation1(), waitingMessage.getCorrelation2(),
+                waitingMessage.getCorrelation3(), waitingMessage.getCorrelation4(),
+                waitingMessage.getCorrelation5());
+    }
+
+    CorrelationKey addMessage(SMessageInstance messageInstance) {
+        CorrelationKey key = keyOf(messageInstance);
+        candidatesByKey.compute(key, (k, candidates) -> {
+            if (candidates == null) {
+                candidates = new Candidates();
+            }
+            if (candidates.messages.put(messageInstance.getId(), new IndexedMessage(
+                    messageInstance.getTargetFlowNode(), stamps.incrementAndGet())) == null) {
+                size.incrementAndGet();
+            }
+            return candidates;
+        });
+        return key;
+    }
+
+    CorrelationKey addWaitingMessage(SWaitingMessageEvent waitingMessage) {
+        CorrelationKey key = keyOf(waitingMessage);
+        candidatesByKey.compute(key, (k, candidates) -> {
+            if (candidates == null) {
+                candidates = new Candidates();
+            }
+            if (candidates.waitingMessages.put(waitingMessage.getId(), new IndexedWaitingMessage(
+                    waitingMessage.getEventType(), waitingMessage.getFlowNodeName(),
+                    stamps.incrementAndGet())) == null) {
+                size.incrementAndGet();
+            }
+            return candidates;
+        });
+        return key;
+    }
+
+    void removeMessage(CorrelationKey key, long messageInstanceId) {
+        candidatesByKey.computeIfPresent(key, (k, candidates) -> {
+            if (candidates.messages.remove(messageInstanceId) != null) {
+                size.decrementAndGet();
+            }
+            return candidates.isEmpty() ? null : candidates;
+        });
+    }
+
+    void removeWaitingMessage(CorrelationKey key, long waitingMessageId) {
+        candidatesByKey.computeIfPresent(key, (k, candidates) -> {
+            if (candidates.waitingMessages.remove(waitingMessageId) != null) {
+                size.decrementAndGet();
+            }
+            return candidates.isEmpty() ? null : candidates;
+        });
+    }
+
+    /**
+     * Get the couples that can potentially be executed for the given key, oldest messages first. A message or a
+     * waiting message can appear in several couples.
+     *
+     * @param excludedMessages messages that must not be part of the returned couples
+     * @param excludedWaitingMessages waiting messages that must not be part of the returned couples
+     * @param maxCouples maximum number of couples returned
+     */
+    List<SMessageEventCouple> getPotentialCouples(CorrelationKey key, Set<Long> excludedMessages,
+            Set<Long> excludedWaitingMessages, int maxCouples) {
+        List<SMessageEventCouple> couples = new ArrayList<>();
+        candidatesByKey.computeIfPresent(key, (k, candidates) -> {
+            for (Map.Entry<Long, IndexedMessage> message : candidates.messages.entrySet()) {
+                if (excludedMessages.contains(message.getKey())) {
+                    continue;
+                }
+                for (Map.Entry<Long, IndexedWaitingMessage> waitingMessage : candidates.waitingMessages.entrySet()) {
+                    if (couples.size() >= maxCouples) {
+                        return candidates;
+                    }
+                    if (!excludedWaitingMessages.contains(waitingMessage.getKey())
+                            && message.getValue().canTarget(waitingMessage.getValue())) {
+                        couples.add(new SMessageEventCouple(waitingMessage.getKey(),
+                                waitingMessage.getValue().getEventType(), message.getKey()));
+                    }
+                }
+            }
+            return candidates;
+        });
+        return couples;
+    }
+
+    /**
+     * @return the current stamp of the index, to {@link #prune} the elements added before it
+     */
+    long currentStamp() {
+        return stamps.get();
+    }
+
+    /**
+     * Remove the elements added, or added again, before the given stamp that are not in the given free elements.
+     * Elements added after the stamp are kept: they might not have been free yet when the free elements were read.
+     *
+     * @return the number of elements removed
+     */
+    long prune(long stamp, Set<Long> freeMessages, Set<Long> freeWaitingMessages) {
+        AtomicLong removed = new AtomicLong();
+        for (CorrelationKey key : candidatesByKey.keySet()) {
+            candidatesByKey.computeIfPresent(key, (k, candidates) -> {
+                removed.addAndGet(removeIf(candidates.messages,
+                        (id, message) -> message.getStamp() <= stamp && !freeMessages.contains(id)));
+                removed.addAndGet(removeIf(candidates.waitingMessages,
+                        (id, waitingMessage) -> waitingMessage.getStamp() <= stamp
+                                && !freeWaitingMessages.contains(id)));
+                return candidates.isEmpty() ? null : candidates;
+            });
+        }
+        size.addAndGet(-removed.get());
+        return removed.get();
+    }
+
+    private static <T> int removeIf(Map<Long, T> elements, BiPredicate<Long, T> predicate) {
+        int removed = 0;
+        Iterator<Map.Entry<Long, T>> iterator = elements.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, T> element = iterator.next();
+            if (predicate.test(element.getKey(), element.getValue())) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    Set<CorrelationKey> getKeys() {
+        return candidatesByKey.keySet();
+    }
+
+    long size() {
+        return size.get();
+    }
+
+    void clear() {
+        candidatesByKey.clear();
+        size.set(0);
+    }
+
+    /**
+     * Messages match waiting message events having the same message name, process name and correlations.
+     */
+    @Value
+    static class CorrelationKey {
+
+        String messageName;
+        String processName;
+        String correlation1;
+        String correlation2;
+        String correlation3;
+        String correlation4;
+        String correlation5;
+    }
+
+    @Value
+    private static class IndexedMessage {
+
+        String targetFlowNode;
+        long stamp;
+
+        boolean canTarget(IndexedWaitingMessage waitingMessage) {
+            return targetFlowNode == null || targetFlowNode.equals(waitingMessage.getFlowNodeName());
+        }
+    }
+
+    @Value
+    private static class IndexedWaitingMessage {
+
+        SBPMEventType eventType;
+        String flowNodeName;
+        long stamp;
+    }
+
+    private static class Candidates {
+
+        private final TreeMap<Long, IndexedMessage> messages = new TreeMap<>();
+        private final TreeMap<Long, IndexedWaitingMessage> waitingMessages = new TreeMap<>();
+
+        private boolean isEmpty() {
+            return messages.isEmpty() && waitingMessages.isEmpty();
+        }
+    }
+}
@@ -13,14 +13,27 @@
  **/
 package org.bonitasoft.engine.message;
 
+import static java.util.Collections.singletonList;
+
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.transaction.Status;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
 import lombok.extern.slf4j.Slf4j;
@@ -42,6 +55,7 @@ import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaiting
 import org.bonitasoft.engine.execution.work.BPMWorkFactory;
 import org.bonitasoft.engine.lock.BonitaLock;
 import org.bonitasoft.engine.lock.LockService;
+import org.bonitasoft.engine.message.MessageCorrelationIndex.CorrelationKey;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
 import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
@@ -61,7 +75,11 @@ public class MessagesHandlingService implements TenantLifecycleService {
     public static final String NUMBER_OF_MESSAGES_EXECUTED = "bonita.bpmengine.message.executed";
     public static final String NUMBER_OF_MESSAGES_POTENTIAL_MATCHED = "bonita.bpmengine.message.potential";
     public static final String NUMBER_OF_MESSAGES_MATCHING_RETRIGGERED_TASKS = "bonita.bpmengine.message.retriggeredtasks";
+    public static final String NUMBER_OF_MESSAGES_INDEXED = "bonita.bpmengine.message.indexed";
+    private static final int INDEX_LOADING_PAGE_SIZE = 1000;
     private ThreadPoolExecutor threadPoolExecutor;
+    private ExecutorService[] correlationMatchingExecutors;
+    private ScheduledExecutorService indexReloadExecutor;
     private EventInstanceService eventInstanceService;
     private WorkService workService;
     private LockService lockService;
@@ -74,6 +92,12 @@ public class MessagesHandlingService implements TenantLifecycleService {
     private final Counter matchedPotentialMessagesCounter;
     private final Counter retriggeredMatchingTasksCounter;
 
+    private final MessageCorrelationIndex correlationIndex = new MessageCorrelationIndex();
+    private final Set<CorrelationKey> scheduledCorrelationKeys = ConcurrentHashMap.newKeySet();
+    private boolean incrementalMatching = false;
+    private int matchingThreads = 4;
+    private int indexReloadInterval = 600;
+
     public MessagesHandlingService(EventInstanceService eventInstanceService, WorkService workService,
             LockService lockService, Long tenantId, UserTransactionService userTransactionService,
             SessionAccessor sessionAccessor, BPMWorkFactory workFactory, MeterRegistry meterRegistry) {
@@ -99,6 +123,36 @@ public class MessagesHandlingService implements TenantLifecycleService {
                 .baseUnit("messages matching tasks")
                 .description("BPMN message matching tasks retriggered")
                 .register(meterRegistry);
+        Gauge.builder(NUMBER_OF_MESSAGES_INDEXED, correlationIndex, MessageCorrelationIndex::size)
+                .tags(Tags.of("tenant", String.valueOf(tenantId)))
+                .baseUnit("messages")
+                .description("BPMN messages and waiting message events indexed for incremental matching")
+                .register(meterRegistry);
+    }
+
+    /**
+     * When enabled, messages and waiting message events are indexed in memory by correlation when their creation is
+     * committed, and only the correlation they belong to is matched, in parallel on {@link #setMatchingThreads
+     * matching threads}. Otherwise, all message / waiting message event couples are searched in database each time a
+     * message or a waiting message event is created.
+     * <p>
+     * The index is local to this node: incremental matching must only be enabled when a single node creates messages.
+     */
+    public void setIncrementalMatching(boolean incrementalMatching) {
+        this.incrementalMatching = incrementalMatching;
+    }
+
+    public void setMatchingThreads(int matchingThreads) {
+        this.matchingThreads = matchingThreads;
+    }
+
+    /**
+     * Interval in seconds between two reloads of the index from the database when incremental matching is enabled.
+     * Reloading the index removes the elements deleted without being matched, e.g. when their process instance is
+     * aborted or deleted, or by the messages cleanup job. 0 to only reload the index when the matching is triggered.
+     */
+    public void setIndexReloadInterval(int indexReloadInterval) {
+        this.indexReloadInterval = indexReloadInterval;
     }
 
     @Override
@@ -108,6 +162,22 @@ public class MessagesHandlingService implements TenantLifecycleService {
                 new ArrayBlockingQueue<>(5),
                 r -> new Thread(r, "Bonita-Message-Matching"),
                 (r, executor) -> log.debug("Message matching queue capacity reached"));
+        if (incrementalMatching) {
+            correlationMatchingExecutors = new ExecutorService[matchingThreads];
+            for (int i = 0; i < matchingThreads; i++) {
+                String threadName = "Bonita-Message-Matching-" + i;
+                correlationMatchingExecutors[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, threadName));
+            }
+            if (indexReloadInterval > 0) {
+                indexReloadExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "Bonita-Message-Index-Reload");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                indexReloadExecutor.scheduleWithFixedDelay(this::reloadIndex, indexReloadInterval,
+                        indexReloadInterval, TimeUnit.SECONDS);
+            }
+        }
         log.info("Thread that handle messages matching successfully started");
     }
 
@@ -119,8 +189,22 @@ public class MessagesHandlingService implements TenantLifecycleService {
             return;
         }
         threadPoolExecutor.shutdown();
+        if (indexReloadExecutor != null) {
+            indexReloadExecutor.shutdownNow();
+            indexReloadExecutor = null;
+        }
+        if (correlationMatchingExecutors != null) {
+            for (ExecutorService executor : correlationMatchingExecutors) {
+                executor.shutdown();
+            }
+        }
         try {
             boolean termination = threadPoolExecutor.awaitTermination(5000, TimeUnit.MILLISECONDS);
+            if (correlationMatchingExecutors != null) {
+                for (ExecutorService executor : correlationMatchingExecutors) {
+                    termination &= executor.awaitTermination(5000, TimeUnit.MILLISECONDS);
+                }
+            }
             if (!termination) {
                 log.warn("Failed to terminate the BPMN messages matcher thread." +
                         " This will not have functional impacts but it might produce warnings on server shutdown");
@@ -128,6 +212,10 @@ public class MessagesHandlingService implements TenantLifecycleService {
         } catch (InterruptedException ignored) {
         }
         threadPoolExecutor = null;
+        correlationMatchingExecutors = null;
+        // the index is loaded again from the database when the matching is triggered on restart
+        correlationIndex.clear();
+        scheduledCorrelationKeys.clear();
         log.info("BPMN messages matcher thread successfully stopped");
     }
 
@@ -149,6 +237,196 @@ public class MessagesHandlingService implements TenantLifecycleService {
         userTransactionService.registerBonitaSynchronization(new RegisterMessagesMatchingSynchronization());
     }
 
+    /**
+     * Make the given message instance available for matching once the current transaction is committed.
+     * <p>
+     * Must be called when a message instance is created or becomes free again.
+     */
+    public void registerMessageInstance(SMessageInstance messageInstance) throws STransactionNotFoundException {
+        if (!incrementalMatching) {
+            triggerMatchingOfMessages();
+            return;
+        }
+        userTransactionService.registerBonitaSynchronization(
+                new IndexOnCommitSynchronization(() -> correlationIndex.addMessage(messageInstance)));
+    }
+
+    /**
+     * Make the given waiting message event available for matching once the current transaction is committed.
+     * <p>
+     * Must be called when a waiting message event is created or becomes free again.
+     */
+    public void registerWaitingMessage(SWaitingMessageEvent waitingMessage) throws STransactionNotFoundException {
+        if (!incrementalMatching) {
+            triggerMatchingOfMessages();
+            return;
+        }
+        userTransactionService.registerBonitaSynchronization(
+                new IndexOnCommitSynchronization(() -> correlationIndex.addWaitingMessage(waitingMessage)));
+    }
+
+    /**
+     * Notify that the given waiting message event was freed after a failed execution, so that other messages can
+     * trigger it. Only needed when {@link #setIncrementalMatching incremental matching} is enabled.
+     */
+    public void waitingMessageReset(SWaitingMessageEvent waitingMessage) throws STransactionNotFoundException {
+        if (incrementalMatching) {
+            registerWaitingMessage(waitingMessage);
+        }
+    }
+
+    private void reloadIndex() {
+        ThreadPoolExecutor executor = threadPoolExecutor;
+        if (executor != null) {
+            executor.submit(new MessagesMatchingTask());
+        }
+    }
+
+    private void scheduleMatching(CorrelationKey correlationKey) {
+        ExecutorService[] executors = correlationMatchingExecutors;
+        if (executors == null) {
+            log.debug("Message matching of {} not scheduled, service is stopped. It will be matched on next start",
+                    correlationKey);
+            return;
+        }
+        // a correlation is matched by a single thread at a time, and is scheduled only once until it starts
+        if (scheduledCorrelationKeys.add(correlationKey)) {
+            try {
+                executors[Math.floorMod(correlationKey.hashCode(), executors.length)]
+                        .execute(() -> matchCorrelation(correlationKey));
+            } catch (RejectedExecutionException e) {
+                scheduledCorrelationKeys.remove(correlationKey);
+                log.debug("Message matching of {} rejected, the service is stopping", correlationKey);
+            }
+        }
+    }
+
+    private void matchCorrelation(CorrelationKey correlationKey) {
+        scheduledCorrelationKeys.remove(correlationKey);
+        Set<Long> excludedMessages = new HashSet<>();
+        Set<Long> excludedWaitingMessages = new HashSet<>();
+        sessionAccessor.setTenantId(tenantId);
+        List<SMessageEventCouple> potentialMessageCouples;
+        while (!(potentialMessageCouples = correlationIndex.getPotentialCouples(correlationKey, excludedMessages,
+                excludedWaitingMessages, MAX_COUPLES)).isEmpty()) {
+            matchedPotentialMessagesCounter.increment(potentialMessageCouples.size());
+            List<SMessageEventCouple> uniqueCouples = getMessageUniqueCouples(potentialMessageCouples);
+            if (!executeIndexedCouples(correlationKey, uniqueCouples, excludedMessages, excludedWaitingMessages)) {
+                // execute the couples one by one, so that a failing couple does not prevent the others to be matched
+                for (SMessageEventCouple couple : uniqueCouples) {
+                    if (!executeIndexedCouples(correlationKey, singletonList(couple), excludedMessages,
+                            excludedWaitingMessages)) {
+                        // kept in the index, it will be matched again when the correlation changes or is reloaded
+                        excludedMessages.add(couple.getMessageInstanceId());
+                        excludedWaitingMessages.add(couple.getWaitingMessageId());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Execute the given couples of a correlation in a transaction. Couples from the index are checked against the
+     * database: entries that are not free anymore are excluded and evicted from the index, once the transaction is
+     * committed.
+     *
+     * @return false if the transaction failed
+     */
+    private boolean executeIndexedCouples(CorrelationKey correlationKey, List<SMessageEventCouple> couples,
+            Set<Long> excludedMessages, Set<Long> excludedWaitingMessages) {
+        List<Long> consumedMessages = new ArrayList<>();
+        List<Long> consumedWaitingMessages = new ArrayList<>();
+        try {
+            userTransactionService.executeInTransaction(() -> {
+                consumedMessages.clear();
+                consumedWaitingMessages.clear();
+                for (SMessageEventCouple couple : couples) {
+                    long messageInstanceId = couple.getMessageInstanceId();
+                    long waitingMessageId = couple.getWaitingMessageId();
+                    SMessageInstance messageInstance = eventInstanceService.getMessageInstance(messageInstanceId);
+                    SWaitingMessageEvent waitingMessage = eventInstanceService.getWaitingMessage(waitingMessageId);
+                    boolean isMessageFree = isFree(messageInstance);
+                    boolean isWaitingMessageFree = isFree(waitingMessage);
+                    if (isMessageFree && isWaitingMessageFree) {
+                        executeMessageCouple(messageInstance, waitingMessage);
+                    }
+                    if (!isMessageFree || isWaitingMessageFree) {
+                        // the message is either consumed by this couple or already handled
+                        consumedMessages.add(messageInstanceId);
+                    }
+                    if (!isWaitingMessageFree
+                            || isMessageFree && !SBPMEventType.START_EVENT.equals(waitingMessage.getEventType())) {
+                        consumedWaitingMessages.add(waitingMessageId);
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Error while matching {} messages of {}", couples.size(), correlationKey, e);
+            return false;
+        }
+        for (Long messageInstanceId : consumedMessages) {
+            excludedMessages.add(messageInstanceId);
+            correlationIndex.removeMessage(correlationKey, messageInstanceId);
+        }
+        for (Long waitingMessageId : consumedWaitingMessages) {
+            excludedWaitingMessages.add(waitingMessageId);
+            correlationIndex.removeWaitingMessage(correlationKey, waitingMessageId);
+        }
+        return true;
+    }
+
+    private static boolean isFree(SMessageInstance messageInstance) {
+        return messageInstance != null && !messageInstance.isHandled() && !messageInstance.isLocked();
+    }
+
+    private static boolean isFree(SWaitingMessageEvent waitingMessage) {
+        return waitingMessage != null && waitingMessage.isActive() && !waitingMessage.isLocked()
+                && waitingMessage.getProgress() == SWaitingMessageEventBuilderFactory.PROGRESS_FREE_KEY;
+    }
+
+    /**
+     * Load in the index all messages and waiting message events that are free in database, then match all
+     * correlations. Entries already in the index that are not free anymore in database are removed, unless they were
+     * indexed again while loading.
+     */
+    @VisibleForTesting
+    void loadIndexAndTriggerMatching() throws Exception {
+        long stamp = correlationIndex.currentStamp();
+        Set<Long> freeMessages = new HashSet<>();
+        Set<Long> freeWaitingMessages = new HashSet<>();
+        userTransactionService.executeInTransaction(() -> {
+            freeMessages.clear();
+            freeWaitingMessages.clear();
+            long lastId = 0;
+            List<SWaitingMessageEvent> waitingMessages;
+            do {
+                waitingMessages = eventInstanceService.getFreeWaitingMessageEvents(lastId, INDEX_LOADING_PAGE_SIZE);
+                for (SWaitingMessageEvent waitingMessage : waitingMessages) {
+                    correlationIndex.addWaitingMessage(waitingMessage);
+                    freeWaitingMessages.add(waitingMessage.getId());
+                    lastId = waitingMessage.getId();
+                }
+            } while (waitingMessages.size() == INDEX_LOADING_PAGE_SIZE);
+            lastId = 0;
+            List<SMessageInstance> messageInstances;
+            do {
+                messageInstances = eventInstanceService.getUnhandledMessageInstances(lastId, INDEX_LOADING_PAGE_SIZE);
+                for (SMessageInstance messageInstance : messageInstances) {
+                    correlationIndex.addMessage(messageInstance);
+                    freeMessages.add(messageInstance.getId());
+                    lastId = messageInstance.getId();
+                }
+            } while (messageInstances.size() == INDEX_LOADING_PAGE_SIZE);
+            return null;
+        });
+        long removed = correlationIndex.prune(stamp, freeMessages, freeWaitingMessages);
+        log.info("{} messages and waiting message events indexed, {} removed", correlationIndex.size(), removed);
+        for (CorrelationKey correlationKey : correlationIndex.getKeys()) {
+            scheduleMatching(correlationKey);
+        }
+    }
+
     @VisibleForTesting
     void matchEventCoupleAndTriggerExecution() throws Exception {
         userTransactionService.executeInTransaction(() -> {
@@ -186,12 +464,17 @@ public class MessagesHandlingService implements TenantLifecycleService {
     void executeMessageCouple(long messageInstanceId, long waitingMessageId)
             throws SWaitingEventReadException, SMessageInstanceReadException,
             SMessageModificationException, SWaitingEventModificationException, SWorkRegisterException {
-        log.debug("Registering message/event couple execution: message {} / event {}", messageInstanceId,
-                waitingMessageId);
-
-        // Mark messages that will be treated as "treatment in progress":
         final SWaitingMessageEvent waitingMsg = eventInstanceService.getWaitingMessage(waitingMessageId);
         final SMessageInstance messageInstance = eventInstanceService.getMessageInstance(messageInstanceId);
+        executeMessageCouple(messageInstance, waitingMsg);
+    }
+
+    private void executeMessageCouple(SMessageInstance messageInstance, SWaitingMessageEvent waitingMsg)
+            throws SMessageModificationException, SWaitingEventModificationException, SWorkRegisterException {
+        log.debug("Registering message/event couple execution: message {} / event {}", messageInstance.getId(),
+                waitingMsg.getId());
+
+        // Mark messages that will be treated as "treatment in progress":
         markMessageAsInProgress(messageInstance);
 
         // EVENT_SUB_PROCESS of type non-interrupted should be considered as well, as soon as we support them
@@ -256,13 +539,13 @@ public class MessagesHandlingService implements TenantLifecycleService {
 
     public void resetMessageCouple(long messageInstanceId, long waitingMessageId)
             throws SWaitingEventReadException, SWaitingEventModificationException, SMessageModificationException,
-            SMessageInstanceReadException {
+            SMessageInstanceReadException, STransactionNotFoundException {
         resetWaitingMessage(waitingMessageId);
         resetMessageInstance(messageInstanceId);
     }
 
     private void resetMessageInstance(final long messageInstanceId)
-            throws SMessageModificationException, SMessageInstanceReadException {
+            throws SMessageModificationException, SMessageInstanceReadException, STransactionNotFoundException {
         final SMessageInstance messageInstance = eventInstanceService.getMessageInstance(messageInstanceId);
         if (messageInstance == null) {
             log.warn("Unable to reset message instance {} because it is not found", messageInstanceId);
@@ -271,10 +554,13 @@ public class MessagesHandlingService implements TenantLifecycleService {
         final EntityUpdateDescriptor descriptor = new EntityUpdateDescriptor();
         descriptor.addField(SMessageInstanceBuilder.HANDLED, false);
         eventInstanceService.updateMessageInstance(messageInstance, descriptor);
+        if (incrementalMatching) {
+            registerMessageInstance(messageInstance);
+        }
     }
 
     private void resetWaitingMessage(final long waitingMessageId)
-            throws SWaitingEventModificationException, SWaitingEventReadException {
+            throws SWaitingEventModificationException, SWaitingEventReadException, STransactionNotFoundException {
         final SWaitingMessageEvent waitingMsg = eventInstanceService.getWaitingMessage(waitingMessageId);
         if (waitingMsg == null) {
             log.warn("Unable to reset waiting event because it is not found", waitingMessageId);
@@ -284,6 +570,7 @@ public class MessagesHandlingService implements TenantLifecycleService {
         descriptor.addField(BuilderFactory.get(SWaitingMessageEventBuilderFactory.class).getProgressKey(),
                 SWaitingMessageEventBuilderFactory.PROGRESS_FREE_KEY);
         eventInstanceService.updateWaitingMessage(waitingMsg, descriptor);
+        waitingMessageReset(waitingMsg);
     }
 
     private class MessagesMatchingTask implements Callable<Void> {
@@ -303,7 +590,11 @@ public class MessagesHandlingService implements TenantLifecycleService {
                 }
                 try {
                     sessionAccessor.setTenantId(tenantId);
-                    matchEventCoupleAndTriggerExecution();
+                    if (incrementalMatching) {
+                        loadIndexAndTriggerMatching();
+                    } else {
+                        matchEventCoupleAndTriggerExecution();
+                    }
                 } finally {
                     lockService.unlock(eventLock, tenantId);
                 }
@@ -324,4 +615,21 @@ public class MessagesHandlingService implements TenantLifecycleService {
             log.debug("Messages matching task registered");
         }
     }
+
+    private class IndexOnCommitSynchronization implements BonitaTransactionSynchronization {
+
+        private final Supplier<CorrelationKey> indexing;
+
+        private IndexOnCommitSynchronization(Supplier<CorrelationKey> indexing) {
+            this.indexing = indexing;
+        }
+
+        @Override
+        public void afterCompletion(final int txState) {
+            // elements of a rolled back transaction do not exist
+            if (txState == Status.STATUS_COMMITTED) {
+                scheduleMatching(indexing.get());
+            }
+        }
+    }
 }
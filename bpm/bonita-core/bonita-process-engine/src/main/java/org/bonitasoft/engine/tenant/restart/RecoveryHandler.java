@@ -13,21 +13,20 @@
  **/
 package org.bonitasoft.engine.tenant.restart;
 
-import java.time.Duration;
-import java.util.List;
-
 import org.springframework.stereotype.Component;
 
 /**
  * The Recovery handler is responsible for recovering all candidate elements
  * at Engine startup.
  * It is called only once in a cluster startup (handled by TenantElementsRestartSupervisor)
+ * Elements to recover are the ones last updated before the services start, they are read and recovered once services
+ * are started.
  */
 @Component
 public class RecoveryHandler implements TenantRestartHandler {
 
     private final RecoveryService recoveryService;
-    private List<ElementToRecover> allElementsToRecover;
+    private long servicesStartDate;
 
     public RecoveryHandler(RecoveryService recoveryService) {
         this.recoveryService = recoveryService;
@@ -35,11 +34,11 @@ public class RecoveryHandler implements TenantRestartHandler {
 
     @Override
     public void beforeServicesStart() {
-        allElementsToRecover = recoveryService.getAllElementsToRecover(Duration.ZERO);
+        servicesStartDate = System.currentTimeMillis();
     }
 
     @Override
     public void afterServicesStart() {
-        recoveryService.recover(allElementsToRecover);
+        recoveryService.recoverElementsLastUpdatedBefore(servicesStartDate);
     }
 }
@@ -16,6 +16,7 @@ package org.bonitasoft.engine.tenant.restart;
 import static org.springframework.beans.factory.config.BeanDefinition.SCOPE_PROTOTYPE;
 
 import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Scope;
@@ -24,82 +25,85 @@ import org.springframework.stereotype.Component;
 /**
  * Responsible for monitoring the recovery mechanism.
  * It measures some recovery metrics and prints them in standard logger when the recovery triggers.
+ * Batches of elements are recovered in parallel, counters can be incremented by several threads.
  */
 @Slf4j
 @Component
 @Scope(SCOPE_PROTOTYPE)
 class RecoveryMonitor {
 
-    private long finishing;
-    private long executing;
-    private long notExecutable;
-    private long notFound;
-    private long inError;
+    private final LongAdder finishing = new LongAdder();
+    private final LongAdder executing = new LongAdder();
+    private final LongAdder notExecutable = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder inError = new LongAdder();
     private long startTime;
-    private int numberOfElementsToProcess;
 
-    public void startNow(int numberOfElementsToProcess) {
+    public void startNow() {
         if (startTime > 0) {
             throw new UnsupportedOperationException("Can't start the Recovery Monitor, it is already started");
         }
-        this.numberOfElementsToProcess = numberOfElementsToProcess;
         startTime = System.currentTimeMillis();
     }
 
     public long getFinishing() {
-        return finishing;
+        return finishing.sum();
     }
 
     public long getExecuting() {
-        return executing;
+        return executing.sum();
     }
 
     public long getNumberOfElementRecovered() {
-        return executing + finishing;
+        return getExecuting() + getFinishing();
     }
 
     public long getNotExecutable() {
-        return notExecutable;
+        return notExecutable.sum();
     }
 
     public long getNotFound() {
-        return notFound;
+        return notFound.sum();
     }
 
     public long getInError() {
-        return inError;
+        return inError.sum();
+    }
+
+    public long getNumberOfElementHandled() {
+        return getFinishing() + getExecuting() + getNotExecutable() + getNotFound() + getInError();
     }
 
     public void incrementFinishing() {
-        this.finishing++;
+        finishing.increment();
     }
 
     public void incrementExecuting() {
-        this.executing++;
+        executing.increment();
     }
 
     public void incrementNotExecutable() {
-        this.notExecutable++;
+        notExecutable.increment();
     }
 
     public void incrementInError() {
-        this.inError++;
+        inError.increment();
     }
 
     public void incrementNotFound() {
-        this.notFound++;
+        notFound.increment();
     }
 
     public void incrementNotFound(int add) {
-        this.notFound += add;
+        notFound.add(add);
     }
 
     public void printProgress() {
         //This will be called only when more than one "page" of element to restart are present
-        log.info("Restarting elements...Handled "
-                + (getFinishing() + getExecuting() + getNotExecutable() + getNotFound() + getInError()) + " of "
-                + numberOfElementsToProcess +
-                " elements candidates to be recovered in " + Duration.ofMillis(System.currentTimeMillis() - startTime));
+        long handled = getNumberOfElementHandled();
+        long elapsedMillis = System.currentTimeMillis() - startTime;
+        log.info("Restarting elements...Handled {} elements candidates to be recovered in {} ({} elements/s)",
+                handled, Duration.ofMillis(elapsedMillis), handled * 1000 / Math.max(1, elapsedMillis));
     }
 
     public void printSummary() {
@@ -111,8 +115,7 @@ class RecoveryMonitor {
             log.info("Recovery of elements executed, {} elements recovered.", numberOfElementRecovered);
         }
         // details in debug
-        log.debug("Handled {} elements candidates to be recovered in {}",
-                (getFinishing() + getExecuting() + getNotExecutable() + getNotFound() + getInError()),
+        log.debug("Handled {} elements candidates to be recovered in {}", getNumberOfElementHandled(),
                 Duration.ofMillis(System.currentTimeMillis() - startTime));
         log.debug("Found {} elements recovered (Executing)", getExecuting());
         log.debug("Found {} elements recovered (Finishing)", getFinishing());
@@ -14,14 +14,14 @@
 package org.bonitasoft.engine.tenant.restart;
 
 import static org.bonitasoft.engine.commons.CollectionUtil.split;
-import static org.bonitasoft.engine.tenant.restart.ElementToRecover.Type.FLOWNODE;
-import static org.bonitasoft.engine.tenant.restart.ElementToRecover.Type.PROCESS;
 
 import java.time.Duration;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 
@@ -35,7 +35,6 @@ import org.bonitasoft.engine.api.utils.VisibleForTesting;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.core.process.instance.api.FlowNodeInstanceService;
 import org.bonitasoft.engine.core.process.instance.api.ProcessInstanceService;
-import org.bonitasoft.engine.persistence.QueryOptions;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
 import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.springframework.beans.factory.ObjectFactory;
@@ -45,8 +44,12 @@ import org.springframework.stereotype.Component;
 /**
  * Responsible to recover from incidents like database or network outage.
  * It scans the database (on-demand) and reschedules the elements to recover.
- * It will recover these elements using multiple transaction using a batch size configured by the property
- * `bonita.tenant.work.batch_restart_size`
+ * <p>
+ * Ids of the elements to recover are read page by page, by increasing id, so that the oldest elements are recovered
+ * first and the ids never have to be all loaded in memory. Each page is split in batches of
+ * `bonita.tenant.work.batch_restart_size` elements, recovered in their own transaction by
+ * `bonita.tenant.recover.parallelism` threads. Reading stops while too many batches wait to be recovered.
+ * Flow nodes are all recovered before process instances.
  */
 @Component
 @Slf4j
@@ -56,6 +59,8 @@ public class RecoveryService {
     public static final String NUMBER_OF_RECOVERY = "bonita.bpmengine.recovery.execution";
     public static final String NUMBER_OF_ELEMENTS_RECOVERED_LAST_RECOVERY = "bonita.bpmengine.recovery.recovered.last";
     public static final String NUMBER_OF_ELEMENTS_RECOVERED_TOTAL = "bonita.bpmengine.recovery.recovered.total";
+    public static final String NUMBER_OF_ELEMENTS_HANDLED_CURRENT_RECOVERY = "bonita.bpmengine.recovery.handled.current";
+    public static final String NUMBER_OF_BATCHES_IN_PROGRESS = "bonita.bpmengine.recovery.batches.inprogress";
 
     private final FlowNodeInstanceService flowNodeInstanceService;
     private final ProcessInstanceService processInstanceService;
@@ -68,11 +73,14 @@ public class RecoveryService {
     private long tenantId;
     private int readBatchSize;
     private int batchRestartSize;
+    private int parallelism;
     private Duration considerElementsOlderThan;
     private LongTaskTimer longTaskTimer;
     private Counter numberOfElementsRecoveredTotal;
     private Counter numberOfRecoverExecuted;
     private final AtomicLong numberOfElementsRecoveredDuringTheLastRecover = new AtomicLong();
+    private final AtomicInteger numberOfBatchesInProgress = new AtomicInteger();
+    private volatile RecoveryMonitor currentRecoveryMonitor;
 
     public RecoveryService(FlowNodeInstanceService flowNodeInstanceService,
             ProcessInstanceService processInstanceService,
@@ -103,6 +111,15 @@ public class RecoveryService {
                 AtomicLong::doubleValue)
                 .description("number of elements recovered").baseUnit("elements").tags(tags)
                 .register(meterRegistry);
+        Gauge.builder(NUMBER_OF_ELEMENTS_HANDLED_CURRENT_RECOVERY, this,
+                RecoveryService::getNumberOfElementsHandledByCurrentRecovery)
+                .description("number of elements handled by the recovery in progress").baseUnit("elements")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(NUMBER_OF_BATCHES_IN_PROGRESS, numberOfBatchesInProgress, AtomicInteger::doubleValue)
+                .description("number of batches of elements read and not recovered yet").baseUnit("batches")
+                .tags(tags)
+                .register(meterRegistry);
         numberOfElementsRecoveredTotal = Counter.builder(NUMBER_OF_ELEMENTS_RECOVERED_TOTAL)
                 .baseUnit("elements").description("Total number of elements recovered").tags(tags)
                 .register(meterRegistry);
@@ -126,6 +143,11 @@ public class RecoveryService {
         this.batchRestartSize = batchRestartSize;
     }
 
+    @Value("${bonita.tenant.recover.parallelism:4}")
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     @Value("${tenantId}")
     public void setTenantId(long tenantId) {
         this.tenantId = tenantId;
@@ -137,106 +159,126 @@ public class RecoveryService {
     }
 
     /**
-     * Retrieve elements ( ProcessInstance and Flow Nodes ) that needs to be recovered and that are older than the given
-     * duration.
-     *
-     * @param considerElementsOlderThan consider elements older than that duration
-     * @return elements to be recovered
+     * Recover all elements considered as "stuck".
+     * Only recover elements older than a duration configured with {@link #setConsiderElementsOlderThan(String)}.
      */
-    public List<ElementToRecover> getAllElementsToRecover(Duration considerElementsOlderThan) {
-        List<ElementToRecover> elementsToRecover = new ArrayList<>();
-        try {
-            elementsToRecover.addAll(getAllElementsToRecover(PROCESS,
-                    (q) -> processInstanceService.getProcessInstanceIdsToRecover(considerElementsOlderThan, q)));
-            elementsToRecover.addAll(getAllElementsToRecover(FLOWNODE,
-                    (q) -> flowNodeInstanceService.getFlowNodeInstanceIdsToRecover(considerElementsOlderThan, q)));
-            elementsToRecover.addAll(getAllElementsToRecover(FLOWNODE,
-                    (q) -> flowNodeInstanceService.getGatewayInstanceIdsToRecover(considerElementsOlderThan, q)));
-            return elementsToRecover;
-        } catch (SBonitaException e) {
-            throw new RuntimeException(e);
-        }
+    public void recoverAllElements() {
+        recoverElementsLastUpdatedBefore(System.currentTimeMillis() - considerElementsOlderThan.toMillis());
     }
 
     /**
-     * Trigger works to execute elements ( ProcessInstance and Flow Nodes ) that needs to be recovered
+     * Recover all elements considered as "stuck" that were last updated before the given date.
      *
-     * @param elementsToRecover elements needs to be recovered
-     */
-    public void recover(List<ElementToRecover> elementsToRecover) {
-        RecoveryMonitor recoveryMonitor = recoveryMonitorProvider.getObject();
-        recoveryMonitor.startNow(elementsToRecover.size());
-        executeInBatch(recoveryMonitor, elementsToRecover.stream()
-                .filter(e1 -> e1.getType() == FLOWNODE)
-                .collect(Collectors.toList()), ids -> flowNodesRecover.execute(recoveryMonitor, ids));
-        executeInBatch(recoveryMonitor, elementsToRecover.stream()
-                .filter(e -> e.getType() == PROCESS)
-                .collect(Collectors.toList()), ids -> processesRecover.execute(recoveryMonitor, ids));
-
-        recoveryMonitor.printSummary();
-        long numberOfElementRecovered = recoveryMonitor.getNumberOfElementRecovered();
-        numberOfElementsRecoveredTotal.increment(numberOfElementRecovered);
-        numberOfElementsRecoveredDuringTheLastRecover.set(numberOfElementRecovered);
-        numberOfRecoverExecuted.increment();
-    }
-
-    protected void executeInBatch(RecoveryMonitor recoveryMonitor, List<ElementToRecover> elements,
-            BatchExecution execution) {
-        for (List<ElementToRecover> batchElementsIds : split(elements, batchRestartSize)) {
-            try {
-                userTransactionService.executeInTransaction(() -> {
-                    execution.execute(
-                            batchElementsIds.stream().map(ElementToRecover::getId).collect(Collectors.toList()));
-                    return null;
-                });
-            } catch (Exception e) {
-                log.warn(
-                        "Error processing batch of elements to recover, they will be recovered next time: {}, Cause: {}: {}",
-                        batchElementsIds, e.getClass().getName(), e.getMessage());
-                log.debug("Cause", e);
-            }
-            if (batchElementsIds.size() == batchRestartSize) {
-                // only print progress when there is more than one page
-                recoveryMonitor.printProgress();
-            }
-        }
-    }
-
-    /**
-     * Recover all elements considered as "stuck".
-     * Only recover elements older than a duration configured with {@link #setConsiderElementsOlderThan(String)}.
+     * @param maxLastUpdate date in milliseconds, elements updated after it are not recovered
      */
-    public void recoverAllElements() {
+    public void recoverElementsLastUpdatedBefore(long maxLastUpdate) {
         longTaskTimer.record(() -> {
             try {
                 sessionAccessor.setTenantId(tenantId);
-                List<ElementToRecover> allElementsToRecover = userTransactionService.executeInTransaction(
-                        () -> RecoveryService.this.getAllElementsToRecover(considerElementsOlderThan));
-                log.debug("Found {} that can potentially be recovered", allElementsToRecover.size());
-                recover(allElementsToRecover);
+                RecoveryMonitor recoveryMonitor = recoveryMonitorProvider.getObject();
+                recoveryMonitor.startNow();
+                currentRecoveryMonitor = recoveryMonitor;
+                try {
+                    recover(recoveryMonitor, maxLastUpdate);
+                } finally {
+                    currentRecoveryMonitor = null;
+                }
+                recoveryMonitor.printSummary();
+                long numberOfElementRecovered = recoveryMonitor.getNumberOfElementRecovered();
+                numberOfElementsRecoveredTotal.increment(numberOfElementRecovered);
+                numberOfElementsRecoveredDuringTheLastRecover.set(numberOfElementRecovered);
+                numberOfRecoverExecuted.increment();
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         });
     }
 
-    private List<ElementToRecover> getAllElementsToRecover(ElementToRecover.Type type, IdsRetriever idsRetriever)
-            throws SBonitaException {
-        // using a too low page size (100) causes too many access to the database and causes timeout exception if there are lot of elements.
-        // As we retrieve only the id we can use a greater page size
-        QueryOptions queryOptions = new QueryOptions(0, readBatchSize);
-        final List<Long> ids = new ArrayList<>();
-        List<Long> elementsIds;
-        log.debug("Start detecting {} to recover...", type);
+    private void recover(RecoveryMonitor recoveryMonitor, long maxLastUpdate) throws Exception {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "Bonita-Recovery-" + tenantId + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // a few batches wait for each thread, so that threads do not wait for the next page to be read
+        int maxBatchesInProgress = parallelism * 2;
+        Semaphore batchesInProgress = new Semaphore(maxBatchesInProgress);
+        try {
+            BatchExecution recoverFlowNodes = ids -> flowNodesRecover.execute(recoveryMonitor, ids);
+            dispatch(recoveryMonitor, executor, batchesInProgress, "flow nodes", recoverFlowNodes,
+                    (lastId, maxResults) -> flowNodeInstanceService.getFlowNodeInstanceIdsToRecover(maxLastUpdate,
+                            lastId, maxResults));
+            dispatch(recoveryMonitor, executor, batchesInProgress, "gateways", recoverFlowNodes,
+                    (lastId, maxResults) -> flowNodeInstanceService.getGatewayInstanceIdsToRecover(maxLastUpdate,
+                            lastId, maxResults));
+            // process instances are only recovered once their flow nodes are
+            batchesInProgress.acquire(maxBatchesInProgress);
+            batchesInProgress.release(maxBatchesInProgress);
+            dispatch(recoveryMonitor, executor, batchesInProgress, "process instances",
+                    ids -> processesRecover.execute(recoveryMonitor, ids),
+                    (lastId, maxResults) -> processInstanceService.getProcessInstanceIdsToRecover(maxLastUpdate,
+                            lastId, maxResults));
+        } finally {
+            // wait for the batches in progress even if reading failed, their transactions must not be interrupted
+            batchesInProgress.acquireUninterruptibly(maxBatchesInProgress);
+            executor.shutdown();
+        }
+    }
+
+    private void dispatch(RecoveryMonitor recoveryMonitor, ExecutorService executor, Semaphore batchesInProgress,
+            String elementsType, BatchExecution execution, IdsRetriever idsRetriever) throws Exception {
+        log.debug("Start recovering {}...", elementsType);
+        long lastId = 0;
+        long numberOfElements = 0;
+        List<Long> ids;
         do {
-            elementsIds = idsRetriever.getIds(queryOptions);
-            queryOptions = QueryOptions.getNextPage(queryOptions);
-            ids.addAll(elementsIds);
-        } while (elementsIds.size() == queryOptions.getNumberOfResults());
-        log.debug("Found {} {} to recover", elementsIds.size(), type);
-        return ids
-                .stream().map(id -> ElementToRecover.builder().id(id).type(type).build())
-                .collect(Collectors.toList());
+            final long readAfterId = lastId;
+            // using a too low page size (100) causes too many access to the database and causes timeout exception if there are lot of elements.
+            // As we retrieve only the id we can use a greater page size
+            ids = userTransactionService.executeInTransaction(() -> idsRetriever.getIds(readAfterId, readBatchSize));
+            for (List<Long> batchElementsIds : split(ids, batchRestartSize)) {
+                batchesInProgress.acquire();
+                numberOfBatchesInProgress.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        executeBatch(batchElementsIds, execution);
+                    } finally {
+                        numberOfBatchesInProgress.decrementAndGet();
+                        batchesInProgress.release();
+                    }
+                });
+            }
+            if (!ids.isEmpty()) {
+                lastId = ids.get(ids.size() - 1);
+                numberOfElements += ids.size();
+            }
+            if (ids.size() == readBatchSize) {
+                // only print progress when there is more than one page
+                recoveryMonitor.printProgress();
+            }
+        } while (ids.size() == readBatchSize);
+        log.debug("Found {} {} to recover", numberOfElements, elementsType);
+    }
+
+    private void executeBatch(List<Long> batchElementsIds, BatchExecution execution) {
+        try {
+            sessionAccessor.setTenantId(tenantId);
+            userTransactionService.executeInTransaction(() -> {
+                execution.execute(batchElementsIds);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn(
+                    "Error processing batch of elements to recover, they will be recovered next time: {}, Cause: {}: {}",
+                    batchElementsIds, e.getClass().getName(), e.getMessage());
+            log.debug("Cause", e);
+        }
+    }
+
+    private double getNumberOfElementsHandledByCurrentRecovery() {
+        RecoveryMonitor recoveryMonitor = currentRecoveryMonitor;
+        return recoveryMonitor == null ? 0 : recoveryMonitor.getNumberOfElementHandled();
     }
 
     private interface BatchExecution {
@@ -246,6 +288,6 @@ public class RecoveryService {
 
     private interface IdsRetriever {
 
-        List<Long> getIds(QueryOptions queryOptions) throws SBonitaException;
+        List<Long> getIds(long lastId, int maxResults) throws SBonitaException;
     }
 }
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.event;
+
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.Optional;
+
+import org.bonitasoft.engine.core.process.definition.model.event.trigger.impl.SSignalEventTriggerDefinitionImpl;
+import org.bonitasoft.engine.core.process.instance.api.event.EventInstanceService;
+import org.bonitasoft.engine.execution.work.BPMWorkFactory;
+import org.bonitasoft.engine.work.WorkService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SignalEventHandlerStrategyTest {
+
+    @Mock
+    private EventInstanceService eventInstanceService;
+    @Mock
+    private WorkService workService;
+    private SignalEventHandlerStrategy signalEventHandlerStrategy;
+
+    @Before
+    public void before() {
+        signalEventHandlerStrategy = new SignalEventHandlerStrategy(eventInstanceService, workService,
+                new BPMWorkFactory(), 500);
+    }
+
+    @Test
+    public void should_register_a_single_broadcast_work_up_to_the_current_last_listener() throws Exception {
+        doReturn(Optional.of(1234L)).when(eventInstanceService).getMaxWaitingSignalEventId("go");
+
+        signalEventHandlerStrategy.handleThrowEvent(new SSignalEventTriggerDefinitionImpl("go"));
+
+        verify(workService).registerWork(argThat(descriptor -> descriptor.getType().equals("BROADCAST_SIGNAL")
+                && descriptor.getString("signalName").equals("go")
+                && descriptor.getLong("lastListeningSignalId") == 0L
+                && descriptor.getLong("maxListeningSignalId") == 1234L
+                && descriptor.getInteger("batchSize") == 500));
+    }
+
+    @Test
+    public void should_not_register_any_work_when_nobody_listens_to_the_signal() throws Exception {
+        doReturn(Optional.empty()).when(eventInstanceService).getMaxWaitingSignalEventId("go");
+
+        signalEventHandlerStrategy.handleThrowEvent(new SSignalEventTriggerDefinitionImpl("go"));
+
+        verifyNoInteractions(workService);
+    }
+}
@@ -213,6 +213,17 @@ public class BPMWorkFactoryTest {
         assertThat(getWorkOfClass(work, LockProcessInstanceWork.class).processInstanceId).isEqualTo(456L);
     }
 
+    @Test
+    public void createBroadcastSignalWork() {
+        WrappingBonitaWork work = (WrappingBonitaWork) workFactory
+                .create(workFactory.createBroadcastSignalWorkDescriptor("mySignal", 12L, 345L, 100, 1000L, 200L));
+
+        assertThat(getWorkOfClass(work, BroadcastSignalWork.class).getDescription())
+                .contains("signal: mySignal, listeners after: 12, up to: 345");
+        assertThat(containsWorkOfClass(work, TxBonitaWork.class)).isTrue();
+        assertThat(containsLockProcessInstanceWork(work)).isFalse();
+    }
+
     private boolean containsFailureHandlingFlowNodeInstance(BonitaWork work) {
         return containsWorkOfClass(work, FlowNodeDefinitionAndInstanceContextWork.class);
     }
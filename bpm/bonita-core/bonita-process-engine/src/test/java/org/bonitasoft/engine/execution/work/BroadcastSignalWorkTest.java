@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.work;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bonitasoft.engine.core.process.instance.api.event.EventInstanceService;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingSignalEvent;
+import org.bonitasoft.engine.service.ServiceAccessor;
+import org.bonitasoft.engine.work.WorkDescriptor;
+import org.bonitasoft.engine.work.WorkService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BroadcastSignalWorkTest {
+
+    private static final String SIGNAL_NAME = "theSignal";
+
+    @Mock
+    private ServiceAccessor serviceAccessor;
+    @Mock
+    private EventInstanceService eventInstanceService;
+    @Mock
+    private WorkService workService;
+    private final BPMWorkFactory workFactory = new BPMWorkFactory();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Map<String, Object> context;
+
+    @Before
+    public void before() throws Exception {
+        context = new HashMap<>();
+        context.put("serviceAccessor", serviceAccessor);
+        doReturn(eventInstanceService).when(serviceAccessor).getEventInstanceService();
+        doReturn(workService).when(serviceAccessor).getWorkService();
+        doReturn(workFactory).when(serviceAccessor).getBPMWorkFactory();
+        doReturn(meterRegistry).when(serviceAccessor).lookup(MeterRegistry.class);
+    }
+
+    @Test
+    public void should_trigger_a_full_batch_and_register_the_next_one() throws Exception {
+        doReturn(asList(listeningSignal(11L), listeningSignal(12L))).when(eventInstanceService)
+                .getWaitingSignalEvents(SIGNAL_NAME, 10L, 50L, 2);
+
+        new BroadcastSignalWork(SIGNAL_NAME, 10L, 50L, 2, System.currentTimeMillis(), 4).work(context);
+
+        verify(workService).registerWork(argThat(triggerSignalOf(11L)));
+        verify(workService).registerWork(argThat(triggerSignalOf(12L)));
+        verify(workService).registerWork(argThat((WorkDescriptor descriptor) -> descriptor.getType()
+                .equals("BROADCAST_SIGNAL")
+                && descriptor.getLong("lastListeningSignalId") == 12L
+                && descriptor.getLong("triggeredListeners") == 6L));
+        assertThat(meterRegistry.find(BroadcastSignalWork.LISTENERS_SUMMARY).summary()).isNull();
+    }
+
+    @Test
+    public void should_record_fan_out_size_and_latency_after_the_last_batch() throws Exception {
+        doReturn(asList(listeningSignal(51L))).when(eventInstanceService)
+                .getWaitingSignalEvents(SIGNAL_NAME, 50L, 60L, 2);
+
+        new BroadcastSignalWork(SIGNAL_NAME, 50L, 60L, 2, System.currentTimeMillis(), 6).work(context);
+
+        verify(workService, times(1)).registerWork(any());
+        assertThat(meterRegistry.find(BroadcastSignalWork.LISTENERS_SUMMARY).summary().totalAmount()).isEqualTo(7);
+        assertThat(meterRegistry.find(BroadcastSignalWork.LATENCY_TIMER).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find(BroadcastSignalWork.BATCHES_COUNTER).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_not_register_anything_when_there_is_no_more_listeners() throws Exception {
+        doReturn(emptyList()).when(eventInstanceService).getWaitingSignalEvents(SIGNAL_NAME, 0L, 60L, 2);
+
+        new BroadcastSignalWork(SIGNAL_NAME, 0L, 60L, 2, System.currentTimeMillis(), 0).work(context);
+
+        verifyNoInteractions(workService);
+        assertThat(meterRegistry.find(BroadcastSignalWork.LISTENERS_SUMMARY).summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_give_signal_name_in_recovery_procedure() {
+        assertThat(new BroadcastSignalWork(SIGNAL_NAME, 0L, 60L, 2, 0L, 0).getRecoveryProcedure())
+                .contains(SIGNAL_NAME);
+    }
+
+    private static ArgumentMatcher<WorkDescriptor> triggerSignalOf(long listeningSignalId) {
+        return descriptor -> descriptor.getType().equals("TRIGGER_SIGNAL")
+                && descriptor.getLong("listeningSignalId") == listeningSignalId;
+    }
+
+    private static SWaitingSignalEvent listeningSignal(long id) {
+        SWaitingSignalEvent listeningSignal = new SWaitingSignalEvent(SBPMEventType.INTERMEDIATE_CATCH_EVENT, 1L,
+                "process", 2L, "catch", SIGNAL_NAME);
+        listeningSignal.setId(id);
+        return listeningSignal;
+    }
+}
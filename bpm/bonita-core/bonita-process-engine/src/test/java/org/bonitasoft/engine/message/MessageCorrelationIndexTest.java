@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.message;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType.INTERMEDIATE_CATCH_EVENT;
+import static org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType.START_EVENT;
+
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageEventCouple;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageInstance;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingMessageEvent;
+import org.bonitasoft.engine.message.MessageCorrelationIndex.CorrelationKey;
+import org.junit.Test;
+
+public class MessageCorrelationIndexTest {
+
+    private final MessageCorrelationIndex index = new MessageCorrelationIndex();
+
+    @Test
+    public void should_give_the_same_key_to_a_message_and_the_waiting_message_it_can_trigger() {
+        assertThat(MessageCorrelationIndex.keyOf(message(1L, null, "c1")))
+                .isEqualTo(MessageCorrelationIndex.keyOf(waitingMessage(2L, INTERMEDIATE_CATCH_EVENT, "c1")));
+        assertThat(MessageCorrelationIndex.keyOf(message(1L, null, "c1")))
+                .isNotEqualTo(MessageCorrelationIndex.keyOf(waitingMessage(2L, INTERMEDIATE_CATCH_EVENT, "c2")));
+    }
+
+    @Test
+    public void should_return_couples_of_the_key_oldest_message_first() {
+        index.addMessage(message(21L, null, "c1"));
+        index.addMessage(message(20L, null, "c1"));
+        CorrelationKey key = index.addWaitingMessage(waitingMessage(10L, INTERMEDIATE_CATCH_EVENT, "c1"));
+        index.addWaitingMessage(waitingMessage(11L, INTERMEDIATE_CATCH_EVENT, "c2"));
+
+        assertThat(index.getPotentialCouples(key, emptySet(), emptySet(), 10)).containsExactly(
+                new SMessageEventCouple(10L, INTERMEDIATE_CATCH_EVENT, 20L),
+                new SMessageEventCouple(10L, INTERMEDIATE_CATCH_EVENT, 21L));
+    }
+
+    @Test
+    public void should_only_match_the_targeted_flow_node() {
+        CorrelationKey key = index.addMessage(message(20L, "otherFlowNode", "c1"));
+        index.addWaitingMessage(waitingMessage(10L, INTERMEDIATE_CATCH_EVENT, "c1"));
+
+        assertThat(index.getPotentialCouples(key, emptySet(), emptySet(), 10)).isEmpty();
+    }
+
+    @Test
+    public void should_not_return_excluded_elements() {
+        CorrelationKey key = index.addMessage(message(20L, null, "c1"));
+        index.addMessage(message(21L, null, "c1"));
+        index.addWaitingMessage(waitingMessage(10L, START_EVENT, "c1"));
+        index.addWaitingMessage(waitingMessage(11L, START_EVENT, "c1"));
+
+        assertThat(index.getPotentialCouples(key, singleton(20L), singleton(10L), 10))
+                .containsExactly(new SMessageEventCouple(11L, START_EVENT, 21L));
+    }
+
+    @Test
+    public void should_limit_the_number_of_couples() {
+        CorrelationKey key = index.addWaitingMessage(waitingMessage(10L, START_EVENT, "c1"));
+        for (long id = 20; id < 30; id++) {
+            index.addMessage(message(id, null, "c1"));
+        }
+
+        assertThat(index.getPotentialCouples(key, emptySet(), emptySet(), 3)).hasSize(3);
+    }
+
+    @Test
+    public void should_count_each_element_once_and_forget_empty_keys() {
+        CorrelationKey key = index.addMessage(message(20L, null, "c1"));
+        index.addMessage(message(20L, null, "c1"));
+        index.addWaitingMessage(waitingMessage(10L, INTERMEDIATE_CATCH_EVENT, "c1"));
+        assertThat(index.size()).isEqualTo(2);
+
+        index.removeMessage(key, 20L);
+        index.removeMessage(key, 20L);
+        index.removeWaitingMessage(key, 10L);
+
+        assertThat(index.size()).isZero();
+        assertThat(index.getKeys()).isEmpty();
+    }
+
+    @Test
+    public void should_prune_elements_added_before_the_stamp_that_are_not_free_anymore() {
+        CorrelationKey key = index.addMessage(message(20L, null, "c1"));
+        index.addMessage(message(21L, null, "c1"));
+        index.addWaitingMessage(waitingMessage(10L, INTERMEDIATE_CATCH_EVENT, "c1"));
+        index.addWaitingMessage(waitingMessage(11L, INTERMEDIATE_CATCH_EVENT, "c2"));
+        long stamp = index.currentStamp();
+        // added again after the stamp, e.g. freed after a failed execution
+        index.addMessage(message(21L, null, "c1"));
+
+        long removed = index.prune(stamp, singleton(20L), emptySet());
+
+        assertThat(removed).isEqualTo(2);
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.getKeys()).containsOnly(key);
+        assertThat(index.getPotentialCouples(key, emptySet(), emptySet(), 10)).isEmpty();
+    }
+
+    private static SMessageInstance message(long id, String targetFlowNode, String correlation) {
+        SMessageInstance messageInstance = new SMessageInstance("message", "Process", targetFlowNode, 1L, "throw");
+        messageInstance.setId(id);
+        messageInstance.setCorrelation1(correlation);
+        return messageInstance;
+    }
+
+    private static SWaitingMessageEvent waitingMessage(long id, SBPMEventType eventType, String correlation) {
+        SWaitingMessageEvent waitingMessage = new SWaitingMessageEvent(eventType, 1L, "Process", 2L, "catch",
+                "message");
+        waitingMessage.setId(id);
+        waitingMessage.setCorrelation1(correlation);
+        return waitingMessage;
+    }
+}
@@ -14,9 +14,11 @@
 package org.bonitasoft.engine.message;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Stream.iterate;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType.EVENT_SUB_PROCESS;
 import static org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType.INTERMEDIATE_CATCH_EVENT;
 import static org.bonitasoft.engine.core.process.instance.model.event.handling.SBPMEventType.START_EVENT;
@@ -27,6 +29,8 @@ import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.Callable;
 
+import javax.transaction.Status;
+
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -39,8 +43,12 @@ import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaiting
 import org.bonitasoft.engine.execution.work.BPMWorkFactory;
 import org.bonitasoft.engine.lock.LockService;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
 import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.bonitasoft.engine.work.SWorkRegisterException;
+import org.bonitasoft.engine.work.WorkDescriptor;
 import org.bonitasoft.engine.work.WorkService;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -83,6 +91,11 @@ public class MessagesHandlingServiceTest {
                 TENANT_ID, userTransactionService, sessionAccessor, workFactory, meterRegistry));
     }
 
+    @After
+    public void tearDown() {
+        messagesHandlingService.stop();
+    }
+
     @Test
     public void getMessageUniqueCouplesWithDuplicateMessage() {
         // Given
@@ -218,6 +231,124 @@ public class MessagesHandlingServiceTest {
         assertThat(counterValue(NUMBER_OF_MESSAGES_MATCHING_RETRIGGERED_TASKS)).isEqualTo(1);
     }
 
+    @Test
+    public void should_match_message_with_waiting_message_of_same_correlation_when_incremental_matching()
+            throws Exception {
+        startWithIncrementalMatching();
+        completeTransactionsWith(Status.STATUS_COMMITTED);
+        SWaitingMessageEvent waitingMessage = waitingMessage(10L, "correlation-1");
+        SMessageInstance messageInstance = messageInstance(20L, "correlation-1");
+        doReturn(waitingMessage).when(eventInstanceService).getWaitingMessage(10L);
+        doReturn(messageInstance).when(eventInstanceService).getMessageInstance(20L);
+
+        messagesHandlingService.registerWaitingMessage(waitingMessage);
+        messagesHandlingService.registerWaitingMessage(waitingMessage(11L, "correlation-2"));
+        messagesHandlingService.registerMessageInstance(messageInstance);
+
+        await().until(() -> counterValue(NUMBER_OF_MESSAGES_EXECUTED) == 1);
+        verify(workFactory).createExecuteMessageCoupleWorkDescriptor(messageInstance, waitingMessage);
+        await().until(() -> gaugeValue(NUMBER_OF_MESSAGES_INDEXED) == 1);
+        verify(eventInstanceService, never()).getWaitingMessage(11L);
+        verify(eventInstanceService, never()).getMessageEventCouples(anyInt(), anyInt());
+    }
+
+    @Test
+    public void should_evict_indexed_elements_that_are_not_free_anymore_when_incremental_matching()
+            throws Exception {
+        startWithIncrementalMatching();
+        completeTransactionsWith(Status.STATUS_COMMITTED);
+        SWaitingMessageEvent waitingMessage = waitingMessage(10L, "correlation-1");
+        SMessageInstance messageInstance = messageInstance(20L, "correlation-1");
+        SWaitingMessageEvent waitingMessageInProgress = waitingMessage(10L, "correlation-1");
+        waitingMessageInProgress.setProgress(1);
+        doReturn(waitingMessageInProgress).when(eventInstanceService).getWaitingMessage(10L);
+        doReturn(messageInstance).when(eventInstanceService).getMessageInstance(20L);
+
+        messagesHandlingService.registerWaitingMessage(waitingMessage);
+        messagesHandlingService.registerMessageInstance(messageInstance);
+
+        // only the message stays indexed, waiting for another waiting message
+        await().until(() -> gaugeValue(NUMBER_OF_MESSAGES_INDEXED) == 1);
+        assertThat(counterValue(NUMBER_OF_MESSAGES_EXECUTED)).isEqualTo(0);
+        verifyNoInteractions(workService);
+    }
+
+    @Test
+    public void should_not_index_elements_of_rolled_back_transactions() throws Exception {
+        startWithIncrementalMatching();
+        completeTransactionsWith(Status.STATUS_ROLLEDBACK);
+
+        messagesHandlingService.registerMessageInstance(messageInstance(20L, "correlation-1"));
+
+        assertThat(gaugeValue(NUMBER_OF_MESSAGES_INDEXED)).isEqualTo(0);
+    }
+
+    @Test
+    public void should_load_free_elements_from_database_when_incremental_matching_is_triggered() throws Exception {
+        startWithIncrementalMatching();
+        SWaitingMessageEvent waitingMessage = waitingMessage(10L, "correlation-1");
+        SMessageInstance messageInstance = messageInstance(20L, "correlation-1");
+        doReturn(waitingMessage).when(eventInstanceService).getWaitingMessage(10L);
+        doReturn(messageInstance).when(eventInstanceService).getMessageInstance(20L);
+        doReturn(singletonList(waitingMessage)).when(eventInstanceService).getFreeWaitingMessageEvents(0, 1000);
+        doReturn(singletonList(messageInstance)).when(eventInstanceService).getUnhandledMessageInstances(0, 1000);
+
+        messagesHandlingService.loadIndexAndTriggerMatching();
+
+        await().until(() -> counterValue(NUMBER_OF_MESSAGES_EXECUTED) == 1);
+        verify(workFactory).createExecuteMessageCoupleWorkDescriptor(messageInstance, waitingMessage);
+    }
+
+    @Test
+    public void should_remove_indexed_elements_deleted_from_database_when_the_index_is_reloaded() throws Exception {
+        startWithIncrementalMatching();
+        completeTransactionsWith(Status.STATUS_COMMITTED);
+        messagesHandlingService.registerMessageInstance(messageInstance(20L, "correlation-1"));
+        assertThat(gaugeValue(NUMBER_OF_MESSAGES_INDEXED)).isEqualTo(1);
+
+        // the message was deleted, e.g. by the messages cleanup job
+        messagesHandlingService.loadIndexAndTriggerMatching();
+
+        assertThat(gaugeValue(NUMBER_OF_MESSAGES_INDEXED)).isEqualTo(0);
+    }
+
+    @Test
+    public void should_match_the_other_couples_of_a_correlation_when_one_of_them_fails() throws Exception {
+        startWithIncrementalMatching();
+        completeTransactionsWith(Status.STATUS_COMMITTED);
+        SWaitingMessageEvent waitingMessage1 = waitingMessage(10L, "correlation-1");
+        SWaitingMessageEvent waitingMessage2 = waitingMessage(11L, "correlation-1");
+        SMessageInstance messageInstance1 = messageInstance(20L, "correlation-1");
+        SMessageInstance messageInstance2 = messageInstance(21L, "correlation-1");
+        doReturn(waitingMessage1).when(eventInstanceService).getWaitingMessage(10L);
+        doReturn(waitingMessage2).when(eventInstanceService).getWaitingMessage(11L);
+        doReturn(messageInstance1).when(eventInstanceService).getMessageInstance(20L);
+        doReturn(messageInstance2).when(eventInstanceService).getMessageInstance(21L);
+        WorkDescriptor failingWork = WorkDescriptor.create("failing");
+        WorkDescriptor work = WorkDescriptor.create("work");
+        doReturn(failingWork).when(workFactory).createExecuteMessageCoupleWorkDescriptor(messageInstance1,
+                waitingMessage1);
+        doReturn(work).when(workFactory).createExecuteMessageCoupleWorkDescriptor(messageInstance2, waitingMessage2);
+        doThrow(new SWorkRegisterException("failure")).when(workService).registerWork(failingWork);
+
+        messagesHandlingService.registerWaitingMessage(waitingMessage1);
+        messagesHandlingService.registerWaitingMessage(waitingMessage2);
+        messagesHandlingService.registerMessageInstance(messageInstance1);
+        messagesHandlingService.registerMessageInstance(messageInstance2);
+
+        verify(workService, timeout(5000)).registerWork(work);
+        // the elements of the failing couple stay indexed
+        await().until(() -> gaugeValue(NUMBER_OF_MESSAGES_INDEXED) == 2);
+    }
+
+    @Test
+    public void should_not_trigger_matching_of_all_messages_when_resetting_a_waiting_message_without_incremental_matching()
+            throws Exception {
+        messagesHandlingService.waitingMessageReset(waitingMessage(10L, "correlation-1"));
+
+        verifyNoInteractions(userTransactionService);
+    }
+
     // =================================================================================================================
     // UTILS
     // =================================================================================================================
@@ -226,6 +357,38 @@ public class MessagesHandlingServiceTest {
         return meterRegistry.find(counterName).tag("tenant", String.valueOf(TENANT_ID)).counter();
     }
 
+    private void startWithIncrementalMatching() {
+        messagesHandlingService.setIncrementalMatching(true);
+        messagesHandlingService.setMatchingThreads(2);
+        messagesHandlingService.start();
+    }
+
+    private void completeTransactionsWith(int transactionStatus) throws Exception {
+        doAnswer(a -> {
+            a.<BonitaTransactionSynchronization> getArgument(0).afterCompletion(transactionStatus);
+            return null;
+        }).when(userTransactionService).registerBonitaSynchronization(any());
+    }
+
+    private static SWaitingMessageEvent waitingMessage(long id, String correlation) {
+        SWaitingMessageEvent waitingMessage = new SWaitingMessageEvent(INTERMEDIATE_CATCH_EVENT, 1L, "Process", 2L,
+                "catchMessage", "message");
+        waitingMessage.setId(id);
+        waitingMessage.setCorrelation1(correlation);
+        return waitingMessage;
+    }
+
+    private static SMessageInstance messageInstance(long id, String correlation) {
+        SMessageInstance messageInstance = new SMessageInstance("message", "Process", null, 3L, "throwMessage");
+        messageInstance.setId(id);
+        messageInstance.setCorrelation1(correlation);
+        return messageInstance;
+    }
+
+    private double gaugeValue(String gaugeName) {
+        return meterRegistry.find(gaugeName).gauge().value();
+    }
+
     private double counterValue(String counterName) {
         return meterRegistry.find(counterName).counter().count();
     }
@@ -13,18 +13,12 @@
  **/
 package org.bonitasoft.engine.tenant.restart;
 
-import static java.util.Arrays.asList;
-import static org.bonitasoft.engine.tenant.restart.ElementToRecover.Type.FLOWNODE;
-import static org.bonitasoft.engine.tenant.restart.ElementToRecover.Type.PROCESS;
-import static org.bonitasoft.engine.tenant.restart.ElementToRecover.builder;
-import static org.mockito.Mockito.doReturn;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.verify;
 
-import java.time.Duration;
-import java.util.List;
-
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -42,15 +36,15 @@ class RecoveryHandlerTest {
     private RecoveryHandler recoveryHandler;
 
     @Test
-    void should_delegate_to_ProcessInstancesRecoveryService() {
-        final List<ElementToRecover> elementToRecovers = asList(
-                builder().id(17L).type(PROCESS).build(),
-                builder().id(44L).type(FLOWNODE).build());
-        doReturn(elementToRecovers).when(recoveryService).getAllElementsToRecover(Duration.ZERO);
-
+    void should_recover_elements_last_updated_before_services_start() {
+        long beforeServicesStart = System.currentTimeMillis();
         recoveryHandler.beforeServicesStart();
+        long afterServicesStart = System.currentTimeMillis();
+
         recoveryHandler.afterServicesStart();
 
-        verify(recoveryService).recover(elementToRecovers);
+        ArgumentCaptor<Long> maxLastUpdate = ArgumentCaptor.forClass(Long.class);
+        verify(recoveryService).recoverElementsLastUpdatedBefore(maxLastUpdate.capture());
+        assertThat(maxLastUpdate.getValue()).isBetween(beforeServicesStart, afterServicesStart);
     }
 }
@@ -17,15 +17,16 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.bonitasoft.engine.tenant.restart.ElementToRecover.Type.FLOWNODE;
-import static org.bonitasoft.engine.tenant.restart.ElementToRecover.Type.PROCESS;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
 import static org.mockito.Mockito.*;
 
 import java.time.Duration;
-import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -35,7 +36,6 @@ import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.LongTaskTimer;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
-import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.core.process.instance.api.FlowNodeInstanceService;
 import org.bonitasoft.engine.core.process.instance.api.ProcessInstanceService;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
@@ -53,9 +53,9 @@ import org.springframework.beans.factory.ObjectFactory;
 @ExtendWith(MockitoExtension.class)
 class RecoveryServiceTest {
 
-    @Mock
+    @Mock(lenient = true)
     private FlowNodeInstanceService flowNodeInstanceService;
-    @Mock
+    @Mock(lenient = true)
     private ProcessInstanceService processInstanceService;
     @Mock(lenient = true)
     private UserTransactionService userTransactionService;
@@ -82,84 +82,60 @@ class RecoveryServiceTest {
         doReturn(recoveryMonitor).when(recoveryMonitorObjectFactory).getObject();
         recoveryService.setReadBatchSize(2);
         recoveryService.setBatchRestartSize(1000);
+        recoveryService.setParallelism(1);
         recoveryService.setConsiderElementsOlderThan(Duration.ofMillis(1000));
         when(userTransactionService.executeInTransaction(any()))
                 .thenAnswer(invocationOnMock -> ((Callable) invocationOnMock.getArgument(0)).call());
-
+        doReturn(emptyList()).when(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(anyLong(), anyLong(),
+                anyInt());
+        doReturn(emptyList()).when(flowNodeInstanceService).getGatewayInstanceIdsToRecover(anyLong(), anyLong(),
+                anyInt());
+        doReturn(emptyList()).when(processInstanceService).getProcessInstanceIdsToRecover(anyLong(), anyLong(),
+                anyInt());
     }
 
     @Test
-    void should_return_list_of_elements_to_recover() throws Exception {
-        doReturn(asList(1L, 2L)).doReturn(emptyList()).when(flowNodeInstanceService)
-                .getFlowNodeInstanceIdsToRecover(eq(Duration.ZERO), any());
-        doReturn(asList(3L, 4L)).doReturn(emptyList()).when(flowNodeInstanceService)
-                .getGatewayInstanceIdsToRecover(eq(Duration.ZERO), any());
-        doReturn(asList(1L, 2L)).doReturn(emptyList())
-                .when(processInstanceService).getProcessInstanceIdsToRecover(eq(Duration.ZERO), any());
-
-        List<ElementToRecover> allElementsToRecover = recoveryService
-                .getAllElementsToRecover(Duration.ZERO);
-
-        assertThat(allElementsToRecover).containsExactlyInAnyOrder(
-                elementToRecover(1L, PROCESS), elementToRecover(2L, PROCESS),
-                elementToRecover(1L, FLOWNODE), elementToRecover(2L, FLOWNODE),
-                elementToRecover(3L, FLOWNODE), elementToRecover(4L, FLOWNODE));
-    }
-
-    @Test
-    void should_return_all_elements_even_if_over_page_size() throws SBonitaException {
-        doReturn(asList(1L, 2L))
-                .doReturn(singletonList(4L))
-                .when(processInstanceService).getProcessInstanceIdsToRecover(eq(Duration.ZERO), any());
-        doReturn(asList(7L, 9L))
-                .doReturn(singletonList(13L))
-                .when(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(eq(Duration.ZERO), any());
-
-        List<ElementToRecover> allElementsToRecover = recoveryService
-                .getAllElementsToRecover(Duration.ZERO);
-
-        assertThat(allElementsToRecover).containsExactlyInAnyOrder(
-                elementToRecover(1L, PROCESS), elementToRecover(2L, PROCESS), elementToRecover(4L, PROCESS),
-                elementToRecover(7L, FLOWNODE), elementToRecover(9L, FLOWNODE), elementToRecover(13L, FLOWNODE));
-    }
-
-    @Test
-    void should_recover_elements_provided() throws Exception {
-        recoveryService.recover(asList(
-                elementToRecover(1L, PROCESS),
-                elementToRecover(2L, PROCESS),
-                elementToRecover(4L, PROCESS),
-                elementToRecover(7L, FLOWNODE),
-                elementToRecover(9L, FLOWNODE),
-                elementToRecover(13L, FLOWNODE)));
-
-        verify(flowNodesRecover).execute(any(), eq(asList(7L, 9L, 13L)));
-        verify(processesRecover).execute(any(), eq(asList(1L, 2L, 4L)));
+    void should_read_elements_to_recover_page_by_page_after_the_last_read_id() throws Exception {
+        doReturn(asList(1L, 2L)).when(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(100L, 0L, 2);
+        doReturn(singletonList(5L)).when(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(100L, 2L, 2);
+        doReturn(asList(3L, 4L)).when(flowNodeInstanceService).getGatewayInstanceIdsToRecover(100L, 0L, 2);
+        doReturn(asList(1L, 2L)).when(processInstanceService).getProcessInstanceIdsToRecover(100L, 0L, 2);
+        doReturn(asList(4L, 6L)).when(processInstanceService).getProcessInstanceIdsToRecover(100L, 2L, 2);
+
+        recoveryService.recoverElementsLastUpdatedBefore(100L);
+
+        verify(flowNodesRecover).execute(recoveryMonitor, asList(1L, 2L));
+        verify(flowNodesRecover).execute(recoveryMonitor, singletonList(5L));
+        verify(flowNodesRecover).execute(recoveryMonitor, asList(3L, 4L));
+        verify(flowNodeInstanceService).getGatewayInstanceIdsToRecover(100L, 2L, 2);
+        verify(processesRecover).execute(recoveryMonitor, asList(1L, 2L));
+        verify(processesRecover).execute(recoveryMonitor, asList(4L, 6L));
+        verify(processInstanceService).getProcessInstanceIdsToRecover(100L, 6L, 2);
     }
 
     @Test
     void should_recover_all_elements_older_than() throws Exception {
         Duration considerElementsOlderThan = Duration.ofSeconds(10);
         recoveryService.setConsiderElementsOlderThan(considerElementsOlderThan);
+        long maxLastUpdate = System.currentTimeMillis() - considerElementsOlderThan.toMillis();
 
-        doReturn(asList(1L, 2L))
-                .doReturn(singletonList(4L))
-                .when(processInstanceService).getProcessInstanceIdsToRecover(eq(considerElementsOlderThan), any());
-        doReturn(asList(7L, 9L))
-                .doReturn(singletonList(13L))
-                .when(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(eq(considerElementsOlderThan), any());
+        doReturn(singletonList(4L)).when(processInstanceService)
+                .getProcessInstanceIdsToRecover(longThat(d -> d >= maxLastUpdate && d < maxLastUpdate + 1000), eq(0L),
+                        eq(2));
+        doReturn(asList(7L, 9L)).when(flowNodeInstanceService)
+                .getFlowNodeInstanceIdsToRecover(longThat(d -> d >= maxLastUpdate && d < maxLastUpdate + 1000),
+                        eq(0L), eq(2));
 
         recoveryService.recoverAllElements();
 
-        verify(flowNodesRecover).execute(any(), eq(asList(7L, 9L, 13L)));
-        verify(processesRecover).execute(any(), eq(asList(1L, 2L, 4L)));
+        verify(flowNodesRecover).execute(any(), eq(asList(7L, 9L)));
+        verify(processesRecover).execute(any(), eq(singletonList(4L)));
     }
 
     @Test
     void should_measure_duration_of_recovery() throws Exception {
-        doReturn(singletonList(1L))
-                .doReturn(singletonList(4L))
-                .when(processInstanceService).getProcessInstanceIdsToRecover(any(), any());
+        doReturn(singletonList(1L)).when(processInstanceService).getProcessInstanceIdsToRecover(anyLong(), eq(0L),
+                anyInt());
         LongTaskTimer longTaskTimer = meterRegistry.find(RecoveryService.DURATION_OF_RECOVERY_TASK).longTaskTimer();
         AtomicInteger activeTasks = new AtomicInteger();
         AtomicLong durationMillis = new AtomicLong();
@@ -211,6 +187,30 @@ class RecoveryServiceTest {
         assertThat(numberOfExecution.count()).isEqualTo(3);
     }
 
+    @Test
+    void should_measure_progress_of_the_recovery_in_progress() throws Exception {
+        Gauge elementsHandled = meterRegistry.find(RecoveryService.NUMBER_OF_ELEMENTS_HANDLED_CURRENT_RECOVERY)
+                .gauge();
+        Gauge batchesInProgress = meterRegistry.find(RecoveryService.NUMBER_OF_BATCHES_IN_PROGRESS).gauge();
+        doReturn(singletonList(1L)).when(processInstanceService).getProcessInstanceIdsToRecover(anyLong(), eq(0L),
+                anyInt());
+        doReturn(42L).when(recoveryMonitor).getNumberOfElementHandled();
+        AtomicLong handledDuringRecovery = new AtomicLong();
+        AtomicLong batchesDuringRecovery = new AtomicLong();
+        doAnswer(invocationOnMock -> {
+            handledDuringRecovery.set(Math.round(elementsHandled.value()));
+            batchesDuringRecovery.set(Math.round(batchesInProgress.value()));
+            return null;
+        }).when(processesRecover).execute(any(), any());
+
+        recoveryService.recoverAllElements();
+
+        assertThat(handledDuringRecovery.get()).isEqualTo(42);
+        assertThat(batchesDuringRecovery.get()).isEqualTo(1);
+        assertThat(elementsHandled.value()).isZero();
+        assertThat(batchesInProgress.value()).isZero();
+    }
+
     @Test
     void metrics_shoul_have_tenant_tag() {
         Gauge elementsRecoveredLast = meterRegistry.find(RecoveryService.NUMBER_OF_ELEMENTS_RECOVERED_LAST_RECOVERY)
@@ -221,101 +221,158 @@ class RecoveryServiceTest {
                 .counter();
         Counter numberOfExecution = meterRegistry.find(RecoveryService.NUMBER_OF_RECOVERY).tag("tenant", "12")
                 .counter();
+        Gauge elementsHandled = meterRegistry.find(RecoveryService.NUMBER_OF_ELEMENTS_HANDLED_CURRENT_RECOVERY)
+                .tag("tenant", "12")
+                .gauge();
+        Gauge batchesInProgress = meterRegistry.find(RecoveryService.NUMBER_OF_BATCHES_IN_PROGRESS)
+                .tag("tenant", "12")
+                .gauge();
 
         assertThat(elementsRecoveredLast).isNotNull();
         assertThat(elementsRecoveredTotal).isNotNull();
         assertThat(numberOfExecution).isNotNull();
-    }
-
-    private ElementToRecover elementToRecover(long l, ElementToRecover.Type process) {
-        return ElementToRecover.builder().id(l).type(process).build();
+        assertThat(elementsHandled).isNotNull();
+        assertThat(batchesInProgress).isNotNull();
     }
 
     @Test
     void should_restart_flownodes_in_batch() throws Exception {
+        recoveryService.setReadBatchSize(10);
         recoveryService.setBatchRestartSize(2);
+        doReturn(asList(1L, 2L, 3L, 4L, 5L)).when(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(anyLong(),
+                eq(0L), anyInt());
 
-        recoveryService.recover(asList(
-                elementToRecover(1L, FLOWNODE),
-                elementToRecover(2L, FLOWNODE),
-                elementToRecover(3L, FLOWNODE),
-                elementToRecover(4L, FLOWNODE),
-                elementToRecover(5L, FLOWNODE)));
+        recoveryService.recoverAllElements();
 
         verify(flowNodesRecover).execute(any(), eq(asList(1L, 2L)));
         verify(flowNodesRecover).execute(any(), eq(asList(3L, 4L)));
         verify(flowNodesRecover).execute(any(), eq(singletonList(5L)));
-        verify(userTransactionService, times(3)).executeInTransaction(any());
+        // one transaction per page of ids read and one per batch
+        verify(userTransactionService, times(6)).executeInTransaction(any());
     }
 
     @Test
     void should_restart_processes_in_batch() throws Exception {
+        recoveryService.setReadBatchSize(10);
         recoveryService.setBatchRestartSize(2);
+        doReturn(asList(1L, 2L, 3L, 4L, 5L)).when(processInstanceService).getProcessInstanceIdsToRecover(anyLong(),
+                eq(0L), anyInt());
 
-        recoveryService.recover(asList(
-                elementToRecover(1L, PROCESS),
-                elementToRecover(2L, PROCESS),
-                elementToRecover(3L, PROCESS),
-                elementToRecover(4L, PROCESS),
-                elementToRecover(5L, PROCESS)));
+        recoveryService.recoverAllElements();
 
         verify(processesRecover).execute(any(), eq(asList(1L, 2L)));
         verify(processesRecover).execute(any(), eq(asList(3L, 4L)));
         verify(processesRecover).execute(any(), eq(singletonList(5L)));
-        verify(userTransactionService, times(3)).executeInTransaction(any());
+        verify(userTransactionService, times(6)).executeInTransaction(any());
     }
 
     @Test
     void should_continue_to_restart_process_even_if_one_batch_failed() throws Exception {
-        doThrow(new UnsupportedOperationException("current batch failed, sorry ¯\\_(ツ)_/¯"))
-                .doAnswer(invocationOnMock -> ((Callable) invocationOnMock.getArgument(0)).call())
-                .when(userTransactionService).executeInTransaction(any());
+        recoveryService.setReadBatchSize(10);
         recoveryService.setBatchRestartSize(2);
+        doReturn(asList(1L, 2L, 3L, 4L, 5L)).when(processInstanceService).getProcessInstanceIdsToRecover(anyLong(),
+                eq(0L), anyInt());
+        doThrow(new UnsupportedOperationException("current batch failed, sorry ¯\\_(ツ)_/¯"))
+                .doNothing()
+                .when(processesRecover).execute(any(), any());
 
-        recoveryService.recover(asList(
-                elementToRecover(1L, PROCESS),
-                elementToRecover(2L, PROCESS),
-                elementToRecover(3L, PROCESS),
-                elementToRecover(4L, PROCESS),
-                elementToRecover(5L, PROCESS)));
+        recoveryService.recoverAllElements();
 
-        verify(processesRecover, never()).execute(any(), eq(asList(1L, 2L)));// transaction fail there
+        verify(processesRecover).execute(any(), eq(asList(1L, 2L)));// transaction fail there
         verify(processesRecover).execute(any(), eq(asList(3L, 4L)));
         verify(processesRecover).execute(any(), eq(singletonList(5L)));
-        verify(userTransactionService, times(3)).executeInTransaction(any());
     }
 
     @Test
     void should_continue_to_restart_flow_node_even_if_one_batch_failed() throws Exception {
-        doThrow(new UnsupportedOperationException("current batch failed, sorry ¯\\_(ツ)_/¯"))
-                .doAnswer(invocationOnMock -> ((Callable) invocationOnMock.getArgument(0)).call())
-                .when(userTransactionService).executeInTransaction(any());
+        recoveryService.setReadBatchSize(10);
         recoveryService.setBatchRestartSize(2);
+        doReturn(asList(1L, 2L, 3L, 4L, 5L)).when(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(anyLong(),
+                eq(0L), anyInt());
+        doThrow(new UnsupportedOperationException("current batch failed, sorry ¯\\_(ツ)_/¯"))
+                .doNothing()
+                .when(flowNodesRecover).execute(any(), any());
 
-        recoveryService.recover(asList(
-                elementToRecover(1L, FLOWNODE),
-                elementToRecover(2L, FLOWNODE),
-                elementToRecover(3L, FLOWNODE),
-                elementToRecover(4L, FLOWNODE),
-                elementToRecover(5L, FLOWNODE)));
+        recoveryService.recoverAllElements();
 
-        verify(flowNodesRecover, never()).execute(any(), eq(asList(1L, 2L)));// transaction fail there
+        verify(flowNodesRecover).execute(any(), eq(asList(1L, 2L)));// transaction fail there
         verify(flowNodesRecover).execute(any(), eq(asList(3L, 4L)));
         verify(flowNodesRecover).execute(any(), eq(singletonList(5L)));
-        verify(userTransactionService, times(3)).executeInTransaction(any());
     }
 
     @Test
     void should_recover_elements_using_a_new_RecoveryMonitor() throws Exception {
         InOrder inOrder = inOrder(recoveryMonitor, flowNodesRecover, processesRecover);
+        doReturn(singletonList(1L)).when(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(anyLong(), eq(0L),
+                anyInt());
+        doReturn(singletonList(2L)).when(processInstanceService).getProcessInstanceIdsToRecover(anyLong(), eq(0L),
+                anyInt());
 
-        recoveryService.recover(asList(
-                elementToRecover(1L, FLOWNODE),
-                elementToRecover(2L, PROCESS)));
+        recoveryService.recoverAllElements();
 
-        inOrder.verify(recoveryMonitor).startNow(2);
+        inOrder.verify(recoveryMonitor).startNow();
         inOrder.verify(flowNodesRecover).execute(recoveryMonitor, singletonList(1L));
         inOrder.verify(processesRecover).execute(recoveryMonitor, singletonList(2L));
         inOrder.verify(recoveryMonitor).printSummary();
     }
+
+    @Test
+    void should_recover_batches_in_parallel_and_process_instances_after_flow_nodes() throws Exception {
+        recoveryService.setParallelism(4);
+        recoveryService.setReadBatchSize(10);
+        recoveryService.setBatchRestartSize(1);
+        doReturn(asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L)).when(flowNodeInstanceService)
+                .getFlowNodeInstanceIdsToRecover(anyLong(), eq(0L), anyInt());
+        doReturn(asList(1L, 2L, 3L, 4L)).when(processInstanceService)
+                .getProcessInstanceIdsToRecover(anyLong(), eq(0L), anyInt());
+        AtomicInteger flowNodeBatchesInProgress = new AtomicInteger();
+        AtomicInteger flowNodeBatchesDone = new AtomicInteger();
+        AtomicInteger maxFlowNodeBatchesInProgress = new AtomicInteger();
+        AtomicInteger flowNodeBatchesDoneBeforeProcesses = new AtomicInteger(Integer.MAX_VALUE);
+        doAnswer(invocationOnMock -> {
+            maxFlowNodeBatchesInProgress.accumulateAndGet(flowNodeBatchesInProgress.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            flowNodeBatchesInProgress.decrementAndGet();
+            flowNodeBatchesDone.incrementAndGet();
+            return null;
+        }).when(flowNodesRecover).execute(any(), any());
+        doAnswer(invocationOnMock -> {
+            flowNodeBatchesDoneBeforeProcesses.accumulateAndGet(flowNodeBatchesDone.get(), Math::min);
+            return null;
+        }).when(processesRecover).execute(any(), any());
+
+        recoveryService.recoverAllElements();
+
+        verify(flowNodesRecover, times(8)).execute(any(), any());
+        verify(processesRecover, times(4)).execute(any(), any());
+        assertThat(maxFlowNodeBatchesInProgress.get()).isBetween(2, 4);
+        assertThat(flowNodeBatchesDoneBeforeProcesses.get()).isEqualTo(8);
+    }
+
+    @Test
+    void should_stop_reading_while_too_many_batches_are_in_progress() throws Exception {
+        // one thread: at most 2 batches in progress
+        recoveryService.setBatchRestartSize(1);
+        doReturn(asList(1L, 2L)).when(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(anyLong(), eq(0L),
+                anyInt());
+        doReturn(asList(3L, 4L)).when(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(anyLong(), eq(2L),
+                anyInt());
+        CountDownLatch blockRecovery = new CountDownLatch(1);
+        doAnswer(invocationOnMock -> {
+            blockRecovery.await();
+            return null;
+        }).when(flowNodesRecover).execute(any(), any());
+        Thread recovery = new Thread(recoveryService::recoverAllElements);
+        recovery.start();
+
+        // the second page is read, but its batches can not be dispatched
+        verify(flowNodeInstanceService, timeout(1000)).getFlowNodeInstanceIdsToRecover(anyLong(), eq(2L), anyInt());
+        verify(flowNodeInstanceService, after(100).never()).getFlowNodeInstanceIdsToRecover(anyLong(), eq(4L),
+                anyInt());
+        blockRecovery.countDown();
+        recovery.join(5000);
+
+        verify(flowNodeInstanceService).getFlowNodeInstanceIdsToRecover(anyLong(), eq(4L), anyInt());
+        verify(flowNodesRecover, times(4)).execute(any(), any());
+    }
 }
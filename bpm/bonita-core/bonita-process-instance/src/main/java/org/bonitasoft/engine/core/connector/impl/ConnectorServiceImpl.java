@@ -195,8 +195,9 @@ public class ConnectorServiceImpl implements ConnectorService {
         } finally {
             if (timeTracker.isTrackable(TimeTrackerRecords.EXECUTE_CONNECTOR_OUTPUT_OPERATIONS)) {
                 final long endTime = System.currentTimeMillis();
-                String desc = "ConnectorResult: " + result;
-                timeTracker.track(TimeTrackerRecords.EXECUTE_CONNECTOR_OUTPUT_OPERATIONS, desc, endTime - startTime);
+                final String connectorResult = describe(result);
+                timeTracker.track(TimeTrackerRecords.EXECUTE_CONNECTOR_OUTPUT_OPERATIONS,
+                        () -> "ConnectorResult: " + connectorResult, endTime - startTime);
             }
             disconnect(result);
         }
@@ -212,15 +213,22 @@ public class ConnectorServiceImpl implements ConnectorService {
         } finally {
             if (timeTracker.isTrackable(TimeTrackerRecords.EXECUTE_CONNECTOR_DISCONNECT)) {
                 final long endTime = System.currentTimeMillis();
-                final StringBuilder desc = new StringBuilder();
-                desc.append("ConnectorResult: ");
-                desc.append(result);
-                timeTracker.track(TimeTrackerRecords.EXECUTE_CONNECTOR_DISCONNECT, desc.toString(),
-                        endTime - startTime);
+                final String connectorResult = describe(result);
+                timeTracker.track(TimeTrackerRecords.EXECUTE_CONNECTOR_DISCONNECT,
+                        () -> "ConnectorResult: " + connectorResult, endTime - startTime);
             }
         }
     }
 
+    /**
+     * @return the class of the connector and the names of its outputs, records must not retain the connector and the
+     *         values of its outputs
+     */
+    private static String describe(final ConnectorResult result) {
+        final String connector = result.getConnector() == null ? null : result.getConnector().getClass().getName();
+        return "connector=" + connector + ", outputs=" + result.getResult().keySet();
+    }
+
     private SConnectorImplementationDescriptor getImplementation(final long rootDefinitionId, final String connectorId,
             final String version) throws SConnectorException, SCacheException {
         SConnectorImplementationDescriptor descriptor;
@@ -332,8 +340,10 @@ public class ConnectorServiceImpl implements ConnectorService {
         } finally {
             if (timeTracker.isTrackable(TimeTrackerRecords.EXECUTE_CONNECTOR_INPUT_EXPRESSIONS)) {
                 final long endTime = System.currentTimeMillis();
-                String desc = "Connector ID: " + connectorId + " - input parameters: " + inputParameters;
-                timeTracker.track(TimeTrackerRecords.EXECUTE_CONNECTOR_INPUT_EXPRESSIONS, desc,
+                // only the names of the inputs are kept, records must not retain their values
+                final List<String> inputNames = new ArrayList<>(inputParameters.keySet());
+                timeTracker.track(TimeTrackerRecords.EXECUTE_CONNECTOR_INPUT_EXPRESSIONS,
+                        () -> "Connector ID: " + connectorId + " - input parameters: " + inputNames,
                         endTime - startTime);
             }
         }
@@ -45,6 +45,11 @@ public class SConnectorAdapter implements SConnector {
         return connector;
     }
 
+    @Override
+    public String getImplementationName() {
+        return connector.getClass().getName();
+    }
+
     @Override
     public void setInputParameters(final Map<String, Object> parameters) {
         final APIAccessor apiAccessor = (APIAccessor) parameters.remove("connectorApiAccessor");
@@ -13,7 +13,6 @@
  **/
 package org.bonitasoft.engine.core.process.instance.api;
 
-import java.time.Duration;
 import java.util.List;
 import java.util.Set;
 
@@ -364,10 +363,11 @@ public interface FlowNodeInstanceService {
      * Should not be called when the engine is started!
      * This does not retrieve SGatewayInstances
      *
-     * @param considerElementsOlderThan consider elements older than that duration
-     * @param queryOptions used for pagination
+     * @param maxLastUpdate only consider elements last updated before that date
+     * @param lastId only consider elements with an id greater than this one, used for keyset pagination
+     * @param maxResults maximum number of ids returned, ordered by id
      */
-    List<Long> getFlowNodeInstanceIdsToRecover(Duration considerElementsOlderThan, QueryOptions queryOptions)
+    List<Long> getFlowNodeInstanceIdsToRecover(long maxLastUpdate, long lastId, int maxResults)
             throws SBonitaReadException;
 
     List<SFlowNodeInstance> getFlowNodeInstancesByIds(List<Long> ids) throws SBonitaReadException;
@@ -375,11 +375,11 @@ public interface FlowNodeInstanceService {
     /**
      * Retrieve ids of SGatewayInstances that need to be recovered
      *
-     * @param queryOptions
-     * @return
-     * @throws SBonitaReadException
+     * @param maxLastUpdate only consider elements last updated before that date
+     * @param lastId only consider elements with an id greater than this one, used for keyset pagination
+     * @param maxResults maximum number of ids returned, ordered by id
      */
-    List<Long> getGatewayInstanceIdsToRecover(Duration considerElementsOlderThan, QueryOptions queryOptions)
+    List<Long> getGatewayInstanceIdsToRecover(long maxLastUpdate, long lastId, int maxResults)
             throws SBonitaReadException;
 
     /**
@@ -13,7 +13,6 @@
  **/
 package org.bonitasoft.engine.core.process.instance.api;
 
-import java.time.Duration;
 import java.util.List;
 
 import org.bonitasoft.engine.bpm.process.ProcessInstanceState;
@@ -566,10 +565,11 @@ public interface ProcessInstanceService {
      * Retrieve ids of process instances nodes that needs to be recovered.
      * This is used by recover mechanism ProcessInstanceRecoveryService
      *
-     * @param considerElementsOlderThan consider elements older than that duration
-     * @param queryOptions used for pagination
+     * @param maxLastUpdate only consider elements last updated before that date
+     * @param lastId only consider elements with an id greater than this one, used for keyset pagination
+     * @param maxResults maximum number of ids returned, ordered by id
      */
-    List<Long> getProcessInstanceIdsToRecover(Duration considerElementsOlderThan, QueryOptions queryOptions)
+    List<Long> getProcessInstanceIdsToRecover(long maxLastUpdate, long lastId, int maxResults)
             throws SBonitaReadException;
 
 }
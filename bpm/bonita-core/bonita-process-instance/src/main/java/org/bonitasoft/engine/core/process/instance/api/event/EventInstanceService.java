@@ -112,6 +112,26 @@ public interface EventInstanceService {
     List<SWaitingSignalEvent> getWaitingSignalEvents(String signalName, int fromIndex, int maxResults)
             throws SEventTriggerInstanceReadException;
 
+    /**
+     * Get the waiting signal events of the given signal having an id greater than lastId and lower or equal to maxId,
+     * ordered by id, so that all of them can be read by batches without offset.
+     *
+     * @param signalName name of the signal
+     * @param lastId id of the last waiting signal event of the previous batch, 0 for the first batch
+     * @param maxId id of the last waiting signal event to return
+     * @param maxResults maximum number of waiting signal events to return
+     * @since 10.3
+     */
+    List<SWaitingSignalEvent> getWaitingSignalEvents(String signalName, long lastId, long maxId, int maxResults)
+            throws SEventTriggerInstanceReadException;
+
+    /**
+     * @param signalName name of the signal
+     * @return the greatest id of the waiting signal events of the given signal, if there is any
+     * @since 10.3
+     */
+    Optional<Long> getMaxWaitingSignalEventId(String signalName) throws SEventTriggerInstanceReadException;
+
     /**
      * @param processDefinitionId
      * @return
@@ -124,6 +144,24 @@ public interface EventInstanceService {
     List<SMessageEventCouple> getMessageEventCouples(int fromIndex, int maxResults)
             throws SEventTriggerInstanceReadException;
 
+    /**
+     * Get the waiting message events that can be matched by a message instance, ordered by id
+     *
+     * @param fromId only waiting message events having an id greater than this one are returned
+     * @param maxResults maximum number of results
+     */
+    List<SWaitingMessageEvent> getFreeWaitingMessageEvents(long fromId, int maxResults)
+            throws SEventTriggerInstanceReadException;
+
+    /**
+     * Get the message instances that are not yet handled, ordered by id
+     *
+     * @param fromId only message instances having an id greater than this one are returned
+     * @param maxResults maximum number of results
+     */
+    List<SMessageInstance> getUnhandledMessageInstances(long fromId, int maxResults)
+            throws SMessageInstanceReadException;
+
     SWaitingMessageEvent getWaitingMessage(long waitingMessageId) throws SWaitingEventReadException;
 
     SMessageInstance getMessageInstance(long messageInstanceId) throws SMessageInstanceReadException;
@@ -247,6 +247,28 @@ public class EventInstanceRepositoryImpl implements EventInstanceRepository {
         }
     }
 
+    @Override
+    public List<SWaitingMessageEvent> getFreeWaitingMessageEvents(final long fromId, final int maxResults)
+            throws SEventTriggerInstanceReadException {
+        try {
+            return persistenceService
+                    .selectList(SelectDescriptorBuilder.getFreeWaitingMessageEvents(fromId, maxResults));
+        } catch (final SBonitaReadException e) {
+            throw new SEventTriggerInstanceReadException(e);
+        }
+    }
+
+    @Override
+    public List<SMessageInstance> getUnhandledMessageInstances(final long fromId, final int maxResults)
+            throws SMessageInstanceReadException {
+        try {
+            return persistenceService
+                    .selectList(SelectDescriptorBuilder.getUnhandledMessageInstances(fromId, maxResults));
+        } catch (final SBonitaReadException e) {
+            throw new SMessageInstanceReadException(e);
+        }
+    }
+
     @Override
     public SMessageInstance getMessageInstance(final long messageInstanceId) throws SMessageInstanceReadException {
         try {
@@ -376,6 +398,28 @@ public class EventInstanceRepositoryImpl implements EventInstanceRepository {
         }
     }
 
+    @Override
+    public List<SWaitingSignalEvent> getWaitingSignalEvents(final String signalName, final long lastId,
+            final long maxId, final int maxResults) throws SEventTriggerInstanceReadException {
+        try {
+            return persistenceService.selectList(
+                    SelectDescriptorBuilder.getListeningSignalsAfter(signalName, lastId, maxId, maxResults));
+        } catch (final SBonitaReadException e) {
+            throw new SEventTriggerInstanceReadException(e);
+        }
+    }
+
+    @Override
+    public Optional<Long> getMaxWaitingSignalEventId(final String signalName)
+            throws SEventTriggerInstanceReadException {
+        try {
+            return Optional.ofNullable(persistenceService.selectOne(new SelectOneDescriptor<Long>(
+                    "getMaxListeningSignalId", singletonMap("signalName", signalName), SWaitingSignalEvent.class)));
+        } catch (final SBonitaReadException e) {
+            throw new SEventTriggerInstanceReadException(e);
+        }
+    }
+
     @Override
     public SWaitingSignalEvent getWaitingSignalEvent(final long id)
             throws SEventTriggerInstanceReadException, SEventTriggerInstanceNotFoundException {
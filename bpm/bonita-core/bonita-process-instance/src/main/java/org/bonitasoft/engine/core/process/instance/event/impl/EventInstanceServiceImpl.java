@@ -186,6 +186,18 @@ public class EventInstanceServiceImpl implements EventInstanceService {
         return this.eventInstanceRepository.getMessageEventCouples(i, maxCouples);
     }
 
+    @Override
+    public List<SWaitingMessageEvent> getFreeWaitingMessageEvents(long fromId, int maxResults)
+            throws SEventTriggerInstanceReadException {
+        return this.eventInstanceRepository.getFreeWaitingMessageEvents(fromId, maxResults);
+    }
+
+    @Override
+    public List<SMessageInstance> getUnhandledMessageInstances(long fromId, int maxResults)
+            throws SMessageInstanceReadException {
+        return this.eventInstanceRepository.getUnhandledMessageInstances(fromId, maxResults);
+    }
+
     @Override
     public SMessageInstance getMessageInstance(long messageInstanceId) throws SMessageInstanceReadException {
         return this.eventInstanceRepository.getMessageInstance(messageInstanceId);
@@ -214,6 +226,17 @@ public class EventInstanceServiceImpl implements EventInstanceService {
         return this.eventInstanceRepository.getWaitingSignalEvents(signalName, fromIndex, maxResults);
     }
 
+    @Override
+    public List<SWaitingSignalEvent> getWaitingSignalEvents(String signalName, long lastId, long maxId,
+            int maxResults) throws SEventTriggerInstanceReadException {
+        return this.eventInstanceRepository.getWaitingSignalEvents(signalName, lastId, maxId, maxResults);
+    }
+
+    @Override
+    public Optional<Long> getMaxWaitingSignalEventId(String signalName) throws SEventTriggerInstanceReadException {
+        return this.eventInstanceRepository.getMaxWaitingSignalEventId(signalName);
+    }
+
     @Override
     public SWaitingSignalEvent getWaitingSignalEvent(long signalId)
             throws SEventTriggerInstanceReadException, SEventTriggerInstanceNotFoundException {
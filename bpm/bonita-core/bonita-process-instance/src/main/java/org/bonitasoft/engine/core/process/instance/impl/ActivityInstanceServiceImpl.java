@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.Set;
 
 import lombok.extern.slf4j.Slf4j;
+import org.bonitasoft.engine.actor.mapping.impl.ActorIdsOfUserCache;
 import org.bonitasoft.engine.archive.ArchiveService;
 import org.bonitasoft.engine.builder.BuilderFactory;
 import org.bonitasoft.engine.commons.CollectionUtil;
@@ -98,6 +99,14 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
 
     private static final String PENDING_ASSIGNED_TO = "PendingAssignedTo";
 
+    private static final String WITH_ACTOR_IDS = "WithActorIds";
+
+    /**
+     * Maximum number of actor ids bound in a single query: Oracle limits IN lists to 1000 elements and SQL Server
+     * limits queries to 2100 parameters. Users member of more actors are searched by joining actor members instead.
+     */
+    static final int MAX_ACTOR_IDS_IN_QUERY = 500;
+
     private static final String HUMAN_TASK_INSTANCE_ASSIGNEE = "HUMAN_TASK_INSTANCE_ASSIGNEE";
 
     private static final String QUERY_HUMAN_TASK_INSTANCE_ASSIGNEE = "updateStrictHuman";
@@ -110,9 +119,17 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
 
     private final SMultiInstanceActivityInstanceBuilderFactory sMultiInstanceActivityInstanceBuilder;
 
+    private final ActorIdsOfUserCache actorIdsOfUserCache;
+
     public ActivityInstanceServiceImpl(final Recorder recorder, final PersistenceService persistenceService,
             final ArchiveService archiveService) {
+        this(recorder, persistenceService, archiveService, null);
+    }
+
+    public ActivityInstanceServiceImpl(final Recorder recorder, final PersistenceService persistenceService,
+            final ArchiveService archiveService, final ActorIdsOfUserCache actorIdsOfUserCache) {
         super(recorder, persistenceService, archiveService);
+        this.actorIdsOfUserCache = actorIdsOfUserCache;
         sUserTaskInstanceBuilder = BuilderFactory.get(SUserTaskInstanceBuilderFactory.class);
         sMultiInstanceActivityInstanceBuilder = BuilderFactory.get(SMultiInstanceActivityInstanceBuilderFactory.class);
     }
@@ -794,17 +811,19 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
     @Override
     public long getNumberOfPendingTasksForUser(final long userId, final QueryOptions searchOptions)
             throws SBonitaReadException {
-        final Map<String, Object> parameters = Collections.singletonMap("userId", userId);
-        return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class, PENDING_FOR_USER, searchOptions,
-                parameters);
+        final Set<Long> actorIds = getActorIdsOfUser(userId);
+        return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class,
+                getPendingTasksQuerySuffix(PENDING_FOR_USER, actorIds), searchOptions,
+                getPendingTasksParameters(userId, actorIds));
     }
 
     @Override
     public List<SHumanTaskInstance> searchPendingTasksForUser(final long userId, final QueryOptions searchOptions)
             throws SBonitaReadException {
-        final Map<String, Object> parameters = Collections.singletonMap("userId", userId);
-        return getPersistenceService().searchEntity(SHumanTaskInstance.class, PENDING_FOR_USER, searchOptions,
-                parameters);
+        final Set<Long> actorIds = getActorIdsOfUser(userId);
+        return getPersistenceService().searchEntity(SHumanTaskInstance.class,
+                getPendingTasksQuerySuffix(PENDING_FOR_USER, actorIds), searchOptions,
+                getPendingTasksParameters(userId, actorIds));
     }
 
     @Override
@@ -818,19 +837,20 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
     @Override
     public long getNumberOfPendingOrAssignedTasks(final long userId, final QueryOptions searchOptions)
             throws SBonitaReadException {
-        final Map<String, Object> parameters = Collections.singletonMap("userId", userId);
-        return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class, PENDING_OR_ASSIGNED, searchOptions,
-                parameters);
+        final Set<Long> actorIds = getActorIdsOfUser(userId);
+        return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class,
+                getPendingTasksQuerySuffix(PENDING_OR_ASSIGNED, actorIds), searchOptions,
+                getPendingTasksParameters(userId, actorIds));
     }
 
     @Override
     public long getNumberOfPendingOrAssignedOrAssignedToOthersTasks(final long userId, final QueryOptions searchOptions)
             throws SBonitaReadException {
-        final Map<String, Object> parameters = Collections.singletonMap("userId", userId);
+        final Set<Long> actorIds = getActorIdsOfUser(userId);
         return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class,
-                PENDING_OR_ASSIGNED_OR_ASSIGNED_TO_OTHERS,
+                getPendingTasksQuerySuffix(PENDING_OR_ASSIGNED_OR_ASSIGNED_TO_OTHERS, actorIds),
                 searchOptions,
-                parameters);
+                getPendingTasksParameters(userId, actorIds));
     }
 
     @Override
@@ -843,19 +863,56 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
     @Override
     public List<SHumanTaskInstance> searchPendingOrAssignedTasks(final long userId, final QueryOptions searchOptions)
             throws SBonitaReadException {
-        final Map<String, Object> parameters = Collections.singletonMap("userId", userId);
-        return getPersistenceService().searchEntity(SHumanTaskInstance.class, PENDING_OR_ASSIGNED, searchOptions,
-                parameters);
+        final Set<Long> actorIds = getActorIdsOfUser(userId);
+        return getPersistenceService().searchEntity(SHumanTaskInstance.class,
+                getPendingTasksQuerySuffix(PENDING_OR_ASSIGNED, actorIds), searchOptions,
+                getPendingTasksParameters(userId, actorIds));
     }
 
     @Override
     public List<SHumanTaskInstance> searchPendingOrAssignedOrAssignedToOthersTasks(final long userId,
             final QueryOptions searchOptions)
             throws SBonitaReadException {
-        final Map<String, Object> parameters = Collections.singletonMap("userId", userId);
-        return getPersistenceService().searchEntity(SHumanTaskInstance.class, PENDING_OR_ASSIGNED_OR_ASSIGNED_TO_OTHERS,
+        final Set<Long> actorIds = getActorIdsOfUser(userId);
+        return getPersistenceService().searchEntity(SHumanTaskInstance.class,
+                getPendingTasksQuerySuffix(PENDING_OR_ASSIGNED_OR_ASSIGNED_TO_OTHERS, actorIds),
                 searchOptions,
-                parameters);
+                getPendingTasksParameters(userId, actorIds));
+    }
+
+    /**
+     * When the actors of users are cached, pending tasks are searched against the ids of the actors of the user
+     * instead of joining actor members and memberships in the query.
+     *
+     * @return the cached ids of the actors of the user, or null when pending tasks must be searched by joining actor
+     *         members, because the cache is disabled or the user is member of too many actors
+     */
+    private Set<Long> getActorIdsOfUser(final long userId) throws SBonitaReadException {
+        if (actorIdsOfUserCache == null || !actorIdsOfUserCache.isEnabled()) {
+            return null;
+        }
+        final Set<Long> actorIds = actorIdsOfUserCache.getActorIds(userId);
+        if (actorIds.size() > MAX_ACTOR_IDS_IN_QUERY) {
+            log.debug("User {} is member of {} actors, searching its pending tasks by joining actor members", userId,
+                    actorIds.size());
+            return null;
+        }
+        return actorIds;
+    }
+
+    private Map<String, Object> getPendingTasksParameters(final long userId, final Set<Long> actorIds) {
+        if (actorIds == null) {
+            return Collections.singletonMap("userId", userId);
+        }
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("userId", userId);
+        // an empty IN clause is not valid, and no actor has the id 0
+        parameters.put("actorIds", actorIds.isEmpty() ? Collections.singleton(0L) : actorIds);
+        return parameters;
+    }
+
+    private String getPendingTasksQuerySuffix(final String querySuffix, final Set<Long> actorIds) {
+        return actorIds != null ? querySuffix + WITH_ACTOR_IDS : querySuffix;
     }
 
     @Override
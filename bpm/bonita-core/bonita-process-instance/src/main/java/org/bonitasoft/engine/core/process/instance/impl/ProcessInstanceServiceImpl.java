@@ -17,7 +17,6 @@ import static java.util.Collections.singletonMap;
 import static org.bonitasoft.engine.classloader.ClassLoaderIdentifier.identifier;
 
 import java.text.MessageFormat;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -930,13 +929,13 @@ public class ProcessInstanceServiceImpl implements ProcessInstanceService {
     }
 
     @Override
-    public List<Long> getProcessInstanceIdsToRecover(Duration considerElementsOlderThan, QueryOptions queryOptions)
+    public List<Long> getProcessInstanceIdsToRecover(long maxLastUpdate, long lastId, int maxResults)
             throws SBonitaReadException {
-        return persistenceRead.selectList(new SelectListDescriptor<>(
-                "getProcessInstanceIdsToRecover",
-                singletonMap("maxLastUpdate",
-                        System.currentTimeMillis() - considerElementsOlderThan.toMillis()),
-                SProcessInstance.class, queryOptions));
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("maxLastUpdate", maxLastUpdate);
+        parameters.put("lastId", lastId);
+        return persistenceRead.selectList(new SelectListDescriptor<>("getProcessInstanceIdsToRecover", parameters,
+                SProcessInstance.class, new QueryOptions(0, maxResults)));
     }
 
     @Override
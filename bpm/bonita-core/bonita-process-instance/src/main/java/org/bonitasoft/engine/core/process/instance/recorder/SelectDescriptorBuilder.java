@@ -32,6 +32,7 @@ import org.bonitasoft.engine.core.process.instance.model.event.SEventInstance;
 import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageEventCouple;
 import org.bonitasoft.engine.core.process.instance.model.event.handling.SMessageInstance;
 import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingErrorEvent;
+import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingMessageEvent;
 import org.bonitasoft.engine.core.process.instance.model.event.handling.SWaitingSignalEvent;
 import org.bonitasoft.engine.core.process.instance.model.event.trigger.STimerEventTriggerInstance;
 import org.bonitasoft.engine.persistence.OrderByType;
@@ -236,6 +237,16 @@ public class SelectDescriptorBuilder {
         return new SelectListDescriptor<>("getListeningSignals", parameters, SWaitingSignalEvent.class, queryOptions);
     }
 
+    public static SelectListDescriptor<SWaitingSignalEvent> getListeningSignalsAfter(final String signalName,
+            final long lastId, final long maxId, final int maxResults) {
+        final Map<String, Object> parameters = new HashMap<>(3);
+        parameters.put("signalName", signalName);
+        parameters.put("lastId", lastId);
+        parameters.put("maxId", maxId);
+        return new SelectListDescriptor<>("getListeningSignalsAfter", parameters, SWaitingSignalEvent.class,
+                new QueryOptions(0, maxResults));
+    }
+
     public static SelectListDescriptor<SMessageEventCouple> getMessageEventCouples(final int fromIndex,
             final int maxResults) {
         final Map<String, Object> parameters = Collections.emptyMap();
@@ -244,6 +255,20 @@ public class SelectDescriptorBuilder {
                 queryOptions);
     }
 
+    public static SelectListDescriptor<SWaitingMessageEvent> getFreeWaitingMessageEvents(final long fromId,
+            final int maxResults) {
+        final Map<String, Object> parameters = Collections.singletonMap("fromId", fromId);
+        return new SelectListDescriptor<>("getFreeWaitingMessageEvents", parameters, SWaitingMessageEvent.class,
+                new QueryOptions(0, maxResults));
+    }
+
+    public static SelectListDescriptor<SMessageInstance> getUnhandledMessageInstances(final long fromId,
+            final int maxResults) {
+        final Map<String, Object> parameters = Collections.singletonMap("fromId", fromId);
+        return new SelectListDescriptor<>("getUnhandledMessageInstances", parameters, SMessageInstance.class,
+                new QueryOptions(0, maxResults));
+    }
+
     public static SelectOneDescriptor<SAActivityInstance> getArchivedActivityInstanceWithActivityIdAndStateId(
             final long activityInstanceId,
             final int stateId) {
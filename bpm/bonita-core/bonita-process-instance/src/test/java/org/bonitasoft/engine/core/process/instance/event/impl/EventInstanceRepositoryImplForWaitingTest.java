@@ -19,6 +19,7 @@ import static org.mockito.Mockito.*;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import org.bonitasoft.engine.archive.ArchiveService;
 import org.bonitasoft.engine.core.process.instance.api.event.EventInstanceRepository;
@@ -299,6 +300,34 @@ public class EventInstanceRepositoryImplForWaitingTest {
         eventInstanceRepository.getWaitingSignalEvents(signalName, 0, 100);
     }
 
+    @Test
+    public final void getWaitingSignalEvents_after_an_id_should_return_waiting_signal_events() throws Exception {
+        // Given
+        final List<SWaitingSignalEvent> waitingSignalEvents = Arrays.asList(new SWaitingSignalEvent());
+        doReturn(waitingSignalEvents).when(persistenceService)
+                .selectList(SelectDescriptorBuilder.getListeningSignalsAfter("name", 12L, 34L, 100));
+
+        // When
+        final List<SWaitingSignalEvent> result = eventInstanceRepository.getWaitingSignalEvents("name", 12L, 34L,
+                100);
+
+        // Then
+        assertEquals(waitingSignalEvents, result);
+    }
+
+    @Test
+    public final void getMaxWaitingSignalEventId_should_return_empty_when_there_is_no_waiting_signal_event()
+            throws Exception {
+        // Given
+        doReturn(null).when(persistenceService).selectOne(any());
+
+        // When
+        final Optional<Long> result = eventInstanceRepository.getMaxWaitingSignalEventId("name");
+
+        // Then
+        assertTrue(result.isEmpty());
+    }
+
     /**
      * Test method for
      * {@link org.bonitasoft.engine.core.process.instance.event.impl.EventInstanceRepositoryImpl#searchWaitingEvents(java.lang.Class, org.bonitasoft.engine.persistence.QueryOptions)}
@@ -24,7 +24,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
+import org.bonitasoft.engine.actor.mapping.impl.ActorIdsOfUserCache;
 import org.bonitasoft.engine.core.process.instance.api.FlowNodeInstanceService;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.SActivityReadException;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.SFlowNodeModificationException;
@@ -467,4 +471,72 @@ public class ActivityInstanceServiceImplTest {
                 .hasMessageContaining("Fake for test");
     }
 
+    @Test
+    public void should_search_pending_tasks_with_the_cached_actors_of_the_user() throws Exception {
+        final ActorIdsOfUserCache actorIdsOfUserCache = mock(ActorIdsOfUserCache.class);
+        doReturn(true).when(actorIdsOfUserCache).isEnabled();
+        doReturn(Collections.singleton(7L)).when(actorIdsOfUserCache).getActorIds(3L);
+        final ActivityInstanceServiceImpl serviceWithCache = new ActivityInstanceServiceImpl(recorder,
+                persistenceService, null, actorIdsOfUserCache);
+        final QueryOptions options = new QueryOptions(0, 10);
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("userId", 3L);
+        parameters.put("actorIds", Collections.singleton(7L));
+        doReturn(4L).when(persistenceService).getNumberOfEntities(SHumanTaskInstance.class,
+                "PendingForUserWithActorIds", options, parameters);
+
+        final long count = serviceWithCache.getNumberOfPendingTasksForUser(3L, options);
+
+        assertThat(count).isEqualTo(4L);
+    }
+
+    @Test
+    public void should_search_pending_tasks_with_a_missing_actor_when_the_user_has_no_actor() throws Exception {
+        final ActorIdsOfUserCache actorIdsOfUserCache = mock(ActorIdsOfUserCache.class);
+        doReturn(true).when(actorIdsOfUserCache).isEnabled();
+        doReturn(Collections.emptySet()).when(actorIdsOfUserCache).getActorIds(3L);
+        final ActivityInstanceServiceImpl serviceWithCache = new ActivityInstanceServiceImpl(recorder,
+                persistenceService, null, actorIdsOfUserCache);
+        final QueryOptions options = new QueryOptions(0, 10);
+
+        serviceWithCache.searchPendingOrAssignedTasks(3L, options);
+
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("userId", 3L);
+        parameters.put("actorIds", Collections.singleton(0L));
+        verify(persistenceService).searchEntity(SHumanTaskInstance.class, "PendingOrAssignedWithActorIds", options,
+                parameters);
+    }
+
+    @Test
+    public void should_search_pending_tasks_joining_actors_when_the_user_has_too_many_actors() throws Exception {
+        final ActorIdsOfUserCache actorIdsOfUserCache = mock(ActorIdsOfUserCache.class);
+        doReturn(true).when(actorIdsOfUserCache).isEnabled();
+        final Set<Long> actorIds = LongStream.rangeClosed(1, ActivityInstanceServiceImpl.MAX_ACTOR_IDS_IN_QUERY + 1)
+                .boxed().collect(Collectors.toSet());
+        doReturn(actorIds).when(actorIdsOfUserCache).getActorIds(3L);
+        final ActivityInstanceServiceImpl serviceWithCache = new ActivityInstanceServiceImpl(recorder,
+                persistenceService, null, actorIdsOfUserCache);
+        final QueryOptions options = new QueryOptions(0, 10);
+
+        serviceWithCache.searchPendingOrAssignedOrAssignedToOthersTasks(3L, options);
+
+        verify(persistenceService).searchEntity(SHumanTaskInstance.class, "PendingOrAssignedOrAssignedToOthers",
+                options, Collections.singletonMap("userId", 3L));
+    }
+
+    @Test
+    public void should_search_pending_tasks_joining_actors_when_the_cache_is_disabled() throws Exception {
+        final ActorIdsOfUserCache actorIdsOfUserCache = mock(ActorIdsOfUserCache.class);
+        final ActivityInstanceServiceImpl serviceWithCache = new ActivityInstanceServiceImpl(recorder,
+                persistenceService, null, actorIdsOfUserCache);
+        final QueryOptions options = new QueryOptions(0, 10);
+
+        serviceWithCache.searchPendingTasksForUser(3L, options);
+
+        verify(persistenceService).searchEntity(SHumanTaskInstance.class, "PendingForUser", options,
+                Collections.singletonMap("userId", 3L));
+        verify(actorIdsOfUserCache, never()).getActorIds(anyLong());
+    }
+
 }
@@ -44,6 +44,11 @@ public class SConnectorUserFilterAdapter implements SConnector {
         this.actorName = actorName;
     }
 
+    @Override
+    public String getImplementationName() {
+        return filter.getClass().getName();
+    }
+
     @Override
     public void setInputParameters(final Map<String, Object> parameters) {
         final APIAccessor apiAccessor = (APIAccessor) parameters.remove("connectorApiAccessor");
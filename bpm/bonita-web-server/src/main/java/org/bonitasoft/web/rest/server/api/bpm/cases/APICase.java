@@ -22,6 +22,8 @@ import org.bonitasoft.web.rest.model.bpm.cases.CaseDefinition;
 import org.bonitasoft.web.rest.model.bpm.cases.CaseItem;
 import org.bonitasoft.web.rest.model.bpm.flownode.FlowNodeItem;
 import org.bonitasoft.web.rest.server.api.ConsoleAPI;
+import org.bonitasoft.web.rest.server.api.deployer.GenericDeployer;
+import org.bonitasoft.web.rest.server.api.deployer.UserDeployer;
 import org.bonitasoft.web.rest.server.datastore.bpm.cases.CaseDatastore;
 import org.bonitasoft.web.rest.server.datastore.bpm.flownode.FlowNodeDatastore;
 import org.bonitasoft.web.rest.server.datastore.bpm.process.ProcessDatastore;
@@ -78,6 +80,15 @@ public class APICase extends ConsoleAPI<CaseItem>
         return ProcessInstanceCriterion.CREATION_DATE_DESC.name();
     }
 
+    @Override
+    protected void fillDeploys(final List<CaseItem> items, final List<String> deploys) {
+        final UserDatastore userDatastore = getUserDatastore();
+        addDeployer(new UserDeployer(userDatastore, CaseItem.ATTRIBUTE_STARTED_BY_USER_ID));
+        addDeployer(new UserDeployer(userDatastore, CaseItem.ATTRIBUTE_STARTED_BY_SUBSTITUTE_USER_ID));
+        addDeployer(new GenericDeployer<>(getProcessDatastore(), CaseItem.ATTRIBUTE_PROCESS_ID));
+        super.fillDeploys(items, deploys);
+    }
+
     @Override
     protected void fillDeploys(final CaseItem item, final List<String> deploys) {
         fillStartedBy(item, deploys);
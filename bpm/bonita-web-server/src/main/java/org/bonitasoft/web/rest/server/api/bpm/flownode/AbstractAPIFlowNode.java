@@ -29,6 +29,7 @@ import org.bonitasoft.web.rest.model.bpm.flownode.HumanTaskItem;
 import org.bonitasoft.web.rest.model.bpm.flownode.IFlowNodeItem;
 import org.bonitasoft.web.rest.server.api.ConsoleAPI;
 import org.bonitasoft.web.rest.server.api.deployer.GenericDeployer;
+import org.bonitasoft.web.rest.server.api.deployer.UserDeployer;
 import org.bonitasoft.web.rest.server.datastore.bpm.cases.ArchivedCaseDatastore;
 import org.bonitasoft.web.rest.server.datastore.bpm.cases.CaseDatastore;
 import org.bonitasoft.web.rest.server.datastore.bpm.flownode.FlowNodeDatastore;
@@ -108,6 +109,16 @@ public class AbstractAPIFlowNode<ITEM extends IFlowNodeItem> extends ConsoleAPI<
     // UTILS
     // //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    @Override
+    protected void fillDeploys(final List<ITEM> items, final List<String> deploys) {
+        final UserDatastore userDatastore = new UserDatastore(getEngineSession());
+        addDeployer(new GenericDeployer<>(new ProcessDatastore(getEngineSession()), FlowNodeItem.ATTRIBUTE_PROCESS_ID));
+        addDeployer(new UserDeployer(userDatastore, FlowNodeItem.ATTRIBUTE_EXECUTED_BY_USER_ID));
+        addDeployer(new UserDeployer(userDatastore, FlowNodeItem.ATTRIBUTE_EXECUTED_BY_SUBSTITUTE_USER_ID));
+        addDeployer(new UserDeployer(userDatastore, HumanTaskItem.ATTRIBUTE_ASSIGNED_USER_ID));
+        super.fillDeploys(items, deploys);
+    }
+
     @Override
     protected void fillDeploys(final ITEM item, final List<String> deploys) {
         /** TODO Refactor to an oriented object (cf. WEB-1637 ) */
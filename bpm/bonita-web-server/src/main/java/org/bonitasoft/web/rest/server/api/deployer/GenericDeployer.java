@@ -13,15 +13,33 @@
  **/
 package org.bonitasoft.web.rest.server.api.deployer;
 
-import org.bonitasoft.web.rest.server.framework.Deployer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bonitasoft.web.rest.server.framework.BatchDeployer;
+import org.bonitasoft.web.rest.server.framework.DeployCache;
+import org.bonitasoft.web.rest.server.framework.api.DatastoreHasBulkGet;
 import org.bonitasoft.web.rest.server.framework.api.DatastoreHasGet;
 import org.bonitasoft.web.toolkit.client.data.APIID;
 import org.bonitasoft.web.toolkit.client.data.item.IItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * Deploy an attribute referencing an item by its id.
+ * <p>
+ * When the getter is a {@link DatastoreHasBulkGet}, the items referenced by all the items of a page are got with a
+ * single call, otherwise each distinct item is got once.
+ *
  * @author Vincent Elcrin
  */
-public class GenericDeployer<I extends IItem> implements Deployer {
+public class GenericDeployer<I extends IItem> implements BatchDeployer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GenericDeployer.class.getName());
 
     private final DatastoreHasGet<I> getter;
 
@@ -38,9 +56,24 @@ public class GenericDeployer<I extends IItem> implements Deployer {
     }
 
     @Override
-    public void deployIn(IItem item) {
-        if (isDeployable(attribute, item)) {
-            item.setDeploy(attribute, getItem(getItemId(item)));
+    public void deployIn(List<? extends IItem> items, DeployCache deployCache) {
+        final List<IItem> deployableItems = new ArrayList<>();
+        final Set<APIID> ids = new LinkedHashSet<>();
+        for (final IItem item : items) {
+            if (isDeployable(attribute, item)) {
+                deployableItems.add(item);
+                ids.add(getItemId(item));
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        final Map<APIID, I> deployedItems = deployCache.resolve(getter.getClass(), ids, this::getItems);
+        for (final IItem item : deployableItems) {
+            final APIID id = getItemId(item);
+            if (deployedItems.containsKey(id)) {
+                item.setDeploy(attribute, deployedItems.get(id));
+            }
         }
     }
 
@@ -48,7 +81,19 @@ public class GenericDeployer<I extends IItem> implements Deployer {
         return item.getAttributeValueAsAPIID(attribute);
     }
 
-    private I getItem(APIID profileId) {
-        return getter.get(profileId);
+    @SuppressWarnings("unchecked")
+    private Map<APIID, I> getItems(List<APIID> ids) {
+        if (getter instanceof DatastoreHasBulkGet) {
+            return ((DatastoreHasBulkGet<I>) getter).getByIds(ids);
+        }
+        final Map<APIID, I> items = new HashMap<>();
+        for (final APIID id : ids) {
+            try {
+                items.put(id, getter.get(id));
+            } catch (final Exception e) {
+                LOGGER.debug("Could not get item {} to deploy attribute '{}'", id, attribute, e);
+            }
+        }
+        return items;
     }
 }
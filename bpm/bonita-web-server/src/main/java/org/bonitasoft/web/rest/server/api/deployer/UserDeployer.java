@@ -14,43 +14,15 @@
 package org.bonitasoft.web.rest.server.api.deployer;
 
 import org.bonitasoft.web.rest.model.identity.UserItem;
-import org.bonitasoft.web.rest.server.framework.Deployer;
 import org.bonitasoft.web.rest.server.framework.api.DatastoreHasGet;
-import org.bonitasoft.web.toolkit.client.data.APIID;
-import org.bonitasoft.web.toolkit.client.data.item.IItem;
 
 /**
  * @author Vincent Elcrin
  */
-public class UserDeployer implements Deployer {
-
-    private final DatastoreHasGet<UserItem> getter;
-
-    private final String attribute;
+public class UserDeployer extends GenericDeployer<UserItem> {
 
     public UserDeployer(DatastoreHasGet<UserItem> getter, String attribute) {
-        this.getter = getter;
-        this.attribute = attribute;
-    }
-
-    @Override
-    public String getDeployedAttribute() {
-        return attribute;
-    }
-
-    @Override
-    public void deployIn(IItem item) {
-        if (isDeployable(attribute, item)) {
-            item.setDeploy(attribute, getUser(getUserId(item)));
-        }
-    }
-
-    private APIID getUserId(IItem item) {
-        return item.getAttributeValueAsAPIID(attribute);
-    }
-
-    private UserItem getUser(APIID userId) {
-        return getter.get(userId);
+        super(getter, attribute);
     }
 
 }
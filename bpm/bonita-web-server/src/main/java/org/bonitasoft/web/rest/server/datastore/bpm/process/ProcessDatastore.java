@@ -15,8 +15,10 @@ package org.bonitasoft.web.rest.server.datastore.bpm.process;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.bonitasoft.console.common.server.page.CustomPageService;
 import org.bonitasoft.console.common.server.utils.BPMEngineException;
@@ -62,6 +64,7 @@ public class ProcessDatastore extends CommonDatastore<ProcessItem, ProcessDeploy
         DatastoreHasAdd<ProcessItem>,
         DatastoreHasUpdate<ProcessItem>,
         DatastoreHasGet<ProcessItem>,
+        DatastoreHasBulkGet<ProcessItem>,
         DatastoreHasSearch<ProcessItem>,
         DatastoreHasDelete {
 
@@ -179,6 +182,16 @@ public class ProcessDatastore extends CommonDatastore<ProcessItem, ProcessDeploy
         return convertEngineToConsoleItem(processDeploymentInfo);
     }
 
+    @Override
+    public Map<APIID, ProcessItem> getByIds(final List<APIID> ids) {
+        final Map<Long, ProcessDeploymentInfo> processDeploymentInfos = getProcessEngineClient()
+                .getProcessDeploymentInfos(ids.stream().map(APIID::toLong).collect(Collectors.toList()));
+        final Map<APIID, ProcessItem> processItems = new HashMap<>();
+        processDeploymentInfos.forEach((processId, processDeploymentInfo) -> processItems
+                .put(APIID.makeAPIID(processId), convertEngineToConsoleItem(processDeploymentInfo)));
+        return processItems;
+    }
+
     @Override
     public void delete(final List<APIID> ids) {
         for (final APIID id : ids) {
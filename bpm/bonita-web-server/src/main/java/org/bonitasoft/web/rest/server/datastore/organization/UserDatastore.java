@@ -13,6 +13,9 @@
  **/
 package org.bonitasoft.web.rest.server.datastore.organization;
 
+import static java.util.stream.Collectors.toList;
+
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +47,7 @@ import org.bonitasoft.web.toolkit.client.data.APIID;
 public class UserDatastore extends CommonDatastore<UserItem, User>
         implements DatastoreHasAdd<UserItem>,
         DatastoreHasGet<UserItem>,
+        DatastoreHasBulkGet<UserItem>,
         DatastoreHasSearch<UserItem>,
         DatastoreHasUpdate<UserItem>,
         DatastoreHasDelete {
@@ -84,6 +88,14 @@ public class UserDatastore extends CommonDatastore<UserItem, User>
         return userItemConverter.convert(user);
     }
 
+    @Override
+    public Map<APIID, UserItem> getByIds(final List<APIID> ids) {
+        final Map<Long, User> users = getUserEngineClient().get(ids.stream().map(APIID::toLong).collect(toList()));
+        final Map<APIID, UserItem> userItems = new HashMap<>();
+        users.forEach((userId, user) -> userItems.put(APIID.makeAPIID(userId), userItemConverter.convert(user)));
+        return userItems;
+    }
+
     /**
      * Search for users
      *
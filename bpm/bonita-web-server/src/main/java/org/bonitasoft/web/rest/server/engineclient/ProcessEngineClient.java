@@ -14,6 +14,7 @@
 package org.bonitasoft.web.rest.server.engineclient;
 
 import java.util.List;
+import java.util.Map;
 
 import org.bonitasoft.engine.api.ProcessAPI;
 import org.bonitasoft.engine.bpm.bar.BusinessArchive;
@@ -66,6 +67,10 @@ public class ProcessEngineClient {
         }
     }
 
+    public Map<Long, ProcessDeploymentInfo> getProcessDeploymentInfos(final List<Long> processIds) {
+        return getProcessApi().getProcessDeploymentInfosFromIds(processIds);
+    }
+
     public ProcessAPI getProcessApi() {
         return processAPI;
     }
@@ -214,8 +214,8 @@ public abstract class API<ITEM extends IItem> {
         final ItemSearchResult<ITEM> searchResult = search(page, resultsByPage, search, realOrders,
                 filters != null ? filters : new HashMap<>());
 
+        fillDeploys(searchResult.getResults(), deploys != null ? deploys : new ArrayList<>());
         for (final ITEM item : searchResult.getResults()) {
-            fillDeploys(item, deploys != null ? deploys : new ArrayList<>());
             fillCounters(item, counters != null ? counters : new ArrayList<>());
         }
 
@@ -296,6 +296,38 @@ public abstract class API<ITEM extends IItem> {
         }
     }
 
+    /**
+     * Deploy attributes in all the items of a result page. Attributes deployed by a {@link BatchDeployer} are deployed
+     * in all the items at once, sharing the items resolved for the page, the other ones are deployed item by item with
+     * {@link #fillDeploys(IItem, List)}.
+     */
+    protected void fillDeploys(final List<ITEM> items, final List<String> deploys) {
+        final DeployCache deployCache = new DeployCache();
+        final List<String> itemDeploys = new ArrayList<>();
+        for (final String attribute : deploys) {
+            if (deployers.get(attribute) instanceof BatchDeployer) {
+                deployAttribute(attribute, items, deployCache);
+            } else {
+                itemDeploys.add(attribute);
+            }
+        }
+        for (final ITEM item : items) {
+            fillDeploys(item, itemDeploys);
+        }
+    }
+
+    private void deployAttribute(final String attribute, final List<ITEM> items, final DeployCache deployCache) {
+        try {
+            ((BatchDeployer) deployers.get(attribute)).deployIn(items, deployCache);
+        } catch (final Exception e) {
+            LOGGER.debug("Could not deploy attribute '{}' on all items at once, deploying it item by item", attribute,
+                    e);
+            for (final ITEM item : items) {
+                deployAttribute(attribute, item);
+            }
+        }
+    }
+
     private void deployAttribute(final String attribute, final ITEM item) {
         if (deployers.containsKey(attribute)) {
             try {
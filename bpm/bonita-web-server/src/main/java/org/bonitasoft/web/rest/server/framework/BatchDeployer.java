@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.web.rest.server.framework;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.bonitasoft.web.toolkit.client.data.item.IItem;
+
+/**
+ * {@link Deployer} deploying its attribute in all the items of a result page at once, so that the items referenced by
+ * the page are resolved with as few calls to the engine as possible.
+ */
+public interface BatchDeployer extends Deployer {
+
+    /**
+     * Deploy the attribute in all the given items.
+     *
+     * @param deployCache items already resolved while handling the current request
+     */
+    void deployIn(List<? extends IItem> items, DeployCache deployCache);
+
+    @Override
+    default void deployIn(IItem item) {
+        deployIn(Collections.singletonList(item), new DeployCache());
+    }
+}
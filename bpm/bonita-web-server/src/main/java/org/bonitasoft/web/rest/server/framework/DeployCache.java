@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.web.rest.server.framework;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.bonitasoft.web.toolkit.client.data.APIID;
+import org.bonitasoft.web.toolkit.client.data.item.IItem;
+
+/**
+ * Items resolved to deploy attributes while handling one request.
+ * <p>
+ * Resolved items are grouped by source (e.g. the datastore they come from), so that an item referenced by several
+ * attributes or several items of a page, like the user who started a case and the user who started it for someone
+ * else, is only resolved once.
+ */
+public class DeployCache {
+
+    private final Map<Object, Map<APIID, IItem>> resolvedItems = new HashMap<>();
+    private final Map<Object, Set<APIID>> requestedIds = new HashMap<>();
+
+    /**
+     * @param source the source of the items
+     * @param ids ids of the items to get
+     * @param resolver called once with the ids not requested yet, returns the items found by id
+     * @return the items found, by id. Ids of items that could not be found are not in the returned map.
+     */
+    @SuppressWarnings("unchecked")
+    public <I extends IItem> Map<APIID, I> resolve(Object source, Collection<APIID> ids,
+            Function<List<APIID>, Map<APIID, I>> resolver) {
+        Map<APIID, IItem> resolved = resolvedItems.computeIfAbsent(source, s -> new HashMap<>());
+        Set<APIID> requested = requestedIds.computeIfAbsent(source, s -> new HashSet<>());
+        List<APIID> missing = new ArrayList<>();
+        for (APIID id : ids) {
+            if (requested.add(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            resolved.putAll(resolver.apply(missing));
+        }
+        return (Map<APIID, I>) resolved;
+    }
+}
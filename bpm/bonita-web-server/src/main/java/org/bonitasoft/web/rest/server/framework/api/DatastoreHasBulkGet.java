@@ -1,5 +1,5 @@
 /**
- * Copyright (C) 2020 Bonitasoft S.A.
+ * Copyright (C) 2024 Bonitasoft S.A.
  * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
  * This library is free software; you can redistribute it and/or modify it under the terms
  * of the GNU Lesser General Public License as published by the Free Software Foundation
@@ -11,19 +11,21 @@
  * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
  * Floor, Boston, MA 02110-1301, USA.
  **/
-package org.bonitasoft.engine.tenant.restart;
+package org.bonitasoft.web.rest.server.framework.api;
 
-import lombok.Builder;
-import lombok.Data;
+import java.util.List;
+import java.util.Map;
 
-@Data
-@Builder
-public class ElementToRecover {
+import org.bonitasoft.web.toolkit.client.data.APIID;
+import org.bonitasoft.web.toolkit.client.data.item.IItem;
 
-    enum Type {
-        PROCESS, FLOWNODE
-    }
+/**
+ * Datastore able to get several items with a single call to the engine.
+ */
+public interface DatastoreHasBulkGet<T extends IItem> {
 
-    private Type type;
-    private Long id;
+    /**
+     * @return the items found, by id. Ids of items that do not exist are not in the returned map.
+     */
+    Map<APIID, T> getByIds(List<APIID> ids);
 }
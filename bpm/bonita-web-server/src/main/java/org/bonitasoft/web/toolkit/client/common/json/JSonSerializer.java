@@ -13,12 +13,18 @@
  **/
 package org.bonitasoft.web.toolkit.client.common.json;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 
 import org.bonitasoft.web.toolkit.client.common.exception.http.JsonExceptionSerializer;
+import org.bonitasoft.web.toolkit.client.data.item.IItem;
+import org.bonitasoft.web.toolkit.client.data.item.Item;
 
 /**
  * @author Séverin Moussel
@@ -30,77 +36,95 @@ public class JSonSerializer extends JSonUtil {
             .withInitial(() -> new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS"));
 
     public static String serialize(final JsonSerializable object) {
-        return serializeInternal(object).toString();
-    }
-
-    private static StringBuilder serializeInternal(JsonSerializable object) {
-        if (object == null) {
-            return new StringBuilder("null");
-        }
-        return new StringBuilder(object.toJson());
+        return object == null ? "null" : object.toJson();
     }
 
     public static String serialize(final Object object) {
-        return serializeInternal(object).toString();
+        return writeToString(writer -> serialize(object, writer));
     }
 
-    private static StringBuilder serializeInternal(Object object) {
+    /**
+     * Write the JSon of an object to a writer, as {@link #serialize(Object)} would return it, without building the
+     * JSon of the collections, maps and items it contains in intermediate strings.
+     */
+    public static void serialize(final Object object, final Writer writer) throws IOException {
         if (object == null) {
-            return new StringBuilder("null");
+            writer.write("null");
+        } else if (object instanceof Item) {
+            serializeItem((Item) object, writer);
         } else if (object instanceof JsonSerializable) {
-            return serializeInternal((JsonSerializable) object);
+            writer.write(((JsonSerializable) object).toJson());
         } else if (object instanceof Collection<?>) {
-            return serializeCollectionInternal((Collection<?>) object);
+            serializeCollection((Collection<?>) object, writer);
         } else if (object instanceof Map<?, ?>) {
-            return serializeMapInternal((Map<?, ?>) object);
+            serializeMap((Map<?, ?>) object, writer);
         } else if (object instanceof Number) {
-            return new StringBuilder(object.toString());
+            writer.write(object.toString());
         } else if (object instanceof Boolean) {
-            return new StringBuilder((Boolean) object ? "true" : "false");
+            writer.write((Boolean) object ? "true" : "false");
         } else if (object instanceof Date) {
-            return quoteInternal(dateTimeFormat.get().format((Date) object));
+            quote(dateTimeFormat.get().format((Date) object), writer);
         } else if (object instanceof Throwable) {
-            return new StringBuilder(serializeException((Throwable) object));
+            writer.write(serializeException((Throwable) object));
+        } else {
+            quote(object.toString(), writer);
         }
-
-        return quoteInternal(object.toString());
     }
 
-    public static String serializeCollection(final Collection<?> list) {
-        return serializeCollectionInternal(list).toString();
+    private static void serializeItem(final Item item, final Writer writer) throws IOException {
+        final Map<String, IItem> deploys = item.getDeploys();
+        writer.write('{');
+        boolean first = true;
+        for (final String attribute : item.getAttributeNames()) {
+            if (!first) {
+                writer.write(',');
+            }
+            quote(attribute, writer);
+            writer.write(':');
+            if (deploys.containsKey(attribute)) {
+                serialize(deploys.get(attribute), writer);
+            } else {
+                quote(item.getAttributeValue(attribute), writer);
+            }
+            first = false;
+        }
+        writer.write('}');
     }
 
-    private static StringBuilder serializeCollectionInternal(Collection<?> list) {
-        final StringBuilder json = new StringBuilder("[");
-
+    private static void serializeCollection(final Collection<?> list, final Writer writer) throws IOException {
+        writer.write('[');
         boolean first = true;
         for (final Object item : list) {
-            json.append(!first ? "," : "").append(serializeInternal(item));
+            if (!first) {
+                writer.write(',');
+            }
+            serialize(item, writer);
             first = false;
         }
-
-        json.append("]");
-
-        return json;
+        writer.write(']');
     }
 
-    public static String serializeMap(final Map<?, ?> map) {
-        return serializeMapInternal(map).toString();
-    }
-
-    private static StringBuilder serializeMapInternal(Map<?, ?> map) {
-        final StringBuilder json = new StringBuilder().append("{");
-
+    private static void serializeMap(final Map<?, ?> map, final Writer writer) throws IOException {
+        writer.write('{');
         boolean first = true;
-        for (final Object key : map.keySet()) {
-            json.append(!first ? "," : "").append(quoteInternal(key.toString())).append(":")
-                    .append(serializeInternal(map.get(key)));
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) {
+                writer.write(',');
+            }
+            quote(entry.getKey().toString(), writer);
+            writer.write(':');
+            serialize(entry.getValue(), writer);
             first = false;
         }
+        writer.write('}');
+    }
 
-        json.append("}");
+    public static String serializeCollection(final Collection<?> list) {
+        return writeToString(writer -> serializeCollection(list, writer));
+    }
 
-        return json;
+    public static String serializeMap(final Map<?, ?> map) {
+        return writeToString(writer -> serializeMap(map, writer));
     }
 
     public static String serializeException(final Throwable e) {
@@ -108,22 +132,37 @@ public class JSonSerializer extends JSonUtil {
     }
 
     public static String serializeStringMap(final Map<?, String> map) {
-        return serializeStringMapInternal(map).toString();
+        return writeToString(writer -> {
+            writer.write('{');
+            boolean first = true;
+            for (final Map.Entry<?, String> entry : map.entrySet()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                quote(entry.getKey().toString(), writer);
+                writer.write(':');
+                quote(entry.getValue(), writer);
+                first = false;
+            }
+            writer.write('}');
+        });
     }
 
-    private static StringBuilder serializeStringMapInternal(Map<?, String> map) {
-        final StringBuilder json = new StringBuilder("{");
-
-        boolean first = true;
-        for (final Object key : map.keySet()) {
-            json.append(!first ? "," : "").append(quoteInternal(key.toString())).append(":")
-                    .append(quoteInternal(map.get(key)));
-            first = false;
+    private static String writeToString(final JsonWriting writing) {
+        final StringWriter writer = new StringWriter();
+        try {
+            writing.writeTo(writer);
+        } catch (final IOException e) {
+            // never thrown by a StringWriter
+            throw new UncheckedIOException(e);
         }
+        return writer.toString();
+    }
 
-        json.append("}");
+    @FunctionalInterface
+    private interface JsonWriting {
 
-        return json;
+        void writeTo(Writer writer) throws IOException;
     }
 
 }
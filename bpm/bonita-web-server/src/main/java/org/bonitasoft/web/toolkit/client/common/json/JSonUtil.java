@@ -13,7 +13,10 @@
  **/
 package org.bonitasoft.web.toolkit.client.common.json;
 
-import static java.lang.Integer.toHexString;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 
 /**
  * @author Séverin Moussel
@@ -21,75 +24,109 @@ import static java.lang.Integer.toHexString;
 public class JSonUtil {
 
     public static String quote(final String value) {
-        return quoteInternal(value).toString();
+        final StringWriter writer = new StringWriter((value == null ? 0 : value.length()) + 6);
+        try {
+            quote(value, writer);
+        } catch (final IOException e) {
+            // never thrown by a StringWriter
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
     }
 
-    public static StringBuilder quoteInternal(final String value) {
-        return new StringBuilder("\"").append(escape(value)).append("\"");
+    public static String escape(final String string) {
+        if (string == null || string.length() == 0) {
+            return "";
+        }
+        final StringWriter writer = new StringWriter(string.length() + 4);
+        try {
+            escape(string, writer);
+        } catch (final IOException e) {
+            // never thrown by a StringWriter
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
     }
 
-    public static String escape(final String string) {
-        return escapeInternal(string).toString();
+    /**
+     * Write a quoted and escaped value to a writer, as {@link #quote(String)} would return it.
+     */
+    public static void quote(final String value, final Writer writer) throws IOException {
+        writer.write('"');
+        escape(value, writer);
+        writer.write('"');
     }
 
-    private static StringBuilder escapeInternal(String string) {
-        if (string == null || string.length() == 0) {
-            return new StringBuilder();
+    /**
+     * Write an escaped value to a writer, as {@link #escape(String)} would return it. Characters that do not need
+     * to be escaped are written by runs, without copying them.
+     */
+    public static void escape(final String string, final Writer writer) throws IOException {
+        if (string == null) {
+            return;
         }
-
         char b;
         char c = 0;
-        int i;
+        int unescapedFrom = 0;
         final int len = string.length();
-        final StringBuilder sb = new StringBuilder(len + 4);
 
-        for (i = 0; i < len; i += 1) {
+        for (int i = 0; i < len; i += 1) {
             b = c;
             c = string.charAt(i);
+            // null when the character is written as a unicode escape sequence
+            final String escaped;
             switch (c) {
                 case '<':
                 case '>':
                 case '\'':
                 case '\\':
                 case '"':
-                    sb.append(convertToUnicodeInternal(c));
+                    escaped = null;
                     break;
                 case '/':
-                    if (b == '<') {
-                        sb.append('\\');
+                    if (b != '<') {
+                        continue;
                     }
-                    sb.append(c);
+                    escaped = "\\/";
                     break;
                 case '\b':
-                    sb.append("\\b");
+                    escaped = "\\b";
                     break;
                 case '\t':
-                    sb.append("\\t");
+                    escaped = "\\t";
                     break;
                 case '\n':
-                    sb.append("\\n");
+                    escaped = "\\n";
                     break;
                 case '\f':
-                    sb.append("\\f");
+                    escaped = "\\f";
                     break;
                 case '\r':
-                    sb.append("\\r");
+                    escaped = "\\r";
                     break;
                 default:
                     if (c < ' ' || c >= '\u0080' && c < '\u00a0' || c >= '\u2000' && c < '\u2100') {
-                        sb.append(convertToUnicodeInternal(c));
-                    } else {
-                        sb.append(c);
+                        escaped = null;
+                        break;
                     }
+                    continue;
+            }
+            writer.write(string, unescapedFrom, i - unescapedFrom);
+            unescapedFrom = i + 1;
+            if (escaped != null) {
+                writer.write(escaped);
+            } else {
+                writeUnicode(c, writer);
             }
         }
-
-        return new StringBuilder(sb);
+        writer.write(string, unescapedFrom, len - unescapedFrom);
     }
 
-    private static StringBuffer convertToUnicodeInternal(char character) {
-        StringBuilder hexString = new StringBuilder("000").append(toHexString(character));
-        return new StringBuffer("\\u").append(hexString.substring(hexString.length() - 4));
+    private static void writeUnicode(char character, Writer writer) throws IOException {
+        writer.write("\\u");
+        for (int shift = 12; shift >= 0; shift -= 4) {
+            writer.write(Character.forDigit((character >> shift) & 0xF, 16));
+        }
     }
 
 }
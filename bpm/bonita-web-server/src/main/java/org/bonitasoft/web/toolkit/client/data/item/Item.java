@@ -13,6 +13,9 @@
  **/
 package org.bonitasoft.web.toolkit.client.data.item;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -656,25 +659,14 @@ public abstract class Item implements IItem {
 
     @Override
     public final String toJson() {
-
-        final StringBuilder json = new StringBuilder().append("{");
-
-        boolean first = true;
-        for (final String attribute : getAttributeNames()) {
-            if (deploys.containsKey(attribute)) {
-                json.append(!first ? "," : "").append(JSonSerializer.quote(attribute)).append(":")
-                        .append(JSonSerializer.serialize(deploys.get(attribute)));
-            } else {
-                json.append(!first ? "," : "").append(JSonSerializer.quote(attribute)).append(":")
-                        .append(JSonSerializer.quote(this.getAttributeValue(attribute)));
-            }
-            first = false;
+        final StringWriter json = new StringWriter();
+        try {
+            JSonSerializer.serialize(this, json);
+        } catch (final IOException e) {
+            // never thrown by a StringWriter
+            throw new UncheckedIOException(e);
         }
-
-        json.append("}");
-
         return json.toString();
-
     }
 
     @Override
@@ -318,14 +318,30 @@ public abstract class ServletCall {
      * Write into the output
      *
      * @param object
-     *        An object that will be transform into JSon
+     *        An object that will be transform into JSon, written to the output as it is serialized. If its
+     *        serialization fails, the JSon already written is discarded if it was not sent yet, so that an error can
+     *        be returned instead of a truncated JSon.
      */
     protected void output(final Object object) {
         final PrintWriter outputWriter = getOutputWriter();
-        outputWriter.print(JSonSerializer.serialize(object));
+        try {
+            JSonSerializer.serialize(object, outputWriter);
+        } catch (final IOException e) {
+            discardPartialOutput();
+            throw new ServerException(e);
+        } catch (final RuntimeException e) {
+            discardPartialOutput();
+            throw e;
+        }
         outputWriter.flush();
     }
 
+    private void discardPartialOutput() {
+        if (!response.isCommitted()) {
+            response.resetBuffer();
+        }
+    }
+
     /**
      * The outputWriter in which to write the response String.
      */
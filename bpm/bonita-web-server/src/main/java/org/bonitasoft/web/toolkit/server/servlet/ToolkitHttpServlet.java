@@ -70,6 +70,12 @@ public abstract class ToolkitHttpServlet extends HttpServlet {
         try {
             super.service(req, resp);
         } catch (final Exception e) {
+            if (resp.isCommitted()) {
+                // part of the response was already sent with its status, the error can not be returned anymore: let
+                // the container abort the response, so that it is not taken for a complete one
+                LOGGER.error("Error after the response was committed, aborting it", e);
+                throw new ServletException(e);
+            }
             catchAllExceptions(retrieveLowestAPIException(e), req, resp);
         }
     }
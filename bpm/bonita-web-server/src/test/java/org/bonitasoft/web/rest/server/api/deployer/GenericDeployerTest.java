@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.web.rest.server.api.deployer;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bonitasoft.web.rest.model.ModelFactory;
+import org.bonitasoft.web.rest.model.identity.UserItem;
+import org.bonitasoft.web.rest.model.portal.page.PageItem;
+import org.bonitasoft.web.rest.server.datastore.organization.UserDatastore;
+import org.bonitasoft.web.rest.server.framework.DeployCache;
+import org.bonitasoft.web.rest.server.framework.api.DatastoreHasGet;
+import org.bonitasoft.web.toolkit.client.ItemDefinitionFactory;
+import org.bonitasoft.web.toolkit.client.data.APIID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GenericDeployerTest {
+
+    @Mock
+    private UserDatastore userDatastore;
+    @Mock
+    private DatastoreHasGet<UserItem> getter;
+
+    @Before
+    public void setUp() {
+        ItemDefinitionFactory.setDefaultFactory(new ModelFactory());
+    }
+
+    @Test
+    public void should_get_the_users_of_all_items_with_a_single_bulk_call() {
+        UserItem user6 = aUser(6L);
+        UserItem user7 = aUser(7L);
+        doReturn(usersById(user6, user7)).when(userDatastore).getByIds(any());
+        PageItem page1 = aPageCreatedBy(APIID.makeAPIID(6L));
+        PageItem page2 = aPageCreatedBy(APIID.makeAPIID(7L));
+        PageItem page3 = aPageCreatedBy(APIID.makeAPIID(6L));
+
+        new UserDeployer(userDatastore, PageItem.ATTRIBUTE_CREATED_BY_USER_ID)
+                .deployIn(asList(page1, page2, page3), new DeployCache());
+
+        verify(userDatastore).getByIds(asList(APIID.makeAPIID(6L), APIID.makeAPIID(7L)));
+        verify(userDatastore, never()).get(any());
+        assertThat(page1.getCreatedByUser()).isEqualTo(user6);
+        assertThat(page2.getCreatedByUser()).isEqualTo(user7);
+        assertThat(page3.getCreatedByUser()).isEqualTo(user6);
+    }
+
+    @Test
+    public void should_not_get_again_users_already_got_for_another_attribute() {
+        UserItem user6 = aUser(6L);
+        UserItem user7 = aUser(7L);
+        doReturn(usersById(user6)).when(userDatastore).getByIds(asList(APIID.makeAPIID(6L)));
+        doReturn(usersById(user7)).when(userDatastore).getByIds(asList(APIID.makeAPIID(7L)));
+        PageItem page = aPageCreatedBy(APIID.makeAPIID(6L));
+        page.setUpdatedByUserId(APIID.makeAPIID(7L));
+        PageItem otherPage = aPageCreatedBy(APIID.makeAPIID(7L));
+        otherPage.setUpdatedByUserId(APIID.makeAPIID(6L));
+        DeployCache deployCache = new DeployCache();
+
+        new UserDeployer(userDatastore, PageItem.ATTRIBUTE_CREATED_BY_USER_ID)
+                .deployIn(asList(page), deployCache);
+        new UserDeployer(userDatastore, PageItem.ATTRIBUTE_UPDATED_BY_USER_ID)
+                .deployIn(asList(page, otherPage), deployCache);
+
+        verify(userDatastore).getByIds(asList(APIID.makeAPIID(6L)));
+        verify(userDatastore).getByIds(asList(APIID.makeAPIID(7L)));
+        verifyNoMoreInteractions(userDatastore);
+        assertThat(otherPage.getUpdatedByUser()).isEqualTo(user6);
+    }
+
+    @Test
+    public void should_not_deploy_users_that_are_not_found() {
+        doReturn(Collections.emptyMap()).when(userDatastore).getByIds(any());
+        PageItem page = spy(aPageCreatedBy(APIID.makeAPIID(6L)));
+
+        new UserDeployer(userDatastore, PageItem.ATTRIBUTE_CREATED_BY_USER_ID)
+                .deployIn(asList(page), new DeployCache());
+
+        verify(page, never()).setDeploy(any(), any());
+    }
+
+    @Test
+    public void should_get_each_distinct_item_once_when_getter_has_no_bulk_get() {
+        UserItem user6 = aUser(6L);
+        doReturn(user6).when(getter).get(APIID.makeAPIID(6L));
+        doThrow(new RuntimeException("not found")).when(getter).get(APIID.makeAPIID(7L));
+        PageItem page1 = aPageCreatedBy(APIID.makeAPIID(6L));
+        PageItem page2 = aPageCreatedBy(APIID.makeAPIID(6L));
+        PageItem page3 = spy(aPageCreatedBy(APIID.makeAPIID(7L)));
+
+        new GenericDeployer<>(getter, PageItem.ATTRIBUTE_CREATED_BY_USER_ID)
+                .deployIn(asList(page1, page2, page3), new DeployCache());
+
+        verify(getter).get(APIID.makeAPIID(6L));
+        assertThat(page1.getCreatedByUser()).isEqualTo(user6);
+        assertThat(page2.getCreatedByUser()).isEqualTo(user6);
+        verify(page3, never()).setDeploy(any(), any());
+    }
+
+    private static UserItem aUser(long id) {
+        UserItem user = new UserItem();
+        user.setId(id);
+        return user;
+    }
+
+    private static Map<APIID, UserItem> usersById(UserItem... users) {
+        Map<APIID, UserItem> usersById = new HashMap<>();
+        for (UserItem user : users) {
+            usersById.put(user.getId(), user);
+        }
+        return usersById;
+    }
+
+    private static PageItem aPageCreatedBy(APIID userId) {
+        PageItem item = new PageItem();
+        item.setCreatedByUserId(userId);
+        return item;
+    }
+}
@@ -13,8 +13,18 @@
  **/
 package org.bonitasoft.web.toolkit.client.common.json;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bonitasoft.web.rest.model.ModelFactory;
+import org.bonitasoft.web.rest.model.identity.UserItem;
+import org.bonitasoft.web.rest.model.portal.page.PageItem;
+import org.bonitasoft.web.toolkit.client.ItemDefinitionFactory;
+import org.bonitasoft.web.toolkit.client.data.APIID;
 import org.junit.Test;
 
 public class JSonSerializerTest {
@@ -43,4 +53,41 @@ public class JSonSerializerTest {
                         + "}"
                         + "}");
     }
+
+    @Test
+    public void should_serialize_a_map_of_strings() throws Exception {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("name", "\"walter\"");
+        map.put("none", null);
+
+        String serialize = JSonSerializer.serializeStringMap(map);
+
+        assertThat(serialize).isEqualTo("{\"name\":\"\\u0022walter\\u0022\",\"none\":\"\"}");
+    }
+
+    @Test
+    public void should_write_items_to_a_writer_as_they_are_serialized_to_a_string() throws Exception {
+        ItemDefinitionFactory.setDefaultFactory(new ModelFactory());
+        UserItem user = new UserItem();
+        user.setId(6L);
+        user.setUserName("walter.bates</script>\n\u0001\u2028");
+        PageItem page = new PageItem();
+        page.setCreatedByUserId(APIID.makeAPIID(6L));
+        page.setUpdatedByUserId(APIID.makeAPIID(7L));
+        page.setDisplayName("<b>\"my page\"</b>");
+        page.setDeploy(PageItem.ATTRIBUTE_CREATED_BY_USER_ID, user);
+        page.setDeploy(PageItem.ATTRIBUTE_UPDATED_BY_USER_ID, null);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("pages", asList(page, new PageItem()));
+        map.put("count", 2);
+        map.put("valid", true);
+        map.put("none", null);
+
+        StringWriter writer = new StringWriter();
+        JSonSerializer.serialize(map, writer);
+
+        assertThat(writer.toString()).isEqualTo(JSonSerializer.serializeMap(map))
+                .contains("\"createdBy\":{")
+                .contains("\"updatedBy\":null");
+    }
 }
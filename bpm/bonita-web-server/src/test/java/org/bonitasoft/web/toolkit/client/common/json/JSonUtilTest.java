@@ -16,6 +16,8 @@ package org.bonitasoft.web.toolkit.client.common.json;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.web.toolkit.client.common.json.JSonUtil.escape;
 
+import java.io.StringWriter;
+
 import org.junit.Test;
 
 public class JSonUtilTest {
@@ -25,4 +27,16 @@ public class JSonUtilTest {
         assertThat(escape("<script>alert('bad')</script>"))
                 .isEqualTo("\\u003cscript\\u003ealert(\\u0027bad\\u0027)\\u003c\\/script\\u003e");
     }
+
+    @Test
+    public void should_escape_to_a_writer_as_to_a_string() throws Exception {
+        String value = "line 1\n\t<a href=\"/x\">\b\f\r\u0001\u0085\u2028 \\ \u00e9t\u00e9</a>";
+        StringWriter writer = new StringWriter();
+
+        JSonUtil.quote(value, writer);
+
+        assertThat(writer.toString()).isEqualTo(JSonUtil.quote(value))
+                .isEqualTo("\"line 1\\n\\t\\u003ca href=\\u0022/x\\u0022\\u003e\\b\\f\\r\\u0001\\u0085"
+                        + "\\u2028 \\u005c \u00e9t\u00e9\\u003c\\/a\\u003e\"");
+    }
 }
@@ -49,6 +49,9 @@ DELETE FROM page;
 DELETE FROM sequence WHERE tenantId <> -1;
 DELETE FROM profilemember;
 DELETE FROM profile;
+DELETE FROM work_queue;
+DELETE FROM archive_outbox;
+DELETE FROM timer_event;
 DELETE FROM job_log;
 DELETE FROM job_param;
 DELETE FROM job_desc;
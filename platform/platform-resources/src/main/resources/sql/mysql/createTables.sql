@@ -967,6 +967,17 @@ CREATE TABLE job_log (
 CREATE INDEX fk_job_log_jobId_idx ON job_log(jobDescriptorId ASC, tenantid ASC);
 
 ALTER TABLE job_log ADD CONSTRAINT fk_job_log_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
+CREATE TABLE timer_event (
+  tenantid BIGINT NOT NULL,
+  id BIGINT NOT NULL,
+  jobDescriptorId BIGINT NOT NULL,
+  triggerName VARCHAR(100) NOT NULL,
+  dueDate BIGINT NOT NULL,
+  PRIMARY KEY (tenantid, id)
+) ENGINE = INNODB;
+CREATE INDEX idx_timer_event_due ON timer_event (tenantid, dueDate);
+CREATE INDEX idx_timer_event_job ON timer_event (tenantid, jobDescriptorId);
+ALTER TABLE timer_event ADD CONSTRAINT fk_timer_event_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
 
 CREATE TABLE form_mapping (
   tenantId BIGINT NOT NULL,
@@ -1052,3 +1063,26 @@ CREATE TABLE icon (
   content LONGBLOB NOT NULL,
   CONSTRAINT pk_icon PRIMARY KEY (tenantId, id)
 ) ENGINE = INNODB;
+
+CREATE TABLE archive_outbox (
+  tenantId BIGINT NOT NULL,
+  id BIGINT NOT NULL,
+  creationDate BIGINT NOT NULL,
+  numberOfRecords INT NOT NULL,
+  payloadVersion VARCHAR(50) NOT NULL,
+  content LONGBLOB NOT NULL,
+  PRIMARY KEY (tenantId, id)
+) ENGINE = INNODB;
+CREATE TABLE work_queue (
+  tenantId BIGINT NOT NULL,
+  id BIGINT NOT NULL,
+  uuid VARCHAR(36) NOT NULL,
+  creationDate BIGINT NOT NULL,
+  leaseOwner VARCHAR(36),
+  leaseExpiry BIGINT NOT NULL,
+  content LONGBLOB NOT NULL,
+  PRIMARY KEY (tenantId, id)
+) ENGINE = INNODB;
+CREATE INDEX idx_work_queue_lease ON work_queue (tenantId, leaseExpiry);
+CREATE INDEX idx_work_queue_owner ON work_queue (tenantId, leaseOwner);
+CREATE INDEX idx_work_queue_uuid ON work_queue (tenantId, uuid);
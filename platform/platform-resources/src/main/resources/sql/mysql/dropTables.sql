@@ -51,6 +51,7 @@ DROP TABLE page;
 DROP TABLE blob_;
 DROP TABLE profilemember;
 DROP TABLE profile;
+DROP TABLE timer_event;
 DROP TABLE job_log;
 DROP TABLE job_param;
 DROP TABLE job_desc;
@@ -65,4 +66,6 @@ DROP TABLE proc_parameter;
 DROP TABLE bar_resource;
 DROP TABLE temporary_content;
 DROP TABLE tenant_resource;
-DROP TABLE icon;
\ No newline at end of file
+DROP TABLE icon;
+DROP TABLE archive_outbox;
+DROP TABLE work_queue;
@@ -953,6 +953,17 @@ CREATE TABLE job_log (
 
 ALTER TABLE job_param ADD CONSTRAINT fk_job_param_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
 ALTER TABLE job_log ADD CONSTRAINT fk_job_log_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
+CREATE TABLE timer_event (
+  tenantid NUMBER(19, 0) NOT NULL,
+  id NUMBER(19, 0) NOT NULL,
+  jobDescriptorId NUMBER(19, 0) NOT NULL,
+  triggerName VARCHAR2(100 CHAR) NOT NULL,
+  dueDate NUMBER(19, 0) NOT NULL,
+  PRIMARY KEY (tenantid, id)
+);
+CREATE INDEX idx_timer_event_due ON timer_event (tenantid, dueDate);
+CREATE INDEX idx_timer_event_job ON timer_event (tenantid, jobDescriptorId);
+ALTER TABLE timer_event ADD CONSTRAINT fk_timer_event_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
 
 CREATE TABLE form_mapping (
   tenantId NUMBER(19, 0) NOT NULL,
@@ -1037,3 +1048,26 @@ CREATE TABLE icon (
   content BLOB NOT NULL,
   CONSTRAINT pk_icon PRIMARY KEY (tenantId, id)
 );
+
+CREATE TABLE archive_outbox (
+  tenantId NUMBER(19, 0) NOT NULL,
+  id NUMBER(19, 0) NOT NULL,
+  creationDate NUMBER(19, 0) NOT NULL,
+  numberOfRecords INT NOT NULL,
+  payloadVersion VARCHAR2(50 CHAR) NOT NULL,
+  content BLOB NOT NULL,
+  PRIMARY KEY (tenantId, id)
+);
+CREATE TABLE work_queue (
+  tenantId NUMBER(19, 0) NOT NULL,
+  id NUMBER(19, 0) NOT NULL,
+  uuid VARCHAR2(36 CHAR) NOT NULL,
+  creationDate NUMBER(19, 0) NOT NULL,
+  leaseOwner VARCHAR2(36 CHAR),
+  leaseExpiry NUMBER(19, 0) NOT NULL,
+  content BLOB NOT NULL,
+  PRIMARY KEY (tenantId, id)
+);
+CREATE INDEX idx_work_queue_lease ON work_queue (tenantId, leaseExpiry);
+CREATE INDEX idx_work_queue_owner ON work_queue (tenantId, leaseOwner);
+CREATE INDEX idx_work_queue_uuid ON work_queue (tenantId, uuid);
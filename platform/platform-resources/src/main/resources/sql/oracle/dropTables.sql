@@ -51,6 +51,7 @@ DROP TABLE page cascade constraints purge;
 DROP TABLE blob_ cascade constraints purge;
 DROP TABLE profilemember cascade constraints purge;
 DROP TABLE profile cascade constraints purge;
+DROP TABLE timer_event cascade constraints purge;
 DROP TABLE job_log cascade constraints purge;
 DROP TABLE job_param cascade constraints purge;
 DROP TABLE job_desc cascade constraints purge;
@@ -65,4 +66,6 @@ DROP TABLE proc_parameter cascade constraints purge;
 DROP TABLE bar_resource cascade constraints purge;
 DROP TABLE temporary_content cascade constraints purge;
 DROP TABLE tenant_resource cascade constraints purge;
-DROP TABLE icon cascade constraints purge;
\ No newline at end of file
+DROP TABLE icon cascade constraints purge;
+DROP TABLE archive_outbox cascade constraints purge;
+DROP TABLE work_queue cascade constraints purge;
@@ -63,3 +63,6 @@ INSERT INTO sequence VALUES(1, 20050, 1);
 INSERT INTO sequence VALUES(1, 20210, 1);
 INSERT INTO sequence VALUES(1, 20220, 1);
 INSERT INTO sequence VALUES(1, 20096, 1);
+INSERT INTO sequence VALUES(1, 20300, 1);
+INSERT INTO sequence VALUES(1, 20310, 1);
+INSERT INTO sequence VALUES(1, 20320, 1);
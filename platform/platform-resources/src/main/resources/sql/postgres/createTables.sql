@@ -961,6 +961,17 @@ CREATE TABLE job_log (
 
 ALTER TABLE job_param ADD CONSTRAINT fk_job_param_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
 ALTER TABLE job_log ADD CONSTRAINT fk_job_log_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
+CREATE TABLE timer_event (
+  tenantid INT8 NOT NULL,
+  id INT8 NOT NULL,
+  jobDescriptorId INT8 NOT NULL,
+  triggerName VARCHAR(100) NOT NULL,
+  dueDate INT8 NOT NULL,
+  PRIMARY KEY (tenantid, id)
+);
+CREATE INDEX idx_timer_event_due ON timer_event (tenantid, dueDate);
+CREATE INDEX idx_timer_event_job ON timer_event (tenantid, jobDescriptorId);
+ALTER TABLE timer_event ADD CONSTRAINT fk_timer_event_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
 
 CREATE TABLE form_mapping (
   tenantId INT8 NOT NULL,
@@ -1044,3 +1055,26 @@ CREATE TABLE icon (
   content BYTEA NOT NULL,
   CONSTRAINT pk_icon PRIMARY KEY (tenantId, id)
 );
+
+CREATE TABLE archive_outbox (
+  tenantId INT8 NOT NULL,
+  id INT8 NOT NULL,
+  creationDate INT8 NOT NULL,
+  numberOfRecords INT NOT NULL,
+  payloadVersion VARCHAR(50) NOT NULL,
+  content BYTEA NOT NULL,
+  PRIMARY KEY (tenantId, id)
+);
+CREATE TABLE work_queue (
+  tenantId INT8 NOT NULL,
+  id INT8 NOT NULL,
+  uuid VARCHAR(36) NOT NULL,
+  creationDate INT8 NOT NULL,
+  leaseOwner VARCHAR(36),
+  leaseExpiry INT8 NOT NULL,
+  content BYTEA NOT NULL,
+  PRIMARY KEY (tenantId, id)
+);
+CREATE INDEX idx_work_queue_lease ON work_queue (tenantId, leaseExpiry);
+CREATE INDEX idx_work_queue_owner ON work_queue (tenantId, leaseOwner);
+CREATE INDEX idx_work_queue_uuid ON work_queue (tenantId, uuid);
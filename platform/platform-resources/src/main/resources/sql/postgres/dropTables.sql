@@ -51,6 +51,7 @@ DROP TABLE IF EXISTS page;
 DROP TABLE IF EXISTS blob_;
 DROP TABLE IF EXISTS profilemember;
 DROP TABLE IF EXISTS profile;
+DROP TABLE IF EXISTS timer_event;
 DROP TABLE IF EXISTS job_log;
 DROP TABLE IF EXISTS job_param;
 DROP TABLE IF EXISTS job_desc;
@@ -65,4 +66,6 @@ DROP TABLE IF EXISTS proc_parameter;
 DROP TABLE IF EXISTS bar_resource;
 DROP TABLE IF EXISTS temporary_content;
 DROP TABLE IF EXISTS tenant_resource;
-DROP TABLE IF EXISTS icon;
\ No newline at end of file
+DROP TABLE IF EXISTS icon;
+DROP TABLE IF EXISTS archive_outbox;
+DROP TABLE IF EXISTS work_queue;
@@ -957,6 +957,17 @@ CREATE TABLE job_log (
 
 ALTER TABLE job_param ADD CONSTRAINT fk_job_param_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
 ALTER TABLE job_log ADD CONSTRAINT fk_job_log_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
+CREATE TABLE timer_event (
+  tenantid NUMERIC(19, 0) NOT NULL,
+  id NUMERIC(19, 0) NOT NULL,
+  jobDescriptorId NUMERIC(19, 0) NOT NULL,
+  triggerName NVARCHAR(100) NOT NULL,
+  dueDate NUMERIC(19, 0) NOT NULL,
+  PRIMARY KEY (tenantid, id)
+);
+CREATE INDEX idx_timer_event_due ON timer_event (tenantid, dueDate);
+CREATE INDEX idx_timer_event_job ON timer_event (tenantid, jobDescriptorId);
+ALTER TABLE timer_event ADD CONSTRAINT fk_timer_event_jobid FOREIGN KEY (tenantid, jobDescriptorId) REFERENCES job_desc(tenantid, id) ON DELETE CASCADE;
 CREATE TABLE form_mapping (
   tenantId NUMERIC(19, 0) NOT NULL,
   id NUMERIC(19, 0) NOT NULL,
@@ -1034,3 +1045,26 @@ CREATE TABLE icon (
   content VARBINARY(MAX) NOT NULL,
   CONSTRAINT pk_icon PRIMARY KEY (tenantId, id)
 );
+
+CREATE TABLE archive_outbox (
+  tenantId NUMERIC(19, 0) NOT NULL,
+  id NUMERIC(19, 0) NOT NULL,
+  creationDate NUMERIC(19, 0) NOT NULL,
+  numberOfRecords INT NOT NULL,
+  payloadVersion NVARCHAR(50) NOT NULL,
+  content VARBINARY(MAX) NOT NULL,
+  PRIMARY KEY (tenantId, id)
+);
+CREATE TABLE work_queue (
+  tenantId NUMERIC(19, 0) NOT NULL,
+  id NUMERIC(19, 0) NOT NULL,
+  uuid NVARCHAR(36) NOT NULL,
+  creationDate NUMERIC(19, 0) NOT NULL,
+  leaseOwner NVARCHAR(36),
+  leaseExpiry NUMERIC(19, 0) NOT NULL,
+  content VARBINARY(MAX) NOT NULL,
+  PRIMARY KEY (tenantId, id)
+);
+CREATE INDEX idx_work_queue_lease ON work_queue (tenantId, leaseExpiry);
+CREATE INDEX idx_work_queue_owner ON work_queue (tenantId, leaseOwner);
+CREATE INDEX idx_work_queue_uuid ON work_queue (tenantId, uuid);
@@ -0,0 +1,454 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.archive.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.transaction.Status;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.bonitasoft.engine.archive.ArchiveInsertRecord;
+import org.bonitasoft.engine.archive.model.SArchiveOutboxEntry;
+import org.bonitasoft.engine.commons.TenantLifecycleService;
+import org.bonitasoft.engine.commons.exceptions.SBonitaException;
+import org.bonitasoft.engine.commons.exceptions.SBonitaRuntimeException;
+import org.bonitasoft.engine.commons.exceptions.SRetryableException;
+import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
+import org.bonitasoft.engine.persistence.QueryOptions;
+import org.bonitasoft.engine.persistence.SelectListDescriptor;
+import org.bonitasoft.engine.persistence.SelectOneDescriptor;
+import org.bonitasoft.engine.recorder.SRecorderException;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.services.SPersistenceException;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind archiving: instead of being inserted in the archive tables by the transaction that archives them,
+ * archived objects are serialized in a single row of the archive outbox, inserted by that transaction. A background
+ * thread then drains the outbox, moving the objects of many transactions to the archive tables at once, in JDBC
+ * batches.
+ * <p>
+ * The outbox is durable: entries left by a node that stopped or crashed are drained when the service starts again.
+ * Entries are removed in the transaction that archives their content, and only if this transaction is the one that
+ * deleted them, so that two drainers never archive the same entry twice.
+ * <p>
+ * When more than {@code maxPendingRecords} records wait in the outbox, new records are archived synchronously again,
+ * until the drainer catches up.
+ * <p>
+ * Before archives are deleted, the entries already in the outbox are drained by the drainer, in its own transactions,
+ * while the deleting transaction waits: archives of deleted objects are then not created afterward, and the deleting
+ * transaction neither archives the backlog itself nor competes with the drainer for the outbox rows.
+ * <p>
+ * Archived objects are only visible once drained: with this mode, reading archives right after they are created may
+ * not return them yet.
+ * <p>
+ * Entries hold Java-serialized objects, that can only be read by the version of Bonita that wrote them. Each entry is
+ * stamped with its payload version, and only entries of the current version are drained: the outbox is emptied when
+ * the service stops, and entries left by another version are reported at startup instead of failing the drainer.
+ */
+public class ArchiveOutbox implements TenantLifecycleService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveOutbox.class);
+
+    public static final String NUMBER_OF_PENDING_RECORDS = "bonita.bpmengine.archive.outbox.pending";
+    public static final String LAG = "bonita.bpmengine.archive.outbox.lag";
+    public static final String NUMBER_OF_DRAINED_RECORDS = "bonita.bpmengine.archive.outbox.drained";
+    public static final String NUMBER_OF_OVERFLOWED_RECORDS = "bonita.bpmengine.archive.outbox.overflow";
+    /**
+     * Version of the way entries are serialized, to increment when it changes
+     */
+    static final int PAYLOAD_FORMAT_VERSION = 1;
+    /**
+     * Maximum time a transaction deleting archives waits for the outbox to be drained
+     */
+    static final long FLUSH_TIMEOUT_SECONDS = 60;
+
+    private final PersistenceService persistenceService;
+    private final UserTransactionService transactionService;
+    private final SessionAccessor sessionAccessor;
+    private final long tenantId;
+    private final String payloadVersion;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxPendingRecords;
+    private final long pollInterval;
+
+    private final ThreadLocal<OutboxSynchronization> synchronizations = new ThreadLocal<>();
+    // set when the outbox was flushed by the current transaction, archives of deleted objects are not added later
+    private final ThreadLocal<Boolean> flushedInTransaction = new ThreadLocal<>();
+    private final AtomicLong pendingRecords = new AtomicLong();
+    // creation date of the oldest entry waiting in the outbox, 0 when it is empty
+    private final AtomicLong oldestPendingCreationDate = new AtomicLong();
+    private final Counter drainedRecordsCounter;
+    private final Counter overflowedRecordsCounter;
+    private ScheduledExecutorService drainer;
+    private volatile boolean running;
+    private boolean otherPayloadVersionsChecked;
+
+    /**
+     * @param platformVersion version of Bonita, part of the payload version of the entries, as serialized objects can
+     *        change from one version to another
+     * @param enabled archive through the outbox instead of in the archiving transaction
+     * @param batchSize maximum number of outbox entries, i.e. of archiving transactions, drained in one transaction
+     * @param maxPendingRecords number of records waiting in the outbox above which records are archived synchronously
+     * @param pollInterval delay in milliseconds between two drains of the outbox, when it was empty
+     */
+    public ArchiveOutbox(PersistenceService persistenceService, UserTransactionService transactionService,
+            SessionAccessor sessionAccessor, long tenantId, String platformVersion, MeterRegistry meterRegistry,
+            boolean enabled, int batchSize, long maxPendingRecords, long pollInterval) {
+        this.persistenceService = persistenceService;
+        this.transactionService = transactionService;
+        this.sessionAccessor = sessionAccessor;
+        this.tenantId = tenantId;
+        this.payloadVersion = PAYLOAD_FORMAT_VERSION + ":" + platformVersion;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxPendingRecords = maxPendingRecords;
+        this.pollInterval = pollInterval;
+        Tags tags = Tags.of("tenant", String.valueOf(tenantId));
+        Gauge.builder(NUMBER_OF_PENDING_RECORDS, pendingRecords, AtomicLong::get)
+                .tags(tags)
+                .baseUnit("records")
+                .description("Archived objects waiting in the archive outbox")
+                .register(meterRegistry);
+        Gauge.builder(LAG, this, ArchiveOutbox::getLag)
+                .tags(tags)
+                .baseUnit("milliseconds")
+                .description("Age of the oldest archived objects waiting in the archive outbox")
+                .register(meterRegistry);
+        drainedRecordsCounter = Counter.builder(NUMBER_OF_DRAINED_RECORDS)
+                .tags(tags)
+                .baseUnit("records")
+                .description("Archived objects moved from the archive outbox to the archive tables")
+                .register(meterRegistry);
+        overflowedRecordsCounter = Counter.builder(NUMBER_OF_OVERFLOWED_RECORDS)
+                .tags(tags)
+                .baseUnit("records")
+                .description("Archived objects archived synchronously because the archive outbox was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Add the records to the outbox entry of the current transaction.
+     *
+     * @return false if the records were not added, because write-behind archiving is disabled, stopped or the outbox
+     *         is full: the caller must archive them synchronously
+     */
+    public boolean append(ArchiveInsertRecord... records) {
+        if (!enabled || !running) {
+            return false;
+        }
+        if (pendingRecords.get() >= maxPendingRecords) {
+            overflowedRecordsCounter.increment(records.length);
+            return false;
+        }
+        OutboxSynchronization synchronization = synchronizations.get();
+        if (synchronization == null) {
+            synchronization = new OutboxSynchronization();
+            try {
+                transactionService.registerBonitaSynchronization(synchronization);
+            } catch (STransactionNotFoundException e) {
+                return false;
+            }
+            synchronizations.set(synchronization);
+        }
+        for (ArchiveInsertRecord record : records) {
+            if (record != null) {
+                synchronization.entities.add(record.getEntity());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait for the drainer to move the entries currently in the outbox to the archive tables. Must be called before
+     * deleting archives, so that archives of deleted objects are not created afterward by the drainer.
+     * <p>
+     * Entries are drained in the transactions of the drainer, not in the current one, and only the entries that were
+     * in the outbox when this method is called: entries added meanwhile by other transactions are left to the drainer.
+     * The outbox is only flushed once per transaction.
+     */
+    public void flush() throws SRecorderException {
+        ScheduledExecutorService currentDrainer = drainer;
+        if (pendingRecords.get() <= 0 || currentDrainer == null || flushedInTransaction.get() != null) {
+            return;
+        }
+        try {
+            Long lastEntryId = persistenceService.selectOne(new SelectOneDescriptor<>("getLastArchiveOutboxEntryId",
+                    payloadVersionParameter(), SArchiveOutboxEntry.class, Long.class));
+            if (lastEntryId != null) {
+                currentDrainer.submit(() -> drainUpTo(lastEntryId)).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            transactionService.registerBonitaSynchronization(
+                    (BonitaTransactionSynchronization) status -> flushedInTransaction.remove());
+            flushedInTransaction.set(true);
+        } catch (ExecutionException e) {
+            throw new SRecorderException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new SRecorderException("The archive outbox of tenant " + tenantId + " was not drained within "
+                    + FLUSH_TIMEOUT_SECONDS + " seconds, archives can not be deleted yet", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SRecorderException(e);
+        } catch (SBonitaException e) {
+            throw new SRecorderException(e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || drainer != null) {
+            return;
+        }
+        running = true;
+        drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Bonita-Archive-Outbox-" + tenantId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the first drain also archives entries left in the outbox when the service was last stopped
+        drainer.scheduleWithFixedDelay(this::drain, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (drainer != null) {
+            // do not leave entries behind, they could not be read by another version of Bonita
+            drainer.execute(() -> drain(true));
+            drainer.shutdown();
+            try {
+                if (!drainer.awaitTermination(30, TimeUnit.SECONDS)) {
+                    log.warn("Archive outbox drainer of tenant {} did not terminate in time", tenantId);
+                    drainer.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                drainer.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            drainer = null;
+        }
+    }
+
+    @Override
+    public void pause() {
+        stop();
+    }
+
+    @Override
+    public void resume() {
+        start();
+    }
+
+    long getPendingRecords() {
+        return pendingRecords.get();
+    }
+
+    long getLag() {
+        long oldest = oldestPendingCreationDate.get();
+        return oldest == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+    }
+
+    void drain() {
+        drain(false);
+    }
+
+    /**
+     * @param untilEmpty drain all entries even if the service is stopping
+     */
+    private void drain(boolean untilEmpty) {
+        try {
+            sessionAccessor.setTenantId(tenantId);
+            if (!otherPayloadVersionsChecked) {
+                transactionService.executeInTransaction(this::checkOtherPayloadVersions);
+                otherPayloadVersionsChecked = true;
+            }
+            int drainedEntries;
+            do {
+                drainedEntries = transactionService.executeInTransaction(() -> drainBatch(Long.MAX_VALUE)).size();
+            } while ((running || untilEmpty) && drainedEntries >= batchSize);
+        } catch (SRetryableException e) {
+            log.debug("Archive outbox entries were drained concurrently, they will be drained again", e);
+        } catch (Exception e) {
+            log.error("Error while draining the archive outbox of tenant {}", tenantId, e);
+        } finally {
+            sessionAccessor.deleteTenantId();
+        }
+    }
+
+    /**
+     * Drain the entries up to the given one, entries drained concurrently by other nodes are skipped
+     */
+    private Void drainUpTo(long lastEntryId) throws Exception {
+        try {
+            sessionAccessor.setTenantId(tenantId);
+            List<SArchiveOutboxEntry> drainedEntries = null;
+            do {
+                try {
+                    drainedEntries = transactionService.executeInTransaction(() -> drainBatch(lastEntryId));
+                } catch (SRetryableException e) {
+                    log.debug("Archive outbox entries were drained concurrently, draining them again", e);
+                }
+            } while (drainedEntries == null || drainedEntries.size() >= batchSize);
+            return null;
+        } finally {
+            sessionAccessor.deleteTenantId();
+        }
+    }
+
+    private Void checkOtherPayloadVersions() throws SBonitaException {
+        Long entriesOfOtherVersions = persistenceService.selectOne(new SelectOneDescriptor<>(
+                "getNumberOfArchiveOutboxEntriesOfOtherPayloadVersions", payloadVersionParameter(),
+                SArchiveOutboxEntry.class, Long.class));
+        if (entriesOfOtherVersions != null && entriesOfOtherVersions > 0) {
+            log.error("{} entries of the archive outbox of tenant {} were written by another version of Bonita and "
+                    + "can not be archived by version {}. Start the version that wrote them to archive them, "
+                    + "or delete them from the table archive_outbox.", entriesOfOtherVersions, tenantId,
+                    payloadVersion);
+        }
+        return null;
+    }
+
+    /**
+     * @param lastEntryId id of the last entry that can be drained
+     * @return the entries drained
+     */
+    private List<SArchiveOutboxEntry> drainBatch(long lastEntryId) throws SBonitaException {
+        List<SArchiveOutboxEntry> entries = getOldestEntries(lastEntryId);
+        if (!entries.isEmpty()) {
+            List<Long> ids = entries.stream().map(SArchiveOutboxEntry::getId).collect(Collectors.toList());
+            if (deleteEntries(ids) != ids.size()) {
+                // another drainer removed some of the entries, roll back to not archive them twice
+                throw new SRetryableException("Archive outbox entries were drained concurrently");
+            }
+            archive(entries);
+        }
+        refreshPendingState();
+        return entries;
+    }
+
+    private List<SArchiveOutboxEntry> getOldestEntries(long lastEntryId) throws SBonitaException {
+        Map<String, Object> parameters = new HashMap<>(payloadVersionParameter());
+        parameters.put("lastEntryId", lastEntryId);
+        return persistenceService.selectList(new SelectListDescriptor<>("getArchiveOutboxEntries", parameters,
+                SArchiveOutboxEntry.class, new QueryOptions(0, batchSize)));
+    }
+
+    private int deleteEntries(List<Long> ids) throws SPersistenceException {
+        return persistenceService.update("deleteArchiveOutboxEntries", Collections.singletonMap("ids", ids));
+    }
+
+    private void archive(List<SArchiveOutboxEntry> entries) throws SBonitaException {
+        List<ArchivedPersistentObject> entities = new ArrayList<>();
+        for (SArchiveOutboxEntry entry : entries) {
+            entities.addAll(deserialize(entry.getContent()));
+        }
+        persistenceService.insertInBatch(entities);
+        persistenceService.flushStatements();
+        drainedRecordsCounter.increment(entities.size());
+    }
+
+    /**
+     * Read the number of pending records and the age of the oldest entry from the outbox, as entries might have been
+     * added or drained by other nodes.
+     */
+    private void refreshPendingState() throws SBonitaException {
+        Long pending = persistenceService.selectOne(new SelectOneDescriptor<>("getNumberOfPendingArchiveRecords",
+                payloadVersionParameter(), SArchiveOutboxEntry.class, Long.class));
+        Long oldest = persistenceService.selectOne(new SelectOneDescriptor<>(
+                "getOldestArchiveOutboxEntryCreationDate", payloadVersionParameter(), SArchiveOutboxEntry.class,
+                Long.class));
+        pendingRecords.set(pending == null ? 0 : pending);
+        oldestPendingCreationDate.set(oldest == null ? 0 : oldest);
+    }
+
+    private Map<String, Object> payloadVersionParameter() {
+        return Collections.singletonMap("payloadVersion", payloadVersion);
+    }
+
+    static byte[] serialize(List<ArchivedPersistentObject> entities) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(new ArrayList<>(entities));
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<ArchivedPersistentObject> deserialize(byte[] content) throws SRecorderException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(content))) {
+            return (List<ArchivedPersistentObject>) input.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new SRecorderException(e);
+        }
+    }
+
+    /**
+     * Collect the objects archived by a transaction, and insert them as a single outbox entry when it commits.
+     */
+    private class OutboxSynchronization implements BonitaTransactionSynchronization {
+
+        private final List<ArchivedPersistentObject> entities = new ArrayList<>();
+        private SArchiveOutboxEntry entry;
+
+        @Override
+        public void beforeCompletion() {
+            if (entities.isEmpty()) {
+                return;
+            }
+            try {
+                entry = new SArchiveOutboxEntry(System.currentTimeMillis(), entities.size(), payloadVersion,
+                        serialize(entities));
+                persistenceService.insert(entry);
+                // this is mandatory (probably because we are in a synchronization)
+                persistenceService.flushStatements();
+            } catch (IOException | SPersistenceException e) {
+                throw new SBonitaRuntimeException(e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            synchronizations.remove();
+            if (status == Status.STATUS_COMMITTED && entry != null) {
+                pendingRecords.addAndGet(entry.getNumberOfRecords());
+                oldestPendingCreationDate.compareAndSet(0, entry.getCreationDate());
+            }
+        }
+    }
+}
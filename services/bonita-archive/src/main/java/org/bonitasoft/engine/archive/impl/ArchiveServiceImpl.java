@@ -47,12 +47,16 @@ public class ArchiveServiceImpl implements ArchiveService {
 
     private ArchivingStrategy archivingStrategy;
 
+    private final ArchiveOutbox archiveOutbox;
+
     public ArchiveServiceImpl(final PersistenceService definitiveArchivePersistenceService,
-            final ArchivingStrategy archivingStrategy, final UserTransactionService transactionService) {
+            final ArchivingStrategy archivingStrategy, final UserTransactionService transactionService,
+            final ArchiveOutbox archiveOutbox) {
         super();
         this.definitiveArchivePersistenceService = definitiveArchivePersistenceService;
         this.archivingStrategy = archivingStrategy;
         this.transactionService = transactionService;
+        this.archiveOutbox = archiveOutbox;
     }
 
     @Override
@@ -68,6 +72,10 @@ public class ArchiveServiceImpl implements ArchiveService {
         logBeforeMethod(methodName);
         if (records != null) {
             assignArchiveDate(time, records);
+            if (archiveOutbox.append(records)) {
+                logAfterMethod(methodName);
+                return;
+            }
             final BatchArchiveCallable callable = buildBatchArchiveCallable(records);
 
             try {
@@ -113,6 +121,7 @@ public class ArchiveServiceImpl implements ArchiveService {
         String methodName = "recordDelete";
         try {
             logBeforeMethod(methodName);
+            archiveOutbox.flush();
             definitiveArchivePersistenceService.delete(record.getEntity());
             logAfterMethod(methodName);
         } catch (final SPersistenceException e) {
@@ -152,6 +161,7 @@ public class ArchiveServiceImpl implements ArchiveService {
 
     @Override
     public int deleteFromQuery(String queryName, Map<String, Object> parameters) throws SRecorderException {
+        archiveOutbox.flush();
         try {
             return definitiveArchivePersistenceService.update(queryName, parameters);
         } catch (SPersistenceException e) {
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.archive.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.PersistentObjectId;
+import org.hibernate.annotations.Type;
+
+/**
+ * Archived objects of one committed transaction, waiting in the archive outbox to be written to the archive tables.
+ */
+@Data
+@NoArgsConstructor
+@ToString(exclude = { "content" })
+@Entity
+@Table(name = "archive_outbox")
+@IdClass(PersistentObjectId.class)
+public class SArchiveOutboxEntry implements PersistentObject {
+
+    public static final String ID = "id";
+    public static final String CREATION_DATE = "creationDate";
+
+    @Id
+    private long id;
+    @Id
+    private long tenantId;
+    @Column
+    private long creationDate;
+    @Column
+    private int numberOfRecords;
+    /**
+     * Version of the format of the content, entries written in another version can not be read
+     */
+    @Column
+    private String payloadVersion;
+    /**
+     * The archived objects, serialized
+     */
+    @Type(type = "materialized_blob")
+    private byte[] content;
+
+    public SArchiveOutboxEntry(long creationDate, int numberOfRecords, String payloadVersion, byte[] content) {
+        this.creationDate = creationDate;
+        this.numberOfRecords = numberOfRecords;
+        this.payloadVersion = payloadVersion;
+        this.content = content;
+    }
+
+}
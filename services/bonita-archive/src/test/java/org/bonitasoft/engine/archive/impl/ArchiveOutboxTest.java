@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.archive.impl;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.transaction.Status;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.Data;
+import org.bonitasoft.engine.archive.ArchiveInsertRecord;
+import org.bonitasoft.engine.archive.model.SArchiveOutboxEntry;
+import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.SelectListDescriptor;
+import org.bonitasoft.engine.persistence.SelectOneDescriptor;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ArchiveOutboxTest {
+
+    private static final long TENANT_ID = 12L;
+    private static final String PLATFORM_VERSION = "10.2.0";
+    private static final String PAYLOAD_VERSION = ArchiveOutbox.PAYLOAD_FORMAT_VERSION + ":" + PLATFORM_VERSION;
+    // drains are triggered by the tests
+    private static final long HOUR = 3_600_000L;
+
+    private final PersistenceService persistenceService = mock(PersistenceService.class);
+    private final UserTransactionService transactionService = mock(UserTransactionService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ArchiveOutbox archiveOutbox;
+
+    @Before
+    public void before() throws Exception {
+        archiveOutbox = createArchiveOutbox(true, 10);
+        doAnswer(invocation -> ((Callable<?>) invocation.getArgument(0)).call()).when(transactionService)
+                .executeInTransaction(any());
+        doReturn(0L).when(persistenceService).selectOne(any(SelectOneDescriptor.class));
+    }
+
+    @After
+    public void after() {
+        archiveOutbox.stop();
+    }
+
+    @Test
+    public void should_not_append_records_when_disabled() throws Exception {
+        archiveOutbox = createArchiveOutbox(false, 10);
+        archiveOutbox.start();
+
+        assertThat(archiveOutbox.append(record(1L))).isFalse();
+        verify(transactionService, never()).registerBonitaSynchronization(any());
+    }
+
+    @Test
+    public void should_not_append_records_when_not_started() throws Exception {
+        assertThat(archiveOutbox.append(record(1L))).isFalse();
+    }
+
+    @Test
+    public void should_insert_one_outbox_entry_per_transaction_when_it_commits() throws Exception {
+        archiveOutbox.start();
+
+        assertThat(archiveOutbox.append(record(1L))).isTrue();
+        assertThat(archiveOutbox.append(record(2L), record(3L))).isTrue();
+        BonitaTransactionSynchronization synchronization = getRegisteredSynchronization();
+        synchronization.beforeCompletion();
+        synchronization.afterCompletion(Status.STATUS_COMMITTED);
+
+        ArgumentCaptor<SArchiveOutboxEntry> entry = ArgumentCaptor.forClass(SArchiveOutboxEntry.class);
+        verify(persistenceService).insert(entry.capture());
+        assertThat(entry.getValue().getNumberOfRecords()).isEqualTo(3);
+        assertThat(entry.getValue().getPayloadVersion()).isEqualTo(PAYLOAD_VERSION);
+        assertThat(ArchiveOutbox.deserialize(entry.getValue().getContent()))
+                .containsExactly(archived(1L), archived(2L), archived(3L));
+        assertThat(archiveOutbox.getPendingRecords()).isEqualTo(3);
+        assertThat(archiveOutbox.getLag()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void should_not_count_records_of_rolled_back_transactions() throws Exception {
+        archiveOutbox.start();
+
+        archiveOutbox.append(record(1L));
+        getRegisteredSynchronization().afterCompletion(Status.STATUS_ROLLEDBACK);
+
+        assertThat(archiveOutbox.getPendingRecords()).isZero();
+    }
+
+    @Test
+    public void should_not_append_records_when_the_outbox_is_full() throws Exception {
+        archiveOutbox = createArchiveOutbox(true, 2);
+        archiveOutbox.start();
+        archiveOutbox.append(record(1L), record(2L));
+        getRegisteredSynchronization().afterCompletion(Status.STATUS_COMMITTED);
+
+        assertThat(archiveOutbox.append(record(3L))).isFalse();
+        assertThat(meterRegistry.find(ArchiveOutbox.NUMBER_OF_OVERFLOWED_RECORDS).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_archive_drained_entries_in_one_batch() throws Exception {
+        doReturn(asList(entry(1L, archived(10L)), entry(2L, archived(11L), archived(12L))), emptyList())
+                .when(persistenceService).selectList(any(SelectListDescriptor.class));
+        doReturn(2).when(persistenceService).update(eq("deleteArchiveOutboxEntries"), anyMap());
+
+        archiveOutbox.drain();
+
+        verify(persistenceService).update("deleteArchiveOutboxEntries", singletonMap("ids", asList(1L, 2L)));
+        verify(persistenceService).insertInBatch(asList(archived(10L), archived(11L), archived(12L)));
+        assertThat(meterRegistry.find(ArchiveOutbox.NUMBER_OF_DRAINED_RECORDS).counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    public void should_only_drain_entries_of_the_current_payload_version() throws Exception {
+        archiveOutbox.drain();
+
+        ArgumentCaptor<SelectListDescriptor> descriptor = ArgumentCaptor.forClass(SelectListDescriptor.class);
+        verify(persistenceService).selectList(descriptor.capture());
+        assertThat(descriptor.getValue().getQueryName()).isEqualTo("getArchiveOutboxEntries");
+        assertThat(descriptor.getValue().getInputParameters()).containsEntry("payloadVersion", PAYLOAD_VERSION);
+    }
+
+    @Test
+    public void should_drain_remaining_entries_when_stopped() throws Exception {
+        doReturn(singletonList(entry(1L, archived(10L))), emptyList())
+                .when(persistenceService).selectList(any(SelectListDescriptor.class));
+        doReturn(1).when(persistenceService).update(eq("deleteArchiveOutboxEntries"), anyMap());
+        archiveOutbox.start();
+
+        archiveOutbox.stop();
+
+        verify(persistenceService).insertInBatch(singletonList(archived(10L)));
+    }
+
+    @Test
+    public void should_not_archive_entries_drained_concurrently() throws Exception {
+        doReturn(asList(entry(1L, archived(10L)), entry(2L, archived(11L))))
+                .when(persistenceService).selectList(any(SelectListDescriptor.class));
+        doReturn(1).when(persistenceService).update(eq("deleteArchiveOutboxEntries"), anyMap());
+
+        archiveOutbox.drain();
+
+        verify(persistenceService, never()).insertInBatch(anyList());
+    }
+
+    @Test
+    public void should_only_drain_entries_present_when_flushed_outside_of_the_deleting_transaction()
+            throws Exception {
+        archiveOutbox.start();
+        commitOneRecord();
+        // large backlog, entries after the 12th are added while the outbox is flushed
+        TreeMap<Long, SArchiveOutboxEntry> outbox = new TreeMap<>();
+        for (long id = 1; id <= 30; id++) {
+            outbox.put(id, entry(id, archived(100 + id)));
+        }
+        stubLastEntryId(12L);
+        doAnswer(invocation -> {
+            long lastEntryId = (long) invocation.<SelectListDescriptor<?>> getArgument(0).getInputParameters()
+                    .get("lastEntryId");
+            return outbox.headMap(lastEntryId, true).values().stream().limit(10).collect(Collectors.toList());
+        }).when(persistenceService).selectList(any(SelectListDescriptor.class));
+        doAnswer(invocation -> {
+            List<Long> ids = invocation.<Map<String, List<Long>>> getArgument(1).get("ids");
+            ids.forEach(outbox::remove);
+            return ids.size();
+        }).when(persistenceService).update(eq("deleteArchiveOutboxEntries"), anyMap());
+        List<ArchivedPersistentObject> archived = new ArrayList<>();
+        List<String> archivingThreads = new ArrayList<>();
+        doAnswer(invocation -> {
+            archived.addAll(invocation.getArgument(0));
+            archivingThreads.add(Thread.currentThread().getName());
+            return null;
+        }).when(persistenceService).insertInBatch(anyList());
+
+        archiveOutbox.flush();
+
+        assertThat(archived).extracting(ArchivedPersistentObject::getSourceObjectId)
+                .containsExactlyElementsOf(LongStream.rangeClosed(101, 112).boxed().collect(Collectors.toList()));
+        assertThat(archivingThreads).hasSize(2).allMatch(name -> name.startsWith("Bonita-Archive-Outbox-"));
+        assertThat(outbox).containsOnlyKeys(LongStream.rangeClosed(13, 30).boxed().toArray(Long[]::new));
+    }
+
+    @Test
+    public void should_flush_the_outbox_once_per_transaction() throws Exception {
+        archiveOutbox.start();
+        commitOneRecord();
+        stubLastEntryId(1L);
+
+        archiveOutbox.flush();
+        archiveOutbox.flush();
+
+        verify(persistenceService, times(1)).selectList(any(SelectListDescriptor.class));
+    }
+
+    private void commitOneRecord() throws Exception {
+        archiveOutbox.append(record(1L));
+        getRegisteredSynchronization().afterCompletion(Status.STATUS_COMMITTED);
+    }
+
+    private void stubLastEntryId(long lastEntryId) throws Exception {
+        doAnswer(invocation -> "getLastArchiveOutboxEntryId".equals(
+                invocation.<SelectOneDescriptor<?>> getArgument(0).getQueryName()) ? lastEntryId : 0L)
+                .when(persistenceService).selectOne(any(SelectOneDescriptor.class));
+    }
+
+    private ArchiveOutbox createArchiveOutbox(boolean enabled, long maxPendingRecords) {
+        return new ArchiveOutbox(persistenceService, transactionService, mock(SessionAccessor.class), TENANT_ID,
+                PLATFORM_VERSION, meterRegistry, enabled, 10, maxPendingRecords, HOUR);
+    }
+
+    private BonitaTransactionSynchronization getRegisteredSynchronization() throws Exception {
+        ArgumentCaptor<BonitaTransactionSynchronization> synchronization = ArgumentCaptor
+                .forClass(BonitaTransactionSynchronization.class);
+        verify(transactionService).registerBonitaSynchronization(synchronization.capture());
+        return synchronization.getValue();
+    }
+
+    private static SArchiveOutboxEntry entry(long id, ArchivedPersistentObject... entities) throws Exception {
+        SArchiveOutboxEntry entry = new SArchiveOutboxEntry(System.currentTimeMillis(), entities.length,
+                PAYLOAD_VERSION, ArchiveOutbox.serialize(asList(entities)));
+        entry.setId(id);
+        return entry;
+    }
+
+    private static ArchiveInsertRecord record(long sourceObjectId) {
+        return new ArchiveInsertRecord(archived(sourceObjectId));
+    }
+
+    private static SATestObject archived(long sourceObjectId) {
+        SATestObject archived = new SATestObject();
+        archived.setSourceObjectId(sourceObjectId);
+        return archived;
+    }
+
+    @Data
+    public static class SATestObject implements ArchivedPersistentObject {
+
+        private long id;
+        private long tenantId;
+        private long archiveDate;
+        private long sourceObjectId;
+
+        @Override
+        public Class<? extends PersistentObject> getPersistentObjectInterface() {
+            return PersistentObject.class;
+        }
+    }
+}
@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.archive.impl;
 
+import static java.util.Collections.emptyMap;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -23,6 +24,7 @@ import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
 import org.bonitasoft.engine.services.PersistenceService;
 import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 public class ArchiveServiceImplTest {
 
@@ -34,7 +36,8 @@ public class ArchiveServiceImplTest {
         final UserTransactionService transactionService = mock(UserTransactionService.class);
 
         ArchiveServiceImpl archiveService = spy(
-                new ArchiveServiceImpl(definitiveArchivePersistenceService, archivingStrategy, transactionService));
+                new ArchiveServiceImpl(definitiveArchivePersistenceService, archivingStrategy, transactionService,
+                        mock(ArchiveOutbox.class)));
 
         final ArchivedPersistentObjectWithSetter mockArchivedPersistentObject = mock(
                 ArchivedPersistentObjectWithSetter.class);
@@ -51,6 +54,34 @@ public class ArchiveServiceImplTest {
         verify(transactionService, times(1)).registerBeforeCommitCallable(eq(mockBatchArchiveCallable));
     }
 
+    @Test
+    public void should_recordInserts_not_register_beforeCommitCallable_when_records_are_appended_to_the_outbox()
+            throws Exception {
+        final UserTransactionService transactionService = mock(UserTransactionService.class);
+        final ArchiveOutbox archiveOutbox = mock(ArchiveOutbox.class);
+        ArchiveServiceImpl archiveService = new ArchiveServiceImpl(null, null, transactionService, archiveOutbox);
+        ArchiveInsertRecord record = new ArchiveInsertRecord(mock(ArchivedPersistentObjectWithSetter.class));
+        when(archiveOutbox.append(record)).thenReturn(true);
+
+        archiveService.recordInserts(3L, record);
+
+        verify(transactionService, never()).registerBeforeCommitCallable(any());
+    }
+
+    @Test
+    public void should_flush_the_outbox_before_deleting_archives() throws Exception {
+        final PersistenceService persistenceService = mock(PersistenceService.class);
+        final ArchiveOutbox archiveOutbox = mock(ArchiveOutbox.class);
+        ArchiveServiceImpl archiveService = new ArchiveServiceImpl(persistenceService, null,
+                mock(UserTransactionService.class), archiveOutbox);
+
+        archiveService.deleteFromQuery("deleteArchives", emptyMap());
+
+        InOrder inOrder = inOrder(archiveOutbox, persistenceService);
+        inOrder.verify(archiveOutbox).flush();
+        inOrder.verify(persistenceService).update("deleteArchives", emptyMap());
+    }
+
     // Test with exception on TxService
 
     // Seen with Nicolas C. for this "interface extension" :)
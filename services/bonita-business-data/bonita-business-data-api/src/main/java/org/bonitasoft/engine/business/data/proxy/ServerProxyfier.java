@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.business.data.proxy;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -37,6 +38,27 @@ public class ServerProxyfier {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerProxyfier.class);
 
+    /**
+     * Constructor of the proxy class of each entity class. Values are attached to the entity classes themselves, and
+     * proxy classes are defined in the class loader of the entity classes: when the business data model class loader
+     * is refreshed, the new entity classes get new proxy classes, and the old ones are collected with the old class
+     * loader.
+     */
+    private static final ClassValue<Constructor<?>> PROXY_CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+
+        @Override
+        protected Constructor<?> computeValue(final Class<?> classForProxy) {
+            final ProxyFactory factory = new ProxyFactory();
+            factory.setSuperclass(classForProxy);
+            factory.setFilter((Method m) -> true);
+            try {
+                return factory.createClass().getConstructor();
+            } catch (final Exception e) {
+                throw new RuntimeException("Error when creating proxy class of " + classForProxy.getName(), e);
+            }
+        }
+    };
+
     private final ServerLazyLoader lazyLoader;
 
     public ServerProxyfier(final ServerLazyLoader lazyLoader) {
@@ -61,7 +83,6 @@ public class ServerProxyfier {
             return null;
         }
 
-        final ProxyFactory factory = new ProxyFactory();
         Class<?> classForProxy = entity.getClass();
 
         //It's not possible to create a Proxy on a Proxy
@@ -69,10 +90,10 @@ public class ServerProxyfier {
         if (ProxyFactory.isProxyClass(classForProxy)) {
             classForProxy = classForProxy.getSuperclass();
         }
-        factory.setSuperclass(classForProxy);
-        factory.setFilter((Method m) -> true);
         try {
-            return (Entity) factory.create(new Class<?>[0], new Object[0], new LazyMethodHandler(entity, lazyLoader));
+            final Proxy proxy = (Proxy) PROXY_CONSTRUCTORS.get(classForProxy).newInstance();
+            proxy.setHandler(new LazyMethodHandler(entity, lazyLoader));
+            return (Entity) proxy;
         } catch (final Exception e) {
             throw new RuntimeException("Error when proxifying object", e);
         }
@@ -88,7 +109,7 @@ public class ServerProxyfier {
     }
 
     private List<Entity> proxifyEntities(final List<Entity> entities) {
-        final List<Entity> proxies = new ArrayList<>();
+        final List<Entity> proxies = new ArrayList<>(entities.size());
         for (final Entity entity : entities) {
             proxies.add(proxifyEntity(entity));
         }
@@ -22,6 +22,7 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import javassist.util.proxy.MethodHandler;
+import javassist.util.proxy.Proxy;
 import javassist.util.proxy.ProxyFactory;
 import javassist.util.proxy.ProxyObject;
 
@@ -64,6 +65,21 @@ public class ServerProxyfierTest {
         assertThat(proxy).isSameAs(originalProxy);
     }
 
+    @Test
+    public void should_reuse_the_proxy_class_of_an_entity_class() {
+        final PersonEntity person1 = new PersonEntity();
+        final PersonEntity person2 = new PersonEntity();
+
+        final PersonEntity proxy1 = serverProxyfier.proxify(person1);
+        final PersonEntity proxy2 = new ServerProxyfier(lazyLoader).proxify(person2);
+
+        assertThat(proxy2.getClass()).isSameAs(proxy1.getClass());
+        assertThat(((ServerProxyfier.LazyMethodHandler) ProxyFactory.getHandler((Proxy) proxy1)).getEntity())
+                .isSameAs(person1);
+        assertThat(((ServerProxyfier.LazyMethodHandler) ProxyFactory.getHandler((Proxy) proxy2)).getEntity())
+                .isSameAs(person2);
+    }
+
     @Test
     public void should_reproxify_an_hibernate_proxy() throws Exception {
         final ProxyFactory factory = new ProxyFactory();
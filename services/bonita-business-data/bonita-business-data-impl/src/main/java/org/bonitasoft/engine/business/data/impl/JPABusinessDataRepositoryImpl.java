@@ -21,6 +21,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -37,6 +39,8 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.EntityType;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.bonitasoft.engine.bdm.Entity;
 import org.bonitasoft.engine.bdm.model.QueryParameterTypes;
 import org.bonitasoft.engine.bdm.model.field.Field;
@@ -67,6 +71,13 @@ public class JPABusinessDataRepositoryImpl implements BusinessDataRepository, Si
     private static final Logger log = LoggerFactory.getLogger(JPABusinessDataRepositoryImpl.class);
     private static final String BDR_PERSISTENCE_UNIT = "BDR";
 
+    public static final String ENTITIES_PER_QUERY = "bonita.bpmengine.businessdata.find.entities";
+
+    /**
+     * Maximum number of identifiers in the IN clause of a query, Oracle does not accept more than 1000
+     */
+    static final int MAX_IDENTIFIERS_PER_QUERY = 1000;
+
     private final Map<String, Object> configuration;
 
     private EntityManagerFactory entityManagerFactory;
@@ -79,10 +90,16 @@ public class JPABusinessDataRepositoryImpl implements BusinessDataRepository, Si
 
     private final UserTransactionService transactionService;
 
+    private final DistributionSummary entitiesPerQuery;
+
     public JPABusinessDataRepositoryImpl(final UserTransactionService transactionService,
             final BusinessDataModelRepository businessDataModelRepository, final Map<String, Object> configuration,
-            ClassLoaderService classLoaderService, long tenantId) {
+            ClassLoaderService classLoaderService, MeterRegistry meterRegistry, long tenantId) {
         this.transactionService = transactionService;
+        this.entitiesPerQuery = DistributionSummary.builder(ENTITIES_PER_QUERY)
+                .tag("tenant", String.valueOf(tenantId)).baseUnit("entities")
+                .description("Business data entities loaded per query when finding entities by their identifiers")
+                .register(meterRegistry);
         this.businessDataModelRepository = businessDataModelRepository;
         this.classLoaderService = classLoaderService;
         this.tenantId = tenantId;
@@ -218,40 +235,83 @@ public class JPABusinessDataRepositoryImpl implements BusinessDataRepository, Si
         return entity;
     }
 
+    /**
+     * Entities are loaded by chunks of {@value #MAX_IDENTIFIERS_PER_QUERY} identifiers, and returned once each, in the
+     * order of their first identifier in the given list.
+     */
     @Override
     public <T extends Entity> List<T> findByIds(final Class<T> entityClass, final List<Long> primaryKeys) {
         if (primaryKeys == null || primaryKeys.isEmpty()) {
             return new ArrayList<>();
         }
-        final EntityManager em = getEntityManager();
-        try {
-            final CriteriaBuilder cb = em.getCriteriaBuilder();
-            final CriteriaQuery<T> criteriaQuery = cb.createQuery(entityClass);
-            final Root<T> row = criteriaQuery.from(entityClass);
-            criteriaQuery.select(row).where(row.get(Field.PERSISTENCE_ID).in(primaryKeys));
-            return em.createQuery(criteriaQuery).getResultList();
-        } catch (final PersistenceException e) {
-            //wrap in retryable exception because the issue might come from BDR reloading
-            throw new SRetryableException(e);
-        }
+        return new ArrayList<>(loadByIds(entityClass, primaryKeys).values());
     }
 
+    /**
+     * Entities are loaded by chunks of {@value #MAX_IDENTIFIERS_PER_QUERY} identifiers, and returned in the order of
+     * the given identifiers, once per identifier.
+     */
     @Override
     public <T extends Entity> List<T> findByIdentifiers(final Class<T> entityClass, final List<Long> primaryKeys) {
         if (primaryKeys == null || primaryKeys.isEmpty()) {
             return new ArrayList<>();
         }
-        final List<T> entities = new ArrayList<>();
-        for (final Long primaryKey : primaryKeys) {
+        if (primaryKeys.size() == 1) {
+            // the persistence context is checked before querying the database
             try {
-                entities.add(findById(entityClass, primaryKey));
+                return new ArrayList<>(Collections.singletonList(findById(entityClass, primaryKeys.get(0))));
             } catch (final SBusinessDataNotFoundException e) {
-                // If the business data does not exist, do not add it in the result list in order to have the same behaviour as findByIds
+                return new ArrayList<>();
+            }
+        }
+        final Map<Long, T> entitiesById = loadByIds(entityClass, primaryKeys);
+        final List<T> entities = new ArrayList<>(primaryKeys.size());
+        for (final Long primaryKey : primaryKeys) {
+            final T entity = entitiesById.get(primaryKey);
+            // If the business data does not exist, do not add it in the result list in order to have the same behaviour as findByIds
+            if (entity != null) {
+                entities.add(entity);
             }
         }
         return entities;
     }
 
+    /**
+     * @return the entities found, by identifier, in the order of the first occurrence of their identifier
+     */
+    private <T extends Entity> Map<Long, T> loadByIds(final Class<T> entityClass, final List<Long> primaryKeys) {
+        final List<Long> distinctKeys = new ArrayList<>(new LinkedHashSet<>(primaryKeys));
+        distinctKeys.remove(null);
+        final Map<Long, T> foundEntities = new HashMap<>();
+        final EntityManager em = getEntityManager();
+        try {
+            for (int from = 0; from < distinctKeys.size(); from += MAX_IDENTIFIERS_PER_QUERY) {
+                final List<Long> chunk = distinctKeys.subList(from,
+                        Math.min(from + MAX_IDENTIFIERS_PER_QUERY, distinctKeys.size()));
+                final CriteriaBuilder cb = em.getCriteriaBuilder();
+                final CriteriaQuery<T> criteriaQuery = cb.createQuery(entityClass);
+                final Root<T> row = criteriaQuery.from(entityClass);
+                criteriaQuery.select(row).where(row.get(Field.PERSISTENCE_ID).in(chunk));
+                final List<T> resultList = em.createQuery(criteriaQuery).getResultList();
+                for (final T entity : resultList) {
+                    foundEntities.put(entity.getPersistenceId(), entity);
+                }
+                entitiesPerQuery.record(resultList.size());
+            }
+        } catch (final PersistenceException e) {
+            //wrap in retryable exception because the issue might come from BDR reloading
+            throw new SRetryableException(e);
+        }
+        final Map<Long, T> entitiesById = new LinkedHashMap<>();
+        for (final Long primaryKey : distinctKeys) {
+            final T entity = foundEntities.get(primaryKey);
+            if (entity != null) {
+                entitiesById.put(primaryKey, entity);
+            }
+        }
+        return entitiesById;
+    }
+
     protected <T extends Serializable> T find(final Class<T> resultClass, final TypedQuery<T> query,
             final Map<String, Serializable> parameters)
             throws NonUniqueResultException {
@@ -28,6 +28,7 @@ import javax.sql.DataSource;
 import javax.transaction.UserTransaction;
 
 import com.company.pojo.Employee;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.business.data.JpaTestConfiguration;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.dependency.DependencyService;
@@ -82,7 +83,7 @@ public class ConcurrencyTest {
         final UserTransactionService transactionService = mock(UserTransactionService.class);
         businessDataRepository = spy(
                 new JPABusinessDataRepositoryImpl(transactionService, businessDataModelRepositoryImpl,
-                        configuration.getJpaConfiguration(), classLoaderService, 1L));
+                        configuration.getJpaConfiguration(), classLoaderService, new SimpleMeterRegistry(), 1L));
         doReturn(true).when(businessDataModelRepositoryImpl).isBDMDeployed();
 
         ut = com.arjuna.ats.jta.UserTransaction.userTransaction();
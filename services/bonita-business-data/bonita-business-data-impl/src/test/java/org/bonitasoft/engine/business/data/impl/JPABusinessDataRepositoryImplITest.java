@@ -34,6 +34,7 @@ import javax.transaction.UserTransaction;
 
 import com.company.pojo.Employee;
 import com.company.pojo.Person;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.business.data.JpaTestConfiguration;
 import org.bonitasoft.engine.business.data.NonUniqueResultException;
 import org.bonitasoft.engine.business.data.SBusinessDataNotFoundException;
@@ -95,7 +96,7 @@ public class JPABusinessDataRepositoryImplITest {
                         classLoaderService, schemaManager, mock(TenantResourcesService.class), TENANT_ID));
         businessDataRepository = spy(
                 new JPABusinessDataRepositoryImpl(transactionService, businessDataModelRepositoryImpl,
-                        configuration.getJpaConfiguration(), classLoaderService, 1L));
+                        configuration.getJpaConfiguration(), classLoaderService, new SimpleMeterRegistry(), 1L));
         doReturn(true).when(businessDataModelRepositoryImpl).isBDMDeployed();
         ut = com.arjuna.ats.jta.UserTransaction.userTransaction();
         ut.begin();
@@ -203,6 +204,18 @@ public class JPABusinessDataRepositoryImplITest {
         assertThat(emps).doesNotContain(emp3);
     }
 
+    @Test
+    public void should_get_employees_by_identifiers_in_the_order_of_identifiers() throws Exception {
+        Employee emp1 = addEmployeeToRepository(anEmployee().build());
+        Employee emp2 = addEmployeeToRepository(anEmployee().build());
+        addEmployeeToRepository(anEmployee().build());
+
+        List<Employee> emps = businessDataRepository.findByIdentifiers(Employee.class,
+                Arrays.asList(emp2.getPersistenceId(), -1L, emp1.getPersistenceId(), emp2.getPersistenceId()));
+
+        assertThat(emps).containsExactly(emp2, emp1, emp2);
+    }
+
     @Test
     public void should_return_an_empty_list_when_getting_entities_with_empty_ids_list() throws Exception {
         ArrayList<Long> emptyIdsList = new ArrayList<>();
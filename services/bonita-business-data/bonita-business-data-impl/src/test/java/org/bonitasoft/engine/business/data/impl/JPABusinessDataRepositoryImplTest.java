@@ -20,8 +20,11 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
@@ -34,6 +37,7 @@ import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Root;
 import javax.persistence.criteria.Selection;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.bdm.Entity;
 import org.bonitasoft.engine.business.data.BusinessDataModelRepository;
 import org.bonitasoft.engine.business.data.SBusinessDataNotFoundException;
@@ -71,10 +75,12 @@ public class JPABusinessDataRepositoryImplTest {
 
     private JPABusinessDataRepositoryImpl realJPABusinessDataRepository;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @Before
     public void setUp() {
         realJPABusinessDataRepository = new JPABusinessDataRepositoryImpl(transactionService,
-                businessDataModelRepository, configuration, classLoaderService, 1L);
+                businessDataModelRepository, configuration, classLoaderService, meterRegistry, 1L);
         repository = spy(
                 realJPABusinessDataRepository);
         doReturn(manager).when(repository).getEntityManager();
@@ -182,6 +188,40 @@ public class JPABusinessDataRepositoryImplTest {
         //then exception
     }
 
+    @Test
+    public void findByIdentifiers_should_load_several_entities_with_a_single_query_in_the_order_of_identifiers() {
+        final Address address1 = new Address(1L);
+        final Address address3 = new Address(3L);
+        TypedQuery typedQuery = mock(TypedQuery.class);
+        doReturn(Arrays.asList(address3, address1)).when(typedQuery).getResultList();
+        doReturn(typedQuery).when(manager).createQuery(any(CriteriaQuery.class));
+
+        final List<Address> addresses = repository.findByIdentifiers(Address.class, Arrays.asList(1L, 2L, 3L, 1L));
+
+        assertThat(addresses).containsExactly(address1, address3, address1);
+        verify(manager).createQuery(any(CriteriaQuery.class));
+        verify(manager, never()).find(any(), any());
+        assertThat(meterRegistry.find(JPABusinessDataRepositoryImpl.ENTITIES_PER_QUERY).summary().totalAmount())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void findByIds_should_load_entities_by_chunks_of_identifiers() {
+        final List<Long> identifiers = new ArrayList<>();
+        for (long id = 1; id <= 2 * JPABusinessDataRepositoryImpl.MAX_IDENTIFIERS_PER_QUERY + 1; id++) {
+            identifiers.add(id);
+        }
+        TypedQuery typedQuery = mock(TypedQuery.class);
+        doReturn(Collections.singletonList(new Address(2L)), Collections.emptyList(),
+                Collections.singletonList(new Address(identifiers.size()))).when(typedQuery).getResultList();
+        doReturn(typedQuery).when(manager).createQuery(any(CriteriaQuery.class));
+
+        final List<Address> addresses = repository.findByIds(Address.class, identifiers);
+
+        assertThat(addresses).extracting(Address::getPersistenceId).containsExactly(2L, (long) identifiers.size());
+        verify(manager, times(3)).createQuery(any(CriteriaQuery.class));
+    }
+
     @Test(expected = SRetryableException.class)
     public void should_findByNamedQuery_throw_retryable_when_persistenceException() throws Exception {
         //given
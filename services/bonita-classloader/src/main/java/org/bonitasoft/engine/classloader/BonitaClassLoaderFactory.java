@@ -36,8 +36,16 @@ public class BonitaClassLoaderFactory {
     static BonitaClassLoader createClassLoader(Stream<BonitaResource> resources, ClassLoaderIdentifier id,
             URI temporaryDirectoryUri,
             ClassLoader parent) throws IOException {
+        return createClassLoader(resources, id, temporaryDirectoryUri, parent, null);
+    }
+
+    /**
+     * @param jarStore store where jars are taken from instead of being written in the temporary directory, or null
+     */
+    static BonitaClassLoader createClassLoader(Stream<BonitaResource> resources, ClassLoaderIdentifier id,
+            URI temporaryDirectoryUri, ClassLoader parent, JarStore jarStore) throws IOException {
         File temporaryDirectory = createTemporaryDirectory(temporaryDirectoryUri);
-        Map<String, File> allFiles = writeResourcesOnFileSystem(resources, temporaryDirectory);
+        Map<String, File> allFiles = writeResourcesOnFileSystem(resources, temporaryDirectory, jarStore);
         Set<File> jars = allFiles.entrySet().stream().filter(u -> jarMatcher.matcher(u.getKey()).matches())
                 .map(Map.Entry::getValue).collect(Collectors.toSet());
         Map<String, File> nonJarResources = allFiles.entrySet().stream()
@@ -55,9 +63,12 @@ public class BonitaClassLoaderFactory {
     }
 
     private static Map<String, File> writeResourcesOnFileSystem(final Stream<BonitaResource> resources,
-            File temporaryDirectory) {
+            File temporaryDirectory, JarStore jarStore) {
         return resources.map(resource -> {
             try {
+                if (jarStore != null && jarStore.isEnabled() && jarMatcher.matcher(resource.getName()).matches()) {
+                    return Pair.of(resource.getName(), jarStore.getJar(resource.getContent()));
+                }
                 return writeResource(resource, temporaryDirectory);
             } catch (final IOException e) {
                 throw new BonitaRuntimeException(e);
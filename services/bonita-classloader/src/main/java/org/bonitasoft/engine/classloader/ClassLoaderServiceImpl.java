@@ -69,13 +69,15 @@ public class ClassLoaderServiceImpl implements ClassLoaderService {
     private final UserTransactionService userTransactionService;
     private final BroadcastService broadcastService;
     private final ClassLoaderUpdater classLoaderUpdater;
+    private final JarStore jarStore;
 
     public ClassLoaderServiceImpl(final ParentClassLoaderResolver parentClassLoaderResolver,
             @Qualifier("platformEventService") EventService eventService,
             PlatformDependencyService platformDependencyService,
             SessionAccessor sessionAccessor,
             UserTransactionService userTransactionService, BroadcastService broadcastService,
-            ClassLoaderUpdater classLoaderUpdater, List<PlatformClassLoaderListener> platformClassLoaderListeners) {
+            ClassLoaderUpdater classLoaderUpdater, List<PlatformClassLoaderListener> platformClassLoaderListeners,
+            JarStore jarStore) {
         this.parentClassLoaderResolver = parentClassLoaderResolver;
         this.eventService = eventService;
         this.platformDependencyService = platformDependencyService;
@@ -84,6 +86,7 @@ public class ClassLoaderServiceImpl implements ClassLoaderService {
         this.broadcastService = broadcastService;
         this.classLoaderUpdater = classLoaderUpdater;
         this.platformClassLoaderListeners.addAll(platformClassLoaderListeners);
+        this.jarStore = jarStore;
     }
 
     @Override
@@ -181,7 +184,7 @@ public class ClassLoaderServiceImpl implements ClassLoaderService {
         log.debug("Creating classloader {}", id);
         BonitaClassLoader classLoader = BonitaClassLoaderFactory.createClassLoader(getDependencies(id), id,
                 getLocalTemporaryFolder(id),
-                getParentClassLoader(id));
+                getParentClassLoader(id), jarStore);
         log.info("Created classloader {}: {}", id, classLoader);
         return classLoader;
     }
@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.classloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bonitasoft.engine.exception.BonitaRuntimeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Store of the jars of the classloaders on disk, where each jar is written once under the SHA-256 checksum of its
+ * content.
+ * <p>
+ * Classloaders having the same dependency use the same file, and the store is kept when the node restarts: a jar
+ * already in the store is checked once per JVM against its checksum, then reused without being written again. Jars
+ * are written to a temporary file that is then renamed, so that several nodes of the same host can share the store.
+ * <p>
+ * As jars of the store are loaded without being checked again, the store must only be writable by the user running
+ * the node: the default folder is created with owner only permissions, and the store fails to start when its folder
+ * belongs to another user or is writable by others.
+ * <p>
+ * Each node holds a shared lock on the lock file of the store while it runs. Jars that were not used by a classloader
+ * during {@code unusedRetention} are removed when the store is created, only if no other node holds that lock: jars
+ * of a store shared by running nodes are never removed.
+ * <p>
+ * When the store is disabled, jars are written in the temporary folder of each classloader.
+ */
+@Slf4j
+@Component
+class JarStore {
+
+    private static final String JAR_EXTENSION = ".jar";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final String LOCK_FILE = "jar_store.lock";
+
+    private final Path folder;
+    private final Set<String> checkedChecksums = ConcurrentHashMap.newKeySet();
+    private FileChannel lockFile;
+    private FileLock usedByThisNode;
+
+    JarStore(@Value("${bonita.platform.classloader.jarStore.enabled:false}") boolean enabled,
+            @Value("${bonita.platform.classloader.jarStore.folder:}") String folder,
+            @Value("${bonita.platform.classloader.jarStore.unusedRetention:P30D}") String unusedRetention) {
+        if (!enabled) {
+            this.folder = null;
+            return;
+        }
+        this.folder = folder.isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "bonita_jar_store_" + System.getProperty("user.name"))
+                : Paths.get(folder);
+        try {
+            createFolder();
+            checkFolder();
+            lockFile = FileChannel.open(this.folder.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            removeUnusedFilesIfNotShared(Duration.parse(unusedRetention));
+            usedByThisNode = lockAsUsed();
+        } catch (IOException e) {
+            close();
+            throw new BonitaRuntimeException("Unable to initialize the jar store in " + this.folder, e);
+        }
+        log.info("Jars of the classloaders are stored in {}", this.folder);
+    }
+
+    private void createFolder() throws IOException {
+        if (Files.exists(folder)) {
+            return;
+        }
+        if (folder.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(folder, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(
+                    "rwx------")));
+        } else {
+            Files.createDirectories(folder);
+        }
+    }
+
+    /**
+     * Check that the folder belongs to the user running the node, and that other users can not write in it
+     */
+    private void checkFolder() throws IOException {
+        Path ownedFile = Files.createTempFile(folder, "owner", TEMPORARY_EXTENSION);
+        try {
+            if (!Files.getOwner(folder).equals(Files.getOwner(ownedFile))) {
+                throw new BonitaRuntimeException("The jar store folder " + folder + " belongs to "
+                        + Files.getOwner(folder) + " instead of to the user running the node "
+                        + Files.getOwner(ownedFile));
+            }
+        } finally {
+            Files.deleteIfExists(ownedFile);
+        }
+        PosixFileAttributeView attributes = Files.getFileAttributeView(folder, PosixFileAttributeView.class);
+        if (attributes != null
+                && attributes.readAttributes().permissions().contains(PosixFilePermission.OTHERS_WRITE)) {
+            throw new BonitaRuntimeException("The jar store folder " + folder + " must not be writable by others");
+        }
+    }
+
+    /**
+     * @return the exclusive lock, or null if another node uses the store
+     */
+    private FileLock tryLockAsNotShared() throws IOException {
+        try {
+            return lockFile.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // another store of this JVM uses the folder
+            return null;
+        }
+    }
+
+    /**
+     * Lock the store as used by this node until it stops, waiting for another node that removes unused jars
+     *
+     * @return the shared lock, or null if another store of this JVM already holds it
+     */
+    private FileLock lockAsUsed() throws IOException {
+        try {
+            return lockFile.lock(0, Long.MAX_VALUE, true);
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            if (usedByThisNode != null) {
+                usedByThisNode.release();
+            }
+            if (lockFile != null) {
+                lockFile.close();
+            }
+        } catch (IOException e) {
+            log.debug("Unable to release the lock of the jar store {}", folder, e);
+        }
+        usedByThisNode = null;
+        lockFile = null;
+    }
+
+    boolean isEnabled() {
+        return folder != null;
+    }
+
+    /**
+     * @return the file of the store having the given content, written in the store if it is not there yet
+     */
+    File getJar(byte[] content) throws IOException {
+        String checksum = checksum(content);
+        Path jar = folder.resolve(checksum + JAR_EXTENSION);
+        if (Files.exists(jar) && (checkedChecksums.contains(checksum) || checksum(Files.readAllBytes(jar))
+                .equals(checksum))) {
+            checkedChecksums.add(checksum);
+            markAsUsed(jar);
+            return jar.toFile();
+        }
+        Path temporaryFile = Files.createTempFile(folder, checksum, TEMPORARY_EXTENSION);
+        try {
+            Files.write(temporaryFile, content);
+            Files.move(temporaryFile, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // another node may have written the same jar, and some file systems do not replace an open file
+            if (!Files.exists(jar) || Files.size(jar) != content.length) {
+                throw e;
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        checkedChecksums.add(checksum);
+        log.debug("Jar {} written in the store", jar);
+        return jar.toFile();
+    }
+
+    private void markAsUsed(Path jar) {
+        try {
+            Files.setLastModifiedTime(jar, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.debug("Unable to update the last modification time of {}", jar, e);
+        }
+    }
+
+    private void removeUnusedFilesIfNotShared(Duration unusedRetention) throws IOException {
+        FileLock notUsedByOtherNodes = tryLockAsNotShared();
+        if (notUsedByOtherNodes == null) {
+            log.info("Jar store {} is used by other nodes, unused jars are not removed", folder);
+            return;
+        }
+        try {
+            removeUnusedFiles(unusedRetention);
+        } finally {
+            notUsedByOtherNodes.release();
+        }
+    }
+
+    private void removeUnusedFiles(Duration unusedRetention) throws IOException {
+        Instant unusedSince = Instant.now().minus(unusedRetention);
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder,
+                "*{" + JAR_EXTENSION + "," + TEMPORARY_EXTENSION + "}")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(unusedSince) && Files.deleteIfExists(file)) {
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            log.info("Removed {} jars not used since {} from the jar store", removed, unusedSince);
+        }
+    }
+
+    static String checksum(byte[] content) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return String.format("%064x", new BigInteger(1, messageDigest.digest(content)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is available in all JVMs
+            throw new IllegalStateException(e);
+        }
+    }
+}
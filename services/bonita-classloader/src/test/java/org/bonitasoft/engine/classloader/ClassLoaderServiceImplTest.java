@@ -96,7 +96,8 @@ public class ClassLoaderServiceImplTest {
         classLoaderService = new ClassLoaderServiceImpl(new ParentClassLoaderResolver(sessionAccessor),
                 eventService,
                 platformDependencyService, sessionAccessor, userTransactionService, broadcastService,
-                classLoaderUpdater, Arrays.asList(platformClassLoaderListener1, platformClassLoaderListener2));
+                classLoaderUpdater, Arrays.asList(platformClassLoaderListener1, platformClassLoaderListener2),
+                new JarStore(false, "", "P30D"));
 
         when(classLoaderUpdater.initializeClassLoader(eq(classLoaderService), any()))
                 .thenAnswer(a -> classLoaderService.createClassloader(a.getArgument(1)));
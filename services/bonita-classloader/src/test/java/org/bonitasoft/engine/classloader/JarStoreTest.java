@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.classloader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.bonitasoft.engine.classloader.ClassLoaderIdentifier.identifier;
+import static org.bonitasoft.engine.dependency.model.ScopeType.PROCESS;
+import static org.bonitasoft.engine.home.BonitaResource.resource;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import org.bonitasoft.engine.exception.BonitaRuntimeException;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_write_a_content_once_under_its_checksum() throws Exception {
+        File folder = temporaryFolder.newFolder();
+        JarStore jarStore = new JarStore(true, folder.getAbsolutePath(), "P30D");
+
+        File jar1 = jarStore.getJar("content".getBytes());
+        File jar2 = jarStore.getJar("content".getBytes());
+        File otherJar = jarStore.getJar("other content".getBytes());
+
+        assertThat(jar1).isEqualTo(jar2).hasBinaryContent("content".getBytes())
+                .hasName(JarStore.checksum("content".getBytes()) + ".jar");
+        assertThat(otherJar).isNotEqualTo(jar1).hasBinaryContent("other content".getBytes());
+        assertThat(folder.list((dir, name) -> name.endsWith(".jar"))).hasSize(2);
+    }
+
+    @Test
+    public void should_reuse_jars_written_before_a_restart() throws Exception {
+        File folder = temporaryFolder.newFolder();
+        File jar = new JarStore(true, folder.getAbsolutePath(), "P30D").getJar("content".getBytes());
+        FileTime lastModifiedTime = FileTime.from(Instant.now().minus(Duration.ofDays(1)));
+        Files.setLastModifiedTime(jar.toPath(), lastModifiedTime);
+
+        File reusedJar = new JarStore(true, folder.getAbsolutePath(), "P30D").getJar("content".getBytes());
+
+        assertThat(reusedJar).isEqualTo(jar).hasBinaryContent("content".getBytes());
+        assertThat(Files.getLastModifiedTime(reusedJar.toPath())).isGreaterThan(lastModifiedTime);
+    }
+
+    @Test
+    public void should_rewrite_a_jar_that_does_not_match_its_checksum() throws Exception {
+        File folder = temporaryFolder.newFolder();
+        File jar = new JarStore(true, folder.getAbsolutePath(), "P30D").getJar("content".getBytes());
+        Files.write(jar.toPath(), "altered content".getBytes());
+
+        File rewrittenJar = new JarStore(true, folder.getAbsolutePath(), "P30D").getJar("content".getBytes());
+
+        assertThat(rewrittenJar).isEqualTo(jar).hasBinaryContent("content".getBytes());
+    }
+
+    @Test
+    public void should_remove_jars_not_used_during_the_retention_when_created() throws Exception {
+        File folder = temporaryFolder.newFolder();
+        JarStore jarStore = new JarStore(true, folder.getAbsolutePath(), "P30D");
+        File unusedJar = jarStore.getJar("unused".getBytes());
+        File usedJar = jarStore.getJar("used".getBytes());
+        Files.setLastModifiedTime(unusedJar.toPath(), FileTime.from(Instant.now().minus(Duration.ofDays(31))));
+        jarStore.close();
+
+        new JarStore(true, folder.getAbsolutePath(), "P30D").close();
+
+        assertThat(unusedJar).doesNotExist();
+        assertThat(usedJar).exists();
+    }
+
+    @Test
+    public void should_not_remove_unused_jars_while_the_store_is_used_by_another_node() throws Exception {
+        File folder = temporaryFolder.newFolder();
+        JarStore jarStore = new JarStore(true, folder.getAbsolutePath(), "P30D");
+        File unusedJar = jarStore.getJar("unused".getBytes());
+        Files.setLastModifiedTime(unusedJar.toPath(), FileTime.from(Instant.now().minus(Duration.ofDays(31))));
+
+        new JarStore(true, folder.getAbsolutePath(), "P30D").close();
+
+        assertThat(unusedJar).exists();
+        jarStore.close();
+    }
+
+    @Test
+    public void should_refuse_a_folder_writable_by_others() throws Exception {
+        File folder = temporaryFolder.newFolder();
+        Assume.assumeTrue(folder.toPath().getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Files.setPosixFilePermissions(folder.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        assertThatThrownBy(() -> new JarStore(true, folder.getAbsolutePath(), "P30D"))
+                .isInstanceOf(BonitaRuntimeException.class).hasMessageContaining("writable by others");
+    }
+
+    @Test
+    public void should_share_jars_between_classloaders_and_keep_them_when_classloaders_are_destroyed()
+            throws Exception {
+        JarStore jarStore = new JarStore(true, temporaryFolder.newFolder().getAbsolutePath(), "P30D");
+        File classLoadersFolder = temporaryFolder.newFolder();
+        byte[] jarContent = Files.readAllBytes(new File("src/test/resources/UOSFaasApplication.jar").toPath());
+
+        BonitaClassLoader classLoader1 = BonitaClassLoaderFactory.createClassLoader(
+                Stream.of(resource("app.jar", jarContent)), identifier(PROCESS, 1L), classLoadersFolder.toURI(),
+                JarStoreTest.class.getClassLoader(), jarStore);
+        BonitaClassLoader classLoader2 = BonitaClassLoaderFactory.createClassLoader(
+                Stream.of(resource("app.jar", jarContent)), identifier(PROCESS, 2L), classLoadersFolder.toURI(),
+                JarStoreTest.class.getClassLoader(), jarStore);
+
+        assertThat(classLoader1.getURLs()).containsExactly(classLoader2.getURLs());
+        classLoader1.destroy();
+        assertThat(classLoader2.loadClass("au.edu.sydney.faas.applicationstudent.StudentInformation")).isNotNull();
+        assertThat(new File(classLoader2.getURLs()[0].toURI())).exists();
+        classLoader2.destroy();
+    }
+}
@@ -63,4 +63,14 @@ public interface SConnector {
      * @throws SConnectorException
      */
     void disconnect() throws SConnectorException;
+
+    /**
+     * Name of the implementation of this connector. The executions of connectors having the same implementation name
+     * are limited and monitored together.
+     *
+     * @return the name of the implementation of this connector
+     */
+    default String getImplementationName() {
+        return getClass().getName();
+    }
 }
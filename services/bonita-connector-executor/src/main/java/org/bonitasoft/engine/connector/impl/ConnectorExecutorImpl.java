@@ -22,9 +22,12 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -61,6 +64,7 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
     public static final String NUMBER_OF_CONNECTORS_PENDING = "bonita.bpmengine.connector.pending";
     public static final String NUMBER_OF_CONNECTORS_RUNNING = "bonita.bpmengine.connector.running";
     public static final String NUMBER_OF_CONNECTORS_EXECUTED = "bonita.bpmengine.connector.executed";
+    public static final String NUMBER_OF_CONNECTORS_IN_FLIGHT = "bonita.bpmengine.connector.inflight";
 
     private ExecutorService executorService;
 
@@ -76,6 +80,10 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
 
     private final long keepAliveTimeSeconds;
 
+    private final boolean virtualThreadsEnabled;
+
+    private final int maxConcurrencyPerImplementation;
+
     private final TimeTracker timeTracker;
     private MeterRegistry meterRegistry;
     private long tenantId;
@@ -85,6 +93,10 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
     private Counter executedWorkCounter;
     private Gauge numberOfConnectorsPending;
     private Gauge numberOfConnectorsRunning;
+    private final AtomicLong pendingWorks = new AtomicLong();
+    private final Map<String, ImplementationExecutions> executionsPerImplementation = new ConcurrentHashMap<>();
+    // the queue of the thread pool, null when connectors are executed on virtual threads
+    private BlockingQueue<Runnable> workQueue;
 
     /**
      * The handling of threads relies on the JVM
@@ -107,15 +119,26 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
      *        when the number of threads is greater than
      *        the core, this is the maximum time that excess idle threads
      *        will wait for new tasks before terminating. (in seconds)
+     * @param virtualThreadsEnabled
+     *        execute each connector on its own virtual thread instead of on the thread pool, when the JVM supports
+     *        virtual threads. A virtual thread does not hold a platform thread while the connector waits for a remote
+     *        system. The pool settings are only used when the JVM does not support virtual threads.
+     * @param maxConcurrencyPerImplementation
+     *        the maximum number of connectors having the same implementation that execute at the same time on
+     *        virtual threads, no limit if it is not positive. Other connectors of the implementation wait for a
+     *        permit on their virtual thread.
      */
     public ConnectorExecutorImpl(final int queueCapacity, final int corePoolSize,
-            final int maximumPoolSize, final long keepAliveTimeSeconds, final SessionAccessor sessionAccessor,
+            final int maximumPoolSize, final long keepAliveTimeSeconds, final boolean virtualThreadsEnabled,
+            final int maxConcurrencyPerImplementation, final SessionAccessor sessionAccessor,
             final SessionService sessionService, final TimeTracker timeTracker, final MeterRegistry meterRegistry,
             long tenantId, ExecutorServiceMetricsProvider executorServiceMetricsProvider) {
         this.queueCapacity = queueCapacity;
         this.corePoolSize = corePoolSize;
         this.maximumPoolSize = maximumPoolSize;
         this.keepAliveTimeSeconds = keepAliveTimeSeconds;
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+        this.maxConcurrencyPerImplementation = maxConcurrencyPerImplementation;
         this.sessionAccessor = sessionAccessor;
         this.sessionService = sessionService;
         this.timeTracker = timeTracker;
@@ -145,9 +168,10 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
 
     protected CompletableFuture<ConnectorExecutionResult> execute(SConnector sConnector,
             InterruptibleCallable<Map<String, Object>> task) {
+        ImplementationExecutions executions = getExecutions(sConnector.getImplementationName());
         return CompletableFuture.supplyAsync(() -> {
             try {
-                return wrapForStats(task).call();
+                return wrapForStats(task, executions).call();
             } catch (Throwable e) {
                 disconnectSilently(sConnector);
                 throw new SBonitaRuntimeException(e);
@@ -155,31 +179,74 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
         }, executorService);
     }
 
-    private Callable<ConnectorExecutionResult> wrapForStats(final Callable<Map<String, Object>> task) {
+    private Callable<ConnectorExecutionResult> wrapForStats(final Callable<Map<String, Object>> task,
+            final ImplementationExecutions executions) {
         return () -> {
+            if (executions.permits != null) {
+                pendingWorks.incrementAndGet();
+                try {
+                    // an interruption while waiting is handled like an interruption of the connector
+                    executions.permits.acquire();
+                } finally {
+                    pendingWorks.decrementAndGet();
+                }
+            }
             runningWorks.incrementAndGet();
+            executions.inFlight.incrementAndGet();
             try {
                 long startTime = System.currentTimeMillis();
                 Map<String, Object> call = task.call();
                 executedWorkCounter.increment();
                 return result(call).tookMillis(System.currentTimeMillis() - startTime);
             } finally {
+                executions.inFlight.decrementAndGet();
                 runningWorks.decrementAndGet();
+                if (executions.permits != null) {
+                    executions.permits.release();
+                }
             }
         };
     }
 
+    private ImplementationExecutions getExecutions(String implementationName) {
+        ImplementationExecutions executions = executionsPerImplementation.get(implementationName);
+        if (executions == null) {
+            executions = executionsPerImplementation.computeIfAbsent(implementationName,
+                    ImplementationExecutions::new);
+        }
+        return executions;
+    }
+
+    /**
+     * Connectors of an implementation currently executing, and the permits limiting them when connectors are
+     * executed on virtual threads.
+     */
+    private final class ImplementationExecutions {
+
+        private final AtomicLong inFlight = new AtomicLong();
+        private final Semaphore permits;
+        private final Gauge inFlightGauge;
+
+        private ImplementationExecutions(String implementationName) {
+            permits = workQueue == null && maxConcurrencyPerImplementation > 0
+                    ? new Semaphore(maxConcurrencyPerImplementation, true)
+                    : null;
+            inFlightGauge = Gauge.builder(NUMBER_OF_CONNECTORS_IN_FLIGHT, inFlight, AtomicLong::get)
+                    .tags(Tags.of("tenant", String.valueOf(tenantId), "connector", implementationName))
+                    .baseUnit("connectors").description("Connectors of an implementation currently executing")
+                    .register(meterRegistry);
+        }
+    }
+
     private void track(final TimeTrackerRecords recordName, final long startTime, final SConnector sConnector,
             final Map<String, Object> inputParameters) {
         if (timeTracker.isTrackable(recordName)) {
             final long endTime = System.currentTimeMillis();
-            final StringBuilder desc = new StringBuilder();
-            desc.append("Connector: ");
-            desc.append(sConnector);
-            desc.append(" - ");
-            desc.append("inputParameters: ");
-            desc.append(inputParameters);
-            timeTracker.track(recordName, desc.toString(), endTime - startTime);
+            // only the names of the inputs are kept, records must not retain the connector and the input values
+            final String connector = String.valueOf(sConnector);
+            final String inputNames = String.valueOf(inputParameters == null ? null : inputParameters.keySet());
+            timeTracker.track(recordName, () -> "Connector: " + connector + " - " + "inputParameters: " + inputNames,
+                    endTime - startTime);
         }
     }
 
@@ -304,20 +371,30 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
     @Override
     public void start() {
         if (executorService == null) {
-            final BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(queueCapacity);
-            final RejectedExecutionHandler handler = new QueueRejectedExecutionHandler();
-            final ConnectorExecutorThreadFactory threadFactory = new ConnectorExecutorThreadFactory(
-                    "ConnectorExecutor");
-            executorService = executorServiceMetricsProvider
-                    .bind(meterRegistry,
-                            new ThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTimeSeconds,
-                                    TimeUnit.SECONDS,
-                                    workQueue, threadFactory, handler),
-                            "bonita-connector-executor", tenantId);
             Tags tags = Tags.of("tenant", String.valueOf(tenantId));
-            numberOfConnectorsPending = Gauge.builder(NUMBER_OF_CONNECTORS_PENDING, workQueue, Collection::size)
-                    .tags(tags).baseUnit("connectors").description("Connectors pending in the execution queue")
-                    .register(meterRegistry);
+            executorService = virtualThreadsEnabled ? newVirtualThreadPerTaskExecutor() : null;
+            if (executorService == null) {
+                workQueue = new ArrayBlockingQueue<>(queueCapacity);
+                final RejectedExecutionHandler handler = new QueueRejectedExecutionHandler();
+                final ConnectorExecutorThreadFactory threadFactory = new ConnectorExecutorThreadFactory(
+                        "ConnectorExecutor");
+                executorService = executorServiceMetricsProvider
+                        .bind(meterRegistry,
+                                new ThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTimeSeconds,
+                                        TimeUnit.SECONDS,
+                                        workQueue, threadFactory, handler),
+                                "bonita-connector-executor", tenantId);
+                numberOfConnectorsPending = Gauge.builder(NUMBER_OF_CONNECTORS_PENDING, workQueue, Collection::size)
+                        .tags(tags).baseUnit("connectors").description("Connectors pending in the execution queue")
+                        .register(meterRegistry);
+            } else {
+                log.info("Connectors are executed on virtual threads, at most {} at the same time per implementation",
+                        maxConcurrencyPerImplementation > 0 ? maxConcurrencyPerImplementation : "unlimited");
+                numberOfConnectorsPending = Gauge.builder(NUMBER_OF_CONNECTORS_PENDING, pendingWorks, AtomicLong::get)
+                        .tags(tags).baseUnit("connectors")
+                        .description("Connectors waiting for the execution of other connectors of their implementation")
+                        .register(meterRegistry);
+            }
             numberOfConnectorsRunning = Gauge.builder(NUMBER_OF_CONNECTORS_RUNNING, runningWorks, AtomicLong::get)
                     .tags(tags).baseUnit("connectors").description("Connectors currently executing")
                     .register(meterRegistry);
@@ -327,6 +404,20 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
         }
     }
 
+    /**
+     * @return an executor starting a virtual thread per task, or null if the JVM does not support virtual threads
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            // virtual threads are called reflectively, the engine still runs on JVMs that do not have them
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Virtual threads are not supported by this JVM ({}), connectors are executed on the thread pool",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+
     // For unit tests
     ExecutorService getExecutorService() {
         return executorService;
@@ -338,7 +429,12 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
             meterRegistry.remove(executedWorkCounter);
             meterRegistry.remove(numberOfConnectorsRunning);
             meterRegistry.remove(numberOfConnectorsPending);
-            executorServiceMetricsProvider.unbind(meterRegistry, "bonita-connector-executor", tenantId);
+            executionsPerImplementation.values().forEach(executions -> meterRegistry.remove(executions.inFlightGauge));
+            executionsPerImplementation.clear();
+            if (workQueue != null) {
+                executorServiceMetricsProvider.unbind(meterRegistry, "bonita-connector-executor", tenantId);
+                workQueue = null;
+            }
 
             executorService.shutdown();
             try {
@@ -56,7 +56,7 @@ public class ConnectorExecutorImplIT {
 
     @Before
     public void setUp() {
-        connectorExecutor = new ConnectorExecutorImpl(10, 5, 100, 100, sessionAccessor,
+        connectorExecutor = new ConnectorExecutorImpl(10, 5, 100, 100, false, 0, sessionAccessor,
                 sessionService,
                 timeTracker, new SimpleMeterRegistry(), 12L, new DefaultExecutorServiceMetricsProvider());
         connectorExecutor.start();
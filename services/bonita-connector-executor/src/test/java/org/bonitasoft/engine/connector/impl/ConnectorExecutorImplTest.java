@@ -15,6 +15,7 @@ package org.bonitasoft.engine.connector.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.*;
 
 import java.time.Duration;
@@ -72,7 +73,7 @@ public class ConnectorExecutorImplTest {
                 // So that micrometer updates its counters every 1 ms:
                 k -> k.equals("simple.step") ? Duration.ofMillis(1).toString() : null,
                 Clock.SYSTEM);
-        connectorExecutorImpl = new ConnectorExecutorImpl(1, 1, 1, 1, sessionAccessor, sessionService,
+        connectorExecutorImpl = new ConnectorExecutorImpl(1, 1, 1, 1, false, 0, sessionAccessor, sessionService,
                 timeTracker,
                 meterRegistry, TENANT_ID, new DefaultExecutorServiceMetricsProvider());
 
@@ -271,6 +272,53 @@ public class ConnectorExecutorImplTest {
                         .gauge()).isNotNull();
     }
 
+    @Test
+    public void should_count_connectors_in_flight_per_implementation() throws Exception {
+        connectorExecutorImpl.execute(new LocalSConnector(2), new HashMap<>(),
+                Thread.currentThread().getContextClassLoader());
+        TimeUnit.MILLISECONDS.sleep(50); // give some time to consider the connector to process
+
+        assertThat(meterRegistry.find(ConnectorExecutorImpl.NUMBER_OF_CONNECTORS_IN_FLIGHT)
+                .tag("tenant", String.valueOf(TENANT_ID))
+                .tag("connector", LocalSConnector.class.getName()).gauge().value())
+                .as("In flight connectors number").isEqualTo(1);
+    }
+
+    @Test
+    public void should_limit_connectors_of_an_implementation_executing_on_virtual_threads() throws Exception {
+        assumeTrue("virtual threads are supported", Runtime.version().feature() >= 21);
+        connectorExecutorImpl.stop();
+        connectorExecutorImpl = new ConnectorExecutorImpl(1, 1, 1, 1, true, 1, sessionAccessor, sessionService,
+                timeTracker, meterRegistry, TENANT_ID, new DefaultExecutorServiceMetricsProvider());
+        connectorExecutorImpl.start();
+
+        connectorExecutorImpl.execute(new LocalSConnector(1), new HashMap<>(),
+                Thread.currentThread().getContextClassLoader());
+        connectorExecutorImpl.execute(new LocalSConnector(1), new HashMap<>(),
+                Thread.currentThread().getContextClassLoader());
+        // a connector of another implementation is not blocked by the limit
+        connectorExecutorImpl.execute(new OtherSConnector(), new HashMap<>(),
+                Thread.currentThread().getContextClassLoader()).get(1, TimeUnit.SECONDS);
+
+        assertThat(meterRegistry.find(ConnectorExecutorImpl.NUMBER_OF_CONNECTORS_RUNNING).gauge().value())
+                .as("Running connectors number").isEqualTo(1);
+        assertThat(meterRegistry.find(ConnectorExecutorImpl.NUMBER_OF_CONNECTORS_PENDING).gauge().value())
+                .as("Pending connectors number").isEqualTo(1);
+        assertThat(meterRegistry.find("executor.pool.size").gauge()).isNull();
+    }
+
+    @Test
+    public void should_execute_connectors_on_the_thread_pool_when_virtual_threads_are_not_supported() {
+        assumeTrue("virtual threads are not supported", Runtime.version().feature() < 21);
+        connectorExecutorImpl.stop();
+        connectorExecutorImpl = new ConnectorExecutorImpl(1, 1, 1, 1, true, 1, sessionAccessor, sessionService,
+                timeTracker, meterRegistry, TENANT_ID, new DefaultExecutorServiceMetricsProvider());
+        connectorExecutorImpl.start();
+
+        assertThat(meterRegistry.find("executor.pool.size").tag("name", "bonita-connector-executor").gauge())
+                .isNotNull();
+    }
+
     // =================================================================================================================
     // UTILS
     // =================================================================================================================
@@ -311,6 +359,13 @@ public class ConnectorExecutorImplTest {
         }
     }
 
+    private static class OtherSConnector extends LocalSConnector {
+
+        private OtherSConnector() {
+            super(0);
+        }
+    }
+
     @Test
     public void should_have_tenant_id_in_all_meters() {
         assertThat(meterRegistry.find(ConnectorExecutorImpl.NUMBER_OF_CONNECTORS_EXECUTED)
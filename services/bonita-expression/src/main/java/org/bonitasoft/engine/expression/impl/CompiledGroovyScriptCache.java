@@ -0,0 +1,286 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.expression.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.bonitasoft.engine.classloader.ClassLoaderIdentifier.identifier;
+
+import java.security.AccessController;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.bonitasoft.engine.classloader.ClassLoaderService;
+import org.bonitasoft.engine.classloader.SClassLoaderException;
+import org.bonitasoft.engine.classloader.SingleClassLoaderListener;
+import org.bonitasoft.engine.dependency.model.ScopeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiled classes of the Groovy scripts evaluated by the engine, by definition and by digest of their content.
+ * <p>
+ * Each definition has its own {@link GroovyShell}, built on the classloader of the definition, that compiles each
+ * script only once: later evaluations of the same content only instantiate the compiled class. When the classloader of
+ * a definition is updated or destroyed, only the scripts of this definition are forgotten.
+ * <p>
+ * Each script is compiled by its own {@link GroovyClassLoader}, child of the classloader of the shell, that keeps a
+ * reference on the compiled class: evicted scripts are then unloaded with their classloader, instead of staying in
+ * the class cache of the shell until its definition is invalidated.
+ * <p>
+ * The number of cached scripts is bounded: when it goes over {@code maxSize}, the least recently used scripts are
+ * evicted until it goes back under 90% of the maximum size.
+ */
+public class CompiledGroovyScriptCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CompiledGroovyScriptCache.class);
+
+    public static final String NUMBER_OF_COMPILATIONS = "bonita.bpmengine.expression.groovy.compilations";
+    public static final String NUMBER_OF_HITS = "bonita.bpmengine.expression.groovy.hits";
+    public static final String NUMBER_OF_EVICTIONS = "bonita.bpmengine.expression.groovy.evictions";
+    public static final String NUMBER_OF_CACHED_SCRIPTS = "bonita.bpmengine.expression.groovy.cached";
+
+    private static final AtomicLong counter = new AtomicLong();
+
+    private final ClassLoaderService classLoaderService;
+    private final int maxSize;
+    private final Map<Long, DefinitionScripts> definitions = new ConcurrentHashMap<>();
+    private final Set<Long> listenedDefinitions = ConcurrentHashMap.newKeySet();
+    // approximate number of cached scripts, recomputed on each eviction
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Counter compilationCounter;
+    private final Counter hitCounter;
+    private final Counter evictionCounter;
+
+    /**
+     * @param maxSize maximum number of compiled scripts kept, all definitions included
+     */
+    public CompiledGroovyScriptCache(ClassLoaderService classLoaderService, MeterRegistry meterRegistry,
+            long tenantId, int maxSize) {
+        this.classLoaderService = classLoaderService;
+        this.maxSize = maxSize;
+        Tags tags = Tags.of("tenant", String.valueOf(tenantId));
+        compilationCounter = Counter.builder(NUMBER_OF_COMPILATIONS)
+                .tags(tags)
+                .baseUnit("scripts")
+                .description("Groovy scripts compiled because they were not in the cache")
+                .register(meterRegistry);
+        hitCounter = Counter.builder(NUMBER_OF_HITS)
+                .tags(tags)
+                .baseUnit("scripts")
+                .description("Groovy scripts found already compiled in the cache")
+                .register(meterRegistry);
+        evictionCounter = Counter.builder(NUMBER_OF_EVICTIONS)
+                .tags(tags)
+                .baseUnit("scripts")
+                .description("Compiled Groovy scripts evicted from the cache because it was full")
+                .register(meterRegistry);
+        Gauge.builder(NUMBER_OF_CACHED_SCRIPTS, size, AtomicInteger::get)
+                .tags(tags)
+                .baseUnit("scripts")
+                .description("Compiled Groovy scripts in the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the shell compiling the scripts of the definition, using the classloader of the definition
+     */
+    public GroovyShell getShell(long definitionId) throws SClassLoaderException {
+        return getDefinitionScripts(definitionId).shell;
+    }
+
+    /**
+     * @return the compiled class of the script, compiled by the shell of the definition if it is not cached yet
+     */
+    public Class<? extends Script> getScript(long definitionId, String content) throws SClassLoaderException {
+        DefinitionScripts definitionScripts = getDefinitionScripts(definitionId);
+        String digest = digest(content);
+        CompiledScript compiledScript = definitionScripts.scripts.get(digest);
+        if (compiledScript != null) {
+            hitCounter.increment();
+        } else {
+            // compiled outside of the map to not block other scripts, concurrent compilations of the same script are
+            // harmless: only one is kept, the others are unloaded with their classloader
+            CompiledScript compiled = compile(definitionScripts.shell, content);
+            compiledScript = definitionScripts.scripts.putIfAbsent(digest, compiled);
+            if (compiledScript == null) {
+                compiledScript = compiled;
+                if (size.incrementAndGet() > maxSize) {
+                    evict();
+                }
+            }
+        }
+        compiledScript.lastAccess = System.nanoTime();
+        return compiledScript.scriptClass;
+    }
+
+    /**
+     * Forget the shell and the scripts of the definition, they will be compiled again on their next evaluation.
+     */
+    public void invalidate(long definitionId) {
+        DefinitionScripts removed = definitions.remove(definitionId);
+        if (removed != null) {
+            size.addAndGet(-removed.scripts.size());
+            log.debug("Compiled Groovy scripts of definition {} invalidated", definitionId);
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    private DefinitionScripts getDefinitionScripts(long definitionId) throws SClassLoaderException {
+        DefinitionScripts definitionScripts = definitions.get(definitionId);
+        if (definitionScripts != null) {
+            return definitionScripts;
+        }
+        if (listenedDefinitions.add(definitionId)) {
+            classLoaderService.addListener(identifier(ScopeType.PROCESS, definitionId),
+                    new DefinitionClassLoaderListener(definitionId));
+        }
+        ClassLoader classLoader = classLoaderService.getClassLoader(identifier(ScopeType.PROCESS, definitionId));
+        log.debug("Create a new groovy shell for {} {}", definitionId, classLoader);
+        DefinitionScripts created = new DefinitionScripts(new GroovyShell(classLoader));
+        DefinitionScripts existing = definitions.putIfAbsent(definitionId, created);
+        return existing != null ? existing : created;
+    }
+
+    private CompiledScript compile(GroovyShell shell, String content) {
+        GroovyCodeSource codeSource = AccessController.doPrivileged(
+                (PrivilegedAction<GroovyCodeSource>) () -> new GroovyCodeSource(content, generateScriptName(),
+                        GroovyShell.DEFAULT_CODE_BASE));
+        // the class is cached here, the classloader compiling it is only referenced by the class itself
+        GroovyClassLoader scriptClassLoader = AccessController.doPrivileged(
+                (PrivilegedAction<GroovyClassLoader>) () -> new GroovyClassLoader(shell.getClassLoader()));
+        @SuppressWarnings("unchecked")
+        Class<? extends Script> scriptClass = scriptClassLoader.parseClass(codeSource, false);
+        compilationCounter.increment();
+        return new CompiledScript(scriptClass);
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            // another thread is already evicting
+            return;
+        }
+        try {
+            List<EvictionCandidate> candidates = new ArrayList<>();
+            definitions.forEach((definitionId, definitionScripts) -> definitionScripts.scripts
+                    .forEach((digest, script) -> candidates.add(
+                            new EvictionCandidate(definitionScripts, digest, script.lastAccess))));
+            int toEvict = candidates.size() - maxSize * 9 / 10;
+            if (candidates.size() <= maxSize || toEvict <= 0) {
+                size.set(candidates.size());
+                return;
+            }
+            candidates.sort(Comparator.comparingLong(c -> c.lastAccess));
+            int evicted = 0;
+            for (EvictionCandidate candidate : candidates.subList(0, toEvict)) {
+                if (candidate.definitionScripts.scripts.remove(candidate.digest) != null) {
+                    evicted++;
+                }
+            }
+            size.set(candidates.size() - evicted);
+            evictionCounter.increment(evicted);
+            log.debug("{} compiled Groovy scripts evicted from the cache", evicted);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static String generateScriptName() {
+        return String.format("BScript%s.groovy", counter.incrementAndGet());
+    }
+
+    static String digest(String content) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(messageDigest.digest(content.getBytes(UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is available in all JVMs
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class DefinitionScripts {
+
+        private final GroovyShell shell;
+        private final Map<String, CompiledScript> scripts = new ConcurrentHashMap<>();
+
+        private DefinitionScripts(GroovyShell shell) {
+            this.shell = shell;
+        }
+    }
+
+    private static final class CompiledScript {
+
+        private final Class<? extends Script> scriptClass;
+        private volatile long lastAccess = System.nanoTime();
+
+        private CompiledScript(Class<? extends Script> scriptClass) {
+            this.scriptClass = scriptClass;
+        }
+    }
+
+    private static final class EvictionCandidate {
+
+        private final DefinitionScripts definitionScripts;
+        private final String digest;
+        private final long lastAccess;
+
+        private EvictionCandidate(DefinitionScripts definitionScripts, String digest, long lastAccess) {
+            this.definitionScripts = definitionScripts;
+            this.digest = digest;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final class DefinitionClassLoaderListener implements SingleClassLoaderListener {
+
+        private final long definitionId;
+
+        private DefinitionClassLoaderListener(long definitionId) {
+            this.definitionId = definitionId;
+        }
+
+        @Override
+        public void onUpdate(ClassLoader newClassLoader) {
+            invalidate(definitionId);
+        }
+
+        @Override
+        public void onDestroy(ClassLoader oldClassLoader) {
+            invalidate(definitionId);
+        }
+    }
+}
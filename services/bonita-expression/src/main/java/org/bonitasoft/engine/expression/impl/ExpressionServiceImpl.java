@@ -16,6 +16,7 @@ package org.bonitasoft.engine.expression.impl;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.bonitasoft.engine.commons.LogUtil;
 import org.bonitasoft.engine.expression.ContainerState;
@@ -88,8 +89,12 @@ public class ExpressionServiceImpl implements ExpressionService {
         } finally {
             if (timeTracker.isTrackable(TimeTrackerRecords.EVALUATE_EXPRESSION)) {
                 final long endTime = System.currentTimeMillis();
-                timeTracker.track(TimeTrackerRecords.EVALUATE_EXPRESSION, "Expression: " + expression + " - "
-                        + "dependencyValues: " + dependencyValues + " - " + "strategy: " + expressionExecutorStrategy,
+                // records must not retain the expression and the values of its dependencies
+                final String evaluatedExpression = describe(expression);
+                final String dependencies = describe(dependencyValues);
+                final String strategy = expressionExecutorStrategy.getClass().getName();
+                timeTracker.track(TimeTrackerRecords.EVALUATE_EXPRESSION, () -> "Expression: " + evaluatedExpression
+                        + " - " + "dependencyValues: " + dependencies + " - " + "strategy: " + strategy,
                         endTime - startTime);
             }
         }
@@ -117,6 +122,17 @@ public class ExpressionServiceImpl implements ExpressionService {
         }
     }
 
+    private static String describe(final SExpression expression) {
+        return expression.getName() + " (" + expression.getExpressionKind() + ")";
+    }
+
+    /**
+     * @return the names of the dependencies, not their values
+     */
+    private static String describe(final Map<String, Object> dependencyValues) {
+        return String.valueOf(dependencyValues == null ? null : dependencyValues.keySet());
+    }
+
     private ExpressionExecutorStrategy getStrategy(final ExpressionKind expressionKind)
             throws SExpressionTypeUnknownException {
         final ExpressionExecutorStrategy expressionExecutorStrategy = expressionExecutorsMap.get(expressionKind);
@@ -149,8 +165,13 @@ public class ExpressionServiceImpl implements ExpressionService {
         } finally {
             if (timeTracker.isTrackable(TimeTrackerRecords.EVALUATE_EXPRESSIONS)) {
                 final long endTime = System.currentTimeMillis();
-                timeTracker.track(TimeTrackerRecords.EVALUATE_EXPRESSIONS, "Expressions: " + expressions + " - "
-                        + "dependencyValues: " + dependencyValues + " - " + "strategy: " + expressionExecutorStrategy,
+                // records must not retain the expressions and the values of their dependencies
+                final String evaluatedExpressions = expressions.stream().map(ExpressionServiceImpl::describe)
+                        .collect(Collectors.joining(", ", "[", "]"));
+                final String dependencies = describe(dependencyValues);
+                final String strategy = expressionExecutorStrategy.getClass().getName();
+                timeTracker.track(TimeTrackerRecords.EVALUATE_EXPRESSIONS, () -> "Expressions: " + evaluatedExpressions
+                        + " - " + "dependencyValues: " + dependencies + " - " + "strategy: " + strategy,
                         endTime - startTime);
             }
         }
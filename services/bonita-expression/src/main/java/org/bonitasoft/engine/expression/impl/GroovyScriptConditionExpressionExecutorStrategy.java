@@ -15,8 +15,6 @@ package org.bonitasoft.engine.expression.impl;
 
 import java.util.Map;
 
-import org.bonitasoft.engine.cache.CacheService;
-import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.expression.ContainerState;
 import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
 import org.bonitasoft.engine.expression.model.ExpressionKind;
@@ -24,9 +22,8 @@ import org.bonitasoft.engine.expression.model.SExpression;
 
 public class GroovyScriptConditionExpressionExecutorStrategy extends GroovyScriptExpressionExecutorCacheStrategy {
 
-    public GroovyScriptConditionExpressionExecutorStrategy(CacheService cacheService,
-            ClassLoaderService classLoaderService) {
-        super(cacheService, classLoaderService);
+    public GroovyScriptConditionExpressionExecutorStrategy(CompiledGroovyScriptCache compiledScriptCache) {
+        super(compiledScriptCache);
     }
 
     @Override
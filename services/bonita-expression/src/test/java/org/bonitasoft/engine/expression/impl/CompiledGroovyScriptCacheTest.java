@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.expression.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.engine.classloader.ClassLoaderIdentifier.identifier;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import groovy.lang.Script;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bonitasoft.engine.classloader.ClassLoaderService;
+import org.bonitasoft.engine.classloader.SingleClassLoaderListener;
+import org.bonitasoft.engine.dependency.model.ScopeType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CompiledGroovyScriptCacheTest {
+
+    @Mock
+    private ClassLoaderService classLoaderService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CompiledGroovyScriptCache cache;
+
+    @Before
+    public void setup() throws Exception {
+        cache = new CompiledGroovyScriptCache(classLoaderService, meterRegistry, 1L, 10);
+        doReturn(CompiledGroovyScriptCacheTest.class.getClassLoader()).when(classLoaderService).getClassLoader(any());
+    }
+
+    @Test
+    public void should_compile_a_script_only_once_per_definition() throws Exception {
+        Class<? extends Script> script1 = cache.getScript(12L, "1 + 1");
+        Class<? extends Script> script2 = cache.getScript(12L, "1 + 1");
+        Class<? extends Script> script3 = cache.getScript(13L, "1 + 1");
+
+        assertThat(script1).isSameAs(script2).isNotSameAs(script3);
+        assertThat(meterRegistry.counter(CompiledGroovyScriptCache.NUMBER_OF_COMPILATIONS, "tenant", "1").count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.counter(CompiledGroovyScriptCache.NUMBER_OF_HITS, "tenant", "1").count())
+                .isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void should_not_mix_up_scripts_with_the_same_hash_code() throws Exception {
+        // "Aa" and "BB" have the same String hash code
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+
+        Class<? extends Script> script1 = cache.getScript(12L, "'Aa'");
+        Class<? extends Script> script2 = cache.getScript(12L, "'BB'");
+
+        assertThat(script1.getDeclaredConstructor().newInstance().run()).isEqualTo("Aa");
+        assertThat(script2.getDeclaredConstructor().newInstance().run()).isEqualTo("BB");
+    }
+
+    @Test
+    public void should_only_invalidate_scripts_of_the_updated_definition() throws Exception {
+        Class<? extends Script> script12 = cache.getScript(12L, "1 + 1");
+        Class<? extends Script> script13 = cache.getScript(13L, "1 + 1");
+
+        getClassLoaderListener(12L).onUpdate(null);
+
+        assertThat(cache.getScript(12L, "1 + 1")).isNotSameAs(script12);
+        assertThat(cache.getScript(13L, "1 + 1")).isSameAs(script13);
+    }
+
+    @Test
+    public void should_invalidate_scripts_of_a_destroyed_definition() throws Exception {
+        Class<? extends Script> script = cache.getScript(12L, "1 + 1");
+
+        getClassLoaderListener(12L).onDestroy(null);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getScript(12L, "1 + 1")).isNotSameAs(script);
+    }
+
+    @Test
+    public void should_register_a_single_listener_per_definition() throws Exception {
+        cache.getScript(12L, "1 + 1");
+        getClassLoaderListener(12L).onUpdate(null);
+        cache.getScript(12L, "1 + 1");
+
+        verify(classLoaderService, times(1)).addListener(eq(identifier(ScopeType.PROCESS, 12L)), any());
+    }
+
+    @Test
+    public void should_evict_least_recently_used_scripts_when_full() throws Exception {
+        Class<? extends Script> mostUsed = cache.getScript(12L, "0");
+        for (int i = 1; i <= 10; i++) {
+            cache.getScript(12L, String.valueOf(i));
+            cache.getScript(12L, "0");
+        }
+
+        assertThat(cache.size()).isEqualTo(9);
+        assertThat(cache.getScript(12L, "0")).isSameAs(mostUsed);
+        assertThat(meterRegistry.counter(CompiledGroovyScriptCache.NUMBER_OF_EVICTIONS, "tenant", "1").count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void should_not_keep_compiled_scripts_in_the_classloader_of_the_shell() throws Exception {
+        Class<? extends Script> script = cache.getScript(12L, "1 + 1");
+
+        assertThat(cache.getShell(12L).getClassLoader().getLoadedClasses()).isEmpty();
+        assertThat(script.getClassLoader()).isNotSameAs(cache.getShell(12L).getClassLoader());
+    }
+
+    private SingleClassLoaderListener getClassLoaderListener(long definitionId) {
+        ArgumentCaptor<SingleClassLoaderListener> listener = ArgumentCaptor.forClass(SingleClassLoaderListener.class);
+        verify(classLoaderService).addListener(eq(identifier(ScopeType.PROCESS, definitionId)), listener.capture());
+        return listener.getValue();
+    }
+}
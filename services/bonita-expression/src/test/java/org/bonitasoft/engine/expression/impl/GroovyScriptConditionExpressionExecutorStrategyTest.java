@@ -17,22 +17,17 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 
-import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-import org.bonitasoft.engine.cache.CacheConfiguration;
-import org.bonitasoft.engine.cache.ehcache.EhCacheCacheService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
-import org.bonitasoft.engine.commons.io.IOUtil;
 import org.bonitasoft.engine.expression.ContainerState;
 import org.bonitasoft.engine.expression.ExpressionExecutorStrategy;
 import org.bonitasoft.engine.expression.model.SExpression;
 import org.bonitasoft.engine.expression.model.impl.SExpressionImpl;
 import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
-import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -48,36 +43,20 @@ public class GroovyScriptConditionExpressionExecutorStrategyTest {
     @Mock
     private ReadSessionAccessor sessionAccessor;
 
-    @Mock
-    private CacheConfiguration defaultCacheConfiguration;
-
-    private EhCacheCacheService cacheService;
-
     private GroovyScriptConditionExpressionExecutorStrategy executorStrategy;
 
-    private final static String diskStorePath = IOUtil.TMP_DIRECTORY + File.separator
-            + GroovyScriptExpressionExecutorCacheStrategyTest.class.getSimpleName();
     private Map<String, Object> context;
 
     @Before
     public void setup() throws Exception {
-        final CacheConfiguration cacheConfiguration = new CacheConfiguration();
-        cacheConfiguration.setName("GROOVY_SCRIPT_CACHE_NAME");
-        final List<CacheConfiguration> cacheConfigurations = Collections.singletonList(cacheConfiguration);
-        cacheService = new EhCacheCacheService(cacheConfigurations, defaultCacheConfiguration, diskStorePath);
-        cacheService.start();
-        executorStrategy = new GroovyScriptConditionExpressionExecutorStrategy(cacheService, classLoaderService);
+        executorStrategy = new GroovyScriptConditionExpressionExecutorStrategy(
+                new CompiledGroovyScriptCache(classLoaderService, new SimpleMeterRegistry(), 1L, 1000));
         doReturn(GroovyScriptExpressionExecutorCacheStrategyTest.class.getClassLoader()).when(classLoaderService)
                 .getClassLoader(any());
         context = new HashMap<>();
         context.put(ExpressionExecutorStrategy.DEFINITION_ID, 123456789L);
     }
 
-    @After
-    public void stop() {
-        cacheService.stop();
-    }
-
     @Test
     public void should_return_a_true_boolean_value() throws Exception {
         //given
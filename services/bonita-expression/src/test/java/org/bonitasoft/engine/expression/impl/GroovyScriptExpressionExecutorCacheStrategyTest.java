@@ -20,26 +20,25 @@ import static org.bonitasoft.engine.expression.ExpressionExecutorStrategy.DEFINI
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import groovy.lang.GroovyShell;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.bpm.contract.FileInputValue;
 import org.bonitasoft.engine.bpm.document.Document;
 import org.bonitasoft.engine.bpm.document.DocumentValue;
-import org.bonitasoft.engine.cache.CacheConfiguration;
-import org.bonitasoft.engine.cache.SCacheException;
-import org.bonitasoft.engine.cache.ehcache.EhCacheCacheService;
+import org.bonitasoft.engine.classloader.ClassLoaderIdentifier;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.classloader.SClassLoaderException;
+import org.bonitasoft.engine.classloader.SingleClassLoaderListener;
 import org.bonitasoft.engine.commons.exceptions.SBonitaRuntimeException;
-import org.bonitasoft.engine.commons.io.IOUtil;
+import org.bonitasoft.engine.dependency.model.ScopeType;
 import org.bonitasoft.engine.expression.ContainerState;
 import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
 import org.bonitasoft.engine.expression.exception.SInvalidExpressionException;
@@ -49,13 +48,12 @@ import org.bonitasoft.engine.expression.model.builder.impl.SExpressionBuilderFac
 import org.bonitasoft.engine.expression.model.impl.SExpressionImpl;
 import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
 import org.codehaus.groovy.runtime.typehandling.GroovyCastException;
-import org.junit.After;
-import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -68,43 +66,21 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
     @Mock
     private ReadSessionAccessor sessionAccessor;
 
-    @Mock
-    private CacheConfiguration defaultCacheConfiguration;
-
-    private EhCacheCacheService cacheService;
-
     private GroovyScriptExpressionExecutorCacheStrategy groovyScriptExpressionExecutorCacheStrategy;
 
-    private final static String diskStorePath = IOUtil.TMP_DIRECTORY + File.separator
-            + GroovyScriptExpressionExecutorCacheStrategyTest.class.getSimpleName();
     private Class script2;
     private Map<String, Object> context;
 
     @Before
     public void setup() throws Exception {
-        final CacheConfiguration cacheConfiguration = new CacheConfiguration();
-        cacheConfiguration.setName("GROOVY_SCRIPT_CACHE_NAME");
-        final List<CacheConfiguration> cacheConfigurations = Collections.singletonList(cacheConfiguration);
-        cacheService = new EhCacheCacheService(cacheConfigurations, defaultCacheConfiguration, diskStorePath);
-        cacheService.start();
-        groovyScriptExpressionExecutorCacheStrategy = new GroovyScriptExpressionExecutorCacheStrategy(cacheService,
-                classLoaderService);
+        groovyScriptExpressionExecutorCacheStrategy = new GroovyScriptExpressionExecutorCacheStrategy(
+                new CompiledGroovyScriptCache(classLoaderService, new SimpleMeterRegistry(), 1L, 1000));
         doReturn(GroovyScriptExpressionExecutorCacheStrategyTest.class.getClassLoader()).when(classLoaderService)
                 .getClassLoader(any());
         context = new HashMap<>();
         context.put(DEFINITION_ID, 123456789L);
     }
 
-    @After
-    public void teardown() {
-        cacheService.stop();
-    }
-
-    @AfterClass
-    public static void cleanupClass() throws IOException {
-        IOUtil.deleteDir(new File(diskStorePath));
-    }
-
     @Test
     public void should_getShell_return_a_shell_for_each_definition() throws Exception {
         // given
@@ -125,7 +101,7 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
 
         // when
         final GroovyShell shell1 = groovyScriptExpressionExecutorCacheStrategy.getShell(12l);
-        groovyScriptExpressionExecutorCacheStrategy.onUpdate(null);
+        getClassLoaderListener(12L).onUpdate(null);
         final GroovyShell shell2 = groovyScriptExpressionExecutorCacheStrategy.getShell(12l);
 
         // then
@@ -140,7 +116,7 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
 
         // when
         final GroovyShell shell1 = groovyScriptExpressionExecutorCacheStrategy.getShell(12l);
-        groovyScriptExpressionExecutorCacheStrategy.onDestroy(null);
+        getClassLoaderListener(12L).onDestroy(null);
         final GroovyShell shell2 = groovyScriptExpressionExecutorCacheStrategy.getShell(12l);
 
         // then
@@ -183,7 +159,7 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
             public void run() {
                 try {
                     script2 = groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent", 12L);
-                } catch (SCacheException | SClassLoaderException e) {
+                } catch (SClassLoaderException e) {
                     e.printStackTrace();
                 }
             }
@@ -519,4 +495,11 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
         groovyScriptExpressionExecutorCacheStrategy.evaluate(expression, singletonMap(DEFINITION_ID, 42L), emptyMap(),
                 null);
     }
+
+    private SingleClassLoaderListener getClassLoaderListener(long definitionId) {
+        ArgumentCaptor<SingleClassLoaderListener> listener = ArgumentCaptor.forClass(SingleClassLoaderListener.class);
+        verify(classLoaderService).addListener(eq(ClassLoaderIdentifier.identifier(ScopeType.PROCESS, definitionId)),
+                listener.capture());
+        return listener.getValue();
+    }
 }
@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.lock;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
+import org.springframework.stereotype.Component;
+
+/**
+ * In memory {@link LockService} that does not allocate a lock per locked object.
+ * <p>
+ * Locked objects are identified by the ordinal of their type, their id and their tenant id, and spread over a fixed
+ * number of stripes. Each stripe records the objects locked in it in an open addressing table made of primitive
+ * arrays, guarded by a mutex owned by the stripe: locking or unlocking an object only contends with objects of the
+ * same stripe, and does not allocate anything else than the returned {@link BonitaLock}.
+ * <p>
+ * Locks are reentrant: an object locked several times by the same thread must be unlocked as many times.
+ */
+@Component
+@ConditionalOnSingleCandidate(LockService.class)
+@ConditionalOnProperty(name = "bonita.platform.lock.memory.striped", havingValue = "true")
+public class StripedMemoryLockService implements LockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripedMemoryLockService.class);
+
+    private final Map<String, Integer> objectTypeOrdinals = new ConcurrentHashMap<>();
+    // 0 marks empty slots of the stripes
+    private final AtomicInteger nextObjectTypeOrdinal = new AtomicInteger(1);
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int lockTimeoutSeconds;
+
+    public StripedMemoryLockService(@Value("${bonita.platform.lock.memory.timeout}") int lockTimeoutSeconds,
+            @Value("${bonita.platform.lock.memory.stripes:64}") int numberOfStripes) {
+        this.lockTimeoutSeconds = lockTimeoutSeconds;
+        int size = Integer.highestOneBit(Math.max(1, numberOfStripes - 1) << 1);
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeMask = size - 1;
+    }
+
+    @Override
+    public BonitaLock lock(long objectToLockId, String objectType, long tenantId)
+            throws SLockException, SLockTimeoutException {
+        BonitaLock bonitaLock = tryLock(objectToLockId, objectType, lockTimeoutSeconds, SECONDS, tenantId);
+        if (bonitaLock == null) {
+            throw new SLockTimeoutException(String.format("Unable to acquire lock %s,%s,%s in %s seconds",
+                    objectToLockId, objectType, tenantId, lockTimeoutSeconds));
+        }
+        return bonitaLock;
+    }
+
+    @Override
+    public BonitaLock tryLock(long objectToLockId, String objectType, long timeout, TimeUnit timeUnit, long tenantId)
+            throws SLockException {
+        int typeOrdinal = getObjectTypeOrdinal(objectType);
+        long hash = hash(typeOrdinal, objectToLockId, tenantId);
+        Stripe stripe = stripes[(int) (hash >>> 32) & stripeMask];
+        Thread currentThread = Thread.currentThread();
+        long remainingNanos = timeUnit.toNanos(timeout);
+        try {
+            stripe.mutex.lockInterruptibly();
+            try {
+                while (true) {
+                    int slot = stripe.indexOf(typeOrdinal, objectToLockId, tenantId, (int) hash);
+                    if (slot < 0) {
+                        stripe.add(typeOrdinal, objectToLockId, tenantId, (int) hash, currentThread);
+                        return new BonitaLock(objectType, objectToLockId);
+                    }
+                    if (stripe.owners[slot] == currentThread) {
+                        stripe.holdCounts[slot]++;
+                        return new BonitaLock(objectType, objectToLockId);
+                    }
+                    if (remainingNanos <= 0) {
+                        logger.debug("Lock was not acquired for {}:{} of tenant {}", objectType, objectToLockId,
+                                tenantId);
+                        return null;
+                    }
+                    stripe.waiters++;
+                    try {
+                        remainingNanos = stripe.released.awaitNanos(remainingNanos);
+                    } finally {
+                        stripe.waiters--;
+                    }
+                }
+            } finally {
+                stripe.mutex.unlock();
+            }
+        } catch (InterruptedException e) {
+            throw new SLockException("interrupted while trying to get the lock", e);
+        }
+    }
+
+    @Override
+    public void unlock(BonitaLock lock, long tenantId) throws SLockException {
+        Integer typeOrdinal = objectTypeOrdinals.get(lock.getObjectType());
+        if (typeOrdinal == null) {
+            return;
+        }
+        long hash = hash(typeOrdinal, lock.getObjectToLockId(), tenantId);
+        Stripe stripe = stripes[(int) (hash >>> 32) & stripeMask];
+        stripe.mutex.lock();
+        try {
+            int slot = stripe.indexOf(typeOrdinal, lock.getObjectToLockId(), tenantId, (int) hash);
+            if (slot < 0) {
+                return;
+            }
+            if (stripe.owners[slot] != Thread.currentThread()) {
+                throw new SLockException("Unable to release " + lock + " of tenant " + tenantId
+                        + ", it is not held by the current thread");
+            }
+            if (--stripe.holdCounts[slot] == 0) {
+                stripe.remove(slot);
+                if (stripe.waiters > 0) {
+                    // waiters of other objects of the stripe are woken up too, they wait again
+                    stripe.released.signalAll();
+                }
+            }
+        } finally {
+            stripe.mutex.unlock();
+        }
+    }
+
+    private int getObjectTypeOrdinal(String objectType) {
+        Integer ordinal = objectTypeOrdinals.get(objectType);
+        if (ordinal == null) {
+            ordinal = objectTypeOrdinals.computeIfAbsent(objectType, t -> nextObjectTypeOrdinal.getAndIncrement());
+        }
+        return ordinal;
+    }
+
+    private static long hash(int typeOrdinal, long objectToLockId, long tenantId) {
+        long hash = objectToLockId * 0x9E3779B97F4A7C15L;
+        hash ^= (typeOrdinal * 0xC2B2AE3D27D4EB4FL) + (tenantId * 0x165667B19E3779F9L);
+        hash ^= hash >>> 29;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * Objects locked in a stripe, in an open addressing table with linear probing. Only accessed while holding
+     * {@link #mutex}.
+     */
+    private static final class Stripe {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final ReentrantLock mutex = new ReentrantLock();
+        private final Condition released = mutex.newCondition();
+        private int waiters;
+        private int size;
+        private int[] typeOrdinals = new int[INITIAL_CAPACITY];
+        private long[] objectIds = new long[INITIAL_CAPACITY];
+        private long[] tenantIds = new long[INITIAL_CAPACITY];
+        private int[] hashes = new int[INITIAL_CAPACITY];
+        private Thread[] owners = new Thread[INITIAL_CAPACITY];
+        private int[] holdCounts = new int[INITIAL_CAPACITY];
+
+        /**
+         * @return the slot of the object, or a negative value if it is not locked
+         */
+        private int indexOf(int typeOrdinal, long objectId, long tenantId, int hash) {
+            int mask = typeOrdinals.length - 1;
+            for (int slot = hash & mask; typeOrdinals[slot] != 0; slot = (slot + 1) & mask) {
+                if (typeOrdinals[slot] == typeOrdinal && objectIds[slot] == objectId && tenantIds[slot] == tenantId) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private void add(int typeOrdinal, long objectId, long tenantId, int hash, Thread owner) {
+            if ((size + 1) * 2 > typeOrdinals.length) {
+                grow();
+            }
+            int mask = typeOrdinals.length - 1;
+            int slot = hash & mask;
+            while (typeOrdinals[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            set(slot, typeOrdinal, objectId, tenantId, hash, owner, 1);
+            size++;
+        }
+
+        /**
+         * Remove the object of the slot, then shift back the following objects of the probe sequence so that there is
+         * no hole in it.
+         */
+        private void remove(int slot) {
+            int mask = typeOrdinals.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (typeOrdinals[next] != 0) {
+                int ideal = hashes[next] & mask;
+                // the object can fill the hole if its ideal slot is not cyclically between the hole and itself
+                boolean canMove = hole <= next ? (ideal <= hole || ideal > next) : (ideal <= hole && ideal > next);
+                if (canMove) {
+                    set(hole, typeOrdinals[next], objectIds[next], tenantIds[next], hashes[next], owners[next],
+                            holdCounts[next]);
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            typeOrdinals[hole] = 0;
+            owners[hole] = null;
+            size--;
+        }
+
+        private void set(int slot, int typeOrdinal, long objectId, long tenantId, int hash, Thread owner,
+                int holdCount) {
+            typeOrdinals[slot] = typeOrdinal;
+            objectIds[slot] = objectId;
+            tenantIds[slot] = tenantId;
+            hashes[slot] = hash;
+            owners[slot] = owner;
+            holdCounts[slot] = holdCount;
+        }
+
+        private void grow() {
+            int[] oldTypeOrdinals = typeOrdinals;
+            long[] oldObjectIds = objectIds;
+            long[] oldTenantIds = tenantIds;
+            int[] oldHashes = hashes;
+            Thread[] oldOwners = owners;
+            int[] oldHoldCounts = holdCounts;
+            int capacity = oldTypeOrdinals.length * 2;
+            typeOrdinals = new int[capacity];
+            objectIds = new long[capacity];
+            tenantIds = new long[capacity];
+            hashes = new int[capacity];
+            owners = new Thread[capacity];
+            holdCounts = new int[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldTypeOrdinals.length; i++) {
+                if (oldTypeOrdinals[i] != 0) {
+                    int slot = oldHashes[i] & mask;
+                    while (typeOrdinals[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    set(slot, oldTypeOrdinals[i], oldObjectIds[i], oldTenantIds[i], oldHashes[i], oldOwners[i],
+                            oldHoldCounts[i]);
+                }
+            }
+        }
+    }
+}
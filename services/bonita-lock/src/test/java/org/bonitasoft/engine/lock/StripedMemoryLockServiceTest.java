@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.lock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class StripedMemoryLockServiceTest {
+
+    private static final long TENANT_ID = 1L;
+
+    // a single stripe puts all objects in the same table
+    private final StripedMemoryLockService lockService = new StripedMemoryLockService(1, 1);
+    private final ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+    @After
+    public void after() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void should_not_lock_an_object_locked_by_another_thread() throws Exception {
+        BonitaLock lock = lockService.lock(1, "type", TENANT_ID);
+
+        assertThat(tryLockInOtherThread(1, "type", TENANT_ID)).isNull();
+        assertThat(tryLockInOtherThread(2, "type", TENANT_ID)).isNotNull();
+        assertThat(tryLockInOtherThread(1, "otherType", TENANT_ID)).isNotNull();
+        assertThat(tryLockInOtherThread(1, "type", 2L)).isNotNull();
+
+        lockService.unlock(lock, TENANT_ID);
+        assertThat(tryLockInOtherThread(1, "type", TENANT_ID)).isNotNull();
+    }
+
+    @Test
+    public void should_be_reentrant() throws Exception {
+        BonitaLock lock1 = lockService.lock(1, "type", TENANT_ID);
+        BonitaLock lock2 = lockService.lock(1, "type", TENANT_ID);
+
+        lockService.unlock(lock1, TENANT_ID);
+        assertThat(tryLockInOtherThread(1, "type", TENANT_ID)).isNull();
+
+        lockService.unlock(lock2, TENANT_ID);
+        assertThat(tryLockInOtherThread(1, "type", TENANT_ID)).isNotNull();
+    }
+
+    @Test
+    public void should_throw_timeout_exception_when_lock_is_not_obtained() throws Exception {
+        executorService.submit(() -> lockService.lock(1, "type", TENANT_ID)).get();
+
+        assertThatThrownBy(() -> lockService.lock(1, "type", TENANT_ID))
+                .isInstanceOf(SLockTimeoutException.class)
+                .hasMessage("Unable to acquire lock 1,type,1 in 1 seconds");
+    }
+
+    @Test
+    public void should_give_the_lock_to_a_waiting_thread_when_released() throws Exception {
+        BonitaLock lock = lockService.lock(1, "type", TENANT_ID);
+        Future<BonitaLock> waiting = executorService
+                .submit(() -> lockService.tryLock(1, "type", 10, TimeUnit.SECONDS, TENANT_ID));
+
+        Thread.sleep(50);
+        lockService.unlock(lock, TENANT_ID);
+
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo(new BonitaLock("type", 1));
+    }
+
+    @Test
+    public void should_not_release_a_lock_held_by_another_thread() throws Exception {
+        BonitaLock lock = executorService.submit(() -> lockService.lock(1, "type", TENANT_ID)).get();
+
+        assertThatThrownBy(() -> lockService.unlock(lock, TENANT_ID)).isInstanceOf(SLockException.class);
+    }
+
+    @Test
+    public void should_ignore_unlock_of_an_object_not_locked() throws Exception {
+        lockService.unlock(new BonitaLock("unknownType", 1), TENANT_ID);
+        lockService.lock(1, "type", TENANT_ID);
+        lockService.unlock(new BonitaLock("type", 2), TENANT_ID);
+
+        assertThat(tryLockInOtherThread(1, "type", TENANT_ID)).isNull();
+    }
+
+    @Test
+    public void should_keep_other_objects_locked_when_releasing_objects_of_the_same_stripe() throws Exception {
+        List<BonitaLock> locks = new ArrayList<>();
+        for (int id = 0; id < 100; id++) {
+            locks.add(lockService.lock(id, "type", TENANT_ID));
+        }
+        for (int id = 0; id < 100; id += 2) {
+            lockService.unlock(locks.get(id), TENANT_ID);
+        }
+
+        for (int id = 0; id < 100; id++) {
+            BonitaLock lock = tryLockInOtherThread(id, "type", TENANT_ID);
+            if (id % 2 == 0) {
+                assertThat(lock).as("lock of %s", id).isNotNull();
+            } else {
+                assertThat(lock).as("lock of %s", id).isNull();
+            }
+        }
+    }
+
+    @Test
+    public void should_never_give_the_same_lock_to_two_threads() throws Exception {
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger maxHolders = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    BonitaLock lock = lockService.lock(i % 4, "type", TENANT_ID);
+                    if (i % 4 == 0) {
+                        maxHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+                        holders.decrementAndGet();
+                    }
+                    lockService.unlock(lock, TENANT_ID);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertThat(maxHolders.get()).isEqualTo(1);
+        assertThat(tryLockInOtherThread(0, "type", TENANT_ID)).isNotNull();
+    }
+
+    private BonitaLock tryLockInOtherThread(long id, String type, long tenantId) throws Exception {
+        return executorService.submit(() -> lockService.tryLock(id, type, 10, TimeUnit.MILLISECONDS, tenantId))
+                .get();
+    }
+}
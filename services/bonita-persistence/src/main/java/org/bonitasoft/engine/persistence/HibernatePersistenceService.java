@@ -14,21 +14,26 @@
 package org.bonitasoft.engine.persistence;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import javax.annotation.PreDestroy;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.bonitasoft.engine.commons.ClassReflector;
-import org.bonitasoft.engine.commons.exceptions.SReflectException;
 import org.bonitasoft.engine.commons.exceptions.SRetryableException;
 import org.bonitasoft.engine.persistence.search.FilterOperationType;
 import org.bonitasoft.engine.sequence.SequenceManager;
@@ -62,6 +67,8 @@ import org.slf4j.Logger;
 @Slf4j
 public class HibernatePersistenceService implements PersistenceService {
 
+    public static final String ROWS_PER_INSERT_BATCH = "bonita.bpmengine.persistence.insert.batch.rows";
+
     @Getter
     private final SessionFactory sessionFactory;
 
@@ -72,19 +79,29 @@ public class HibernatePersistenceService implements PersistenceService {
     @Getter // for testing purposes
     private final Map<String, String> cacheQueries;
 
-    private final List<Class<? extends PersistentObject>> classMapping;
+    private final Set<Class<? extends PersistentObject>> classMapping;
 
-    private final List<String> mappingExclusions;
+    private final Set<String> mappingExclusions;
     private final Statistics statistics;
     private final SequenceManager sequenceManager;
     private int stat_display_count;
     private final QueryBuilderFactory queryBuilderFactory;
+    private final int insertBatchSize;
+    private final DistributionSummary rowsPerInsertBatch;
 
+    /**
+     * @param insertBatchSize maximum number of rows sent in a single JDBC batch by {@link #insertInBatch(List)}
+     */
     public HibernatePersistenceService(final ReadSessionAccessor sessionAccessor,
             final HibernateConfigurationProvider hbmConfigurationProvider,
             final Properties extraHibernateProperties, final SequenceManager sequenceManager,
-            final QueryBuilderFactory queryBuilderFactory, HibernateMetricsBinder hibernateMetricsBinder) {
+            final QueryBuilderFactory queryBuilderFactory, HibernateMetricsBinder hibernateMetricsBinder,
+            final MeterRegistry meterRegistry, final int insertBatchSize) {
         this.sequenceManager = sequenceManager;
+        this.insertBatchSize = Math.max(1, insertBatchSize);
+        this.rowsPerInsertBatch = DistributionSummary.builder(ROWS_PER_INSERT_BATCH)
+                .baseUnit("rows").description("Rows inserted per JDBC batch by batch inserts")
+                .register(meterRegistry);
         this.sessionAccessor = sessionAccessor;
         hbmConfigurationProvider.bootstrap(extraHibernateProperties);
         sessionFactory = hbmConfigurationProvider.getSessionFactory();
@@ -94,9 +111,9 @@ public class HibernatePersistenceService implements PersistenceService {
             this.queryBuilderFactory.setOrderByBuilder(new SQLServerOrderByBuilder());
         }
         statistics = sessionFactory.getStatistics();
-        classMapping = hbmConfigurationProvider.getMappedClasses();
+        classMapping = new HashSet<>(hbmConfigurationProvider.getMappedClasses());
         classAliasMappings = hbmConfigurationProvider.getClassAliasMappings();
-        mappingExclusions = hbmConfigurationProvider.getMappingExclusions();
+        mappingExclusions = new HashSet<>(hbmConfigurationProvider.getMappingExclusions());
         cacheQueries = hbmConfigurationProvider.getCacheQueries();
 
         hibernateMetricsBinder.bindMetrics(getSessionFactory());
@@ -220,21 +237,49 @@ public class HibernatePersistenceService implements PersistenceService {
         }
     }
 
+    /**
+     * Insert the entities grouped by class, so that the inserts of a class follow each other and are sent in JDBC
+     * batches of at most insertBatchSize rows. Ids of the entities of a class are taken from the sequence at once.
+     * The session is flushed so that the inserts are sent using this batch size.
+     */
     @Override
     public void insertInBatch(final List<? extends PersistentObject> entities) throws SPersistenceException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        final Map<Class<? extends PersistentObject>, List<PersistentObject>> entitiesByClass = new LinkedHashMap<>();
         for (final PersistentObject entity : entities) {
             if (!(entity instanceof PlatformPersistentObject)) {
                 setTenant(entity);
             }
+            final Class<? extends PersistentObject> entityClass = entity.getClass();
+            checkClassMapping(entityClass);
+            entitiesByClass.computeIfAbsent(entityClass, c -> new ArrayList<>()).add(entity);
         }
-        if (!entities.isEmpty()) {
-            final Session session = getSession();
-            for (final PersistentObject entity : entities) {
-                final Class<? extends PersistentObject> entityClass = entity.getClass();
-                checkClassMapping(entityClass);
-                setId(entity);
-                session.save(entity);
+        final Session session = getSession();
+        final Integer previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(insertBatchSize);
+        try {
+            for (final List<PersistentObject> sameClassEntities : entitiesByClass.values()) {
+                setIds(sameClassEntities);
+                for (final PersistentObject entity : sameClassEntities) {
+                    session.save(entity);
+                }
+                recordInsertBatches(sameClassEntities.size());
             }
+            session.flush();
+        } catch (final AssertionFailure | LockAcquisitionException | StaleStateException e) {
+            throw new SRetryableException(e);
+        } catch (final HibernateException he) {
+            throw new SPersistenceException(he);
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+        }
+    }
+
+    private void recordInsertBatches(final int numberOfRows) {
+        for (int remaining = numberOfRows; remaining > 0; remaining -= insertBatchSize) {
+            rowsPerInsertBatch.record(Math.min(remaining, insertBatchSize));
         }
     }
 
@@ -559,13 +604,43 @@ public class HibernatePersistenceService implements PersistenceService {
             try {
                 final long tenantId = entity instanceof PlatformPersistentObject ? -1 : getTenantId();
                 id = getSequenceManager().getNextId(entity.getClass().getName(), tenantId);
-                ClassReflector.invokeSetter(entity, "setId", long.class, id);
+                entity.setId(id);
             } catch (final Exception e) {
                 throw new SPersistenceException("Problem while saving entity: " + entity + " with id: " + id, e);
             }
         }
     }
 
+    /**
+     * Set the ids of entities of the same class, getting all missing ids from the sequence at once
+     */
+    private void setIds(final List<PersistentObject> entities) throws SPersistenceException {
+        final List<PersistentObject> entitiesWithoutId = new ArrayList<>(entities.size());
+        for (final PersistentObject entity : entities) {
+            if (entity.getId() == -1 || entity.getId() == 0) {
+                entitiesWithoutId.add(entity);
+            }
+        }
+        if (entitiesWithoutId.size() <= 1) {
+            for (final PersistentObject entity : entitiesWithoutId) {
+                setId(entity);
+            }
+            return;
+        }
+        final PersistentObject firstEntity = entitiesWithoutId.get(0);
+        try {
+            final long tenantId = firstEntity instanceof PlatformPersistentObject ? -1 : getTenantId();
+            final long[] ids = getSequenceManager().getNextIds(firstEntity.getClass().getName(),
+                    entitiesWithoutId.size(), tenantId);
+            for (int i = 0; i < ids.length; i++) {
+                entitiesWithoutId.get(i).setId(ids[i]);
+            }
+        } catch (final Exception e) {
+            throw new SPersistenceException("Problem while getting ids of " + entitiesWithoutId.size()
+                    + " entities of class " + firstEntity.getClass().getName(), e);
+        }
+    }
+
     protected Logger getLogger() {
         return log;
     }
@@ -578,23 +653,24 @@ public class HibernatePersistenceService implements PersistenceService {
         if (entity == null) {
             return;
         }
-        // if this entity has no id, set it
+        // if this entity has no tenant id, set it
         Long tenantId = null;
         try {
-            tenantId = ClassReflector.invokeGetter(entity, "getTenantId");
+            tenantId = TenantIdAccessor.getTenantId(entity);
         } catch (final Exception e) {
             // this is a new object to save
         }
         if (tenantId == null || tenantId == -1 || tenantId == 0) {
-            setTenantByClassReflector(entity, tenantId);
+            setCurrentTenant(entity);
         }
     }
 
-    private void setTenantByClassReflector(final PersistentObject entity, Long tenantId) throws SPersistenceException {
+    private void setCurrentTenant(final PersistentObject entity) throws SPersistenceException {
+        Long tenantId = null;
         try {
             tenantId = getTenantId();
-            ClassReflector.invokeSetter(entity, "setTenantId", long.class, tenantId);
-        } catch (final SReflectException | STenantIdNotSetException e) {
+            entity.setTenantId(tenantId);
+        } catch (final STenantIdNotSetException e) {
             throw new SPersistenceException("Can't set tenantId = <" + tenantId + "> on entity." + entity, e);
         }
     }
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.persistence;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Read the tenant id of persistent objects, that is not part of {@link PersistentObject}, with a {@link MethodHandle}
+ * resolved once per class instead of looking the getter up by reflection on each call.
+ */
+public final class TenantIdAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Long.class, PersistentObject.class);
+
+    private static final ClassValue<MethodHandle> GETTERS = new ClassValue<MethodHandle>() {
+
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                Method getter = type.getMethod("getTenantId");
+                getter.setAccessible(true);
+                return MethodHandles.lookup().unreflect(getter).asType(GETTER_TYPE);
+            } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+                // no usable getter: the tenant id is considered as not set
+                return null;
+            }
+        }
+    };
+
+    private TenantIdAccessor() {
+    }
+
+    /**
+     * @return the tenant id of the entity, or null if its class has no public {@code getTenantId} method
+     */
+    public static Long getTenantId(PersistentObject entity) {
+        MethodHandle getter = GETTERS.get(entity.getClass());
+        if (getter == null) {
+            return null;
+        }
+        try {
+            return (Long) getter.invokeExact(entity);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -30,4 +30,8 @@ public class SRecorderException extends SBonitaException {
         super(message);
     }
 
+    public SRecorderException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
 }
@@ -28,6 +28,15 @@ public interface SequenceManager {
 
     long getNextId(String entityName, long tenantId) throws SObjectNotFoundException, SObjectModificationException;
 
+    /**
+     * Get several ids of the same sequence at once
+     *
+     * @param count number of ids to get
+     * @return the ids, not necessarily contiguous
+     */
+    long[] getNextIds(String entityName, int count, long tenantId)
+            throws SObjectNotFoundException, SObjectModificationException;
+
     /**
      * clear all in memory sequence
      */
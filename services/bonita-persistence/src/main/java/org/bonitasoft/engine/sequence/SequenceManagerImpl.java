@@ -15,9 +15,12 @@ package org.bonitasoft.engine.sequence;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.sql.DataSource;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
 import org.bonitasoft.engine.lock.LockService;
 
@@ -40,17 +43,45 @@ public class SequenceManagerImpl implements SequenceManager {
 
     private final LockService lockService;
 
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService prefetchExecutor;
+
+    private final int prefetchLowWaterMark;
+
+    private final int maxRangeSizeFactor;
+
+    private final long targetRefillInterval;
+
     private final Map<Long, TenantSequenceManagerImpl> sequenceManagers = new HashMap<>();
 
+    /**
+     * @param prefetch reserve the next range of a sequence in background when its current range reaches the low water
+     *        mark
+     * @param prefetchLowWaterMark percentage of the current range left when the next range is reserved
+     * @param maxRangeSizeFactor ranges can grow up to this factor of their configured size when they are consumed in
+     *        less than targetRefillInterval milliseconds, 1 to always use the configured size
+     */
     public SequenceManagerImpl(final LockService lockService,
             final SequenceMappingProvider sequenceMappingProvider,
-            final DataSource datasource, final int retries, final int delay, final int delayFactor) {
+            final DataSource datasource, final int retries, final int delay, final int delayFactor,
+            final MeterRegistry meterRegistry, final boolean prefetch, final int prefetchLowWaterMark,
+            final int maxRangeSizeFactor, final long targetRefillInterval) {
         this.lockService = lockService;
         this.sequenceMappingProvider = sequenceMappingProvider;
         this.retries = retries;
         this.delay = delay;
         this.delayFactor = delayFactor;
         this.datasource = datasource;
+        this.meterRegistry = meterRegistry;
+        this.prefetchLowWaterMark = prefetchLowWaterMark;
+        this.maxRangeSizeFactor = Math.max(1, maxRangeSizeFactor);
+        this.targetRefillInterval = targetRefillInterval;
+        this.prefetchExecutor = prefetch ? Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Bonita-Sequence-Prefetch");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
     }
 
     @Override
@@ -63,6 +94,12 @@ public class SequenceManagerImpl implements SequenceManager {
         return getTenantSequenceManager(tenantId).getNextId(entityName);
     }
 
+    @Override
+    public long[] getNextIds(final String entityName, final int count, final long tenantId)
+            throws SObjectNotFoundException {
+        return getTenantSequenceManager(tenantId).getNextIds(entityName, count);
+    }
+
     private TenantSequenceManagerImpl getTenantSequenceManager(long tenantId) {
         if (sequenceManagers.get(tenantId) == null) {
             synchronized (this) {
@@ -77,7 +114,8 @@ public class SequenceManagerImpl implements SequenceManager {
     TenantSequenceManagerImpl createTenantSequenceManager(long tenantId) {
         return new TenantSequenceManagerImpl(tenantId, lockService, getSequenceIdToRangeSizeMap(),
                 getClassNameToSequenceIdMap(), datasource, retries, delay,
-                delayFactor);
+                delayFactor, meterRegistry, prefetchExecutor, prefetchLowWaterMark, maxRangeSizeFactor,
+                targetRefillInterval);
     }
 
     @Override
@@ -87,7 +125,9 @@ public class SequenceManagerImpl implements SequenceManager {
 
     @Override
     public void close() {
-        // Do nothing
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+        }
     }
 
     @Override
@@ -14,25 +14,45 @@
 package org.bonitasoft.engine.sequence;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class SequenceRange {
 
-    private AtomicLong nextAvailableId;
-    private long lastIdInRange;
-    private final int rangeSize;
+    private volatile Range range;
+    private final int initialRangeSize;
+    private final int maxRangeSize;
+    private volatile int rangeSize;
+    private long lastRefillTime;
+    private boolean refilled;
+    // range reserved in database in advance, -1 when there is none
+    private volatile long prefetchedFirstId = -1;
+    private int prefetchedRangeSize;
+    private final AtomicBoolean prefetching = new AtomicBoolean();
 
     public SequenceRange(int rangeSize) {
+        this(rangeSize, rangeSize);
+    }
+
+    /**
+     * @param rangeSize size of the ranges reserved in database
+     * @param maxRangeSize maximum size the ranges can grow up to when ids are allocated quickly, see
+     *        {@link #adaptRangeSize(long, long)}
+     */
+    public SequenceRange(int rangeSize, int maxRangeSize) {
+        this.initialRangeSize = rangeSize;
+        this.maxRangeSize = Math.max(rangeSize, maxRangeSize);
         this.rangeSize = rangeSize;
     }
 
     public Optional<Long> getNextAvailableId() {
-        if (nextAvailableId == null) {
+        Range range = this.range;
+        if (range == null) {
             // Range is not initialized yet:
             return Optional.empty();
         }
-        long nextId = nextAvailableId.getAndUpdate(current -> {
-            if (current == -1 || current >= lastIdInRange) {
+        long nextId = range.nextAvailableId.getAndUpdate(current -> {
+            if (current == -1 || current >= range.lastIdInRange) {
                 return -1; // -1 means no more Id available
             } else {
                 return current + 1;
@@ -44,8 +64,122 @@ public class SequenceRange {
         return Optional.of(nextId);
     }
 
+    /**
+     * Take, in one operation, as many ids as available in the current range to fill the given array from the given
+     * offset.
+     *
+     * @return the number of ids written in the array
+     */
+    public int getNextAvailableIds(long[] ids, int offset) {
+        Range range = this.range;
+        int wanted = ids.length - offset;
+        if (range == null || wanted <= 0) {
+            return 0;
+        }
+        long firstId = range.nextAvailableId.getAndUpdate(current -> {
+            if (current == -1) {
+                return -1;
+            }
+            long lastTakenId = Math.min(current + wanted - 1, range.lastIdInRange);
+            // -1 means no more Id available
+            return lastTakenId == range.lastIdInRange ? -1 : lastTakenId + 1;
+        });
+        if (firstId < 0) {
+            return 0;
+        }
+        // the ids from the first one up to the end of the range, or the wanted ones if the range has more
+        int taken = (int) Math.min(wanted, range.lastIdInRange - firstId + 1);
+        for (int i = 0; i < taken; i++) {
+            ids[offset + i] = firstId + i;
+        }
+        return taken;
+    }
+
     public void updateToNextRange(long nextAvailableIdFromDatabase) {
-        nextAvailableId = new AtomicLong(nextAvailableIdFromDatabase);
-        lastIdInRange = nextAvailableIdFromDatabase + rangeSize - 1;
+        updateToNextRange(nextAvailableIdFromDatabase, rangeSize);
+    }
+
+    public void updateToNextRange(long nextAvailableIdFromDatabase, int size) {
+        range = new Range(nextAvailableIdFromDatabase, size);
+    }
+
+    /**
+     * @return the size of the next range to reserve in database
+     */
+    public int getRangeSize() {
+        return rangeSize;
+    }
+
+    /**
+     * Double the size of the next ranges when the previous range was consumed in less than the target interval, and
+     * halve it, down to its initial size, when it took more than 4 times the target interval.
+     *
+     * @param now time of the refill, in nanoseconds
+     */
+    public void adaptRangeSize(long now, long targetRefillIntervalNanos) {
+        if (refilled) {
+            long elapsed = now - lastRefillTime;
+            if (elapsed < targetRefillIntervalNanos) {
+                rangeSize = (int) Math.min(2L * rangeSize, maxRangeSize);
+            } else if (elapsed > 4 * targetRefillIntervalNanos) {
+                rangeSize = Math.max(rangeSize / 2, initialRangeSize);
+            }
+        }
+        lastRefillTime = now;
+        refilled = true;
+    }
+
+    /**
+     * @return true when the given id, taken from the current range, leaves less than the given percentage of the range
+     *         available
+     */
+    public boolean isBelowLowWaterMark(long id, int lowWaterMarkPercent) {
+        Range range = this.range;
+        return range != null && range.lastIdInRange - id <= (long) range.size * lowWaterMarkPercent / 100;
+    }
+
+    /**
+     * @return true if the caller must reserve the next range in advance, false if it is already reserved or being
+     *         reserved
+     */
+    public boolean startPrefetch() {
+        return prefetchedFirstId < 0 && prefetching.compareAndSet(false, true);
+    }
+
+    public void setPrefetchedRange(long firstId, int size) {
+        prefetchedRangeSize = size;
+        prefetchedFirstId = firstId;
+        prefetching.set(false);
+    }
+
+    public void cancelPrefetch() {
+        prefetching.set(false);
+    }
+
+    /**
+     * Make the range reserved in advance the current one.
+     *
+     * @return false if no range was reserved in advance
+     */
+    public boolean updateToPrefetchedRange() {
+        if (prefetchedFirstId < 0) {
+            return false;
+        }
+        updateToNextRange(prefetchedFirstId, prefetchedRangeSize);
+        prefetchedFirstId = -1;
+        return true;
+    }
+
+    private static final class Range {
+
+        private final AtomicLong nextAvailableId;
+        private final long lastIdInRange;
+        private final int size;
+
+        private Range(long firstId, int size) {
+            this.nextAvailableId = new AtomicLong(firstId);
+            this.lastIdInRange = firstId + size - 1;
+            this.size = size;
+        }
     }
 }
@@ -15,12 +15,18 @@ package org.bonitasoft.engine.sequence;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import org.bonitasoft.engine.commons.exceptions.SBonitaRuntimeException;
 import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
 import org.bonitasoft.engine.lock.BonitaLock;
@@ -41,8 +47,14 @@ public class TenantSequenceManagerImpl {
 
     static final String SEQUENCE = "SEQUENCE";
 
+    public static final String NUMBER_OF_RANGE_REFILLS = "bonita.bpmengine.sequence.range.refill";
+    public static final String RANGE_WAIT_TIME = "bonita.bpmengine.sequence.range.wait";
+    public static final String RANGE_SIZE = "bonita.bpmengine.sequence.range.size";
+    static final String SYNCHRONOUS_REFILL = "synchronous";
+    static final String PREFETCH_REFILL = "prefetch";
+
     private final Long tenantId;
-    private final Map<Long, SequenceRange> sequences = new HashMap<>();
+    private final Map<Long, SequenceRange> sequences = new ConcurrentHashMap<>();
     private final Map<Long, Integer> sequenceIdToRangeSize;
     private final Map<String, Long> classNameToSequenceId;
 
@@ -56,10 +68,29 @@ public class TenantSequenceManagerImpl {
 
     private final LockService lockService;
 
+    private final MeterRegistry meterRegistry;
+
+    private final Executor prefetchExecutor;
+
+    private final int lowWaterMarkPercent;
+
+    private final int maxRangeSizeFactor;
+
+    private final long targetRefillIntervalNanos;
+
+    /**
+     * @param prefetchExecutor executor reserving the next range of a sequence in background when its current range
+     *        reaches the low water mark, null to reserve ranges only when they are exhausted
+     * @param lowWaterMarkPercent percentage of the current range left when the next range is reserved in background
+     * @param maxRangeSizeFactor ranges of a sequence can grow up to this factor of their configured size when they are
+     *        consumed in less than the target refill interval, 1 to always use the configured size
+     */
     public TenantSequenceManagerImpl(final long tenantId, final LockService lockService,
             final Map<Long, Integer> sequenceIdToRangeSize,
             final Map<String, Long> classNameToSequenceId,
-            final DataSource datasource, final int retries, final int delay, final int delayFactor) {
+            final DataSource datasource, final int retries, final int delay, final int delayFactor,
+            final MeterRegistry meterRegistry, final Executor prefetchExecutor, final int lowWaterMarkPercent,
+            final int maxRangeSizeFactor, final long targetRefillIntervalMillis) {
         this.tenantId = tenantId;
         this.lockService = lockService;
         this.sequenceIdToRangeSize = sequenceIdToRangeSize;
@@ -68,6 +99,11 @@ public class TenantSequenceManagerImpl {
         this.delay = delay;
         this.delayFactor = delayFactor;
         this.datasource = datasource;
+        this.meterRegistry = meterRegistry;
+        this.prefetchExecutor = prefetchExecutor;
+        this.lowWaterMarkPercent = lowWaterMarkPercent;
+        this.maxRangeSizeFactor = maxRangeSizeFactor;
+        this.targetRefillIntervalNanos = TimeUnit.MILLISECONDS.toNanos(targetRefillIntervalMillis);
     }
 
     public long getNextId(final String entityName) throws SObjectNotFoundException {
@@ -75,18 +111,56 @@ public class TenantSequenceManagerImpl {
         SequenceRange sequence = getSequence(sequenceId);
         Optional<Long> nextAvailableId = sequence.getNextAvailableId();
         if (nextAvailableId.isPresent()) {
+            prefetchIfNeeded(sequenceId, sequence, nextAvailableId.get());
             return nextAvailableId.get();
         }
+        return getNextIdFromNextRange(entityName, sequenceId, sequence);
+    }
+
+    /**
+     * Get several ids at once: they are taken from the current range in one operation, the next ranges are only
+     * reserved when the current one is exhausted.
+     */
+    public long[] getNextIds(final String entityName, final int count) throws SObjectNotFoundException {
+        final Long sequenceId = getSequenceId(entityName);
+        SequenceRange sequence = getSequence(sequenceId);
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            int taken = sequence.getNextAvailableIds(ids, filled);
+            if (taken > 0) {
+                filled += taken;
+                prefetchIfNeeded(sequenceId, sequence, ids[filled - 1]);
+                continue;
+            }
+            ids[filled++] = getNextIdFromNextRange(entityName, sequenceId, sequence);
+        }
+        return ids;
+    }
+
+    private long getNextIdFromNextRange(String entityName, Long sequenceId, SequenceRange sequence)
+            throws SObjectNotFoundException {
+        long waitStart = System.nanoTime();
+        try {
+            return waitForNextRange(entityName, sequenceId, sequence);
+        } finally {
+            meterRegistry.timer(RANGE_WAIT_TIME, sequenceTags(sequenceId))
+                    .record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private long waitForNextRange(String entityName, Long sequenceId, SequenceRange sequence)
+            throws SObjectNotFoundException {
         //synchronize on the sequence object itself (we will read/update only on this one)
         synchronized (sequence) {
-            nextAvailableId = sequence.getNextAvailableId();
+            Optional<Long> nextAvailableId = sequence.getNextAvailableId();
             int loopCounter = 0;
             // set a max number of retries to 100:
             while (!nextAvailableId.isPresent() && loopCounter < 100) {
                 if (loopCounter > 0) {
                     logger.debug("Could not get an Id after updating to next range. Retrying...");
                 }
-                sequence.updateToNextRange(setNewRange(sequenceId));
+                updateToNextRange(sequenceId, sequence);
                 nextAvailableId = sequence.getNextAvailableId();
                 loopCounter++;
             }
@@ -95,15 +169,67 @@ public class TenantSequenceManagerImpl {
         }
     }
 
-    private SequenceRange getSequence(Long sequenceId) {
-        if (!sequences.containsKey(sequenceId)) {
-            synchronized (this) {
-                if (!sequences.containsKey(sequenceId)) {
-                    sequences.put(sequenceId, new SequenceRange(sequenceIdToRangeSize.get(sequenceId)));
-                }
+    private void updateToNextRange(long sequenceId, SequenceRange sequence) throws SObjectNotFoundException {
+        if (!sequence.updateToPrefetchedRange()) {
+            int rangeSize = sequence.getRangeSize();
+            sequence.updateToNextRange(setNewRange(sequenceId, rangeSize), rangeSize);
+            countRefill(sequenceId, SYNCHRONOUS_REFILL);
+        }
+        sequence.adaptRangeSize(System.nanoTime(), targetRefillIntervalNanos);
+    }
+
+    private void prefetchIfNeeded(long sequenceId, SequenceRange sequence, long givenId) {
+        if (prefetchExecutor == null || !sequence.isBelowLowWaterMark(givenId, lowWaterMarkPercent)
+                || !sequence.startPrefetch()) {
+            return;
+        }
+        try {
+            prefetchExecutor.execute(() -> prefetch(sequenceId, sequence));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Unable to prefetch the next range of sequence {}: {}", sequenceId, e.getMessage());
+            sequence.cancelPrefetch();
+        }
+    }
+
+    private void prefetch(long sequenceId, SequenceRange sequence) {
+        try {
+            int rangeSize = sequence.getRangeSize();
+            long firstId = setNewRange(sequenceId, rangeSize);
+            synchronized (sequence) {
+                sequence.setPrefetchedRange(firstId, rangeSize);
             }
+            countRefill(sequenceId, PREFETCH_REFILL);
+        } catch (SObjectNotFoundException | RuntimeException e) {
+            logger.warn("Unable to prefetch the next range of sequence {}, it will be retrieved when needed: {}",
+                    sequenceId, e.getMessage());
+            logger.debug("Cause:", e);
+            sequence.cancelPrefetch();
+        }
+    }
+
+    private void countRefill(long sequenceId, String refillType) {
+        meterRegistry.counter(NUMBER_OF_RANGE_REFILLS, sequenceTags(sequenceId).and("type", refillType))
+                .increment();
+    }
+
+    private Tags sequenceTags(long sequenceId) {
+        return Tags.of("tenant", String.valueOf(tenantId), "sequence", String.valueOf(sequenceId));
+    }
+
+    private SequenceRange getSequence(Long sequenceId) {
+        SequenceRange sequence = sequences.get(sequenceId);
+        if (sequence != null) {
+            return sequence;
         }
-        return sequences.get(sequenceId);
+        return sequences.computeIfAbsent(sequenceId, id -> {
+            int rangeSize = sequenceIdToRangeSize.get(id);
+            SequenceRange sequenceRange = new SequenceRange(rangeSize, rangeSize * maxRangeSizeFactor);
+            Gauge.builder(RANGE_SIZE, sequenceRange, SequenceRange::getRangeSize)
+                    .tags(sequenceTags(id)).baseUnit("ids")
+                    .description("Size of the next range of ids reserved in database")
+                    .register(meterRegistry);
+            return sequenceRange;
+        });
     }
 
     private Long getSequenceId(String entityName) throws SObjectNotFoundException {
@@ -119,7 +245,7 @@ public class TenantSequenceManagerImpl {
      *
      * @return the next available id of the sequence
      */
-    private long setNewRange(final long sequenceId) throws SObjectNotFoundException {
+    private long setNewRange(final long sequenceId, final int rangeSize) throws SObjectNotFoundException {
         BonitaLock lock = createLock(sequenceId);
         Exception lastException = null;
         try {
@@ -134,7 +260,7 @@ public class TenantSequenceManagerImpl {
                     connection.setAutoCommit(false);
                     SequenceDAO sequenceDAO = createDao(connection);
                     long nextAvailableId = sequenceDAO.selectById(sequenceId);
-                    sequenceDAO.updateSequence(nextAvailableId + sequenceIdToRangeSize.get(sequenceId), sequenceId);
+                    sequenceDAO.updateSequence(nextAvailableId + rangeSize, sequenceId);
                     connection.commit();
                     return nextAvailableId;
                 } catch (final SObjectNotFoundException t) {
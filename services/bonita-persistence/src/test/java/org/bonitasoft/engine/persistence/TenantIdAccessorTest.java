@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class TenantIdAccessorTest {
+
+    @Test
+    public void should_read_the_tenant_id_of_an_entity() {
+        PrimitiveTenantIdObject entity = new PrimitiveTenantIdObject();
+        entity.setTenantId(12L);
+
+        assertThat(TenantIdAccessor.getTenantId(entity)).isEqualTo(12L);
+    }
+
+    @Test
+    public void should_return_null_when_the_entity_has_no_tenant_id_getter() {
+        assertThat(TenantIdAccessor.getTenantId(new Book())).isNull();
+    }
+
+    @Test
+    public void should_return_null_when_the_tenant_id_is_not_set() {
+        assertThat(TenantIdAccessor.getTenantId(new BoxedTenantIdObject())).isNull();
+    }
+
+    public static class PrimitiveTenantIdObject extends TestObject {
+
+        private long tenantId;
+
+        public long getTenantId() {
+            return tenantId;
+        }
+
+        @Override
+        public void setTenantId(long tenantId) {
+            this.tenantId = tenantId;
+        }
+    }
+
+    public static class BoxedTenantIdObject implements PersistentObject {
+
+        private long id;
+        private Long tenantId;
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public Long getTenantId() {
+            return tenantId;
+        }
+
+        @Override
+        public void setTenantId(long tenantId) {
+            this.tenantId = tenantId;
+        }
+    }
+}
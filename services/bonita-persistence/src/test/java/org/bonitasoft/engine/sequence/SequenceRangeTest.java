@@ -63,4 +63,82 @@ public class SequenceRangeTest {
         assertThat(sequenceRange.getNextAvailableId()).isNotPresent();
         assertThat(sequenceRange.getNextAvailableId()).isNotPresent();
     }
+
+    @Test
+    public void should_use_the_prefetched_range_once() {
+        SequenceRange sequenceRange = new SequenceRange(2);
+        sequenceRange.updateToNextRange(1);
+
+        assertThat(sequenceRange.startPrefetch()).isTrue();
+        assertThat(sequenceRange.startPrefetch()).isFalse();
+        sequenceRange.setPrefetchedRange(10, 2);
+        assertThat(sequenceRange.startPrefetch()).isFalse();
+
+        assertThat(sequenceRange.updateToPrefetchedRange()).isTrue();
+        assertThat(sequenceRange.getNextAvailableId()).contains(10L);
+        assertThat(sequenceRange.updateToPrefetchedRange()).isFalse();
+        assertThat(sequenceRange.startPrefetch()).isTrue();
+    }
+
+    @Test
+    public void should_be_below_low_water_mark_when_few_ids_are_left() {
+        SequenceRange sequenceRange = new SequenceRange(10);
+        sequenceRange.updateToNextRange(100);
+
+        assertThat(sequenceRange.isBelowLowWaterMark(106, 20)).isFalse();
+        assertThat(sequenceRange.isBelowLowWaterMark(107, 20)).isTrue();
+    }
+
+    @Test
+    public void should_double_range_size_when_refilled_quickly_and_halve_it_when_refilled_slowly() {
+        SequenceRange sequenceRange = new SequenceRange(10, 40);
+
+        sequenceRange.adaptRangeSize(0, 100);
+        assertThat(sequenceRange.getRangeSize()).isEqualTo(10);
+        sequenceRange.adaptRangeSize(50, 100);
+        sequenceRange.adaptRangeSize(100, 100);
+        sequenceRange.adaptRangeSize(150, 100);
+        assertThat(sequenceRange.getRangeSize()).isEqualTo(40);
+        sequenceRange.adaptRangeSize(350, 100);
+        assertThat(sequenceRange.getRangeSize()).isEqualTo(40);
+        sequenceRange.adaptRangeSize(1000, 100);
+        assertThat(sequenceRange.getRangeSize()).isEqualTo(20);
+        sequenceRange.adaptRangeSize(2000, 100);
+        sequenceRange.adaptRangeSize(3000, 100);
+        assertThat(sequenceRange.getRangeSize()).isEqualTo(10);
+    }
+
+    @Test
+    public void should_give_several_ids_at_once_up_to_the_end_of_the_range() {
+        SequenceRange sequenceRange = new SequenceRange(5);
+        sequenceRange.updateToNextRange(10);
+        long[] ids = new long[8];
+
+        assertThat(sequenceRange.getNextAvailableIds(ids, 0)).isEqualTo(5);
+        assertThat(sequenceRange.getNextAvailableIds(ids, 5)).isZero();
+        assertThat(sequenceRange.getNextAvailableId()).isNotPresent();
+        assertThat(ids).startsWith(10, 11, 12, 13, 14);
+    }
+
+    @Test
+    public void should_give_all_ids_left_in_the_range_at_once() {
+        SequenceRange sequenceRange = new SequenceRange(5);
+        sequenceRange.updateToNextRange(10);
+        long[] ids = new long[5];
+
+        assertThat(sequenceRange.getNextAvailableIds(ids, 0)).isEqualTo(5);
+        assertThat(ids).containsExactly(10, 11, 12, 13, 14);
+        assertThat(sequenceRange.getNextAvailableId()).isNotPresent();
+        assertThat(sequenceRange.getNextAvailableIds(new long[1], 0)).isZero();
+    }
+
+    @Test
+    public void should_give_next_id_after_ids_given_at_once() {
+        SequenceRange sequenceRange = new SequenceRange(5);
+        sequenceRange.updateToNextRange(10);
+
+        assertThat(sequenceRange.getNextAvailableIds(new long[4], 0)).isEqualTo(4);
+        assertThat(sequenceRange.getNextAvailableId()).contains(14L);
+        assertThat(sequenceRange.getNextAvailableId()).isNotPresent();
+    }
 }
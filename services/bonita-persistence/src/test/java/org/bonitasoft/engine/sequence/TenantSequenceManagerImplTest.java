@@ -24,9 +24,12 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.sql.DataSource;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
 import org.bonitasoft.engine.lock.BonitaLock;
 import org.bonitasoft.engine.lock.LockService;
@@ -65,17 +68,20 @@ public class TenantSequenceManagerImplTest {
     @Mock
     private Connection connection;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HashMap<Long, Integer> sequenceIdToRangeSize;
+    private HashMap<String, Long> classNameToSequenceId;
     private TenantSequenceManagerImpl tenantSequenceManager;
 
     @Before
     public void before() throws Exception {
         doReturn(connection).when(dataSource).getConnection();
-        HashMap<Long, Integer> sequenceIdToRangeSize = new HashMap<>();
+        sequenceIdToRangeSize = new HashMap<>();
         sequenceIdToRangeSize.put(SEQUENCE_w_2, 2);
         sequenceIdToRangeSize.put(SEQUENCE_w_5, 5);
         sequenceIdToRangeSize.put(SEQUENCE_w_100, 100);
         sequenceIdToRangeSize.put(SEQUENCE_w_1000, 1000);
-        HashMap<String, Long> classNameToSequenceId = new HashMap<>();
+        classNameToSequenceId = new HashMap<>();
         classNameToSequenceId.put(OBJECT_w_2, SEQUENCE_w_2);
         classNameToSequenceId.put(OBJECT_w_5, SEQUENCE_w_5);
         classNameToSequenceId.put(OBJECT_w_100, SEQUENCE_w_100);
@@ -83,8 +89,14 @@ public class TenantSequenceManagerImplTest {
 
         doReturn(lock).when(lockService).lock(anyLong(), anyString(), anyLong());
 
-        tenantSequenceManager = new TenantSequenceManagerImpl(TENANT_ID, lockService, sequenceIdToRangeSize,
-                classNameToSequenceId, dataSource, RETRIES, 1, 1) {
+        tenantSequenceManager = createTenantSequenceManager(null, 1, 1000);
+    }
+
+    private TenantSequenceManagerImpl createTenantSequenceManager(Executor prefetchExecutor, int maxRangeSizeFactor,
+            long targetRefillInterval) {
+        return new TenantSequenceManagerImpl(TENANT_ID, lockService, sequenceIdToRangeSize,
+                classNameToSequenceId, dataSource, RETRIES, 1, 1, meterRegistry, prefetchExecutor, 20,
+                maxRangeSizeFactor, targetRefillInterval) {
 
             @Override
             SequenceDAO createDao(Connection connection) {
@@ -269,4 +281,90 @@ public class TenantSequenceManagerImplTest {
         assertThatThrownBy(() -> tenantSequenceManager.getNextId(OBJECT_w_5))
                 .hasMessage("Unable to get a sequence id for 554");
     }
+
+    @Test
+    public void should_reserve_next_range_in_background_when_reaching_low_water_mark() throws Exception {
+        tenantSequenceManager = createTenantSequenceManager(Runnable::run, 1, 1000);
+        doReturn(100L, 200L).when(sequenceDAO).selectById(SEQUENCE_w_5);
+
+        assertThat(tenantSequenceManager.getNextId(OBJECT_w_5)).isEqualTo(100);
+        assertThat(tenantSequenceManager.getNextId(OBJECT_w_5)).isEqualTo(101);
+        assertThat(tenantSequenceManager.getNextId(OBJECT_w_5)).isEqualTo(102);
+        verify(sequenceDAO, times(1)).selectById(SEQUENCE_w_5);
+        // only one id left in range: next range is reserved
+        assertThat(tenantSequenceManager.getNextId(OBJECT_w_5)).isEqualTo(103);
+        verify(sequenceDAO).updateSequence(205L, SEQUENCE_w_5);
+        assertThat(tenantSequenceManager.getNextId(OBJECT_w_5)).isEqualTo(104);
+        assertThat(tenantSequenceManager.getNextId(OBJECT_w_5)).isEqualTo(200);
+
+        verify(sequenceDAO, times(2)).selectById(SEQUENCE_w_5);
+        assertThat(meterRegistry.find(TenantSequenceManagerImpl.NUMBER_OF_RANGE_REFILLS)
+                .tag("type", TenantSequenceManagerImpl.PREFETCH_REFILL).counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.find(TenantSequenceManagerImpl.NUMBER_OF_RANGE_REFILLS)
+                .tag("type", TenantSequenceManagerImpl.SYNCHRONOUS_REFILL).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_get_next_range_from_database_when_reserving_it_in_background_is_rejected() throws Exception {
+        tenantSequenceManager = createTenantSequenceManager(command -> {
+            throw new RejectedExecutionException("stopped");
+        }, 1, 1000);
+        doReturn(100L, 200L).when(sequenceDAO).selectById(SEQUENCE_w_2);
+
+        assertThat(tenantSequenceManager.getNextId(OBJECT_w_2)).isEqualTo(100);
+        assertThat(tenantSequenceManager.getNextId(OBJECT_w_2)).isEqualTo(101);
+        assertThat(tenantSequenceManager.getNextId(OBJECT_w_2)).isEqualTo(200);
+    }
+
+    @Test
+    public void should_grow_range_size_when_ranges_are_consumed_quickly() throws Exception {
+        tenantSequenceManager = createTenantSequenceManager(null, 4, 3_600_000);
+        doReturn(100L, 200L, 300L).when(sequenceDAO).selectById(SEQUENCE_w_5);
+
+        for (int i = 0; i < 11; i++) {
+            tenantSequenceManager.getNextId(OBJECT_w_5);
+        }
+
+        InOrder inOrder = inOrder(sequenceDAO);
+        inOrder.verify(sequenceDAO).updateSequence(105L, SEQUENCE_w_5);
+        inOrder.verify(sequenceDAO).updateSequence(205L, SEQUENCE_w_5);
+        inOrder.verify(sequenceDAO).updateSequence(310L, SEQUENCE_w_5);
+        assertThat(meterRegistry.find(TenantSequenceManagerImpl.RANGE_SIZE).tag("sequence", "554").gauge().value())
+                .isEqualTo(20);
+    }
+
+    @Test
+    public void should_not_grow_range_size_above_the_max_factor() throws Exception {
+        tenantSequenceManager = createTenantSequenceManager(null, 2, 3_600_000);
+        doReturn(100L, 200L, 300L, 400L).when(sequenceDAO).selectById(SEQUENCE_w_5);
+
+        for (int i = 0; i < 21; i++) {
+            tenantSequenceManager.getNextId(OBJECT_w_5);
+        }
+
+        verify(sequenceDAO).updateSequence(410L, SEQUENCE_w_5);
+    }
+
+    @Test
+    public void should_record_time_waiting_for_a_range() throws Exception {
+        doReturn(100L).when(sequenceDAO).selectById(SEQUENCE_w_100);
+
+        tenantSequenceManager.getNextId(OBJECT_w_100);
+        tenantSequenceManager.getNextId(OBJECT_w_100);
+
+        assertThat(meterRegistry.find(TenantSequenceManagerImpl.RANGE_WAIT_TIME)
+                .tags("tenant", "12", "sequence", "555").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_get_several_ids_across_ranges() throws Exception {
+        doReturn(100L, 200L, 300L).when(sequenceDAO).selectById(SEQUENCE_w_5);
+        tenantSequenceManager.getNextId(OBJECT_w_5);
+
+        long[] ids = tenantSequenceManager.getNextIds(OBJECT_w_5, 7);
+
+        assertThat(ids).containsExactly(101, 102, 103, 104, 200, 201, 202);
+        assertThat(tenantSequenceManager.getNextId(OBJECT_w_5)).isEqualTo(203);
+        verify(sequenceDAO, times(2)).selectById(SEQUENCE_w_5);
+    }
 }
@@ -14,10 +14,13 @@
 package org.bonitasoft.engine.scheduler.impl;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
@@ -33,6 +36,7 @@ import org.bonitasoft.engine.scheduler.exception.SSchedulerException;
 import org.bonitasoft.engine.scheduler.exception.jobLog.SJobLogDeletionException;
 import org.bonitasoft.engine.scheduler.model.SJobDescriptor;
 import org.bonitasoft.engine.scheduler.model.SJobParameter;
+import org.bonitasoft.engine.scheduler.trigger.OneShotTrigger;
 import org.bonitasoft.engine.scheduler.trigger.Trigger;
 import org.bonitasoft.engine.service.ServicesResolver;
 import org.bonitasoft.engine.services.PersistenceService;
@@ -68,14 +72,18 @@ public class SchedulerServiceImpl implements SchedulerService {
 
     private final ServicesResolver servicesResolver;
     private PersistenceService persistenceService;
+    private final TimerEventStore timerEventStore;
 
     /**
      * Create a new instance of scheduler service.
+     *
+     * @param timerEventStore fires one shot triggers instead of Quartz when it is enabled, can be null
      */
     public SchedulerServiceImpl(final SchedulerExecutor schedulerExecutor, final JobService jobService,
             final EventService eventService, final TransactionService transactionService,
             final SessionAccessor sessionAccessor,
-            final ServicesResolver servicesResolver, final PersistenceService persistenceService) {
+            final ServicesResolver servicesResolver, final PersistenceService persistenceService,
+            final TimerEventStore timerEventStore) {
         this.schedulerExecutor = schedulerExecutor;
         this.jobService = jobService;
         this.servicesResolver = servicesResolver;
@@ -87,12 +95,16 @@ public class SchedulerServiceImpl implements SchedulerService {
         this.transactionService = transactionService;
         this.sessionAccessor = sessionAccessor;
         schedulerExecutor.setBOSSchedulerService(this);
+        this.timerEventStore = timerEventStore;
+        if (timerEventStore != null) {
+            timerEventStore.setSchedulerService(this);
+        }
     }
 
     @Override
     public void schedule(final SJobDescriptor jobDescriptor, final Trigger trigger) throws SSchedulerException {
         final SJobDescriptor createdJobDescriptor = createJobDescriptor(jobDescriptor, Collections.emptyList());
-        internalSchedule(createdJobDescriptor, trigger);
+        schedule(createdJobDescriptor, trigger);
     }
 
     @Override
@@ -102,7 +114,26 @@ public class SchedulerServiceImpl implements SchedulerService {
             throw new SSchedulerException("The trigger is null");
         }
         final SJobDescriptor createdJobDescriptor = createJobDescriptor(jobDescriptor, parameters);
-        internalSchedule(createdJobDescriptor, trigger);
+        schedule(createdJobDescriptor, trigger);
+    }
+
+    private void schedule(final SJobDescriptor jobDescriptor, final Trigger trigger) throws SSchedulerException {
+        if (isTimerEventStoreEnabled() && trigger instanceof OneShotTrigger) {
+            timerEventStore.schedule(jobDescriptor.getId(), trigger);
+        } else {
+            internalSchedule(jobDescriptor, trigger);
+        }
+    }
+
+    private boolean isTimerEventStoreEnabled() {
+        return timerEventStore != null && timerEventStore.isEnabled();
+    }
+
+    /**
+     * @return true if timers of the timer event store are fired, even if new timers are scheduled with Quartz
+     */
+    private boolean isTimerEventStoreActive() {
+        return timerEventStore != null && timerEventStore.isActive();
     }
 
     @Override
@@ -195,11 +226,17 @@ public class SchedulerServiceImpl implements SchedulerService {
     public void start() throws SSchedulerException, SFireEventException {
         log.info("Start scheduler");
         schedulerExecutor.start();
+        if (timerEventStore != null) {
+            timerEventStore.start();
+        }
         eventService.fireEvent(schedulerStarted);
     }
 
     @Override
     public void stop() throws SSchedulerException, SFireEventException {
+        if (timerEventStore != null) {
+            timerEventStore.stop();
+        }
         schedulerExecutor.shutdown();
         eventService.fireEvent(schedulerStopped);
     }
@@ -207,16 +244,23 @@ public class SchedulerServiceImpl implements SchedulerService {
     @Override
     public void pauseJobs(final long tenantId) throws SSchedulerException {
         schedulerExecutor.pauseJobs(String.valueOf(tenantId));
+        if (timerEventStore != null) {
+            timerEventStore.pause();
+        }
     }
 
     @Override
     public void resumeJobs(final long tenantId) throws SSchedulerException {
         schedulerExecutor.resumeJobs(String.valueOf(tenantId));
+        if (timerEventStore != null) {
+            timerEventStore.resume();
+        }
     }
 
     @Override
     public boolean delete(final String jobName) throws SSchedulerException {
         final boolean delete = schedulerExecutor.delete(jobName, String.valueOf(getTenantId()));
+        // timers of the timer event store are deleted with their job descriptor
         jobService.deleteJobDescriptorByJobName(jobName);
         return delete;
     }
@@ -229,7 +273,13 @@ public class SchedulerServiceImpl implements SchedulerService {
 
     @Override
     public List<String> getJobs() throws SSchedulerException {
-        return schedulerExecutor.getJobs(String.valueOf(getTenantId()));
+        List<String> jobs = schedulerExecutor.getJobs(String.valueOf(getTenantId()));
+        if (!isTimerEventStoreActive()) {
+            return jobs;
+        }
+        Set<String> allJobs = new LinkedHashSet<>(jobs);
+        allJobs.addAll(timerEventStore.getJobNames());
+        return new ArrayList<>(allJobs);
     }
 
     @Override
@@ -269,23 +319,42 @@ public class SchedulerServiceImpl implements SchedulerService {
                 throw new SObjectNotFoundException(String
                         .format("The job %s does not exist anymore. It might be already executed", jobIdentifier));
             }
-            final String jobClassName = sJobDescriptor.getJobClassName();
-            final Class<?> jobClass = Class.forName(jobClassName);
-            final StatelessJob statelessJob = (StatelessJob) jobClass.newInstance();
-
-            Map<String, Serializable> parameters = jobService.getJobParameters(jobIdentifier.getId())
-                    .stream()
-                    .collect(Collectors.toMap(SJobParameter::getKey, SJobParameter::getValue));
-            parameters.put(StatelessJob.JOB_DESCRIPTOR_ID, jobIdentifier.getId());
-            statelessJob.setAttributes(parameters);
-            if (servicesResolver != null) {
-                servicesResolver.injectServices(jobIdentifier.getTenantId(), statelessJob);
-            }
-            return new JobWrapper(jobIdentifier, statelessJob, jobIdentifier.getTenantId(), eventService,
-                    sessionAccessor, transactionService, persistenceService, jobService);
+            return createJob(sJobDescriptor, jobIdentifier);
         }
     }
 
+    /**
+     * Create the job of the given job descriptor, in the current transaction.
+     *
+     * @return the job, or null if the job descriptor does not exist anymore
+     */
+    JobWrapper createJob(final long jobDescriptorId, final long tenantId) throws Exception {
+        final SJobDescriptor sJobDescriptor = jobService.getJobDescriptor(jobDescriptorId);
+        if (sJobDescriptor == null) {
+            log.debug("The job {} does not exist anymore. It might be already executed", jobDescriptorId);
+            return null;
+        }
+        return createJob(sJobDescriptor, new JobIdentifier(jobDescriptorId, tenantId, sJobDescriptor.getJobName()));
+    }
+
+    private JobWrapper createJob(final SJobDescriptor sJobDescriptor, final JobIdentifier jobIdentifier)
+            throws Exception {
+        final String jobClassName = sJobDescriptor.getJobClassName();
+        final Class<?> jobClass = Class.forName(jobClassName);
+        final StatelessJob statelessJob = (StatelessJob) jobClass.newInstance();
+
+        Map<String, Serializable> parameters = jobService.getJobParameters(jobIdentifier.getId())
+                .stream()
+                .collect(Collectors.toMap(SJobParameter::getKey, SJobParameter::getValue));
+        parameters.put(StatelessJob.JOB_DESCRIPTOR_ID, jobIdentifier.getId());
+        statelessJob.setAttributes(parameters);
+        if (servicesResolver != null) {
+            servicesResolver.injectServices(jobIdentifier.getTenantId(), statelessJob);
+        }
+        return new JobWrapper(jobIdentifier, statelessJob, jobIdentifier.getTenantId(), eventService,
+                sessionAccessor, transactionService, persistenceService, jobService);
+    }
+
     @Override
     public void pause() throws SBonitaException {
         pauseJobs(getTenantId());
@@ -304,16 +373,22 @@ public class SchedulerServiceImpl implements SchedulerService {
     @Override
     public Date rescheduleJob(final String triggerName, final String groupName, final Date triggerStartTime)
             throws SSchedulerException {
+        if (isTimerEventStoreActive() && timerEventStore.reschedule(triggerName, triggerStartTime)) {
+            return triggerStartTime;
+        }
         return schedulerExecutor.rescheduleJob(triggerName, groupName, triggerStartTime);
     }
 
     @Override
     public boolean isExistingJob(final String jobName) throws SSchedulerException {
-        return schedulerExecutor.isExistingJob(jobName, String.valueOf(getTenantId()));
+        return schedulerExecutor.isExistingJob(jobName, String.valueOf(getTenantId()))
+                || isTimerEventStoreActive() && timerEventStore.hasTimer(jobName);
     }
 
     @Override
     public boolean mayFireAgain(String groupName, String jobName) throws SSchedulerException {
-        return schedulerExecutor.mayFireAgain(groupName, jobName);
+        return schedulerExecutor.mayFireAgain(groupName, jobName)
+                || isTimerEventStoreActive() && getTenantIdAsString().equals(groupName)
+                        && timerEventStore.hasTimer(jobName);
     }
 }
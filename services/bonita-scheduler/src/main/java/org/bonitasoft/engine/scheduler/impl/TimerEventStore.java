@@ -0,0 +1,525 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.scheduler.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.transaction.Status;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.bonitasoft.engine.commons.exceptions.SRetryableException;
+import org.bonitasoft.engine.persistence.QueryOptions;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
+import org.bonitasoft.engine.persistence.SelectListDescriptor;
+import org.bonitasoft.engine.persistence.SelectOneDescriptor;
+import org.bonitasoft.engine.scheduler.JobService;
+import org.bonitasoft.engine.scheduler.exception.SJobExecutionException;
+import org.bonitasoft.engine.scheduler.exception.SSchedulerException;
+import org.bonitasoft.engine.scheduler.model.STimerEvent;
+import org.bonitasoft.engine.scheduler.trigger.Trigger;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.services.SPersistenceException;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.TransactionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fire one shot triggers without Quartz: each trigger is stored as a row of the timer event table, indexed by due
+ * date, instead of as a Quartz job and trigger.
+ * <p>
+ * A single thread loads the timers due in the next time window in a {@link TimingWheel}, and reloads it when the
+ * window is over. Timers scheduled by transactions that commit while a window is loaded are added to the wheel
+ * directly if they are due in that window. Due timers are fired in batches on a pool of threads owned by the store,
+ * not as works: the job of a timer is executed in the transaction that deletes its row, like Quartz executes it in the
+ * transaction of its trigger, and the jobs themselves register the works they need.
+ * <p>
+ * A timer is fired by the transaction that deletes its row, only if it is still due: timers can be loaded by all nodes
+ * of a cluster, or twice by the same node, each one is still fired once. Deleting the job descriptor of a timer, e.g.
+ * when its event is interrupted, deletes the timer as well.
+ * <p>
+ * Like with Quartz one shot triggers, the job of a timer is executed again after a delay when it fails with a
+ * retryable error, and the timer is removed when its job fails otherwise: the job is then registered as a failed job
+ * that can be retried.
+ * <p>
+ * Bulk updates and deletions of the timer event table are not filtered by tenant by Hibernate: they are restricted to
+ * the tenant of the store explicitly.
+ * <p>
+ * When the store is disabled while timers remain in the table, it still fires them, but new timers are scheduled with
+ * Quartz.
+ */
+public class TimerEventStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TimerEventStore.class);
+
+    public static final String NUMBER_OF_LOADED_TIMERS = "bonita.bpmengine.timer.wheel.loaded";
+    public static final String NUMBER_OF_FIRED_TIMERS = "bonita.bpmengine.timer.wheel.fired";
+
+    static final long TICK_MILLIS = 100;
+    // a wheel of 4 levels of 100 ms ticks covers 19 days
+    private static final int NUMBER_OF_LEVELS = 4;
+    private static final int BATCH_SIZE = 100;
+    // same delay as for jobs executed by Quartz
+    private static final int RETRY_DELAY_MILLIS = 5000;
+
+    private final PersistenceService persistenceService;
+    private final TransactionService transactionService;
+    private final SessionAccessor sessionAccessor;
+    private final JobService jobService;
+    private final long tenantId;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxTimersPerWindow;
+    private final int threads;
+
+    private final Queue<STimerEvent> scheduledTimers = new ConcurrentLinkedQueue<>();
+    private final Set<Long> timersBeingFired = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger loadedTimers = new AtomicInteger();
+    private final Counter firedTimersCounter;
+    private SchedulerServiceImpl schedulerService;
+    private TimingWheel<STimerEvent> wheel;
+    private ScheduledExecutorService wheelExecutor;
+    private ExecutorService firingExecutor;
+    private volatile boolean running;
+    // timers due before this date are loaded in the wheel
+    private volatile long loadedUntil;
+    private volatile boolean reloadRequested;
+
+    /**
+     * @param enabled fire one shot triggers from the timer event table instead of with Quartz
+     * @param window duration of the windows of timers loaded in memory, in ISO-8601 format
+     * @param maxTimersPerWindow maximum number of timers loaded in memory, the window is shortened when it is reached
+     * @param threads number of threads firing due timers
+     */
+    public TimerEventStore(PersistenceService persistenceService, TransactionService transactionService,
+            SessionAccessor sessionAccessor, JobService jobService, long tenantId, MeterRegistry meterRegistry,
+            boolean enabled, String window, int maxTimersPerWindow, int threads) {
+        this.persistenceService = persistenceService;
+        this.transactionService = transactionService;
+        this.sessionAccessor = sessionAccessor;
+        this.jobService = jobService;
+        this.tenantId = tenantId;
+        this.enabled = enabled;
+        this.windowMillis = Duration.parse(window).toMillis();
+        this.maxTimersPerWindow = maxTimersPerWindow;
+        this.threads = threads;
+        Tags tags = Tags.of("tenant", String.valueOf(tenantId));
+        Gauge.builder(NUMBER_OF_LOADED_TIMERS, loadedTimers, AtomicInteger::get)
+                .tags(tags)
+                .baseUnit("timers")
+                .description("Timers loaded in the timing wheel, waiting to be due")
+                .register(meterRegistry);
+        firedTimersCounter = Counter.builder(NUMBER_OF_FIRED_TIMERS)
+                .tags(tags)
+                .baseUnit("timers")
+                .description("Timers fired from the timing wheel")
+                .register(meterRegistry);
+    }
+
+    void setSchedulerService(SchedulerServiceImpl schedulerService) {
+        this.schedulerService = schedulerService;
+    }
+
+    /**
+     * @return true if one shot triggers are fired by this store instead of by Quartz
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true if timers of the table are fired by this store: it is enabled, or it is disabled but timers
+     *         scheduled while it was enabled remain in the table
+     */
+    boolean isActive() {
+        return enabled || running;
+    }
+
+    /**
+     * Store a timer that executes the job once, at the start date of the trigger, in the current transaction.
+     */
+    void schedule(long jobDescriptorId, Trigger trigger) throws SSchedulerException {
+        STimerEvent timer = new STimerEvent(jobDescriptorId, trigger.getName(), trigger.getStartDate().getTime());
+        try {
+            persistenceService.insert(timer);
+            transactionService.registerBonitaSynchronization(new AddToWheelOnCommit(timer));
+        } catch (SPersistenceException | STransactionNotFoundException e) {
+            throw new SSchedulerException(e);
+        }
+    }
+
+    /**
+     * Change the date of the timer of the given trigger, in the current transaction.
+     *
+     * @return false if there is no timer for this trigger
+     */
+    boolean reschedule(String triggerName, Date dueDate) throws SSchedulerException {
+        Map<String, Object> parameters = tenantParameters();
+        parameters.put("triggerName", triggerName);
+        parameters.put("dueDate", dueDate.getTime());
+        try {
+            if (persistenceService.update("updateTimerEventDueDate", parameters) == 0) {
+                return false;
+            }
+            // the timer of the wheel is not fired at its previous date, as it is not due anymore in the table
+            transactionService.registerBonitaSynchronization((BonitaTransactionSynchronization) status -> {
+                if (status == Status.STATUS_COMMITTED && dueDate.getTime() < loadedUntil) {
+                    reloadRequested = true;
+                }
+            });
+            return true;
+        } catch (SPersistenceException | STransactionNotFoundException e) {
+            throw new SSchedulerException(e);
+        }
+    }
+
+    /**
+     * @return the names of the jobs that have a timer in the store
+     */
+    List<String> getJobNames() throws SSchedulerException {
+        try {
+            return persistenceService.selectList(new SelectListDescriptor<>("getJobNamesOfTimerEvents",
+                    Collections.emptyMap(), STimerEvent.class, String.class, QueryOptions.ALL_RESULTS));
+        } catch (SBonitaReadException e) {
+            throw new SSchedulerException(e);
+        }
+    }
+
+    /**
+     * @return true if the job has a timer in the store, i.e. if it will be fired
+     */
+    boolean hasTimer(String jobName) throws SSchedulerException {
+        try {
+            Long timers = persistenceService.selectOne(new SelectOneDescriptor<>("getNumberOfTimerEventsOfJob",
+                    Collections.singletonMap("jobName", jobName), STimerEvent.class, Long.class));
+            return timers != null && timers > 0;
+        } catch (SBonitaReadException e) {
+            throw new SSchedulerException(e);
+        }
+    }
+
+    synchronized void start() throws SSchedulerException {
+        if (running) {
+            return;
+        }
+        wheelExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Bonita-Timer-Wheel-" + tenantId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long remainingTimers;
+        try {
+            // read on the wheel thread, as the store can be started in a transaction
+            remainingTimers = wheelExecutor.submit(this::getNumberOfTimerEvents).get();
+        } catch (ExecutionException | InterruptedException e) {
+            shutdown(wheelExecutor);
+            wheelExecutor = null;
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (!enabled) {
+                log.debug("No timer event table to read for tenant {}", tenantId, e);
+                return;
+            }
+            throw new SSchedulerException("The timer event store of tenant " + tenantId + " can not read the table "
+                    + "timer_event. It must be created with the createTables.sql script of this version before "
+                    + "enabling bonita.tenant.timer.wheel.enabled, e.g. on a database created by a previous version.",
+                    e.getCause() != null ? e.getCause() : e);
+        }
+        if (!enabled) {
+            if (remainingTimers == 0) {
+                shutdown(wheelExecutor);
+                wheelExecutor = null;
+                return;
+            }
+            log.warn("{} timers of tenant {} remain in the table timer_event while bonita.tenant.timer.wheel.enabled "
+                    + "is false: they are still fired from the table, new timers are scheduled with Quartz.",
+                    remainingTimers, tenantId);
+        }
+        // the first tick loads the first window, with the timers that became due while the store was stopped
+        loadedUntil = 0;
+        wheel = new TimingWheel<>(TICK_MILLIS, NUMBER_OF_LEVELS, System.currentTimeMillis());
+        AtomicInteger threadNumber = new AtomicInteger();
+        firingExecutor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "Bonita-Timer-Firing-" + tenantId + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        wheelExecutor.scheduleWithFixedDelay(this::tick, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        shutdown(wheelExecutor);
+        shutdown(firingExecutor);
+        wheelExecutor = null;
+        firingExecutor = null;
+        scheduledTimers.clear();
+        loadedTimers.set(0);
+    }
+
+    void pause() {
+        stop();
+    }
+
+    void resume() throws SSchedulerException {
+        start();
+    }
+
+    private void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Timer event threads of tenant {} did not terminate in time", tenantId);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long getNumberOfTimerEvents() throws Exception {
+        SelectOneDescriptor<Long> numberOfTimers = new SelectOneDescriptor<>("getNumberOfTimerEvents",
+                Collections.emptyMap(), STimerEvent.class, Long.class);
+        sessionAccessor.setTenantId(tenantId);
+        try {
+            Long timers = transactionService.executeInTransaction(() -> persistenceService.selectOne(numberOfTimers));
+            return timers == null ? 0 : timers;
+        } finally {
+            sessionAccessor.deleteTenantId();
+        }
+    }
+
+    void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            if (reloadRequested || now >= loadedUntil) {
+                loadWindow(now);
+            }
+            STimerEvent scheduledTimer;
+            while ((scheduledTimer = scheduledTimers.poll()) != null) {
+                wheel.add(scheduledTimer.getDueDate(), scheduledTimer);
+            }
+            List<STimerEvent> dueTimers = new ArrayList<>();
+            wheel.advance(now, dueTimers::add);
+            loadedTimers.set(wheel.size());
+            dispatch(dueTimers);
+        } catch (Exception e) {
+            log.error("Error while firing the timers of tenant {}", tenantId, e);
+        }
+    }
+
+    private void loadWindow(long now) throws Exception {
+        reloadRequested = false;
+        // set before reading the table: timers committed meanwhile are either read or added by their transaction
+        loadedUntil = now + windowMillis;
+        scheduledTimers.clear();
+        SelectListDescriptor<STimerEvent> timersDueInWindow = new SelectListDescriptor<>("getTimerEventsDueBefore",
+                Collections.singletonMap("dueDate", (Object) loadedUntil), STimerEvent.class,
+                new QueryOptions(0, maxTimersPerWindow));
+        List<STimerEvent> timers;
+        sessionAccessor.setTenantId(tenantId);
+        try {
+            timers = transactionService.executeInTransaction(() -> persistenceService.selectList(timersDueInWindow));
+        } finally {
+            sessionAccessor.deleteTenantId();
+        }
+        if (timers.size() >= maxTimersPerWindow) {
+            loadedUntil = timers.get(timers.size() - 1).getDueDate();
+        }
+        wheel.clear();
+        for (STimerEvent timer : timers) {
+            wheel.add(timer.getDueDate(), timer);
+        }
+        log.debug("Loaded {} timers due before {} in the timing wheel of tenant {}", timers.size(),
+                new Date(loadedUntil), tenantId);
+    }
+
+    private void dispatch(List<STimerEvent> dueTimers) {
+        List<STimerEvent> batch = new ArrayList<>(BATCH_SIZE);
+        for (STimerEvent timer : dueTimers) {
+            // a timer loaded again while it is being fired is not fired twice by this node
+            if (timersBeingFired.add(timer.getId())) {
+                batch.add(timer);
+            }
+            if (batch.size() == BATCH_SIZE) {
+                submit(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            submit(batch);
+        }
+    }
+
+    private void submit(List<STimerEvent> batch) {
+        firingExecutor.execute(() -> {
+            for (STimerEvent timer : batch) {
+                try {
+                    if (running) {
+                        fire(timer);
+                    }
+                } finally {
+                    timersBeingFired.remove(timer.getId());
+                }
+            }
+        });
+    }
+
+    void fire(STimerEvent timer) {
+        sessionAccessor.setTenantId(tenantId);
+        try {
+            boolean fired = transactionService.executeInTransaction(() -> fireInTransaction(timer));
+            if (fired) {
+                firedTimersCounter.increment();
+            }
+        } catch (SRetryableException e) {
+            log.info("Job {} failed but it will be retried {}", timer.getJobDescriptorId(), e.getMessage());
+            retryLater(timer);
+        } catch (SJobExecutionException e) {
+            // the failure was registered on the job, which can be retried as a failed job
+            removeTimerOfFailedJob(timer, null);
+        } catch (Exception e) {
+            // like with Quartz, the timer is not fired again: register the failure so that the job can be retried
+            log.error("Unable to fire timer {} of job {}", timer.getTriggerName(), timer.getJobDescriptorId(), e);
+            removeTimerOfFailedJob(timer, e);
+        } finally {
+            sessionAccessor.deleteTenantId();
+        }
+    }
+
+    private boolean fireInTransaction(STimerEvent timer) throws Exception {
+        long now = System.currentTimeMillis();
+        Map<String, Object> parameters = tenantParameters();
+        parameters.put("id", timer.getId());
+        parameters.put("now", now);
+        if (persistenceService.update("deleteDueTimerEvent", parameters) != 1) {
+            log.debug("Timer {} was deleted, rescheduled or fired by another node", timer.getTriggerName());
+            return false;
+        }
+        JobWrapper job = schedulerService.createJob(timer.getJobDescriptorId(), tenantId);
+        if (job == null) {
+            return false;
+        }
+        job.execute();
+        deleteJobDescriptor(timer.getJobDescriptorId(), job.getName());
+        return true;
+    }
+
+    /**
+     * Delete the job descriptor only if the job has no other trigger, like when Quartz fires a trigger
+     */
+    private void deleteJobDescriptor(long jobDescriptorId, String jobName) {
+        try {
+            if (!schedulerService.mayFireAgain(String.valueOf(tenantId), jobName)) {
+                jobService.deleteJobDescriptor(jobDescriptorId);
+            }
+        } catch (final Exception e) {
+            log.warn("Unable to delete job descriptor {} of job {}", jobDescriptorId, jobName, e);
+        }
+    }
+
+    private void retryLater(STimerEvent timer) {
+        STimerEvent retriedTimer = new STimerEvent(timer.getJobDescriptorId(), timer.getTriggerName(),
+                System.currentTimeMillis() + RETRY_DELAY_MILLIS);
+        retriedTimer.setId(timer.getId());
+        retriedTimer.setTenantId(timer.getTenantId());
+        try {
+            transactionService.executeInTransaction(() -> {
+                Map<String, Object> parameters = tenantParameters();
+                parameters.put("triggerName", retriedTimer.getTriggerName());
+                parameters.put("dueDate", retriedTimer.getDueDate());
+                persistenceService.update("updateTimerEventDueDate", parameters);
+                transactionService.registerBonitaSynchronization(new AddToWheelOnCommit(retriedTimer));
+                return null;
+            });
+        } catch (Exception e) {
+            // the timer is fired again when the next window is loaded
+            log.error("Unable to retry timer {} of job {}", timer.getTriggerName(), timer.getJobDescriptorId(), e);
+        }
+    }
+
+    /**
+     * @param failure the failure to register on the job, null if it was already registered
+     */
+    private void removeTimerOfFailedJob(STimerEvent timer, Exception failure) {
+        try {
+            transactionService.executeInTransaction(() -> {
+                if (failure != null) {
+                    jobService.logJobError(failure, timer.getJobDescriptorId());
+                }
+                Map<String, Object> parameters = tenantParameters();
+                parameters.put("id", timer.getId());
+                return persistenceService.update("deleteTimerEvent", parameters);
+            });
+        } catch (Exception e) {
+            log.error("Unable to remove timer {} of failed job {}", timer.getTriggerName(),
+                    timer.getJobDescriptorId(), e);
+        }
+    }
+
+    private Map<String, Object> tenantParameters() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("tenantId", tenantId);
+        return parameters;
+    }
+
+    // For unit tests
+    long getLoadedUntil() {
+        return loadedUntil;
+    }
+
+    private class AddToWheelOnCommit implements BonitaTransactionSynchronization {
+
+        private final STimerEvent timer;
+
+        private AddToWheelOnCommit(STimerEvent timer) {
+            this.timer = timer;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            // timers due after the loaded window are read from the table with the next window
+            if (status == Status.STATUS_COMMITTED && running && timer.getDueDate() < loadedUntil) {
+                scheduledTimers.add(timer);
+            }
+        }
+    }
+}
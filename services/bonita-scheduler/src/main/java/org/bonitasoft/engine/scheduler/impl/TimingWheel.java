@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.scheduler.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: elements are added with a deadline, and returned by {@link #advance(long, Consumer)}
+ * once their deadline is reached, with a precision of one tick.
+ * <p>
+ * The first level has one slot per tick, each following level has one slot per revolution of the previous level.
+ * An element is kept in the lowest level whose revolution contains its deadline, and moved down to the previous level
+ * when the slot it is in is reached. Adding an element and reaching its deadline are done in constant time whatever
+ * the number of elements, instead of in logarithmic time in a priority queue.
+ * <p>
+ * This class is not thread safe.
+ */
+class TimingWheel<T> {
+
+    private static final int BITS_PER_LEVEL = 6;
+    private static final int SLOTS_PER_LEVEL = 1 << BITS_PER_LEVEL;
+    private static final int SLOT_MASK = SLOTS_PER_LEVEL - 1;
+
+    private final long tickMillis;
+    private final int numberOfLevels;
+    private final List<Entry<T>>[][] levels;
+    // elements whose deadline is beyond the revolution of the last level
+    private List<Entry<T>> overflow = new ArrayList<>();
+    // elements added with a deadline already reached
+    private List<T> expired = new ArrayList<>();
+    // next tick to reach
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis duration of a tick, in milliseconds
+     * @param numberOfLevels number of levels of the wheel, each one covering 64 times the duration of the previous one
+     * @param startMillis time from which ticks are counted
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, int numberOfLevels, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.numberOfLevels = numberOfLevels;
+        levels = new List[numberOfLevels][SLOTS_PER_LEVEL];
+        currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Add an element. An element whose deadline is already reached is returned by the next call to
+     * {@link #advance(long, Consumer)}.
+     */
+    void add(long deadlineMillis, T element) {
+        long deadlineTick = deadlineMillis / tickMillis;
+        if (deadlineTick < currentTick) {
+            expired.add(element);
+        } else {
+            add(new Entry<>(deadlineTick, element));
+        }
+        size++;
+    }
+
+    /**
+     * Reach the given time, giving to the consumer the elements whose deadline is reached, in the order of their
+     * deadline, except for elements added with a deadline already reached that are given first.
+     */
+    void advance(long nowMillis, Consumer<T> consumer) {
+        if (!expired.isEmpty()) {
+            List<T> elements = expired;
+            expired = new ArrayList<>();
+            size -= elements.size();
+            elements.forEach(consumer);
+        }
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick <= targetTick) {
+            if (size == 0) {
+                currentTick = targetTick + 1;
+                return;
+            }
+            cascade();
+            List<Entry<T>> slot = levels[0][(int) (currentTick & SLOT_MASK)];
+            if (slot != null) {
+                levels[0][(int) (currentTick & SLOT_MASK)] = null;
+                for (Entry<T> entry : slot) {
+                    size--;
+                    consumer.accept(entry.element);
+                }
+            }
+            currentTick++;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (List<Entry<T>>[] level : levels) {
+            Arrays.fill(level, null);
+        }
+        overflow = new ArrayList<>();
+        expired = new ArrayList<>();
+        size = 0;
+    }
+
+    /**
+     * Move down the elements of the slots that start at the current tick, from the highest level to the lowest one.
+     */
+    private void cascade() {
+        if (isStartOfRevolution(numberOfLevels) && !overflow.isEmpty()) {
+            List<Entry<T>> entries = overflow;
+            overflow = new ArrayList<>();
+            entries.forEach(this::add);
+        }
+        for (int level = numberOfLevels - 1; level > 0; level--) {
+            if (isStartOfRevolution(level)) {
+                int index = (int) ((currentTick >>> (BITS_PER_LEVEL * level)) & SLOT_MASK);
+                List<Entry<T>> slot = levels[level][index];
+                if (slot != null) {
+                    levels[level][index] = null;
+                    slot.forEach(this::add);
+                }
+            }
+        }
+    }
+
+    private boolean isStartOfRevolution(int level) {
+        return (currentTick & ((1L << (BITS_PER_LEVEL * level)) - 1)) == 0;
+    }
+
+    private void add(Entry<T> entry) {
+        for (int level = 0; level < numberOfLevels; level++) {
+            int shift = BITS_PER_LEVEL * (level + 1);
+            // same revolution of this level: the element goes in one of its slots
+            if ((entry.deadlineTick >>> shift) == (currentTick >>> shift)) {
+                int index = (int) ((entry.deadlineTick >>> (BITS_PER_LEVEL * level)) & SLOT_MASK);
+                List<Entry<T>> slot = levels[level][index];
+                if (slot == null) {
+                    slot = new ArrayList<>();
+                    levels[level][index] = slot;
+                }
+                slot.add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    private static final class Entry<T> {
+
+        private final long deadlineTick;
+        private final T element;
+
+        private Entry(long deadlineTick, T element) {
+            this.deadlineTick = deadlineTick;
+            this.element = element;
+        }
+    }
+}
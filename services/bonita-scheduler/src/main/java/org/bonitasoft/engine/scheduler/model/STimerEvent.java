@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.scheduler.model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.PersistentObjectId;
+
+/**
+ * A one shot trigger of a job, fired by the timing wheel of the timer event store instead of by Quartz.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@IdClass(PersistentObjectId.class)
+@Table(name = "timer_event")
+public class STimerEvent implements PersistentObject {
+
+    public static final String ID = "id";
+    public static final String DUE_DATE = "dueDate";
+    @Id
+    private long id;
+    @Id
+    private long tenantId;
+    private long jobDescriptorId;
+    private String triggerName;
+    private long dueDate;
+
+    public STimerEvent(final long jobDescriptorId, final String triggerName, final long dueDate) {
+        this.jobDescriptorId = jobDescriptorId;
+        this.triggerName = triggerName;
+        this.dueDate = dueDate;
+    }
+}
@@ -37,7 +37,9 @@ import org.bonitasoft.engine.scheduler.exception.SSchedulerException;
 import org.bonitasoft.engine.scheduler.exception.jobDescriptor.SJobDescriptorCreationException;
 import org.bonitasoft.engine.scheduler.model.SJobDescriptor;
 import org.bonitasoft.engine.scheduler.model.SJobParameter;
+import org.bonitasoft.engine.scheduler.trigger.OneShotTrigger;
 import org.bonitasoft.engine.scheduler.trigger.Trigger;
+import org.bonitasoft.engine.scheduler.trigger.UnixCronTrigger;
 import org.bonitasoft.engine.service.ServicesResolver;
 import org.bonitasoft.engine.services.PersistenceService;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
@@ -69,6 +71,8 @@ public class SchedulerServiceImplTest {
     private ServicesResolver servicesResolver;
     @Mock
     private TransactionService transactionService;
+    @Mock
+    private TimerEventStore timerEventStore;
 
     @Before
     public void setUp() throws Exception {
@@ -79,7 +83,7 @@ public class SchedulerServiceImplTest {
 
         schedulerService = new SchedulerServiceImpl(schedulerExecutor, jobService, eventService,
                 transactionService, sessionAccessor, servicesResolver,
-                persistenceService);
+                persistenceService, timerEventStore);
 
     }
 
@@ -289,4 +293,91 @@ public class SchedulerServiceImplTest {
         verify(schedulerExecutor).executeAgain(JOB_DESCRIPTOR_ID, String.valueOf(TENANT_ID), "jobName", false, 0);
         verify(jobService).deleteJobLogs(JOB_DESCRIPTOR_ID);
     }
+
+    @Test
+    public void should_schedule_one_shot_triggers_in_the_timer_event_store_when_it_is_enabled() throws Exception {
+        SJobDescriptor jobDescriptor = SJobDescriptor.builder().jobClassName("jobClassName")
+                .jobName("jobName")
+                .id(JOB_DESCRIPTOR_ID).build();
+        given(jobService.createJobDescriptor(jobDescriptor, TENANT_ID)).willReturn(jobDescriptor);
+        given(timerEventStore.isEnabled()).willReturn(true);
+        OneShotTrigger trigger = new OneShotTrigger("triggerName", new Date());
+
+        schedulerService.schedule(jobDescriptor, Collections.emptyList(), trigger);
+
+        verify(timerEventStore).schedule(JOB_DESCRIPTOR_ID, trigger);
+        verify(schedulerExecutor, never()).schedule(anyLong(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void should_schedule_cron_triggers_with_the_executor_when_the_timer_event_store_is_enabled()
+            throws Exception {
+        SJobDescriptor jobDescriptor = SJobDescriptor.builder().jobClassName("jobClassName")
+                .jobName("jobName")
+                .id(JOB_DESCRIPTOR_ID).build();
+        given(jobService.createJobDescriptor(jobDescriptor, TENANT_ID)).willReturn(jobDescriptor);
+        given(timerEventStore.isEnabled()).willReturn(true);
+        UnixCronTrigger trigger = new UnixCronTrigger("triggerName", new Date(), "0 0 * * * ?");
+
+        schedulerService.schedule(jobDescriptor, Collections.emptyList(), trigger);
+
+        verify(schedulerExecutor).schedule(JOB_DESCRIPTOR_ID, String.valueOf(TENANT_ID), "jobName", trigger, false);
+        verify(timerEventStore, never()).schedule(anyLong(), any());
+    }
+
+    @Test
+    public void should_schedule_one_shot_triggers_with_the_executor_when_the_timer_event_store_is_disabled()
+            throws Exception {
+        SJobDescriptor jobDescriptor = SJobDescriptor.builder().jobClassName("jobClassName")
+                .jobName("jobName")
+                .id(JOB_DESCRIPTOR_ID).build();
+        given(jobService.createJobDescriptor(jobDescriptor, TENANT_ID)).willReturn(jobDescriptor);
+        OneShotTrigger trigger = new OneShotTrigger("triggerName", new Date());
+
+        schedulerService.schedule(jobDescriptor, Collections.emptyList(), trigger);
+
+        verify(schedulerExecutor).schedule(JOB_DESCRIPTOR_ID, String.valueOf(TENANT_ID), "jobName", trigger, false);
+        verify(timerEventStore, never()).schedule(anyLong(), any());
+    }
+
+    @Test
+    public void should_reschedule_timers_of_the_timer_event_store() throws Exception {
+        Date triggerStartTime = new Date();
+        given(timerEventStore.isActive()).willReturn(true);
+        given(timerEventStore.reschedule("triggerName", triggerStartTime)).willReturn(true);
+
+        Date rescheduled = schedulerService.rescheduleJob("triggerName", "groupName", triggerStartTime);
+
+        assertThat(rescheduled).isEqualTo(triggerStartTime);
+        verify(schedulerExecutor, never()).rescheduleJob(any(), any(), any());
+    }
+
+    @Test
+    public void should_reschedule_quartz_triggers_not_in_the_timer_event_store() throws Exception {
+        Date triggerStartTime = new Date();
+        given(timerEventStore.isActive()).willReturn(true);
+
+        schedulerService.rescheduleJob("triggerName", "groupName", triggerStartTime);
+
+        verify(schedulerExecutor).rescheduleJob("triggerName", "groupName", triggerStartTime);
+    }
+
+    @Test
+    public void should_include_jobs_of_the_timer_event_store() throws Exception {
+        given(timerEventStore.isActive()).willReturn(true);
+        given(schedulerExecutor.getJobs(String.valueOf(TENANT_ID))).willReturn(asList("job1", "job2"));
+        given(timerEventStore.getJobNames()).willReturn(asList("job2", "job3"));
+
+        assertThat(schedulerService.getJobs()).containsExactly("job1", "job2", "job3");
+    }
+
+    @Test
+    public void should_consider_jobs_of_the_timer_event_store_as_existing() throws Exception {
+        given(timerEventStore.isActive()).willReturn(true);
+        given(timerEventStore.hasTimer("job")).willReturn(true);
+
+        assertThat(schedulerService.isExistingJob("job")).isTrue();
+        assertThat(schedulerService.mayFireAgain(String.valueOf(TENANT_ID), "job")).isTrue();
+        assertThat(schedulerService.mayFireAgain("otherGroup", "job")).isFalse();
+    }
 }
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.scheduler.impl;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.transaction.Status;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bonitasoft.engine.commons.exceptions.SRetryableException;
+import org.bonitasoft.engine.persistence.SelectListDescriptor;
+import org.bonitasoft.engine.scheduler.JobService;
+import org.bonitasoft.engine.scheduler.exception.SJobExecutionException;
+import org.bonitasoft.engine.scheduler.exception.SSchedulerException;
+import org.bonitasoft.engine.scheduler.model.STimerEvent;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.TransactionService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TimerEventStoreTest {
+
+    private static final long TENANT_ID = 12L;
+    private static final long JOB_DESCRIPTOR_ID = 45L;
+    private static final long TIMER_ID = 7L;
+
+    @Mock
+    private PersistenceService persistenceService;
+    @Mock
+    private TransactionService transactionService;
+    @Mock
+    private SessionAccessor sessionAccessor;
+    @Mock
+    private JobService jobService;
+    @Mock
+    private SchedulerServiceImpl schedulerService;
+    @Mock
+    private JobWrapper job;
+    private TimerEventStore timerEventStore;
+    private STimerEvent timer;
+
+    @Before
+    public void before() throws Exception {
+        doAnswer(invocation -> ((Callable<?>) invocation.getArgument(0)).call()).when(transactionService)
+                .executeInTransaction(any());
+        timerEventStore = createTimerEventStore(true, 100);
+        timer = new STimerEvent(JOB_DESCRIPTOR_ID, "trigger", System.currentTimeMillis());
+        timer.setId(TIMER_ID);
+        timer.setTenantId(TENANT_ID);
+        doReturn(job).when(schedulerService).createJob(JOB_DESCRIPTOR_ID, TENANT_ID);
+        doReturn("job").when(job).getName();
+    }
+
+    @After
+    public void after() {
+        timerEventStore.stop();
+    }
+
+    @Test
+    public void should_not_execute_the_job_of_a_timer_deleted_by_another_node() throws Exception {
+        doReturn(0).when(persistenceService).update(eq("deleteDueTimerEvent"), anyMap());
+
+        timerEventStore.fire(timer);
+
+        verify(schedulerService, never()).createJob(anyLong(), anyLong());
+    }
+
+    @Test
+    public void should_execute_the_job_and_delete_its_descriptor_when_the_timer_is_claimed() throws Exception {
+        doReturn(1).when(persistenceService).update(eq("deleteDueTimerEvent"), anyMap());
+
+        timerEventStore.fire(timer);
+
+        verify(persistenceService).update(eq("deleteDueTimerEvent"), argThat(parameters -> parameters.get("id")
+                .equals(TIMER_ID) && parameters.get("tenantId").equals(TENANT_ID)));
+        verify(job).execute();
+        verify(jobService).deleteJobDescriptor(JOB_DESCRIPTOR_ID);
+    }
+
+    @Test
+    public void should_keep_the_job_descriptor_when_the_job_has_another_trigger() throws Exception {
+        doReturn(1).when(persistenceService).update(eq("deleteDueTimerEvent"), anyMap());
+        doReturn(true).when(schedulerService).mayFireAgain(String.valueOf(TENANT_ID), "job");
+
+        timerEventStore.fire(timer);
+
+        verify(job).execute();
+        verify(jobService, never()).deleteJobDescriptor(anyLong());
+    }
+
+    @Test
+    public void should_move_the_due_date_of_the_timer_when_the_job_fails_with_a_retryable_error() throws Exception {
+        doReturn(1).when(persistenceService).update(eq("deleteDueTimerEvent"), anyMap());
+        doThrow(new SRetryableException("locked")).when(job).execute();
+        long now = System.currentTimeMillis();
+
+        timerEventStore.fire(timer);
+
+        verify(persistenceService).update(eq("updateTimerEventDueDate"), argThat(parameters -> "trigger"
+                .equals(parameters.get("triggerName")) && (long) parameters.get("dueDate") >= now + 5000
+                && parameters.get("tenantId").equals(TENANT_ID)));
+        verify(persistenceService, never()).update(eq("deleteTimerEvent"), anyMap());
+    }
+
+    @Test
+    public void should_delete_the_timer_when_the_job_failure_is_registered() throws Exception {
+        doReturn(1).when(persistenceService).update(eq("deleteDueTimerEvent"), anyMap());
+        doThrow(new SJobExecutionException("failed")).when(job).execute();
+
+        timerEventStore.fire(timer);
+
+        verify(persistenceService).update("deleteTimerEvent", timerParameters());
+        verify(jobService, never()).logJobError(any(), anyLong());
+    }
+
+    @Test
+    public void should_register_the_failure_and_delete_the_timer_when_the_job_fails_unexpectedly() throws Exception {
+        doReturn(1).when(persistenceService).update(eq("deleteDueTimerEvent"), anyMap());
+        IllegalStateException failure = new IllegalStateException("unexpected");
+        doThrow(failure).when(job).execute();
+
+        timerEventStore.fire(timer);
+
+        verify(jobService).logJobError(failure, JOB_DESCRIPTOR_ID);
+        verify(persistenceService).update("deleteTimerEvent", timerParameters());
+    }
+
+    @Test
+    public void should_shorten_the_window_when_it_has_too_many_timers() throws Exception {
+        timerEventStore = createTimerEventStore(true, 2);
+        long now = System.currentTimeMillis();
+        doReturn(asList(timer(1L, now + 10_000), timer(2L, now + 20_000))).when(persistenceService)
+                .selectList(any(SelectListDescriptor.class));
+
+        timerEventStore.start();
+
+        waitUntilWindowIsLoadedUntil(now + 20_000);
+        assertThat(timerEventStore.getLoadedUntil()).isEqualTo(now + 20_000);
+    }
+
+    @Test
+    public void should_reload_the_window_when_a_loaded_timer_is_rescheduled() throws Exception {
+        timerEventStore.start();
+        verify(persistenceService, timeout(5000)).selectList(any(SelectListDescriptor.class));
+        doReturn(1).when(persistenceService).update(eq("updateTimerEventDueDate"), anyMap());
+
+        timerEventStore.reschedule("trigger", new Date(System.currentTimeMillis() + 60_000));
+        ArgumentCaptor<BonitaTransactionSynchronization> synchronization = ArgumentCaptor
+                .forClass(BonitaTransactionSynchronization.class);
+        verify(transactionService).registerBonitaSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+
+        verify(persistenceService, timeout(5000).times(2)).selectList(any(SelectListDescriptor.class));
+    }
+
+    @Test
+    public void should_fire_remaining_timers_when_disabled() throws Exception {
+        timerEventStore = createTimerEventStore(false, 100);
+        doReturn(3L).when(persistenceService).selectOne(any());
+
+        timerEventStore.start();
+
+        assertThat(timerEventStore.isActive()).isTrue();
+        verify(persistenceService, timeout(5000)).selectList(any(SelectListDescriptor.class));
+    }
+
+    @Test
+    public void should_not_start_when_disabled_and_no_timer_remains() throws Exception {
+        timerEventStore = createTimerEventStore(false, 100);
+        doReturn(0L).when(persistenceService).selectOne(any());
+
+        timerEventStore.start();
+
+        assertThat(timerEventStore.isActive()).isFalse();
+    }
+
+    @Test(expected = SSchedulerException.class)
+    public void should_fail_to_start_when_the_timer_event_table_can_not_be_read() throws Exception {
+        doThrow(new IllegalStateException("no table timer_event")).when(persistenceService).selectOne(any());
+
+        timerEventStore.start();
+    }
+
+    private TimerEventStore createTimerEventStore(boolean enabled, int maxTimersPerWindow) {
+        TimerEventStore store = new TimerEventStore(persistenceService, transactionService, sessionAccessor,
+                jobService, TENANT_ID, new SimpleMeterRegistry(), enabled, "PT5M", maxTimersPerWindow, 1);
+        store.setSchedulerService(schedulerService);
+        return store;
+    }
+
+    private Map<String, Object> timerParameters() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("tenantId", TENANT_ID);
+        parameters.put("id", TIMER_ID);
+        return parameters;
+    }
+
+    private static STimerEvent timer(long id, long dueDate) {
+        STimerEvent timer = new STimerEvent(JOB_DESCRIPTOR_ID, "trigger" + id, dueDate);
+        timer.setId(id);
+        return timer;
+    }
+
+    private void waitUntilWindowIsLoadedUntil(long loadedUntil) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (timerEventStore.getLoadedUntil() != loadedUntil && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.scheduler.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    // 2 levels of 10 ms ticks: 640 ms on the first level, 40960 ms on the second one
+    private final TimingWheel<String> wheel = new TimingWheel<>(10, 2, START);
+
+    @Test
+    public void should_give_elements_once_their_deadline_is_reached() {
+        wheel.add(START + 50, "a");
+        wheel.add(START + 20, "b");
+
+        assertThat(advance(START + 19)).isEmpty();
+        assertThat(advance(START + 20)).containsExactly("b");
+        assertThat(advance(START + 49)).isEmpty();
+        assertThat(advance(START + 55)).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void should_give_elements_in_the_order_of_their_deadline() {
+        wheel.add(START + 300, "c");
+        wheel.add(START + 100, "a");
+        wheel.add(START + 200, "b");
+
+        assertThat(advance(START + 1000)).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    public void should_give_elements_added_with_a_deadline_already_reached_at_next_advance() {
+        advance(START + 100);
+
+        wheel.add(START + 50, "late");
+
+        assertThat(advance(START + 100)).containsExactly("late");
+    }
+
+    @Test
+    public void should_cascade_elements_of_higher_levels_and_of_overflow() {
+        wheel.add(START + 5_000, "second level");
+        wheel.add(START + 100_000, "overflow");
+        assertThat(wheel.size()).isEqualTo(2);
+
+        assertThat(advance(START + 4_990)).isEmpty();
+        assertThat(advance(START + 5_000)).containsExactly("second level");
+        assertThat(advance(START + 99_990)).isEmpty();
+        assertThat(advance(START + 100_000)).containsExactly("overflow");
+    }
+
+    @Test
+    public void should_not_give_elements_after_clear() {
+        wheel.add(START + 10, "a");
+        wheel.add(START + 100_000, "b");
+
+        wheel.clear();
+
+        assertThat(wheel.size()).isZero();
+        assertThat(advance(START + 200_000)).isEmpty();
+    }
+
+    @Test
+    public void should_give_all_elements_at_their_tick() {
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            long deadline = START + random.nextInt(200_000);
+            deadlines.add(deadline);
+            wheel.add(deadline, String.valueOf(deadline));
+        }
+
+        for (long now = START; now <= START + 200_000; now += 10) {
+            long tickStart = now;
+            wheel.advance(now, element -> assertThat(Long.parseLong(element) / 10).isEqualTo(tickStart / 10));
+        }
+
+        assertThat(wheel.size()).isZero();
+    }
+
+    private List<String> advance(long now) {
+        List<String> elements = new ArrayList<>();
+        wheel.advance(now, elements::add);
+        return elements;
+    }
+}
@@ -19,6 +19,16 @@ public interface SessionProvider {
 
     void updateSession(SSession session) throws SSessionNotFoundException;
 
+    /**
+     * Atomically replace the session by a copy of it renewed now.
+     *
+     * @param sessionId
+     *        the id of the session to renew
+     * @throws SSessionNotFoundException
+     *         if no session exists for the given id
+     */
+    void renewSession(long sessionId) throws SSessionNotFoundException;
+
     void cleanInvalidSessions();
 
     void removeSessions();
@@ -13,10 +13,17 @@
  **/
 package org.bonitasoft.engine.session.impl;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
 import org.bonitasoft.engine.session.SSessionAlreadyExistsException;
 import org.bonitasoft.engine.session.SSessionNotFoundException;
@@ -24,36 +31,76 @@ import org.bonitasoft.engine.session.SessionProvider;
 import org.bonitasoft.engine.session.model.SSession;
 
 /**
+ * Store sessions in a map: sessions are read without locking and replaced atomically when they are renewed. Maps that
+ * are not {@link ConcurrentMap}s are accessed through a synchronized view.
+ * <p>
+ * When the sessions are only stored in this JVM, they can also be indexed by the time bucket of their expiration, so
+ * that cleaning invalid sessions only reads the sessions of the expired buckets. Otherwise, e.g. when the map is
+ * shared by the nodes of a cluster, the index would miss the sessions added by other nodes: all sessions are read.
+ *
  * @author Baptiste Mesta
  */
 public abstract class AbstractSessionProvider implements SessionProvider {
 
+    static final long EXPIRATION_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    // ids of the sessions by bucket of expiration, a session is only in the bucket of its current expiration
+    private final NavigableMap<Long, Set<Long>> sessionIdsByExpirationBucket = new ConcurrentSkipListMap<>();
+    private final boolean indexExpirations;
+    private volatile Map<Long, SSession> sessions;
+
+    protected AbstractSessionProvider() {
+        this(false);
+    }
+
+    /**
+     * @param indexExpirations
+     *        true if the sessions are only stored in this JVM, so that they can be indexed by expiration
+     */
+    protected AbstractSessionProvider(final boolean indexExpirations) {
+        this.indexExpirations = indexExpirations;
+    }
+
+    /**
+     * @return the sessions by id, always the same map
+     */
     protected abstract Map<Long, SSession> getSessions();
 
-    protected SSession putSession(final SSession session, final long id) {
-        return getSessions().put(id, session);
+    private Map<Long, SSession> sessions() {
+        Map<Long, SSession> current = sessions;
+        if (current == null) {
+            synchronized (this) {
+                if (sessions == null) {
+                    final Map<Long, SSession> stored = getSessions();
+                    sessions = stored instanceof ConcurrentMap ? stored : Collections.synchronizedMap(stored);
+                }
+                current = sessions;
+            }
+        }
+        return current;
     }
 
     @Override
-    public synchronized void addSession(final SSession session) throws SSessionAlreadyExistsException {
+    public void addSession(final SSession session) throws SSessionAlreadyExistsException {
         final long id = session.getId();
-        if (getSessions().containsKey(id)) {
+        if (sessions().putIfAbsent(id, session) != null) {
             throw new SSessionAlreadyExistsException("A session wih id \"" + id + "\" already exists");
         }
-        putSession(session, id);
+        index(session, null);
     }
 
     @Override
-    public synchronized void removeSession(final long sessionId) throws SSessionNotFoundException {
-        final SSession session = getSessions().remove(sessionId);
+    public void removeSession(final long sessionId) throws SSessionNotFoundException {
+        final SSession session = sessions().remove(sessionId);
         if (session == null) {
             throw new SSessionNotFoundException("No session found with id \"" + sessionId + "\"");
         }
+        unindex(session);
     }
 
     @Override
-    public synchronized SSession getSession(final long sessionId) throws SSessionNotFoundException {
-        final SSession session = getSessions().get(sessionId);
+    public SSession getSession(final long sessionId) throws SSessionNotFoundException {
+        final SSession session = sessions().get(sessionId);
         if (session == null) {
             throw new SSessionNotFoundException("No session found with id \"" + sessionId + "\"");
         }
@@ -61,41 +108,122 @@ public abstract class AbstractSessionProvider implements SessionProvider {
     }
 
     @Override
-    public synchronized void updateSession(final SSession session) throws SSessionNotFoundException {
-        final long id = session.getId();
-        if (!getSessions().containsKey(id)) {
-            throw new SSessionNotFoundException("No session found with id \"" + id + "\"");
+    public void updateSession(final SSession session) throws SSessionNotFoundException {
+        replace(session.getId(), previous -> session);
+    }
+
+    @Override
+    public void renewSession(final long sessionId) throws SSessionNotFoundException {
+        replace(sessionId, previous -> previous.toBuilder().lastRenewDate(new Date()).build());
+    }
+
+    private void replace(final long sessionId, final UnaryOperator<SSession> update)
+            throws SSessionNotFoundException {
+        final SSession updated = sessions().computeIfPresent(sessionId, (id, previous) -> {
+            SSession session = update.apply(previous);
+            index(session, previous);
+            return session;
+        });
+        if (updated == null) {
+            throw new SSessionNotFoundException("No session found with id \"" + sessionId + "\"");
         }
-        putSession(session, id);
     }
 
     @Override
-    public synchronized void cleanInvalidSessions() {
-        final List<Long> invalidSessionIds = new ArrayList<Long>();
-        for (final SSession session : getSessions().values()) {
-            if (!session.isValid()) {
-                invalidSessionIds.add(session.getId());
+    public void cleanInvalidSessions() {
+        final long now = System.currentTimeMillis();
+        if (!indexExpirations) {
+            sessions().values().removeIf(session -> !isValid(session, now));
+            return;
+        }
+        final Iterator<Map.Entry<Long, Set<Long>>> buckets = sessionIdsByExpirationBucket
+                .headMap(expirationBucket(now), true).entrySet().iterator();
+        while (buckets.hasNext()) {
+            final Map.Entry<Long, Set<Long>> bucket = buckets.next();
+            bucket.getValue().removeIf(sessionId -> removeIfInvalid(sessionId, bucket.getKey(), now));
+            // sessions of the current bucket are not all expired, past buckets are empty
+            if ((bucket.getKey() + 1) * EXPIRATION_BUCKET_MILLIS <= now) {
+                buckets.remove();
             }
         }
-        for (final Long invalidSessionId : invalidSessionIds) {
-            getSessions().remove(invalidSessionId);
+    }
+
+    /**
+     * @return true if the session is not in the given bucket anymore: it was removed, or renewed and indexed in
+     *         another bucket
+     */
+    private boolean removeIfInvalid(final long sessionId, final long bucket, final long now) {
+        while (true) {
+            final SSession session = sessions().get(sessionId);
+            if (session == null) {
+                return true;
+            }
+            if (isValid(session, now)) {
+                return session.getLastRenewDate() == null || expirationBucket(expirationTime(session)) != bucket;
+            }
+            // the session is only removed if it was not renewed in the meantime
+            if (sessions().remove(sessionId, session)) {
+                return true;
+            }
         }
     }
 
     @Override
-    public synchronized void removeSessions() {
-        getSessions().clear();
+    public void removeSessions() {
+        sessions().clear();
+        sessionIdsByExpirationBucket.clear();
     }
 
     @Override
-    public synchronized void deleteSessionsOfTenant(final long tenantId, final boolean keepTechnicalSessions) {
-        Iterator<SSession> iterator = getSessions().values().iterator();
-        while (iterator.hasNext()) {
-            SSession sSession = iterator.next();
-            if (tenantId == sSession.getTenantId() && (!keepTechnicalSessions || !sSession.isTechnicalUser())) {
-                iterator.remove();
+    public void deleteSessionsOfTenant(final long tenantId, final boolean keepTechnicalSessions) {
+        sessions().values().removeIf(
+                session -> tenantId == session.getTenantId() && (!keepTechnicalSessions || !session.isTechnicalUser()));
+        // removed sessions are dropped from the index when their bucket is cleaned
+    }
+
+    private void index(final SSession session, final SSession previous) {
+        if (!indexExpirations || session.getLastRenewDate() == null) {
+            return;
+        }
+        final long bucket = expirationBucket(expirationTime(session));
+        if (previous != null && previous.getLastRenewDate() != null) {
+            final long previousBucket = expirationBucket(expirationTime(previous));
+            if (previousBucket == bucket) {
+                return;
             }
+            removeFromBucket(previousBucket, previous.getId());
         }
+        sessionIdsByExpirationBucket.computeIfAbsent(bucket, b -> ConcurrentHashMap.newKeySet()).add(session.getId());
+    }
+
+    private void unindex(final SSession session) {
+        if (indexExpirations && session.getLastRenewDate() != null) {
+            removeFromBucket(expirationBucket(expirationTime(session)), session.getId());
+        }
+    }
+
+    private void removeFromBucket(final long bucket, final long sessionId) {
+        final Set<Long> sessionIds = sessionIdsByExpirationBucket.get(bucket);
+        if (sessionIds != null) {
+            sessionIds.remove(sessionId);
+        }
+    }
+
+    private static boolean isValid(final SSession session, final long now) {
+        return session.getLastRenewDate() == null || expirationTime(session) > now;
+    }
+
+    private static long expirationTime(final SSession session) {
+        return session.getLastRenewDate().getTime() + session.getDuration();
+    }
+
+    private static long expirationBucket(final long time) {
+        return time / EXPIRATION_BUCKET_MILLIS;
+    }
+
+    // For unit tests
+    int getNumberOfIndexedSessions() {
+        return sessionIdsByExpirationBucket.values().stream().mapToInt(Set::size).sum();
     }
 
 }
@@ -13,8 +13,8 @@
  **/
 package org.bonitasoft.engine.session.impl;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bonitasoft.engine.session.SessionProvider;
 import org.bonitasoft.engine.session.model.SSession;
@@ -25,7 +25,12 @@ import org.springframework.stereotype.Component;
 @ConditionalOnSingleCandidate(SessionProvider.class)
 public final class SessionProviderImpl extends AbstractSessionProvider {
 
-    private final Map<Long, SSession> sessions = new HashMap<>();
+    private final Map<Long, SSession> sessions = new ConcurrentHashMap<>();
+
+    public SessionProviderImpl() {
+        // sessions are only stored in this JVM
+        super(true);
+    }
 
     @Override
     protected Map<Long, SSession> getSessions() {
@@ -94,7 +94,7 @@ public class SessionServiceImpl implements SessionService {
 
     @Override
     public boolean isValid(final long sessionId) throws SSessionNotFoundException {
-        return sessionProvider.getSession(sessionId).getExpirationDate().getTime() > new Date().getTime();
+        return sessionProvider.getSession(sessionId).isValid();
     }
 
     @Override
@@ -133,9 +133,7 @@ public class SessionServiceImpl implements SessionService {
 
     @Override
     public void renewSession(final long sessionId) throws SSessionException {
-        final SSession session = getSession(sessionId);
-        SSession updatedSession = session.toBuilder().lastRenewDate(new Date()).build();
-        sessionProvider.updateSession(updatedSession);
+        sessionProvider.renewSession(sessionId);
     }
 
     @Override
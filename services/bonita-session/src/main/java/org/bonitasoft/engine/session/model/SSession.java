@@ -25,6 +25,9 @@ import lombok.Data;
 import lombok.Setter;
 
 /**
+ * Sessions stored by the session provider are shared between the threads using them: they are not modified, renewing
+ * a session replaces it by a copy. The session service returns copies of them.
+ *
  * @author Elias Ricken de Medeiros
  * @author Yanyan Liu
  * @author Matthieu Chaffotte
@@ -71,7 +74,7 @@ public class SSession implements Serializable {
      * @return true if the session is still valid
      */
     public boolean isValid() {
-        return getExpirationDate().getTime() > System.currentTimeMillis();
+        return lastRenewDate.getTime() + duration > System.currentTimeMillis();
     }
 
 }
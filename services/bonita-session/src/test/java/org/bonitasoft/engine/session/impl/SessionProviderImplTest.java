@@ -13,9 +13,20 @@
  **/
 package org.bonitasoft.engine.session.impl;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.bonitasoft.engine.session.SSessionNotFoundException;
 import org.bonitasoft.engine.session.SessionProvider;
 import org.bonitasoft.engine.session.model.SSession;
@@ -24,7 +35,7 @@ import org.junit.Test;
 
 public class SessionProviderImplTest {
 
-    private final SessionProvider sessionProvider = new SessionProviderImpl();
+    private final SessionProviderImpl sessionProvider = new SessionProviderImpl();
 
     @Before
     public void cleanSession() {
@@ -102,4 +113,115 @@ public class SessionProviderImplTest {
         }
     }
 
+    @Test
+    public void renewSession_should_replace_the_session_by_a_renewed_copy() throws Exception {
+        SSession session = aSession(30L, new Date(1000), 3600000);
+        sessionProvider.addSession(session);
+
+        sessionProvider.renewSession(30L);
+
+        SSession renewed = sessionProvider.getSession(30L);
+        assertThat(renewed).isNotSameAs(session);
+        assertThat(renewed.getLastRenewDate()).isAfter(session.getLastRenewDate());
+        assertThat(session.getLastRenewDate()).isEqualTo(new Date(1000));
+        assertThat(renewed.isValid()).isTrue();
+    }
+
+    @Test(expected = SSessionNotFoundException.class)
+    public void renewSession_should_throw_exception_when_session_does_not_exist() throws Exception {
+        sessionProvider.renewSession(31L);
+    }
+
+    @Test
+    public void cleanInvalidSessions_should_only_remove_expired_sessions() throws Exception {
+        long now = System.currentTimeMillis();
+        sessionProvider.addSession(aSession(40L, new Date(now - 10000), 5000));
+        sessionProvider.addSession(aSession(41L, new Date(now), 3600000));
+        sessionProvider.addSession(aSession(42L, new Date(now - 2 * AbstractSessionProvider.EXPIRATION_BUCKET_MILLIS),
+                AbstractSessionProvider.EXPIRATION_BUCKET_MILLIS));
+
+        sessionProvider.cleanInvalidSessions();
+
+        assertNotFound(40L);
+        assertNotFound(42L);
+        assertNotNull(sessionProvider.getSession(41L));
+        assertThat(sessionProvider.getNumberOfIndexedSessions()).isEqualTo(1);
+    }
+
+    @Test
+    public void cleanInvalidSessions_should_keep_sessions_renewed_after_their_expiration() throws Exception {
+        sessionProvider.addSession(aSession(50L, new Date(System.currentTimeMillis() - 10000), 5000));
+
+        sessionProvider.renewSession(50L);
+        sessionProvider.cleanInvalidSessions();
+
+        assertThat(sessionProvider.getSession(50L).isValid()).isTrue();
+        assertThat(sessionProvider.getNumberOfIndexedSessions()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_index_each_session_once_when_renewed_concurrently() throws Exception {
+        for (long id = 100; id < 200; id++) {
+            sessionProvider.addSession(aSession(id, new Date(System.currentTimeMillis() - 1800000), 3600000));
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        sessionProvider.renewSession(100 + i % 100);
+                        sessionProvider.cleanInvalidSessions();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        for (long id = 100; id < 200; id++) {
+            assertThat(sessionProvider.getSession(id).isValid()).isTrue();
+        }
+        assertThat(sessionProvider.getNumberOfIndexedSessions()).isEqualTo(100);
+    }
+
+    @Test
+    public void should_clean_all_sessions_of_a_provider_not_indexing_expirations() throws Exception {
+        Map<Long, SSession> sessions = new HashMap<>();
+        AbstractSessionProvider sharedSessionProvider = new AbstractSessionProvider() {
+
+            @Override
+            protected Map<Long, SSession> getSessions() {
+                return sessions;
+            }
+        };
+        long now = System.currentTimeMillis();
+        sharedSessionProvider.addSession(aSession(60L, new Date(now), 3600000));
+        // added by another node
+        sessions.put(61L, aSession(61L, new Date(now - 10000), 5000));
+
+        sharedSessionProvider.cleanInvalidSessions();
+
+        assertThat(sessions).containsOnlyKeys(60L);
+        assertThat(sharedSessionProvider.getNumberOfIndexedSessions()).isZero();
+    }
+
+    private static SSession aSession(long id, Date lastRenewDate, long duration) {
+        return SSession.builder().id(id).tenantId(1).userName("john").userId(12).creationDate(lastRenewDate)
+                .lastRenewDate(lastRenewDate).duration(duration).build();
+    }
+
+    private void assertNotFound(long sessionId) {
+        try {
+            sessionProvider.getSession(sessionId);
+            fail("session " + sessionId + " should be deleted because it is expired");
+        } catch (SSessionNotFoundException e) {
+
+        }
+    }
+
 }
@@ -136,4 +136,20 @@ public class SessionServiceImplTest {
         assertThat(loggedUserFromSession).isEqualTo(-1);
 
     }
+
+    @Test
+    public final void renewSession_should_renew_the_session_in_the_provider() throws Exception {
+        sessionServiceImpl.renewSession(SESSION_ID);
+
+        verify(sessionProvider).renewSession(SESSION_ID);
+    }
+
+    @Test
+    public final void getSession_should_return_a_copy_of_the_stored_session() throws Exception {
+        doReturn(sSession).when(sessionProvider).getSession(SESSION_ID);
+
+        SSession session = sessionServiceImpl.getSession(SESSION_ID);
+
+        assertThat(session).isNotSameAs(sSession).isEqualTo(sSession);
+    }
 }
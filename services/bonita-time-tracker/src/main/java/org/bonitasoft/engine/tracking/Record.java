@@ -13,13 +13,17 @@
  **/
 package org.bonitasoft.engine.tracking;
 
+import java.util.function.Supplier;
+
 public class Record {
 
     private final long timestamp;
 
     private final TimeTrackerRecords name;
 
-    private final String description;
+    private volatile String description;
+
+    private volatile Supplier<String> descriptionSupplier;
 
     private final long duration;
 
@@ -31,6 +35,16 @@ public class Record {
         this.duration = duration;
     }
 
+    /**
+     * Record whose description is rendered the first time it is read, usually when records are flushed: the supplier
+     * must only use objects that stay valid and are not modified after the record is tracked.
+     */
+    public Record(final long timestamp, final TimeTrackerRecords name, final Supplier<String> descriptionSupplier,
+            final long duration) {
+        this(timestamp, name, (String) null, duration);
+        this.descriptionSupplier = descriptionSupplier;
+    }
+
     public long getTimestamp() {
         return this.timestamp;
     }
@@ -40,6 +54,15 @@ public class Record {
     }
 
     public String getDescription() {
+        Supplier<String> supplier = this.descriptionSupplier;
+        if (supplier != null) {
+            try {
+                this.description = supplier.get();
+            } catch (final RuntimeException e) {
+                this.description = "Unable to render the description: " + e;
+            }
+            this.descriptionSupplier = null;
+        }
         return this.description;
     }
 
@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.tracking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded buffer of the last records, written by several threads without lock.
+ * <p>
+ * Each record takes the next sequence number, and is written in the slot of its sequence modulo the capacity,
+ * replacing the record written there one capacity earlier. Records are read in the order of their sequence, from the
+ * first one not drained yet, or from the oldest one still in the buffer when more records than the capacity were
+ * written since the last drain. Reading stops at a record whose sequence is taken but that is still being written, it
+ * is read by the next drain.
+ */
+class RecordRingBuffer {
+
+    /**
+     * Maximum number of checks of a slot whose record is being written by another thread, before reading stops
+     */
+    private static final int MAX_SPINS = 1000;
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int capacity;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private volatile long firstUndrainedSequence;
+
+    RecordRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity of the buffer must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(Record record) {
+        // allocated before taking the sequence, so that a taken sequence is always written
+        Slot slot = new Slot(record);
+        slot.sequence = nextSequence.getAndIncrement();
+        slots.set((int) (slot.sequence % capacity), slot);
+    }
+
+    /**
+     * @return the records not drained yet, in the order they were added, without removing them from the buffer
+     */
+    List<Record> copy() {
+        List<Record> records = new ArrayList<>();
+        read(firstUndrainedSequence, nextSequence.get(), records);
+        return records;
+    }
+
+    /**
+     * @return the records not drained yet, in the order they were added
+     */
+    synchronized List<Record> drain() {
+        List<Record> records = new ArrayList<>();
+        firstUndrainedSequence = read(firstUndrainedSequence, nextSequence.get(), records);
+        return records;
+    }
+
+    synchronized void clear() {
+        firstUndrainedSequence = nextSequence.get();
+    }
+
+    int size() {
+        return (int) Math.min(capacity, nextSequence.get() - firstUndrainedSequence);
+    }
+
+    /**
+     * @return the sequence of the first record that was not read
+     */
+    private long read(long start, long end, List<Record> records) {
+        for (long sequence = Math.max(start, end - capacity); sequence < end; sequence++) {
+            Slot slot = slots.get((int) (sequence % capacity));
+            // the sequence was taken by a thread that did not write its record in the slot yet
+            for (int spins = 0; (slot == null || slot.sequence < sequence) && spins < MAX_SPINS; spins++) {
+                Thread.onSpinWait();
+                slot = slots.get((int) (sequence % capacity));
+            }
+            if (slot == null || slot.sequence < sequence) {
+                return sequence;
+            }
+            // when the slot has a more recent record, the record of the sequence was replaced while reading
+            if (slot.sequence == sequence) {
+                records.add(slot.record);
+            }
+        }
+        return end;
+    }
+
+    private static final class Slot {
+
+        private final Record record;
+        // written before the slot is published in the array
+        private long sequence;
+
+        private Slot(Record record) {
+            this.record = record;
+        }
+    }
+}
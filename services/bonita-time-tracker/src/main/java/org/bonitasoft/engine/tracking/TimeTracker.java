@@ -15,19 +15,36 @@ package org.bonitasoft.engine.tracking;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
-import org.apache.commons.collections4.queue.CircularFifoQueue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import org.bonitasoft.engine.commons.TenantLifecycleService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Tracks the duration of the operations of the activated {@link TimeTrackerRecords}.
+ * <p>
+ * The last records are kept in a lock-free ring buffer until they are flushed to the {@link FlushEventListener}s,
+ * and the durations of each kind of record are aggregated in a {@link Timer} of the meter registry, with their
+ * percentiles.
+ */
 public class TimeTracker implements TenantLifecycleService {
 
+    public static final String DURATION = "bonita.bpmengine.timetracker.duration";
+
     private static final Logger log = LoggerFactory.getLogger(TimeTracker.class);
     private final Set<TimeTrackerRecords> activatedRecords;
     private FlushThread flushThread;
     private final Map<String, FlushEventListener> flushEventListeners;
-    private final Queue<Record> records;
+    private final RecordRingBuffer records;
+    // timers are only registered for the records actually tracked
+    private final Map<TimeTrackerRecords, Timer> durations = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final long tenantId;
     private final Clock clock;
 
     private long flushIntervalInMS;
@@ -42,8 +59,32 @@ public class TimeTracker implements TenantLifecycleService {
             final int maxSize,
             final int flushIntervalInSeconds,
             final String... activatedRecords) {
+        // meters of a composite registry without registries are not recorded
+        this(startTracking, flushEventListeners, maxSize, flushIntervalInSeconds, new CompositeMeterRegistry(), -1,
+                activatedRecords);
+    }
+
+    public TimeTracker(
+            final boolean startTracking,
+            final List<FlushEventListener> flushEventListeners,
+            final int maxSize,
+            final int flushIntervalInSeconds,
+            final MeterRegistry meterRegistry,
+            final long tenantId,
+            final String... activatedRecords) {
         this(new ThreadSleepClockImpl(), startTracking, flushEventListeners, maxSize,
-                flushIntervalInSeconds * 1000, activatedRecords);
+                flushIntervalInSeconds * 1000, meterRegistry, tenantId, activatedRecords);
+    }
+
+    public TimeTracker(
+            final Clock clock,
+            final boolean startTracking,
+            final List<FlushEventListener> flushEventListeners,
+            final int maxSize,
+            final int flushIntervalInMS,
+            final String... activatedRecords) {
+        this(clock, startTracking, flushEventListeners, maxSize, flushIntervalInMS, new CompositeMeterRegistry(), -1,
+                activatedRecords);
     }
 
     public TimeTracker(
@@ -52,12 +93,16 @@ public class TimeTracker implements TenantLifecycleService {
             final List<FlushEventListener> flushEventListeners,
             final int maxSize,
             final int flushIntervalInMS,
+            final MeterRegistry meterRegistry,
+            final long tenantId,
             final String... activatedRecords) {
         super();
         this.startTracking = startTracking;
         this.clock = clock;
         this.flushIntervalInMS = flushIntervalInMS;
-        this.records = new CircularFifoQueue<>(maxSize);
+        this.records = new RecordRingBuffer(maxSize);
+        this.meterRegistry = meterRegistry;
+        this.tenantId = tenantId;
         this.serviceStarted = false;
         this.flushEventListeners = new ConcurrentHashMap<>();
         if (flushEventListeners != null) {
@@ -70,10 +115,8 @@ public class TimeTracker implements TenantLifecycleService {
             }
         }
 
-        if (activatedRecords == null || activatedRecords.length == 0) {
-            this.activatedRecords = Collections.emptySet();
-        } else {
-            this.activatedRecords = new HashSet<>();
+        this.activatedRecords = ConcurrentHashMap.newKeySet();
+        if (activatedRecords != null) {
             for (final String activatedRecord : activatedRecords) {
                 this.activatedRecords.add(TimeTrackerRecords.valueOf(activatedRecord));
             }
@@ -269,12 +312,33 @@ public class TimeTracker implements TenantLifecycleService {
         if (!isTrackable(recordName)) {
             return;
         }
-        final long timestamp = System.currentTimeMillis();
-        final Record record = new Record(timestamp, recordName, recordDescription, duration);
-        log.debug("Tracking record: " + record);
-        synchronized (this) {
-            this.records.add(record);
+        add(new Record(System.currentTimeMillis(), recordName, recordDescription, duration));
+    }
+
+    /**
+     * Track a record whose description is only rendered when it is read, e.g. when records are flushed
+     */
+    public void track(final TimeTrackerRecords recordName, final Supplier<String> recordDescription,
+            final long duration) {
+        if (!isTrackable(recordName)) {
+            return;
         }
+        add(new Record(System.currentTimeMillis(), recordName, recordDescription, duration));
+    }
+
+    private void add(final Record record) {
+        log.debug("Tracking record: {}", record);
+        this.durations.computeIfAbsent(record.getName(), this::registerTimer).record(record.getDuration(),
+                TimeUnit.MILLISECONDS);
+        this.records.add(record);
+    }
+
+    private Timer registerTimer(final TimeTrackerRecords record) {
+        return Timer.builder(DURATION)
+                .tag("tenant", String.valueOf(tenantId)).tag("record", record.name())
+                .description("Duration of the operations tracked by the time tracker")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
     }
 
     public FlushResult flush() {
@@ -282,11 +346,7 @@ public class TimeTracker implements TenantLifecycleService {
         this.lastFlushTimestamp = System.currentTimeMillis();
         final List<FlushEventListenerResult> flushEventListenerResults = new ArrayList<>();
         final FlushResult flushResult = new FlushResult(this.lastFlushTimestamp, flushEventListenerResults);
-        final List<Record> records;
-        synchronized (this) {
-            records = getRecordsCopy();
-            clearRecords();
-        }
+        final List<Record> records = this.records.drain();
         final FlushEvent flushEvent = new FlushEvent(this.lastFlushTimestamp, records);
 
         flushListeners(flushEvent, flushEventListenerResults);
@@ -309,7 +369,7 @@ public class TimeTracker implements TenantLifecycleService {
     }
 
     public List<Record> getRecordsCopy() {
-        return Arrays.asList(this.records.toArray(new Record[this.records.size()]));
+        return this.records.copy();
     }
 
     public void clearRecords() {
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.tracking;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RecordRingBufferTest {
+
+    private static final TimeTrackerRecords REC = TimeTrackerRecords.EVALUATE_EXPRESSION;
+
+    @Test
+    public void should_drain_records_in_the_order_they_were_added_and_only_once() {
+        RecordRingBuffer buffer = new RecordRingBuffer(10);
+        buffer.add(record("rec1"));
+        buffer.add(record("rec2"));
+
+        assertThat(buffer.size()).isEqualTo(2);
+        assertThat(buffer.drain()).extracting(Record::getDescription).containsExactly("rec1", "rec2");
+        buffer.add(record("rec3"));
+        assertThat(buffer.drain()).extracting(Record::getDescription).containsExactly("rec3");
+        assertThat(buffer.drain()).isEmpty();
+    }
+
+    @Test
+    public void should_keep_only_the_last_records_when_full() {
+        RecordRingBuffer buffer = new RecordRingBuffer(2);
+        buffer.add(record("rec1"));
+        buffer.add(record("rec2"));
+        buffer.add(record("rec3"));
+
+        assertThat(buffer.size()).isEqualTo(2);
+        assertThat(buffer.copy()).extracting(Record::getDescription).containsExactly("rec2", "rec3");
+        assertThat(buffer.drain()).extracting(Record::getDescription).containsExactly("rec2", "rec3");
+    }
+
+    @Test
+    public void should_not_return_cleared_records() {
+        RecordRingBuffer buffer = new RecordRingBuffer(10);
+        buffer.add(record("rec1"));
+
+        buffer.clear();
+        buffer.add(record("rec2"));
+
+        assertThat(buffer.copy()).extracting(Record::getDescription).containsExactly("rec2");
+    }
+
+    @Test
+    public void should_not_lose_records_added_concurrently() throws Exception {
+        int threads = 8;
+        int recordsPerThread = 10_000;
+        RecordRingBuffer buffer = new RecordRingBuffer(threads * recordsPerThread);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < recordsPerThread; i++) {
+                        buffer.add(record("rec"));
+                    }
+                }));
+            }
+            List<Record> drained = new ArrayList<>();
+            for (Future<?> future : futures) {
+                drained.addAll(buffer.drain());
+                future.get(30, TimeUnit.SECONDS);
+            }
+            drained.addAll(buffer.drain());
+
+            assertThat(drained).hasSize(threads * recordsPerThread).doesNotHaveDuplicates();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static Record record(String description) {
+        return new Record(System.currentTimeMillis(), REC, description, 1);
+    }
+}
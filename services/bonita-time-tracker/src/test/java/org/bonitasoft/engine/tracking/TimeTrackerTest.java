@@ -24,7 +24,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.tracking.memory.MemoryFlushEventListener;
 import org.junit.After;
 import org.junit.Test;
@@ -137,6 +141,61 @@ public class TimeTrackerTest extends AbstractTimeTrackerTest {
         this.tracker.stop();
     }
 
+    @Test
+    public void should_render_description_only_when_record_is_read() {
+        when(this.flushThread.isStarted()).thenReturn(true);
+        this.tracker = createTimeTracker(true, null, 10, 2, REC1);
+        this.tracker.start();
+        final AtomicInteger renderings = new AtomicInteger();
+
+        this.tracker.track(REC1, () -> "rendered" + renderings.incrementAndGet(), 100);
+        this.tracker.track(INACTIVATED_REC, () -> "rendered" + renderings.incrementAndGet(), 100);
+
+        assertThat(renderings).hasValue(0);
+        final List<Record> records = this.tracker.getRecordsCopy();
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).getDescription()).isEqualTo("rendered1");
+        assertThat(records.get(0).getDescription()).isEqualTo("rendered1");
+        assertThat(renderings).hasValue(1);
+    }
+
+    @Test
+    public void should_aggregate_durations_of_each_record_in_a_timer() {
+        when(this.flushThread.isStarted()).thenReturn(true);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        this.tracker = new TimeTracker(mock(Clock.class), true, null, 10, 1000, meterRegistry, 1L, REC1.name(),
+                REC2.name()) {
+
+            @Override
+            FlushThread createFlushThread() {
+                return TimeTrackerTest.this.flushThread;
+            }
+        };
+        this.tracker.start();
+
+        this.tracker.track(REC1, "rec11Desc", 100);
+        this.tracker.track(REC1, () -> "rec12Desc", 300);
+        this.tracker.track(REC2, "rec2Desc", 50);
+        this.tracker.track(INACTIVATED_REC, "blabla", 1000);
+
+        final Timer rec1Timer = meterRegistry.find(TimeTracker.DURATION).tags("record", REC1.name(), "tenant", "1")
+                .timer();
+        assertThat(rec1Timer.count()).isEqualTo(2);
+        assertThat(rec1Timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(400);
+        assertThat(meterRegistry.find(TimeTracker.DURATION).tag("record", REC2.name()).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find(TimeTracker.DURATION).tag("record", INACTIVATED_REC.name()).timer()).isNull();
+    }
+
+    @Test
+    public void should_not_register_timers_when_nothing_is_tracked() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        this.tracker = new TimeTracker(mock(Clock.class), false, null, 10, 1000, meterRegistry, 1L, REC1.name());
+
+        this.tracker.track(REC1, "rec1Desc", 100);
+
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
     @Test
     public void should_not_track_when_not_enabled() {
         this.tracker = createTimeTracker(false, null, 10, 2, REC1, REC2);
@@ -13,6 +13,8 @@
  **/
 package org.bonitasoft.engine.work;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.concurrent.BlockingQueue;
@@ -20,6 +22,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -45,6 +48,7 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
     public static final String NUMBER_OF_WORKS_PENDING = "bonita.bpmengine.work.pending";
     public static final String NUMBER_OF_WORKS_RUNNING = "bonita.bpmengine.work.running";
     public static final String NUMBER_OF_WORKS_EXECUTED = "bonita.bpmengine.work.executed";
+    public static final String NUMBER_OF_WORKS_DELAYED = "bonita.bpmengine.work.delayed";
 
     private final BlockingQueue<Runnable> workQueue;
     private final WorkFactory workFactory;
@@ -54,9 +58,13 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
     private MeterRegistry meterRegistry;
 
     private final AtomicLong runningWorks = new AtomicLong();
+    private final AtomicLong delayedWorks = new AtomicLong();
     private final Counter executedWorkCounter;
     private final Gauge numberOfWorksPending;
     private final Gauge numberOfWorksRunning;
+    private final Gauge numberOfWorksDelayed;
+    private final ScheduledThreadPoolExecutor delayedWorkScheduler;
+    private final ProcessInstanceMailboxes processInstanceMailboxes;
 
     public BonitaThreadPoolExecutor(final int corePoolSize,
             final int maximumPoolSize,
@@ -67,6 +75,24 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
             final RejectedExecutionHandler handler, WorkFactory workFactory, EngineClock engineClock,
             WorkExecutionCallback workExecutionCallback,
             WorkExecutionAuditor workExecutionAuditor, MeterRegistry meterRegistry, long tenantId) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler, workFactory,
+                engineClock, workExecutionCallback, workExecutionAuditor, meterRegistry, tenantId, false);
+    }
+
+    /**
+     * @param processInstanceMailboxEnabled when true, works of a same process instance are never executed
+     *        concurrently: they wait in a mailbox of the process instance instead of colliding on its lock.
+     */
+    public BonitaThreadPoolExecutor(final int corePoolSize,
+            final int maximumPoolSize,
+            final long keepAliveTime,
+            final TimeUnit unit,
+            final BlockingQueue<Runnable> workQueue,
+            final ThreadFactory threadFactory,
+            final RejectedExecutionHandler handler, WorkFactory workFactory, EngineClock engineClock,
+            WorkExecutionCallback workExecutionCallback,
+            WorkExecutionAuditor workExecutionAuditor, MeterRegistry meterRegistry, long tenantId,
+            boolean processInstanceMailboxEnabled) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
         this.workQueue = workQueue;
         this.workFactory = workFactory;
@@ -85,11 +111,26 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
         executedWorkCounter = Counter.builder(NUMBER_OF_WORKS_EXECUTED)
                 .tags(tags).baseUnit("works").description("total works executed since last server start")
                 .register(meterRegistry);
+        numberOfWorksDelayed = Gauge.builder(NUMBER_OF_WORKS_DELAYED, delayedWorks, AtomicLong::get)
+                .tags(tags).baseUnit("works").description("Works waiting for their execution date to be reached")
+                .register(meterRegistry);
+        // delayed works wait here, without using a worker, until they are due
+        delayedWorkScheduler = new ScheduledThreadPoolExecutor(1,
+                new WorkerThreadFactory("Bonita-Work-Delayer", tenantId, 1));
+        delayedWorkScheduler.setRemoveOnCancelPolicy(true);
+        processInstanceMailboxes = processInstanceMailboxEnabled
+                ? new ProcessInstanceMailboxes(this::submit, meterRegistry, tags)
+                : null;
     }
 
     @Override
     public void clearAllQueues() {
         workQueue.clear();
+        delayedWorkScheduler.getQueue().clear();
+        delayedWorks.set(0);
+        if (processInstanceMailboxes != null) {
+            processInstanceMailboxes.clear();
+        }
     }
 
     @Override
@@ -104,55 +145,98 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
     @Override
     public void shutdownAndEmptyQueue() {
         super.shutdown();
-        log.info("Clearing queue of work, had {} elements", workQueue.size());
+        log.info("Clearing queue of work, had {} elements and {} delayed elements", workQueue.size(),
+                delayedWorks.get());
         workQueue.clear();
+        delayedWorkScheduler.shutdownNow();
+        delayedWorks.set(0);
         meterRegistry.remove(numberOfWorksPending);
         meterRegistry.remove(numberOfWorksRunning);
         meterRegistry.remove(executedWorkCounter);
+        meterRegistry.remove(numberOfWorksDelayed);
+        if (processInstanceMailboxes != null) {
+            processInstanceMailboxes.clear();
+            processInstanceMailboxes.removeMeters();
+        }
     }
 
     @Override
     public void submit(WorkDescriptor work) {
-        submit(() -> {
-            if (isRequiringDelayedExecution(work)) {
-                // Future implementation should use a real delay e.g. using a ScheduledThreadPoolExecutor
-                // Will be executed later
-                submit(work);
-                return;
-            }
-            work.incrementExecutionCount();
-            workExecutionAuditor.detectAbnormalExecutionAndNotify(work);
-
-            BonitaWork bonitaWork = workFactory.create(work);
-            HashMap<String, Object> context = new HashMap<>();
-            CompletableFuture<Void> asyncResult;
-            runningWorks.incrementAndGet();
-            try {
-                asyncResult = bonitaWork.work(context);
-            } catch (Exception e) {
-                executedWorkCounter.increment();
-                runningWorks.decrementAndGet();
-                workExecutionCallback.onFailure(work, bonitaWork, context, e);
-                return;
-            }
+        Duration remainingDelay = getRemainingDelay(work);
+        if (!remainingDelay.isZero()) {
+            delay(work, remainingDelay);
+            return;
+        }
+        Long processInstanceId = processInstanceMailboxes != null
+                ? ProcessInstanceMailboxes.getProcessInstanceId(work)
+                : null;
+        if (processInstanceId != null) {
+            processInstanceMailboxes.submit(processInstanceId, () -> executeWork(work),
+                    rejection -> abandon(work, rejection));
+        } else {
+            submit(() -> executeWork(work));
+        }
+    }
+
+    private void delay(WorkDescriptor work, Duration remainingDelay) {
+        if (isShutdown()) {
+            return;
+        }
+        delayedWorks.incrementAndGet();
+        delayedWorkScheduler.schedule(() -> {
+            delayedWorks.decrementAndGet();
+            // submitting again checks the execution threshold against the engine clock
+            submit(work);
+        }, remainingDelay.toNanos(), TimeUnit.NANOSECONDS);
+    }
 
-            asyncResult.handle((result, error) -> {
-                executedWorkCounter.increment();
-                runningWorks.decrementAndGet();
-                if (error != null) {
-                    if (error instanceof CompletionException) {
-                        error = error.getCause();
-                    }
-                    workExecutionCallback.onFailure(work, bonitaWork, context, error);
-                } else {
-                    workExecutionCallback.onSuccess(work);
+    private void executeWork(WorkDescriptor work) {
+        work.incrementExecutionCount();
+        workExecutionAuditor.detectAbnormalExecutionAndNotify(work);
+
+        BonitaWork bonitaWork = workFactory.create(work);
+        HashMap<String, Object> context = new HashMap<>();
+        CompletableFuture<Void> asyncResult;
+        runningWorks.incrementAndGet();
+        try {
+            asyncResult = bonitaWork.work(context);
+        } catch (Exception e) {
+            executedWorkCounter.increment();
+            runningWorks.decrementAndGet();
+            workExecutionCallback.onFailure(work, bonitaWork, context, e);
+            return;
+        }
+
+        asyncResult.handle((result, error) -> {
+            executedWorkCounter.increment();
+            runningWorks.decrementAndGet();
+            if (error != null) {
+                if (error instanceof CompletionException) {
+                    error = error.getCause();
                 }
-                return null;
-            });
+                workExecutionCallback.onFailure(work, bonitaWork, context, error);
+            } else {
+                workExecutionCallback.onSuccess(work);
+            }
+            return null;
         });
     }
 
-    private boolean isRequiringDelayedExecution(WorkDescriptor work) {
-        return work.getExecutionThreshold() != null && work.getExecutionThreshold().isAfter(engineClock.now());
+    /**
+     * Handle a work that waited in a mailbox until the executor rejected a previous work of its process instance
+     */
+    private void abandon(WorkDescriptor work, Throwable rejection) {
+        log.warn("Work {} was not executed because the work executor rejected a previous work of its process instance",
+                work);
+        workExecutionCallback.onFailure(work, workFactory.create(work), new HashMap<>(), rejection);
+    }
+
+    private Duration getRemainingDelay(WorkDescriptor work) {
+        Instant executionThreshold = work.getExecutionThreshold();
+        if (executionThreshold == null) {
+            return Duration.ZERO;
+        }
+        Duration remainingDelay = Duration.between(engineClock.now(), executionThreshold);
+        return remainingDelay.isNegative() ? Duration.ZERO : remainingDelay;
     }
 }
@@ -56,6 +56,7 @@ public class DefaultBonitaExecutorServiceFactory implements BonitaExecutorServic
     private final WorkExecutionAuditor workExecutionAuditor;
     private final MeterRegistry meterRegistry;
     private final ExecutorServiceMetricsProvider executorServiceMetricsProvider;
+    private boolean processInstanceMailboxEnabled;
 
     public DefaultBonitaExecutorServiceFactory(
             WorkFactory workFactory,
@@ -80,6 +81,11 @@ public class DefaultBonitaExecutorServiceFactory implements BonitaExecutorServic
         this.executorServiceMetricsProvider = executorServiceMetricsProvider;
     }
 
+    @Value("${bonita.tenant.work.mailbox.enabled:false}")
+    public void setProcessInstanceMailboxEnabled(boolean processInstanceMailboxEnabled) {
+        this.processInstanceMailboxEnabled = processInstanceMailboxEnabled;
+    }
+
     @Override
     public BonitaExecutorService createExecutorService(WorkExecutionCallback workExecutionCallback) {
         final BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(queueCapacity);
@@ -89,7 +95,7 @@ public class DefaultBonitaExecutorServiceFactory implements BonitaExecutorServic
         final BonitaThreadPoolExecutor bonitaThreadPoolExecutor = new BonitaThreadPoolExecutor(corePoolSize,
                 maximumPoolSize, keepAliveTimeSeconds, TimeUnit.SECONDS,
                 workQueue, threadFactory, handler, workFactory, engineClock, workExecutionCallback,
-                workExecutionAuditor, meterRegistry, tenantId);
+                workExecutionAuditor, meterRegistry, tenantId, processInstanceMailboxEnabled);
         logger.info(
                 "Creating a new Thread pool to handle works: " + bonitaThreadPoolExecutor);
 
@@ -0,0 +1,381 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.transaction.Status;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.bonitasoft.engine.commons.exceptions.SBonitaException;
+import org.bonitasoft.engine.persistence.QueryOptions;
+import org.bonitasoft.engine.persistence.SelectListDescriptor;
+import org.bonitasoft.engine.persistence.SelectOneDescriptor;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.services.SPersistenceException;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.bonitasoft.engine.work.model.SWorkQueueEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Durable work queue: works are also written to the work queue table by the transaction that registers them, and
+ * removed once executed. Works of a node that crashed are executed by any node once their lease expires, and works of a
+ * node that stops are released to be executed by the other nodes, or by this node when it starts again. Works still
+ * executing when the node stops keep their lease until it expires.
+ * <p>
+ * A work registered by a transaction is leased by the node of this transaction and executed in memory as usual.
+ * When more than {@code maxWorksInMemory} works leased by this node wait for execution, new works are not leased but
+ * spilled to the table instead. A single thread per node claims spilled and expired works in batches when there is
+ * room in memory again, renews the leases of the works of this node and removes executed works from the table.
+ * <p>
+ * Works are claimed by updating their lease only if it is expired: when two nodes claim the same works concurrently,
+ * the database executes the updates one after the other and each work is claimed by a single node. As works are
+ * removed from the table after their execution, a work can be executed again if its node crashes in-between, like it
+ * would be by the recovery mechanism.
+ * <p>
+ * Works that can not be read from the table, e.g. because their classes changed between two versions, are logged and
+ * removed from the table when they are claimed, so that they do not prevent the next works from being claimed.
+ */
+@Component
+public class DurableWorkQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(DurableWorkQueue.class);
+
+    public static final String NUMBER_OF_QUEUED_WORKS = "bonita.bpmengine.work.queue.backlog";
+    public static final String CLAIM_LATENCY = "bonita.bpmengine.work.queue.claim";
+    public static final String NUMBER_OF_SPILLED_WORKS = "bonita.bpmengine.work.queue.spilled";
+
+    private final PersistenceService persistenceService;
+    private final UserTransactionService transactionService;
+    private final SessionAccessor sessionAccessor;
+    private final long tenantId;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxWorksInMemory;
+    private final long leaseDurationMillis;
+    private final long pollInterval;
+
+    // uuid of the works leased by this node that are not executed yet
+    private final Set<String> leasedWorks = ConcurrentHashMap.newKeySet();
+    private final Queue<String> executedWorks = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedWorks = new AtomicLong();
+    private final Timer claimLatency;
+    private final Counter spilledWorksCounter;
+    private WorkExecutorService workExecutorService;
+    private ScheduledExecutorService poller;
+    private volatile boolean running;
+    // identifies this node as lease owner, changed each time the queue starts
+    private volatile String leaseOwner;
+    private long lastLeaseRenewal;
+
+    public DurableWorkQueue(PersistenceService persistenceService, UserTransactionService transactionService,
+            SessionAccessor sessionAccessor, MeterRegistry meterRegistry,
+            @Value("${tenantId}") long tenantId,
+            @Value("${bonita.tenant.work.durableQueue.enabled:false}") boolean enabled,
+            @Value("${bonita.tenant.work.durableQueue.batchSize:100}") int batchSize,
+            @Value("${bonita.tenant.work.durableQueue.maxWorksInMemory:10000}") int maxWorksInMemory,
+            @Value("${bonita.tenant.work.durableQueue.leaseDuration:PT1M}") String leaseDuration,
+            @Value("${bonita.tenant.work.durableQueue.pollInterval:1000}") long pollInterval) {
+        this.persistenceService = persistenceService;
+        this.transactionService = transactionService;
+        this.sessionAccessor = sessionAccessor;
+        this.tenantId = tenantId;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxWorksInMemory = maxWorksInMemory;
+        this.leaseDurationMillis = Duration.parse(leaseDuration).toMillis();
+        this.pollInterval = pollInterval;
+        Tags tags = Tags.of("tenant", String.valueOf(tenantId));
+        Gauge.builder(NUMBER_OF_QUEUED_WORKS, queuedWorks, AtomicLong::get)
+                .tags(tags)
+                .baseUnit("works")
+                .description("Works waiting in the durable work queue, being executed or not")
+                .register(meterRegistry);
+        claimLatency = Timer.builder(CLAIM_LATENCY)
+                .tags(tags)
+                .description("Time between the registration of a spilled or expired work and its claim by a node")
+                .register(meterRegistry);
+        spilledWorksCounter = Counter.builder(NUMBER_OF_SPILLED_WORKS)
+                .tags(tags)
+                .baseUnit("works")
+                .description("Works written to the durable work queue without being executed in memory")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Write the work to the queue in the current transaction.
+     *
+     * @return false if the work is spilled to the queue: it must not be executed when the transaction commits, it
+     *         will be claimed from the queue later
+     */
+    boolean add(WorkDescriptor work) throws SWorkRegisterException {
+        boolean leased = running && leasedWorks.size() < maxWorksInMemory;
+        long now = System.currentTimeMillis();
+        try {
+            persistenceService.insert(new SWorkQueueEntry(work.getUuid(), now, leased ? leaseOwner : null,
+                    leased ? now + leaseDurationMillis : 0, serialize(work)));
+            if (leased) {
+                // recorded before the commit: the work can be executed, and call executed(), as soon as it commits
+                leasedWorks.add(work.getUuid());
+            }
+            transactionService.registerBonitaSynchronization((BonitaTransactionSynchronization) status -> {
+                if (status == Status.STATUS_COMMITTED) {
+                    queuedWorks.incrementAndGet();
+                    if (!leased) {
+                        spilledWorksCounter.increment();
+                    }
+                } else if (leased) {
+                    leasedWorks.remove(work.getUuid());
+                }
+            });
+        } catch (IOException | SPersistenceException | STransactionNotFoundException e) {
+            if (leased) {
+                leasedWorks.remove(work.getUuid());
+            }
+            throw new SWorkRegisterException("Unable to add the work to the durable work queue", e);
+        }
+        return leased;
+    }
+
+    /**
+     * Remove the work from the queue, once executed. Executed works are removed by batches from the polling thread.
+     */
+    void executed(WorkDescriptor work) {
+        if (leasedWorks.remove(work.getUuid())) {
+            executedWorks.add(work.getUuid());
+        }
+    }
+
+    synchronized void start(WorkExecutorService workExecutorService) {
+        if (!enabled || running) {
+            return;
+        }
+        this.workExecutorService = workExecutorService;
+        leaseOwner = UUID.randomUUID().toString();
+        lastLeaseRenewal = System.currentTimeMillis();
+        running = true;
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Bonita-Work-Queue-" + tenantId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the first poll claims the works released or left by nodes that stopped
+        poller.scheduleWithFixedDelay(this::poll, 0, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop claiming works and release the works leased by this node that are not executed.
+     *
+     * @param releaseLeases false when works leased by this node may still be executing: their leases are kept, and
+     *        expire after the lease duration, so that they are not executed by another node in the meantime
+     */
+    synchronized void stop(boolean releaseLeases) {
+        if (!running) {
+            return;
+        }
+        running = false;
+        poller.shutdown();
+        try {
+            if (!poller.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Durable work queue poller of tenant {} did not terminate in time", tenantId);
+                poller.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            poller.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        poller = null;
+        inTransaction(() -> {
+            deleteExecutedWorks();
+            if (releaseLeases) {
+                persistenceService.update("releaseWorkQueueLeases",
+                        Collections.singletonMap("leaseOwner", leaseOwner));
+            }
+            return null;
+        });
+        if (!releaseLeases) {
+            log.warn("Works of the durable work queue of tenant {} are still executing, they will be executed again"
+                    + " once their lease expires", tenantId);
+        }
+        leasedWorks.clear();
+    }
+
+    void poll() {
+        inTransaction(() -> {
+            deleteExecutedWorks();
+            long now = System.currentTimeMillis();
+            if (now - lastLeaseRenewal > leaseDurationMillis / 3) {
+                renewLeases(now);
+            }
+            return null;
+        });
+        int room = Math.min(batchSize, maxWorksInMemory - leasedWorks.size());
+        while (running && room > 0) {
+            int numberOfWorks = room;
+            List<WorkDescriptor> claimedWorks = inTransaction(() -> claim(numberOfWorks));
+            if (claimedWorks == null) {
+                break;
+            }
+            for (WorkDescriptor work : claimedWorks) {
+                // recorded once the claim is committed
+                leasedWorks.add(work.getUuid());
+                workExecutorService.execute(work);
+            }
+            room = claimedWorks.size() < numberOfWorks ? 0
+                    : Math.min(batchSize, maxWorksInMemory - leasedWorks.size());
+        }
+        Long numberOfQueuedWorks = inTransaction(() -> persistenceService.selectOne(new SelectOneDescriptor<>(
+                "getNumberOfWorkQueueEntries", Collections.emptyMap(), SWorkQueueEntry.class, Long.class)));
+        if (numberOfQueuedWorks != null) {
+            queuedWorks.set(numberOfQueuedWorks);
+        }
+    }
+
+    private void deleteExecutedWorks() throws SPersistenceException {
+        List<String> uuids = new ArrayList<>();
+        String uuid;
+        while ((uuid = executedWorks.poll()) != null) {
+            uuids.add(uuid);
+            if (uuids.size() == batchSize) {
+                deleteWorks(uuids);
+                uuids.clear();
+            }
+        }
+        if (!uuids.isEmpty()) {
+            deleteWorks(uuids);
+        }
+    }
+
+    private void deleteWorks(List<String> uuids) throws SPersistenceException {
+        queuedWorks.addAndGet(-persistenceService.update("deleteWorkQueueEntries",
+                Collections.singletonMap("uuids", uuids)));
+    }
+
+    private void renewLeases(long now) throws SPersistenceException {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("leaseOwner", leaseOwner);
+        parameters.put("leaseExpiry", now + leaseDurationMillis);
+        persistenceService.update("renewWorkQueueLeases", parameters);
+        lastLeaseRenewal = now;
+    }
+
+    /**
+     * Lease the given number of works among the ones not leased or whose lease expired, oldest first.
+     */
+    private List<WorkDescriptor> claim(int numberOfWorks) throws SBonitaException {
+        long now = System.currentTimeMillis();
+        List<Long> ids = persistenceService.selectList(new SelectListDescriptor<>("getClaimableWorkQueueEntryIds",
+                Collections.singletonMap("now", now), SWorkQueueEntry.class, Long.class,
+                new QueryOptions(0, numberOfWorks)));
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("ids", ids);
+        parameters.put("now", now);
+        parameters.put("leaseOwner", leaseOwner);
+        parameters.put("leaseExpiry", now + leaseDurationMillis);
+        persistenceService.update("claimWorkQueueEntries", parameters);
+        // works claimed by another node in the meantime were not updated
+        Map<String, Object> claimedParameters = new HashMap<>();
+        claimedParameters.put("ids", ids);
+        claimedParameters.put("leaseOwner", leaseOwner);
+        List<SWorkQueueEntry> entries = persistenceService.selectList(new SelectListDescriptor<>(
+                "getWorkQueueEntriesOfLeaseOwner", claimedParameters, SWorkQueueEntry.class,
+                new QueryOptions(0, ids.size())));
+        List<WorkDescriptor> works = new ArrayList<>(entries.size());
+        List<String> unreadableWorks = new ArrayList<>();
+        for (SWorkQueueEntry entry : entries) {
+            WorkDescriptor work;
+            try {
+                work = deserialize(entry.getContent());
+            } catch (IOException | RuntimeException e) {
+                log.error("Unable to read the work {} of the durable work queue of tenant {}, it is removed from the "
+                        + "queue without being executed", entry.getUuid(), tenantId, e);
+                unreadableWorks.add(entry.getUuid());
+                continue;
+            }
+            work.setTenantId(tenantId);
+            claimLatency.record(Math.max(0, now - entry.getCreationDate()), TimeUnit.MILLISECONDS);
+            works.add(work);
+        }
+        if (!unreadableWorks.isEmpty()) {
+            deleteWorks(unreadableWorks);
+        }
+        log.debug("Claimed {} works from the durable work queue of tenant {}", works.size(), tenantId);
+        return works;
+    }
+
+    private <T> T inTransaction(Callable<T> callable) {
+        sessionAccessor.setTenantId(tenantId);
+        try {
+            return transactionService.executeInTransaction(callable);
+        } catch (Exception e) {
+            log.error("Error while accessing the durable work queue of tenant {}", tenantId, e);
+            return null;
+        } finally {
+            sessionAccessor.deleteTenantId();
+        }
+    }
+
+    static byte[] serialize(WorkDescriptor work) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(work);
+        }
+        return bytes.toByteArray();
+    }
+
+    static WorkDescriptor deserialize(byte[] content) throws IOException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(content))) {
+            return (WorkDescriptor) input.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serial mailboxes of works, one per process instance.
+ * <p>
+ * At most one work of a given process instance is handed to the executor at a time: works submitted while another
+ * work of the same process instance is running are parked in the mailbox of that instance and handed to the executor
+ * once the running one is done. Parked works do not occupy a worker thread and do not collide on the process instance
+ * lock, so they are not retried because of a {@link LockTimeoutException}.
+ * <p>
+ * Only the synchronous part of a work is serialized, which is also the part covered by the process instance lock.
+ * <p>
+ * When the executor rejects a work, the works still waiting in the mailbox of its process instance are abandoned:
+ * each one is given to its abandon handler, so that it is failed or retried like a work that failed to execute.
+ */
+@Slf4j
+class ProcessInstanceMailboxes {
+
+    public static final String NUMBER_OF_WORKS_IN_MAILBOXES = "bonita.bpmengine.work.mailbox.pending";
+    public static final String NUMBER_OF_ACTIVE_MAILBOXES = "bonita.bpmengine.work.mailbox.active";
+    public static final String NUMBER_OF_WORKS_SERIALIZED = "bonita.bpmengine.work.mailbox.serialized";
+
+    static final String PROCESS_INSTANCE_ID = "processInstanceId";
+
+    /**
+     * A process instance present in this map has a work being executed, its value contains the works waiting for it.
+     */
+    private final Map<Long, Deque<MailboxTask>> mailboxes = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong worksInMailboxes = new AtomicLong();
+    private final Gauge numberOfWorksInMailboxes;
+    private final Gauge numberOfActiveMailboxes;
+    private final Counter serializedWorksCounter;
+
+    ProcessInstanceMailboxes(Executor executor, MeterRegistry meterRegistry, Tags tags) {
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        numberOfWorksInMailboxes = Gauge.builder(NUMBER_OF_WORKS_IN_MAILBOXES, worksInMailboxes, AtomicLong::get)
+                .tags(tags).baseUnit("works")
+                .description("Works waiting for another work of the same process instance to complete")
+                .register(meterRegistry);
+        numberOfActiveMailboxes = Gauge.builder(NUMBER_OF_ACTIVE_MAILBOXES, mailboxes, Map::size)
+                .tags(tags).baseUnit("process instances")
+                .description("Process instances having a work currently executing")
+                .register(meterRegistry);
+        serializedWorksCounter = Counter.builder(NUMBER_OF_WORKS_SERIALIZED)
+                .tags(tags).baseUnit("works")
+                .description("Works queued behind a work of the same process instance instead of colliding on its lock")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the id of the process instance the work must be serialized on, or null if the work is not bound to a
+     *         process instance
+     */
+    static Long getProcessInstanceId(WorkDescriptor work) {
+        if (!work.hasParameter(PROCESS_INSTANCE_ID)) {
+            return null;
+        }
+        Object processInstanceId = work.getParameter(PROCESS_INSTANCE_ID);
+        if (processInstanceId instanceof Long && (Long) processInstanceId > 0) {
+            return (Long) processInstanceId;
+        }
+        return null;
+    }
+
+    /**
+     * @param onAbandoned called with the rejection when the task is abandoned in the mailbox because the executor
+     *        rejected a previous task of the same process instance
+     * @throws RejectedExecutionException if the executor rejects the task, which is then not executed
+     */
+    void submit(long processInstanceId, Runnable task, Consumer<RejectedExecutionException> onAbandoned) {
+        MailboxTask mailboxTask = new MailboxTask(task, onAbandoned);
+        boolean[] mailboxWasIdle = { false };
+        mailboxes.compute(processInstanceId, (id, waitingTasks) -> {
+            if (waitingTasks == null) {
+                mailboxWasIdle[0] = true;
+                return new ArrayDeque<>();
+            }
+            waitingTasks.add(mailboxTask);
+            return waitingTasks;
+        });
+        if (mailboxWasIdle[0]) {
+            execute(processInstanceId, mailboxTask);
+        } else {
+            worksInMailboxes.incrementAndGet();
+            serializedWorksCounter.increment();
+        }
+    }
+
+    private void runAndHandOver(long processInstanceId, MailboxTask task) {
+        try {
+            task.task.run();
+        } finally {
+            MailboxTask next = pollNext(processInstanceId);
+            if (next != null) {
+                try {
+                    execute(processInstanceId, next);
+                } catch (RejectedExecutionException e) {
+                    // the work of this thread is done, the rejected one is abandoned like the ones that waited for it
+                    abandon(next, e);
+                }
+            }
+        }
+    }
+
+    private void execute(long processInstanceId, MailboxTask task) {
+        try {
+            executor.execute(() -> runAndHandOver(processInstanceId, task));
+        } catch (RejectedExecutionException e) {
+            Deque<MailboxTask> abandonedTasks = mailboxes.remove(processInstanceId);
+            if (abandonedTasks != null) {
+                worksInMailboxes.addAndGet(-abandonedTasks.size());
+                abandonedTasks.forEach(abandonedTask -> abandon(abandonedTask, e));
+            }
+            throw e;
+        }
+    }
+
+    private void abandon(MailboxTask task, RejectedExecutionException rejection) {
+        try {
+            task.onAbandoned.accept(rejection);
+        } catch (RuntimeException e) {
+            log.error("Unable to handle a work abandoned in the mailbox of its process instance", e);
+        }
+    }
+
+    private MailboxTask pollNext(long processInstanceId) {
+        MailboxTask[] next = { null };
+        mailboxes.computeIfPresent(processInstanceId, (id, waitingTasks) -> {
+            next[0] = waitingTasks.poll();
+            // removing the mailbox marks the process instance as idle
+            return next[0] == null ? null : waitingTasks;
+        });
+        if (next[0] != null) {
+            worksInMailboxes.decrementAndGet();
+        }
+        return next[0];
+    }
+
+    void clear() {
+        mailboxes.clear();
+        worksInMailboxes.set(0);
+    }
+
+    void removeMeters() {
+        meterRegistry.remove(numberOfWorksInMailboxes);
+        meterRegistry.remove(numberOfActiveMailboxes);
+        meterRegistry.remove(serializedWorksCounter);
+    }
+
+    private static final class MailboxTask {
+
+        private final Runnable task;
+        private final Consumer<RejectedExecutionException> onAbandoned;
+
+        private MailboxTask(Runnable task, Consumer<RejectedExecutionException> onAbandoned) {
+            this.task = task;
+            this.onAbandoned = onAbandoned;
+        }
+    }
+}
@@ -18,6 +18,7 @@ import static org.bonitasoft.engine.commons.ExceptionUtils.printLightWeightStack
 import static org.bonitasoft.engine.commons.ExceptionUtils.printRootCauseOnly;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
@@ -57,6 +58,7 @@ public class RetryingWorkExecutorService implements WorkExecutorService, WorkExe
     private BonitaExecutorService executor;
     private final IncidentService incidentService;
     private final long tenantId;
+    private final DurableWorkQueue durableWorkQueue;
     public int numberOfFramesToLogInExceptions = 3;
     private Random random = new Random();
 
@@ -70,6 +72,7 @@ public class RetryingWorkExecutorService implements WorkExecutorService, WorkExe
             WorkExecutionAuditor workExecutionAuditor,
             MeterRegistry meterRegistry,
             IncidentService incidentService,
+            DurableWorkQueue durableWorkQueue,
             @Value("${tenantId}") long tenantId) {
         this.bonitaExecutorServiceFactory = bonitaExecutorServiceFactory;
         this.engineClock = engineClock;
@@ -81,6 +84,7 @@ public class RetryingWorkExecutorService implements WorkExecutorService, WorkExe
         this.workExecutionAuditor = workExecutionAuditor;
         this.incidentService = incidentService;
         this.tenantId = tenantId;
+        this.durableWorkQueue = durableWorkQueue;
         Gauge.builder(NUMBER_OF_WORKS_RETRIED, retriedWorks, AtomicLong::get)
                 .tag("tenant", String.valueOf(tenantId)).baseUnit("works")
                 .description("Works currently waiting for execution that have been retried at least once")
@@ -99,6 +103,7 @@ public class RetryingWorkExecutorService implements WorkExecutorService, WorkExe
             retriedWorks.decrementAndGet();
         }
         logger.debug("Completed work {}", work);
+        durableWorkQueue.executed(work);
         workExecutionAuditor.notifySuccess(work);
     }
 
@@ -123,6 +128,7 @@ public class RetryingWorkExecutorService implements WorkExecutorService, WorkExe
                     logger.warn("Work was not executed because preconditions were not met, {} : {}",
                             bonitaWork.getDescription(), thrown.getMessage());
                     decrementRetryCounterIfNeeded(work);
+                    durableWorkQueue.executed(work);
                 } else {
                     logger.warn("Work {} failed. The element will be marked as failed. Exception is: {}",
                             bonitaWork.getDescription(),
@@ -167,6 +173,7 @@ public class RetryingWorkExecutorService implements WorkExecutorService, WorkExe
     public void handleFailure(WorkDescriptor work, BonitaWork bonitaWork, Map<String, Object> context,
             Throwable thrown) {
         decrementRetryCounterIfNeeded(work);
+        durableWorkQueue.executed(work);
         try {
             bonitaWork.handleFailure(thrown, context);
         } catch (Exception e) {
@@ -241,6 +248,18 @@ public class RetryingWorkExecutorService implements WorkExecutorService, WorkExe
         }
     }
 
+    @Override
+    public void execute(List<WorkDescriptor> works) {
+        if (!isStopped()) {
+            logger.debug("Submitted works {}", works);
+            for (WorkDescriptor work : works) {
+                executor.submit(work);
+            }
+        } else {
+            logger.debug("Ignored works submission (service stopped) {}", works);
+        }
+    }
+
     @Override
     public synchronized void stop() {
         // we don't throw exception just stop it and log if something happens
@@ -257,6 +276,10 @@ public class RetryingWorkExecutorService implements WorkExecutorService, WorkExe
             } else {
                 logger.warn(e.getMessage());
             }
+        } finally {
+            // works that were waiting in memory are executed by the other nodes or when the node starts again
+            // the executor is not stopped when works are still running: their leases are kept until they expire
+            durableWorkQueue.stop(isStopped());
         }
     }
 
@@ -264,6 +287,7 @@ public class RetryingWorkExecutorService implements WorkExecutorService, WorkExe
     public synchronized void start() {
         if (isStopped()) {
             executor = bonitaExecutorServiceFactory.createExecutorService(this);
+            durableWorkQueue.start(this);
         }
     }
 
@@ -276,7 +300,11 @@ public class RetryingWorkExecutorService implements WorkExecutorService, WorkExe
         shutdownExecutor();
         // completely clear the queue because it's a global pause
         executor.clearAllQueues();
-        awaitTermination();
+        try {
+            awaitTermination();
+        } finally {
+            durableWorkQueue.stop(isStopped());
+        }
     }
 
     @Override
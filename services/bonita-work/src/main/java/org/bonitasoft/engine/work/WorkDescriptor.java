@@ -62,6 +62,10 @@ public class WorkDescriptor implements Serializable {
         return type;
     }
 
+    public boolean hasParameter(String key) {
+        return parameters.containsKey(key);
+    }
+
     public Serializable getParameter(String key) {
         if (!parameters.containsKey(key)) {
             throw new IllegalStateException(
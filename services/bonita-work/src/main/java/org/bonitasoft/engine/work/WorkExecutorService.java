@@ -13,6 +13,8 @@
  **/
 package org.bonitasoft.engine.work;
 
+import java.util.List;
+
 import org.bonitasoft.engine.commons.TenantLifecycleService;
 
 /**
@@ -27,4 +29,13 @@ public interface WorkExecutorService extends TenantLifecycleService {
     void notifyNodeStopped(String nodeName);
 
     void execute(WorkDescriptor work);
+
+    /**
+     * Trigger the execution of the works, in the given order
+     */
+    default void execute(List<WorkDescriptor> works) {
+        for (WorkDescriptor work : works) {
+            execute(work);
+        }
+    }
 }
@@ -13,7 +13,10 @@
  **/
 package org.bonitasoft.engine.work;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.bonitasoft.engine.commons.time.EngineClock;
+import org.bonitasoft.engine.sessionaccessor.STenantIdNotSetException;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
 import org.bonitasoft.engine.transaction.STransactionNotFoundException;
 import org.bonitasoft.engine.transaction.UserTransactionService;
@@ -33,23 +36,39 @@ import org.springframework.stereotype.Service;
 @Service("workService")
 public class WorkServiceImpl implements WorkService {
 
+    public static final String NUMBER_OF_WORKS_PER_TRANSACTION = "bonita.bpmengine.work.transaction.works";
+
     private Logger log = LoggerFactory.getLogger(WorkServiceImpl.class);
     private final UserTransactionService transactionService;
     private final SessionAccessor sessionAccessor;
     private final WorkExecutorService workExecutorService;
     private final EngineClock engineClock;
+    private final DurableWorkQueue durableWorkQueue;
     private int workDelayOnMultipleXAResource;
+    private final DistributionSummary worksPerTransaction;
+    // works registered in the current transaction of the thread
+    private final ThreadLocal<WorkSynchronization> currentSynchronization = new ThreadLocal<>();
 
     public WorkServiceImpl(UserTransactionService transactionService,
             SessionAccessor sessionAccessor,
             WorkExecutorService workExecutorService,
             EngineClock engineClock,
+            DurableWorkQueue durableWorkQueue,
+            MeterRegistry meterRegistry,
+            @Value("${tenantId}") long tenantId,
             @Value("${bonita.tenant.work.${db.vendor}.delayOnMultipleXAResource:0}") int workDelayOnMultipleXAResource) {
         this.transactionService = transactionService;
         this.sessionAccessor = sessionAccessor;
         this.workExecutorService = workExecutorService;
         this.engineClock = engineClock;
+        this.durableWorkQueue = durableWorkQueue;
         this.workDelayOnMultipleXAResource = workDelayOnMultipleXAResource;
+        this.worksPerTransaction = DistributionSummary.builder(NUMBER_OF_WORKS_PER_TRANSACTION)
+                .description("Number of works submitted by a committed transaction")
+                .baseUnit("works")
+                .tag("tenant", String.valueOf(tenantId))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
@@ -60,22 +79,53 @@ public class WorkServiceImpl implements WorkService {
         }
         workDescriptor.setRegistrationDate(engineClock.now());
         log.debug("Registering work {}", workDescriptor);
-        createAndRegisterNewSynchronization(workDescriptor);
+        // leased works are recorded by the durable queue right away, not by a synchronization that could be called
+        // after the one executing the works of the transaction
+        if (durableWorkQueue.isEnabled() && isInTenant() && !durableWorkQueue.add(workDescriptor)) {
+            log.debug("Work spilled to the durable work queue");
+            return;
+        }
+        getOrRegisterSynchronization().addWork(workDescriptor);
         log.debug("Work registered");
     }
 
-    private WorkSynchronization createAndRegisterNewSynchronization(WorkDescriptor workDescriptor)
-            throws SWorkRegisterException {
-        WorkSynchronization synchro = new WorkSynchronization(transactionService, workExecutorService, sessionAccessor,
-                workDescriptor, workDelayOnMultipleXAResource);
+    /**
+     * All works of a transaction are collected by a single synchronization, registered with the first of them
+     */
+    private WorkSynchronization getOrRegisterSynchronization() throws SWorkRegisterException {
+        WorkSynchronization synchro = currentSynchronization.get();
+        // the synchronization can be completed by another thread, e.g. on transaction timeout
+        if (synchro != null && !synchro.isCompleted()) {
+            return synchro;
+        }
+        synchro = new WorkSynchronization(transactionService, workExecutorService, sessionAccessor,
+                workDelayOnMultipleXAResource, worksPerTransaction) {
+
+            @Override
+            public void afterCompletion(int transactionStatus) {
+                currentSynchronization.remove();
+                super.afterCompletion(transactionStatus);
+            }
+        };
         try {
             transactionService.registerBonitaSynchronization(synchro);
         } catch (final STransactionNotFoundException e) {
+            currentSynchronization.remove();
             throw new SWorkRegisterException(e.getMessage(), e);
         }
+        currentSynchronization.set(synchro);
         return synchro;
     }
 
+    private boolean isInTenant() {
+        try {
+            sessionAccessor.getTenantId();
+            return true;
+        } catch (STenantIdNotSetException e) {
+            return false;
+        }
+    }
+
     @Override
     public boolean isStopped() {
         // the executor must handle elements when it's shutting down
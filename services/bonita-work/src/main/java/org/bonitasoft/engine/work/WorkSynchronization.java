@@ -14,10 +14,13 @@
 package org.bonitasoft.engine.work;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import javax.transaction.Status;
 
+import io.micrometer.core.instrument.DistributionSummary;
 import org.bonitasoft.engine.sessionaccessor.STenantIdNotSetException;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
 import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
@@ -25,23 +28,30 @@ import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Collect the works registered by a transaction, and submit them all at once, in the order they were registered, when
+ * the transaction commits.
+ */
 public class WorkSynchronization implements BonitaTransactionSynchronization {
 
     private static final Logger LOG = LoggerFactory.getLogger(WorkSynchronization.class);
 
-    private final WorkDescriptor work;
+    private final List<WorkDescriptor> works = new ArrayList<>();
 
     private final WorkExecutorService workExecutorService;
 
     private long tenantId;
     private UserTransactionService transactionService;
     private int workDelayOnMultipleXAResource;
+    private final DistributionSummary worksPerTransaction;
+    private volatile boolean completed;
 
     WorkSynchronization(final UserTransactionService transactionService, final WorkExecutorService workExecutorService,
-            final SessionAccessor sessionAccessor,
-            WorkDescriptor work, int workDelayOnMultipleXAResource) {
+            final SessionAccessor sessionAccessor, int workDelayOnMultipleXAResource,
+            DistributionSummary worksPerTransaction) {
         this.transactionService = transactionService;
         this.workDelayOnMultipleXAResource = workDelayOnMultipleXAResource;
+        this.worksPerTransaction = worksPerTransaction;
         try {
             // Instead of doing this which is not so clear using sessionAccessor, we should add the tenantId as a parameter of the class
             tenantId = sessionAccessor.getTenantId();
@@ -49,29 +59,47 @@ public class WorkSynchronization implements BonitaTransactionSynchronization {
             // We are not in a tenant
             tenantId = -1L;
         }
-        this.work = work;
         this.workExecutorService = workExecutorService;
     }
 
-    WorkDescriptor getWork() {
-        return work;
+    void addWork(WorkDescriptor work) {
+        works.add(work);
+    }
+
+    List<WorkDescriptor> getWorks() {
+        return works;
+    }
+
+    /**
+     * @return true once the transaction is completed: works can not be added anymore
+     */
+    boolean isCompleted() {
+        return completed;
     }
 
     @Override
     public void afterCompletion(final int transactionStatus) {
+        completed = true;
         if (Status.STATUS_COMMITTED == transactionStatus) {
-            work.setTenantId(tenantId);
+            worksPerTransaction.record(works.size());
+            Instant mustBeExecutedAfter = null;
             if (workDelayOnMultipleXAResource > 0) {
                 Optional<Boolean> hasMultipleResources = transactionService.hasMultipleResources();
                 // to be safe, if we are unable to know if there are multiple resources, we add the delay anyway.
                 if (!hasMultipleResources.isPresent() || hasMultipleResources.get()) {
-                    work.mustBeExecutedAfter(Instant.now().plusMillis(workDelayOnMultipleXAResource));
+                    mustBeExecutedAfter = Instant.now().plusMillis(workDelayOnMultipleXAResource);
+                }
+            }
+            for (WorkDescriptor work : works) {
+                work.setTenantId(tenantId);
+                if (mustBeExecutedAfter != null) {
+                    work.mustBeExecutedAfter(mustBeExecutedAfter);
                 }
             }
-            workExecutorService.execute(work);
+            workExecutorService.execute(works);
         } else {
-            LOG.debug("Transaction completion with state {} != COMMITTED. Not triggering the work: {}",
-                    transactionStatus, work);
+            LOG.debug("Transaction completion with state {} != COMMITTED. Not triggering the works: {}",
+                    transactionStatus, works);
         }
     }
 
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.PersistentObjectId;
+import org.hibernate.annotations.Type;
+
+/**
+ * A work registered by a committed transaction, waiting in the durable work queue until it is executed.
+ */
+@Data
+@NoArgsConstructor
+@ToString(exclude = { "content" })
+@Entity
+@Table(name = "work_queue")
+@IdClass(PersistentObjectId.class)
+public class SWorkQueueEntry implements PersistentObject {
+
+    public static final String ID = "id";
+    public static final String UUID = "uuid";
+    public static final String LEASE_EXPIRY = "leaseExpiry";
+
+    @Id
+    private long id;
+    @Id
+    private long tenantId;
+    /**
+     * The uuid of the work descriptor
+     */
+    @Column
+    private String uuid;
+    @Column
+    private long creationDate;
+    /**
+     * The node executing the work, null when the work can be claimed by any node
+     */
+    @Column
+    private String leaseOwner;
+    /**
+     * Date after which the work can be claimed by any node, when its lease owner did not renew it
+     */
+    @Column
+    private long leaseExpiry;
+    /**
+     * The work descriptor, serialized
+     */
+    @Type(type = "materialized_blob")
+    private byte[] content;
+
+    public SWorkQueueEntry(String uuid, long creationDate, String leaseOwner, long leaseExpiry, byte[] content) {
+        this.uuid = uuid;
+        this.creationDate = creationDate;
+        this.leaseOwner = leaseOwner;
+        this.leaseExpiry = leaseExpiry;
+        this.content = content;
+    }
+
+}
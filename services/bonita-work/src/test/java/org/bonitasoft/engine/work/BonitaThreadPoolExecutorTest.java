@@ -108,6 +108,40 @@ public class BonitaThreadPoolExecutorTest {
         await().until(() -> workExecutionCallback.isOnSuccessCalled());
     }
 
+    @Test
+    public void should_keep_delayed_works_out_of_the_work_queue_until_they_are_due() throws Exception {
+        WorkDescriptor workDescriptor = WorkDescriptor.create("NORMAL");
+        workDescriptor.mustBeExecutedAfter(engineClock.now().plusMillis(300));
+
+        bonitaThreadPoolExecutor.submit(workDescriptor);
+
+        assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_DELAYED).gauge().value())
+                .as("Delayed works number").isEqualTo(1);
+        assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_PENDING).gauge().value())
+                .as("Pending works number").isEqualTo(0);
+        assertThat(workExecutionCallback.isOnSuccessCalled()).isFalse();
+
+        engineClock.addTime(1, SECONDS);
+        await().until(() -> workExecutionCallback.isOnSuccessCalled());
+        assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_DELAYED).gauge().value())
+                .as("Delayed works number").isEqualTo(0);
+    }
+
+    @Test
+    public void should_drop_delayed_works_when_queues_are_cleared() throws Exception {
+        WorkDescriptor workDescriptor = WorkDescriptor.create("NORMAL");
+        workDescriptor.mustBeExecutedAfter(engineClock.now().plusMillis(100));
+        bonitaThreadPoolExecutor.submit(workDescriptor);
+
+        bonitaThreadPoolExecutor.clearAllQueues();
+        engineClock.addTime(1, SECONDS);
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        assertThat(workExecutionCallback.isOnSuccessCalled()).isFalse();
+        assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_DELAYED).gauge().value())
+                .as("Delayed works number").isEqualTo(0);
+    }
+
     @Test
     public void should_update_meter_when_work_executes() {
         Gauge currentWorkQueue = meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_PENDING).gauge();
@@ -161,6 +195,32 @@ public class BonitaThreadPoolExecutorTest {
                 .tag("tenant", String.valueOf(TENANT_ID)).gauge()).isNotNull();
         assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_PENDING)
                 .tag("tenant", String.valueOf(TENANT_ID)).gauge()).isNotNull();
+        assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_DELAYED)
+                .tag("tenant", String.valueOf(TENANT_ID)).gauge()).isNotNull();
+    }
+
+    @Test
+    public void should_execute_works_of_a_same_process_instance_one_after_the_other_when_mailbox_is_enabled()
+            throws Exception {
+        bonitaThreadPoolExecutor.shutdownAndEmptyQueue();
+        bonitaThreadPoolExecutor = new BonitaThreadPoolExecutor(threadNumber, threadNumber //
+                , 1_000, TimeUnit.SECONDS //
+                , new ArrayBlockingQueue<>(1_000) //
+                , new WorkerThreadFactory("test-worker", 1, threadNumber) //
+                , (r, executor) -> {
+                } //
+                , workFactory, engineClock, workExecutionCallback, workExecutionAuditor,
+                meterRegistry, TENANT_ID, true);
+
+        bonitaThreadPoolExecutor.submit(WorkDescriptor.create("SLEEP").withParameter("processInstanceId", 42L));
+        bonitaThreadPoolExecutor.submit(WorkDescriptor.create("SLEEP").withParameter("processInstanceId", 42L));
+        bonitaThreadPoolExecutor.submit(WorkDescriptor.create("SLEEP").withParameter("processInstanceId", 43L));
+        TimeUnit.MILLISECONDS.sleep(50); // give some time to the executor to process the work
+
+        assertThat(meterRegistry.find(BonitaThreadPoolExecutor.NUMBER_OF_WORKS_RUNNING).gauge().value())
+                .as("Running works number").isEqualTo(2);
+        assertThat(meterRegistry.find(ProcessInstanceMailboxes.NUMBER_OF_WORKS_IN_MAILBOXES).gauge().value())
+                .as("Works waiting in mailboxes").isEqualTo(1);
     }
 
     @Test
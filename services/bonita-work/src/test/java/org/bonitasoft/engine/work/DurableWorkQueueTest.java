@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.bonitasoft.engine.work.model.SWorkQueueEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class DurableWorkQueueTest {
+
+    private static final long TENANT_ID = 12L;
+
+    @Mock
+    private PersistenceService persistenceService;
+    @Mock
+    private UserTransactionService transactionService;
+    @Mock
+    private SessionAccessor sessionAccessor;
+    @Mock
+    private WorkExecutorService workExecutorService;
+    private DurableWorkQueue durableWorkQueue;
+
+    @Before
+    public void before() throws Exception {
+        doAnswer(invocation -> ((Callable<?>) invocation.getArgument(0)).call()).when(transactionService)
+                .executeInTransaction(any());
+        doReturn(Collections.emptyList()).when(persistenceService).selectList(any());
+        durableWorkQueue = new DurableWorkQueue(persistenceService, transactionService, sessionAccessor,
+                new SimpleMeterRegistry(), TENANT_ID, true, 100, 2, "PT1M", 60_000);
+    }
+
+    @After
+    public void after() {
+        durableWorkQueue.stop(true);
+    }
+
+    @Test
+    public void should_serialize_and_deserialize_work_descriptors() throws Exception {
+        WorkDescriptor work = WorkDescriptor.create("MY_WORK").withParameter("processInstanceId", 5L);
+
+        WorkDescriptor deserialized = DurableWorkQueue.deserialize(DurableWorkQueue.serialize(work));
+
+        assertThat(deserialized).isEqualTo(work);
+    }
+
+    @Test
+    public void should_spill_works_to_the_queue_when_it_is_not_started() throws Exception {
+        boolean leased = durableWorkQueue.add(WorkDescriptor.create("MY_WORK"));
+
+        assertThat(leased).isFalse();
+        verify(persistenceService).insert(argThat((SWorkQueueEntry entry) -> entry.getLeaseOwner() == null
+                && entry.getLeaseExpiry() == 0));
+    }
+
+    @Test
+    public void should_lease_works_until_too_many_works_wait_in_memory() throws Exception {
+        durableWorkQueue.start(workExecutorService);
+
+        assertThat(addAndCommit(WorkDescriptor.create("WORK_1"))).isTrue();
+        assertThat(addAndCommit(WorkDescriptor.create("WORK_2"))).isTrue();
+        assertThat(addAndCommit(WorkDescriptor.create("WORK_3"))).isFalse();
+        verify(persistenceService, times(2)).insert(argThat((SWorkQueueEntry entry) -> entry.getLeaseOwner() != null
+                && entry.getLeaseExpiry() > System.currentTimeMillis()));
+    }
+
+    @Test
+    public void should_execute_works_claimed_from_the_queue() throws Exception {
+        WorkDescriptor work = WorkDescriptor.create("MY_WORK");
+        SWorkQueueEntry entry = new SWorkQueueEntry(work.getUuid(), System.currentTimeMillis(), null, 0,
+                DurableWorkQueue.serialize(work));
+        entry.setId(7L);
+        work.setTenantId(TENANT_ID);
+        doReturn(Collections.singletonList(7L)).when(persistenceService)
+                .selectList(argThat(descriptor -> descriptor != null
+                        && "getClaimableWorkQueueEntryIds".equals(descriptor.getQueryName())));
+        doReturn(Collections.singletonList(entry)).when(persistenceService)
+                .selectList(argThat(descriptor -> descriptor != null
+                        && "getWorkQueueEntriesOfLeaseOwner".equals(descriptor.getQueryName())));
+
+        durableWorkQueue.start(workExecutorService);
+
+        verify(workExecutorService, timeout(5000)).execute(work);
+        verify(persistenceService, timeout(5000)).update(eq("claimWorkQueueEntries"), anyMap());
+    }
+
+    @Test
+    public void should_remove_unreadable_works_without_blocking_the_next_ones() throws Exception {
+        SWorkQueueEntry unreadableEntry = new SWorkQueueEntry("unreadable", System.currentTimeMillis(), null, 0,
+                new byte[] { 1, 2, 3 });
+        unreadableEntry.setId(7L);
+        WorkDescriptor work = WorkDescriptor.create("MY_WORK");
+        SWorkQueueEntry entry = new SWorkQueueEntry(work.getUuid(), System.currentTimeMillis(), null, 0,
+                DurableWorkQueue.serialize(work));
+        entry.setId(8L);
+        work.setTenantId(TENANT_ID);
+        doReturn(Arrays.asList(7L, 8L)).when(persistenceService)
+                .selectList(argThat(descriptor -> descriptor != null
+                        && "getClaimableWorkQueueEntryIds".equals(descriptor.getQueryName())));
+        doReturn(Arrays.asList(unreadableEntry, entry)).when(persistenceService)
+                .selectList(argThat(descriptor -> descriptor != null
+                        && "getWorkQueueEntriesOfLeaseOwner".equals(descriptor.getQueryName())));
+
+        durableWorkQueue.start(workExecutorService);
+
+        verify(workExecutorService, timeout(5000)).execute(work);
+        verify(persistenceService, timeout(5000)).update("deleteWorkQueueEntries",
+                Collections.singletonMap("uuids", Collections.singletonList("unreadable")));
+    }
+
+    @Test
+    public void should_delete_executed_works_and_release_the_others_when_stopped() throws Exception {
+        durableWorkQueue.start(workExecutorService);
+        WorkDescriptor executedWork = WorkDescriptor.create("WORK_1");
+        addAndCommit(executedWork);
+        addAndCommit(WorkDescriptor.create("WORK_2"));
+        durableWorkQueue.executed(executedWork);
+
+        durableWorkQueue.stop(true);
+
+        verify(persistenceService).update("deleteWorkQueueEntries",
+                Collections.singletonMap("uuids", Collections.singletonList(executedWork.getUuid())));
+        verify(persistenceService).update(eq("releaseWorkQueueLeases"), anyMap());
+    }
+
+    @Test
+    public void should_keep_the_leases_when_stopped_while_works_are_still_running() throws Exception {
+        durableWorkQueue.start(workExecutorService);
+        addAndCommit(WorkDescriptor.create("WORK_1"));
+
+        durableWorkQueue.stop(false);
+
+        verify(persistenceService, never()).update(eq("releaseWorkQueueLeases"), anyMap());
+    }
+
+    @Test
+    public void should_delete_works_executed_before_the_synchronization_of_their_transaction() throws Exception {
+        durableWorkQueue.start(workExecutorService);
+        WorkDescriptor work = WorkDescriptor.create("WORK_1");
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        durableWorkQueue.add(work);
+        verify(transactionService).registerBonitaSynchronization(synchronization.capture());
+
+        // the work synchronization of the transaction runs first
+        durableWorkQueue.executed(work);
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        durableWorkQueue.stop(true);
+
+        verify(persistenceService).update("deleteWorkQueueEntries",
+                Collections.singletonMap("uuids", Collections.singletonList(work.getUuid())));
+    }
+
+    @Test
+    public void should_not_keep_works_of_rolled_back_transactions_in_memory() throws Exception {
+        durableWorkQueue.start(workExecutorService);
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        durableWorkQueue.add(WorkDescriptor.create("WORK_1"));
+        durableWorkQueue.add(WorkDescriptor.create("WORK_2"));
+        verify(transactionService, times(2)).registerBonitaSynchronization(synchronization.capture());
+
+        synchronization.getAllValues().forEach(s -> s.afterCompletion(Status.STATUS_ROLLEDBACK));
+
+        assertThat(addAndCommit(WorkDescriptor.create("WORK_3"))).isTrue();
+    }
+
+    private boolean addAndCommit(WorkDescriptor work) throws Exception {
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        boolean leased = durableWorkQueue.add(work);
+        verify(transactionService, atLeastOnce()).registerBonitaSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        return leased;
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2024 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessInstanceMailboxesTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExecutorService executor;
+    private ProcessInstanceMailboxes mailboxes;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+        mailboxes = new ProcessInstanceMailboxes(executor, meterRegistry, Tags.of("tenant", "1"));
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void should_never_execute_two_works_of_the_same_process_instance_concurrently() {
+        AtomicInteger concurrentExecutions = new AtomicInteger();
+        AtomicInteger maxConcurrentExecutions = new AtomicInteger();
+        List<Integer> executionOrder = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            int index = i;
+            submit(42L, () -> {
+                maxConcurrentExecutions.accumulateAndGet(concurrentExecutions.incrementAndGet(), Math::max);
+                sleep(2);
+                executionOrder.add(index);
+                concurrentExecutions.decrementAndGet();
+            });
+        }
+
+        await().until(() -> executionOrder.size() == 20);
+        assertThat(maxConcurrentExecutions.get()).isEqualTo(1);
+        assertThat(executionOrder).isSorted();
+    }
+
+    @Test
+    public void should_execute_works_of_different_process_instances_in_parallel() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        submit(1L, () -> awaitOther(bothStarted, release));
+        submit(2L, () -> awaitOther(bothStarted, release));
+
+        assertThat(bothStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    public void should_count_works_waiting_in_mailboxes_and_serialized_works() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executed = new AtomicInteger();
+
+        submit(42L, () -> {
+            awaitLatch(release);
+            executed.incrementAndGet();
+        });
+        submit(42L, executed::incrementAndGet);
+        submit(42L, executed::incrementAndGet);
+
+        assertThat(meterRegistry.find(ProcessInstanceMailboxes.NUMBER_OF_WORKS_IN_MAILBOXES).gauge().value())
+                .isEqualTo(2);
+        assertThat(meterRegistry.find(ProcessInstanceMailboxes.NUMBER_OF_ACTIVE_MAILBOXES).gauge().value())
+                .isEqualTo(1);
+        assertThat(meterRegistry.find(ProcessInstanceMailboxes.NUMBER_OF_WORKS_SERIALIZED).counter().count())
+                .isEqualTo(2);
+
+        release.countDown();
+        await().until(() -> executed.get() == 3);
+        await().until(() -> meterRegistry.find(ProcessInstanceMailboxes.NUMBER_OF_ACTIVE_MAILBOXES).gauge()
+                .value() == 0);
+        assertThat(meterRegistry.find(ProcessInstanceMailboxes.NUMBER_OF_WORKS_IN_MAILBOXES).gauge().value())
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void should_release_the_mailbox_when_the_executor_rejects_the_work() {
+        mailboxes = new ProcessInstanceMailboxes(task -> {
+            throw new RejectedExecutionException("full");
+        }, meterRegistry, Tags.of("tenant", "2"));
+
+        assertThatThrownBy(() -> submit(42L, () -> {
+        })).isInstanceOf(RejectedExecutionException.class);
+
+        assertThat(meterRegistry.find(ProcessInstanceMailboxes.NUMBER_OF_ACTIVE_MAILBOXES).tag("tenant", "2")
+                .gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_abandon_waiting_works_without_failing_the_running_one_when_the_hand_over_is_rejected()
+            throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger handedOver = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        Thread[] worker = { null };
+        Throwable[] workerFailure = { null };
+        // the first work is executed, the hand-over to the next one is rejected
+        mailboxes = new ProcessInstanceMailboxes(task -> {
+            if (handedOver.getAndIncrement() > 0) {
+                throw new RejectedExecutionException("full");
+            }
+            worker[0] = new Thread(task);
+            worker[0].setUncaughtExceptionHandler((thread, e) -> workerFailure[0] = e);
+            worker[0].start();
+        }, meterRegistry, Tags.of("tenant", "3"));
+        List<String> abandonedWorks = new CopyOnWriteArrayList<>();
+
+        mailboxes.submit(42L, () -> {
+            awaitLatch(release);
+            completed.incrementAndGet();
+        }, e -> abandonedWorks.add("first"));
+        mailboxes.submit(42L, completed::incrementAndGet, e -> abandonedWorks.add("second"));
+        mailboxes.submit(42L, completed::incrementAndGet, e -> abandonedWorks.add("third"));
+        release.countDown();
+        worker[0].join(5000);
+
+        assertThat(completed.get()).isEqualTo(1);
+        assertThat(abandonedWorks).containsExactlyInAnyOrder("second", "third");
+        assertThat(workerFailure[0]).isNull();
+        assertThat(meterRegistry.find(ProcessInstanceMailboxes.NUMBER_OF_ACTIVE_MAILBOXES).tag("tenant", "3")
+                .gauge().value()).isEqualTo(0);
+        assertThat(meterRegistry.find(ProcessInstanceMailboxes.NUMBER_OF_WORKS_IN_MAILBOXES).tag("tenant", "3")
+                .gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_only_use_positive_process_instance_id_as_mailbox_key() {
+        assertThat(ProcessInstanceMailboxes.getProcessInstanceId(WorkDescriptor.create("WORK"))).isNull();
+        assertThat(ProcessInstanceMailboxes.getProcessInstanceId(WorkDescriptor.create("WORK")
+                .withParameter("processInstanceId", -1L))).isNull();
+        assertThat(ProcessInstanceMailboxes.getProcessInstanceId(WorkDescriptor.create("WORK")
+                .withParameter("processInstanceId", 12L))).isEqualTo(12L);
+    }
+
+    @Test
+    public void should_remove_meters() {
+        mailboxes.removeMeters();
+
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    private void submit(long processInstanceId, Runnable task) {
+        mailboxes.submit(processInstanceId, task, e -> {
+            throw new IllegalStateException("Work abandoned", e);
+        });
+    }
+
+    private static void awaitOther(CountDownLatch bothStarted, CountDownLatch release) {
+        bothStarted.countDown();
+        awaitLatch(release);
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
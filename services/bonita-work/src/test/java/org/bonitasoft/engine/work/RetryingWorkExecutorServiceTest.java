@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.work;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.engine.work.ExceptionRetryabilityEvaluator.Retryability.*;
@@ -73,6 +74,8 @@ public class RetryingWorkExecutorServiceTest {
     private IncidentService incidentService;
     @Mock(lenient = true)
     private ExceptionRetryabilityEvaluator retryabilityEvaluator;
+    @Mock
+    private DurableWorkQueue durableWorkQueue;
     private final FixedEngineClock engineClock = new FixedEngineClock(Instant.EPOCH);
 
     private final MeterRegistry meterRegistry = new SimpleMeterRegistry(
@@ -90,7 +93,7 @@ public class RetryingWorkExecutorServiceTest {
         workExecutorService = new RetryingWorkExecutorService(
                 bonitaExecutorServiceFactory, engineClock, WORK_TERMINATION_TIMEOUT, MAX_RETRY, DELAY, DELAY_FACTOR,
                 retryabilityEvaluator,
-                workExecutionAuditor, meterRegistry, incidentService, TENANT_ID);
+                workExecutionAuditor, meterRegistry, incidentService, durableWorkQueue, TENANT_ID);
         doReturn(true).when(bonitaExecutorService).awaitTermination(anyLong(), any(TimeUnit.class));
         workExecutorService.start();
     }
@@ -103,6 +106,26 @@ public class RetryingWorkExecutorServiceTest {
         verify(bonitaExecutorService).submit(eq(workDescriptor));
     }
 
+    @Test
+    public void should_submit_works_of_a_transaction_on_the_executor_in_order() throws Exception {
+        WorkDescriptor otherWorkDescriptor = WorkDescriptor.create("OTHER");
+
+        workExecutorService.execute(asList(workDescriptor, otherWorkDescriptor));
+
+        InOrder inOrder = inOrder(bonitaExecutorService);
+        inOrder.verify(bonitaExecutorService).submit(workDescriptor);
+        inOrder.verify(bonitaExecutorService).submit(otherWorkDescriptor);
+    }
+
+    @Test
+    public void should_not_submit_works_of_a_transaction_when_stopped() throws Exception {
+        workExecutorService.stop();
+
+        workExecutorService.execute(asList(workDescriptor, WorkDescriptor.create("OTHER")));
+
+        verify(bonitaExecutorService, never()).submit(any());
+    }
+
     @Test
     public void should_pause_shutdown_ThreadPool_and_clear_queue() throws InterruptedException, SBonitaException {
         final InOrder inOrder = inOrder(bonitaExecutorService);
@@ -118,6 +141,47 @@ public class RetryingWorkExecutorServiceTest {
         inOrder.verify(bonitaExecutorService).awaitTermination(anyLong(), any(TimeUnit.class));
     }
 
+    @Test
+    public void should_start_and_stop_the_durable_work_queue_after_the_thread_pool() throws Exception {
+        final InOrder inOrder = inOrder(bonitaExecutorService, durableWorkQueue);
+
+        workExecutorService.stop();
+
+        verify(durableWorkQueue).start(workExecutorService);
+        inOrder.verify(bonitaExecutorService).awaitTermination(anyLong(), any(TimeUnit.class));
+        inOrder.verify(durableWorkQueue).stop(true);
+    }
+
+    @Test
+    public void should_keep_the_leases_of_the_durable_work_queue_when_works_are_still_running() throws Exception {
+        doReturn(false).when(bonitaExecutorService).awaitTermination(anyLong(), any(TimeUnit.class));
+
+        workExecutorService.stop();
+
+        verify(durableWorkQueue).stop(false);
+    }
+
+    @Test
+    public void should_remove_successful_works_from_the_durable_work_queue() {
+        workExecutorService.onSuccess(workDescriptor);
+
+        verify(durableWorkQueue).executed(workDescriptor);
+    }
+
+    @Test
+    public void should_remove_failed_works_from_the_durable_work_queue() throws Exception {
+        workExecutorService.onFailure(workDescriptor, bonitaWork, emptyMap(), new Exception("not retryable"));
+
+        verify(durableWorkQueue).executed(workDescriptor);
+    }
+
+    @Test
+    public void should_not_remove_retried_works_from_the_durable_work_queue() {
+        workExecutorService.onFailure(workDescriptor, bonitaWork, emptyMap(), new SRetryableException("retryable"));
+
+        verify(durableWorkQueue, never()).executed(workDescriptor);
+    }
+
     @Test
     public void should_stop_shutdown_ThreadPool_and_not_clear_queue() throws InterruptedException {
         final InOrder inOrder = inOrder(bonitaExecutorService);
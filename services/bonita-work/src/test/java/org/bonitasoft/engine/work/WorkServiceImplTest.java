@@ -13,19 +13,31 @@
  **/
 package org.bonitasoft.engine.work;
 
+import static java.util.Arrays.asList;
+import static javax.transaction.Status.STATUS_COMMITTED;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.commons.time.EngineClock;
+import org.bonitasoft.engine.services.PersistenceService;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
 import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -41,12 +53,16 @@ public class WorkServiceImplTest {
     private WorkExecutorService workExecutorService;
     @Mock
     private EngineClock engineClock;
+    @Mock
+    private DurableWorkQueue durableWorkQueue;
+    @Mock
+    private PersistenceService persistenceService;
 
     @Before
     public void before() throws Exception {
         doReturn(1L).when(sessionAccessor).getTenantId();
         workService = new WorkServiceImpl(transactionService, sessionAccessor, workExecutorService,
-                engineClock, 0);
+                engineClock, durableWorkQueue, new SimpleMeterRegistry(), 1L, 0);
     }
 
     @Test
@@ -65,7 +81,7 @@ public class WorkServiceImplTest {
     }
 
     @Test
-    public void should_register_a_new_synchronization_for_each_work() throws SBonitaException {
+    public void should_register_a_single_synchronization_for_all_works_of_the_transaction() throws SBonitaException {
         // given
         WorkDescriptor workDescriptor1 = WorkDescriptor.create("MY_WORK1");
         WorkDescriptor workDescriptor2 = WorkDescriptor.create("MY_WORK2");
@@ -76,9 +92,100 @@ public class WorkServiceImplTest {
 
         // then
         verify(transactionService).registerBonitaSynchronization(
-                argThat(s -> ((WorkSynchronization) s).getWork().getType().equals("MY_WORK1")));
+                argThat(s -> ((WorkSynchronization) s).getWorks().equals(asList(workDescriptor1, workDescriptor2))));
+    }
+
+    @Test
+    public void should_register_a_new_synchronization_once_the_transaction_is_completed() throws SBonitaException {
+        // given
+        WorkDescriptor workDescriptor1 = WorkDescriptor.create("MY_WORK1");
+        WorkDescriptor workDescriptor2 = WorkDescriptor.create("MY_WORK2");
+        workService.registerWork(workDescriptor1);
+        ArgumentCaptor<BonitaTransactionSynchronization> synchronization = ArgumentCaptor
+                .forClass(BonitaTransactionSynchronization.class);
+        verify(transactionService).registerBonitaSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(STATUS_COMMITTED);
+
+        // when
+        workService.registerWork(workDescriptor2);
+
+        // then
+        verify(workExecutorService).execute(asList(workDescriptor1));
         verify(transactionService).registerBonitaSynchronization(
-                argThat(s -> ((WorkSynchronization) s).getWork().getType().equals("MY_WORK2")));
+                argThat(s -> ((WorkSynchronization) s).getWorks().equals(asList(workDescriptor2))));
+    }
+
+    @Test
+    public void should_not_keep_the_synchronization_when_there_is_no_transaction() throws SBonitaException {
+        WorkDescriptor workDescriptor1 = WorkDescriptor.create("MY_WORK1");
+        WorkDescriptor workDescriptor2 = WorkDescriptor.create("MY_WORK2");
+        doThrow(new STransactionNotFoundException("no transaction")).doNothing()
+                .when(transactionService).registerBonitaSynchronization(any());
+
+        assertThatThrownBy(() -> workService.registerWork(workDescriptor1))
+                .isInstanceOf(SWorkRegisterException.class);
+        workService.registerWork(workDescriptor2);
+
+        verify(transactionService, times(2)).registerBonitaSynchronization(any());
     }
 
+    @Test
+    public void should_add_work_to_the_durable_work_queue_and_execute_it_on_commit() throws Exception {
+        doReturn(true).when(durableWorkQueue).isEnabled();
+        WorkDescriptor workDescriptor = WorkDescriptor.create("MY_WORK");
+        doReturn(true).when(durableWorkQueue).add(workDescriptor);
+
+        workService.registerWork(workDescriptor);
+
+        verify(transactionService).registerBonitaSynchronization(
+                argThat(s -> ((WorkSynchronization) s).getWorks().equals(asList(workDescriptor))));
+    }
+
+    @Test
+    public void should_delete_from_the_durable_work_queue_all_works_of_a_transaction_once_executed()
+            throws Exception {
+        doAnswer(invocation -> ((Callable<?>) invocation.getArgument(0)).call()).when(transactionService)
+                .executeInTransaction(any());
+        lenient().doReturn(Collections.emptyList()).when(persistenceService).selectList(any());
+        DurableWorkQueue realDurableWorkQueue = new DurableWorkQueue(persistenceService, transactionService,
+                sessionAccessor, new SimpleMeterRegistry(), 1L, true, 100, 10, "PT1M", 60_000);
+        workService = new WorkServiceImpl(transactionService, sessionAccessor, workExecutorService,
+                engineClock, realDurableWorkQueue, new SimpleMeterRegistry(), 1L, 0);
+        doAnswer(invocation -> {
+            List<WorkDescriptor> works = invocation.getArgument(0);
+            works.forEach(realDurableWorkQueue::executed);
+            return null;
+        }).when(workExecutorService).execute(anyList());
+        WorkDescriptor workDescriptor1 = WorkDescriptor.create("MY_WORK1");
+        WorkDescriptor workDescriptor2 = WorkDescriptor.create("MY_WORK2");
+        realDurableWorkQueue.start(workExecutorService);
+        try {
+            workService.registerWork(workDescriptor1);
+            workService.registerWork(workDescriptor2);
+            ArgumentCaptor<BonitaTransactionSynchronization> synchronizations = ArgumentCaptor
+                    .forClass(BonitaTransactionSynchronization.class);
+            verify(transactionService, times(3)).registerBonitaSynchronization(synchronizations.capture());
+            // the synchronizations are called in registration order: the one of the second work of the durable
+            // queue is called after the one executing the works
+            synchronizations.getAllValues().forEach(s -> s.afterCompletion(STATUS_COMMITTED));
+        } finally {
+            realDurableWorkQueue.stop(true);
+        }
+
+        ArgumentCaptor<Map<String, Object>> deleted = ArgumentCaptor.forClass(Map.class);
+        verify(persistenceService, atLeastOnce()).update(eq("deleteWorkQueueEntries"), deleted.capture());
+        assertThat(deleted.getAllValues()).flatExtracting(parameters -> (List<?>) parameters.get("uuids"))
+                .containsExactlyInAnyOrder(workDescriptor1.getUuid(), workDescriptor2.getUuid());
+    }
+
+    @Test
+    public void should_not_execute_on_commit_a_work_spilled_to_the_durable_work_queue() throws Exception {
+        doReturn(true).when(durableWorkQueue).isEnabled();
+        WorkDescriptor workDescriptor = WorkDescriptor.create("MY_WORK");
+        doReturn(false).when(durableWorkQueue).add(workDescriptor);
+
+        workService.registerWork(workDescriptor);
+
+        verify(transactionService, never()).registerBonitaSynchronization(any());
+    }
 }
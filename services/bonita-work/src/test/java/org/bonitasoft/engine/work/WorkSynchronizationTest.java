@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.work;
 
+import static java.util.Arrays.asList;
 import static javax.transaction.Status.STATUS_COMMITTED;
 import static javax.transaction.Status.STATUS_ROLLEDBACK;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -20,6 +21,8 @@ import static org.mockito.Mockito.*;
 
 import java.util.Optional;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
 import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.junit.Test;
@@ -40,74 +43,89 @@ public class WorkSynchronizationTest {
     @Mock
     private UserTransactionService userTransactionService;
 
+    private final DistributionSummary worksPerTransaction = DistributionSummary.builder("works")
+            .register(new SimpleMeterRegistry());
     private final WorkDescriptor workDescriptor1 = WorkDescriptor.create("myWork1");
+    private final WorkDescriptor workDescriptor2 = WorkDescriptor.create("myWork2");
 
     @Test
     public void should_submit_work_on_commit() {
-        WorkSynchronization workSynchronization = new WorkSynchronization(userTransactionService, workExecutorService,
-                sessionAccessor,
-                workDescriptor1, 0);
+        WorkSynchronization workSynchronization = createSynchronization(0, workDescriptor1);
 
         workSynchronization.afterCompletion(STATUS_COMMITTED);
 
-        verify(workExecutorService).execute(workDescriptor1);
+        verify(workExecutorService).execute(asList(workDescriptor1));
+    }
+
+    @Test
+    public void should_submit_all_works_of_the_transaction_at_once_in_registration_order() {
+        WorkSynchronization workSynchronization = createSynchronization(0, workDescriptor2, workDescriptor1);
+
+        workSynchronization.afterCompletion(STATUS_COMMITTED);
+
+        verify(workExecutorService).execute(asList(workDescriptor2, workDescriptor1));
+        assertThat(worksPerTransaction.count()).isEqualTo(1);
+        assertThat(worksPerTransaction.totalAmount()).isEqualTo(2);
     }
 
     @Test
     public void should_not_submit_work_on_transaction_not_in_committed_state() {
-        WorkSynchronization workSynchronization = new WorkSynchronization(userTransactionService, workExecutorService,
-                sessionAccessor,
-                workDescriptor1, 0);
+        WorkSynchronization workSynchronization = createSynchronization(0, workDescriptor1);
         workSynchronization.afterCompletion(STATUS_ROLLEDBACK);
 
-        verify(workExecutorService, never()).execute(workDescriptor1);
+        verify(workExecutorService, never()).execute(any(WorkDescriptor.class));
+        verify(workExecutorService, never()).execute(anyList());
+        assertThat(workSynchronization.isCompleted()).isTrue();
     }
 
     @Test
     public void should_not_add_delay_when_the_workDelayOnMultipleXAResource_equal_0() {
-        WorkSynchronization workSynchronization = new WorkSynchronization(userTransactionService, workExecutorService,
-                sessionAccessor,
-                workDescriptor1, 0);
+        WorkSynchronization workSynchronization = createSynchronization(0, workDescriptor1);
 
         workSynchronization.afterCompletion(STATUS_COMMITTED);
         assertThat(workDescriptor1.getExecutionThreshold()).isNull();
-        verify(workExecutorService).execute(workDescriptor1);
+        verify(workExecutorService).execute(asList(workDescriptor1));
     }
 
     @Test
     public void should_add_delay_when_the_workDelayOnMultipleXAResource_greater_than_0_and_multiple_resources() {
-        WorkSynchronization workSynchronization = new WorkSynchronization(userTransactionService, workExecutorService,
-                sessionAccessor,
-                workDescriptor1, 10);
+        WorkSynchronization workSynchronization = createSynchronization(10, workDescriptor1, workDescriptor2);
         when(userTransactionService.hasMultipleResources()).thenReturn(Optional.of(true));
 
         workSynchronization.afterCompletion(STATUS_COMMITTED);
         assertThat(workDescriptor1.getExecutionThreshold()).isNotNull();
-        verify(workExecutorService).execute(workDescriptor1);
+        assertThat(workDescriptor2.getExecutionThreshold()).isNotNull();
+        verify(userTransactionService, times(1)).hasMultipleResources();
+        verify(workExecutorService).execute(asList(workDescriptor1, workDescriptor2));
     }
 
     @Test
     public void should_not_add_delay_when_the_workDelayOnMultipleXAResource_greater_than_0_and_no_multiple_resources() {
-        WorkSynchronization workSynchronization = new WorkSynchronization(userTransactionService, workExecutorService,
-                sessionAccessor,
-                workDescriptor1, 10);
+        WorkSynchronization workSynchronization = createSynchronization(10, workDescriptor1);
         when(userTransactionService.hasMultipleResources()).thenReturn(Optional.of(false));
 
         workSynchronization.afterCompletion(STATUS_COMMITTED);
         assertThat(workDescriptor1.getExecutionThreshold()).isNull();
-        verify(workExecutorService).execute(workDescriptor1);
+        verify(workExecutorService).execute(asList(workDescriptor1));
     }
 
     @Test
     public void should_add_delay_when_the_workDelayOnMultipleXAResource_greater_than_0_and_multiple_resources_not_defined() {
-        WorkSynchronization workSynchronization = new WorkSynchronization(userTransactionService, workExecutorService,
-                sessionAccessor,
-                workDescriptor1, 10);
+        WorkSynchronization workSynchronization = createSynchronization(10, workDescriptor1);
         when(userTransactionService.hasMultipleResources()).thenReturn(Optional.empty());
 
         workSynchronization.afterCompletion(STATUS_COMMITTED);
         assertThat(workDescriptor1.getExecutionThreshold()).isNotNull();
-        verify(workExecutorService).execute(workDescriptor1);
+        verify(workExecutorService).execute(asList(workDescriptor1));
+    }
+
+    private WorkSynchronization createSynchronization(int workDelayOnMultipleXAResource, WorkDescriptor... works) {
+        WorkSynchronization workSynchronization = new WorkSynchronization(userTransactionService,
+                workExecutorService, sessionAccessor, workDelayOnMultipleXAResource, worksPerTransaction);
+        for (WorkDescriptor work : works) {
+            workSynchronization.addWork(work);
+        }
+        return workSynchronization;
     }
 
 }